@@ -19,6 +19,8 @@
  */
 package org.sonar.ce.monitoring;
 
+import org.sonar.ce.queue.CeQueueLane;
+
 public interface CEQueueStatus {
 
   /**
@@ -85,4 +87,31 @@ public interface CEQueueStatus {
    * Time spent processing batch reports since startup, in milliseconds.
    */
   long getProcessingTime();
+
+  /**
+   * Records the time the task which processing starts has been waiting in queue.
+   *
+   * @param lane lane of the task in queue
+   * @param waitTime duration of wait in ms
+   *
+   * @throws IllegalArgumentException if waitTime is < 0
+   */
+  void addWaitTime(CeQueueLane lane, long waitTime);
+
+  /**
+   * Percentile of the time the most recently started tasks have been waiting in queue, in milliseconds. Returns 0 if
+   * no task started since startup.
+   *
+   * @param percentile between 0 (excluded) and 100 (included)
+   *
+   * @throws IllegalArgumentException if percentile is not in range ]0,100]
+   */
+  long getWaitTimePercentile(int percentile);
+
+  /**
+   * Same as {@link #getWaitTimePercentile(int)} for the tasks of the specified lane only.
+   *
+   * @throws IllegalArgumentException if percentile is not in range ]0,100]
+   */
+  long getWaitTimePercentile(CeQueueLane lane, int percentile);
 }
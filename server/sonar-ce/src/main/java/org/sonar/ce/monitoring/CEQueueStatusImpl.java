@@ -19,7 +19,11 @@
  */
 package org.sonar.ce.monitoring;
 
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
+import org.sonar.ce.queue.CeQueueLane;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.ce.CeQueueDto;
@@ -27,15 +31,24 @@ import org.sonar.db.ce.CeQueueDto;
 import static com.google.common.base.Preconditions.checkArgument;
 
 public class CEQueueStatusImpl implements CEQueueStatus {
+  /**
+   * Number of most recent wait times kept to compute percentiles
+   */
+  private static final int WAIT_TIME_SAMPLES = 1_000;
 
   private final DbClient dbClient;
   private final AtomicLong inProgress = new AtomicLong(0);
   private final AtomicLong error = new AtomicLong(0);
   private final AtomicLong success = new AtomicLong(0);
   private final AtomicLong processingTime = new AtomicLong(0);
+  private final WaitTimes waitTimes = new WaitTimes();
+  private final Map<CeQueueLane, WaitTimes> waitTimesByLane = new EnumMap<>(CeQueueLane.class);
 
   public CEQueueStatusImpl(DbClient dbClient) {
     this.dbClient = dbClient;
+    for (CeQueueLane lane : CeQueueLane.values()) {
+      waitTimesByLane.put(lane, new WaitTimes());
+    }
   }
 
   @Override
@@ -88,4 +101,50 @@ public class CEQueueStatusImpl implements CEQueueStatus {
   public long getProcessingTime() {
     return processingTime.get();
   }
+
+  @Override
+  public void addWaitTime(CeQueueLane lane, long waitTimeInMs) {
+    checkArgument(waitTimeInMs >= 0, "Wait time can not be < 0");
+    waitTimes.add(waitTimeInMs);
+    waitTimesByLane.get(lane).add(waitTimeInMs);
+  }
+
+  @Override
+  public long getWaitTimePercentile(int percentile) {
+    checkArgument(percentile > 0 && percentile <= 100, "Percentile must be > 0 and <= 100");
+    return waitTimes.getPercentile(percentile);
+  }
+
+  @Override
+  public long getWaitTimePercentile(CeQueueLane lane, int percentile) {
+    checkArgument(percentile > 0 && percentile <= 100, "Percentile must be > 0 and <= 100");
+    return waitTimesByLane.get(lane).getPercentile(percentile);
+  }
+
+  /**
+   * Ring buffer of the most recent wait times
+   */
+  private static class WaitTimes {
+    private final long[] samples = new long[WAIT_TIME_SAMPLES];
+    private int count = 0;
+
+    synchronized void add(long waitTimeInMs) {
+      samples[count % WAIT_TIME_SAMPLES] = waitTimeInMs;
+      count++;
+    }
+
+    long getPercentile(int percentile) {
+      long[] sorted;
+      synchronized (this) {
+        sorted = Arrays.copyOf(samples, Math.min(count, WAIT_TIME_SAMPLES));
+      }
+      if (sorted.length == 0) {
+        return 0;
+      }
+      Arrays.sort(sorted);
+      // nearest-rank method
+      int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+      return sorted[rank - 1];
+    }
+  }
 }
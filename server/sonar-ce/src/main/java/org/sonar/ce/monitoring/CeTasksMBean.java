@@ -48,6 +48,67 @@ public interface CeTasksMBean {
    */
   long getProcessingTime();
 
+  /**
+   * Median of the time the most recently started tasks have been waiting in queue, in milliseconds
+   */
+  long getWaitTimeMedian();
+
+  /**
+   * 95th percentile of the time the most recently started tasks have been waiting in queue, in milliseconds
+   */
+  long getWaitTime95thPercentile();
+
+  /**
+   * 99th percentile of the time the most recently started tasks have been waiting in queue, in milliseconds
+   */
+  long getWaitTime99thPercentile();
+
+  /**
+   * Median of the time the most recently started tasks of the priority lane (main and short-lived branches) have been
+   * waiting in queue, in milliseconds
+   */
+  long getPriorityLaneWaitTimeMedian();
+
+  /**
+   * 95th percentile of the time the most recently started tasks of the priority lane (main and short-lived branches)
+   * have been waiting in queue, in milliseconds
+   */
+  long getPriorityLaneWaitTime95thPercentile();
+
+  /**
+   * Median of the time the most recently started tasks on long-lived branches have been waiting in queue, in
+   * milliseconds
+   */
+  long getLongLivedBranchesLaneWaitTimeMedian();
+
+  /**
+   * 95th percentile of the time the most recently started tasks on long-lived branches have been waiting in queue, in
+   * milliseconds
+   */
+  long getLongLivedBranchesLaneWaitTime95thPercentile();
+
+  /**
+   * CPU time consumed by the computation steps of the tasks processed since startup, in milliseconds.
+   */
+  long getCpuTime();
+
+  /**
+   * Heap memory allocated by the computation steps of the tasks processed since startup, in bytes.
+   */
+  long getAllocatedBytes();
+
+  /**
+   * Time spent by the computation steps of the tasks processed since startup in the execution of SQL statements,
+   * in milliseconds.
+   */
+  long getDbTime();
+
+  /**
+   * Projects which tasks consumed the most CPU time since startup, with their count of tasks, CPU time,
+   * allocated memory and database time, most expensive first.
+   */
+  String[] getMostExpensiveProjects();
+
   /**
    * Configured maximum number of workers.
    */
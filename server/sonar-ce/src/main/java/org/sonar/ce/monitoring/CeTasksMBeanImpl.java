@@ -19,19 +19,28 @@
  */
 package org.sonar.ce.monitoring;
 
+import java.util.Arrays;
 import org.picocontainer.Startable;
 import org.sonar.process.Jmx;
 import org.sonar.process.systeminfo.SystemInfoSection;
 import org.sonar.process.systeminfo.protobuf.ProtobufSystemInfo;
 import org.sonar.ce.configuration.CeConfiguration;
+import org.sonar.server.computation.taskprocessor.TasksResourceUsage;
+
+import static org.sonar.ce.queue.CeQueueLane.LONG_LIVED_BRANCHES;
+import static org.sonar.ce.queue.CeQueueLane.PRIORITY;
 
 public class CeTasksMBeanImpl implements CeTasksMBean, Startable, SystemInfoSection {
+  private static final int MOST_EXPENSIVE_PROJECTS = 10;
+
   private final CEQueueStatus queueStatus;
   private final CeConfiguration ceConfiguration;
+  private final TasksResourceUsage tasksResourceUsage;
 
-  public CeTasksMBeanImpl(CEQueueStatus queueStatus, CeConfiguration ceConfiguration) {
+  public CeTasksMBeanImpl(CEQueueStatus queueStatus, CeConfiguration ceConfiguration, TasksResourceUsage tasksResourceUsage) {
     this.queueStatus = queueStatus;
     this.ceConfiguration = ceConfiguration;
+    this.tasksResourceUsage = tasksResourceUsage;
   }
 
   @Override
@@ -72,6 +81,63 @@ public class CeTasksMBeanImpl implements CeTasksMBean, Startable, SystemInfoSect
     return queueStatus.getProcessingTime();
   }
 
+  @Override
+  public long getWaitTimeMedian() {
+    return queueStatus.getWaitTimePercentile(50);
+  }
+
+  @Override
+  public long getWaitTime95thPercentile() {
+    return queueStatus.getWaitTimePercentile(95);
+  }
+
+  @Override
+  public long getWaitTime99thPercentile() {
+    return queueStatus.getWaitTimePercentile(99);
+  }
+
+  @Override
+  public long getPriorityLaneWaitTimeMedian() {
+    return queueStatus.getWaitTimePercentile(PRIORITY, 50);
+  }
+
+  @Override
+  public long getPriorityLaneWaitTime95thPercentile() {
+    return queueStatus.getWaitTimePercentile(PRIORITY, 95);
+  }
+
+  @Override
+  public long getLongLivedBranchesLaneWaitTimeMedian() {
+    return queueStatus.getWaitTimePercentile(LONG_LIVED_BRANCHES, 50);
+  }
+
+  @Override
+  public long getLongLivedBranchesLaneWaitTime95thPercentile() {
+    return queueStatus.getWaitTimePercentile(LONG_LIVED_BRANCHES, 95);
+  }
+
+  @Override
+  public long getCpuTime() {
+    return tasksResourceUsage.getCpuTimeMs();
+  }
+
+  @Override
+  public long getAllocatedBytes() {
+    return tasksResourceUsage.getAllocatedBytes();
+  }
+
+  @Override
+  public long getDbTime() {
+    return tasksResourceUsage.getDbTimeMs();
+  }
+
+  @Override
+  public String[] getMostExpensiveProjects() {
+    return tasksResourceUsage.getMostExpensiveProjects(MOST_EXPENSIVE_PROJECTS).stream()
+      .map(TasksResourceUsage.ProjectResourceUsage::toString)
+      .toArray(String[]::new);
+  }
+
   @Override
   public int getWorkerMaxCount() {
     return ceConfiguration.getWorkerMaxCount();
@@ -91,6 +157,18 @@ public class CeTasksMBeanImpl implements CeTasksMBean, Startable, SystemInfoSect
     builder.addAttributesBuilder().setKey("Processed With Error").setLongValue(getErrorCount()).build();
     builder.addAttributesBuilder().setKey("Processed With Success").setLongValue(getSuccessCount()).build();
     builder.addAttributesBuilder().setKey("Processing Time (ms)").setLongValue(getProcessingTime()).build();
+    builder.addAttributesBuilder().setKey("Wait Time Median (ms)").setLongValue(getWaitTimeMedian()).build();
+    builder.addAttributesBuilder().setKey("Wait Time 95th Percentile (ms)").setLongValue(getWaitTime95thPercentile()).build();
+    builder.addAttributesBuilder().setKey("Wait Time 99th Percentile (ms)").setLongValue(getWaitTime99thPercentile()).build();
+    builder.addAttributesBuilder().setKey("Priority Lane Wait Time Median (ms)").setLongValue(getPriorityLaneWaitTimeMedian()).build();
+    builder.addAttributesBuilder().setKey("Priority Lane Wait Time 95th Percentile (ms)").setLongValue(getPriorityLaneWaitTime95thPercentile()).build();
+    builder.addAttributesBuilder().setKey("Long-Lived Branches Lane Wait Time Median (ms)").setLongValue(getLongLivedBranchesLaneWaitTimeMedian()).build();
+    builder.addAttributesBuilder().setKey("Long-Lived Branches Lane Wait Time 95th Percentile (ms)")
+      .setLongValue(getLongLivedBranchesLaneWaitTime95thPercentile()).build();
+    builder.addAttributesBuilder().setKey("CPU Time (ms)").setLongValue(getCpuTime()).build();
+    builder.addAttributesBuilder().setKey("Allocated Memory (bytes)").setLongValue(getAllocatedBytes()).build();
+    builder.addAttributesBuilder().setKey("DB Time (ms)").setLongValue(getDbTime()).build();
+    builder.addAttributesBuilder().setKey("Most Expensive Projects").addAllStringValues(Arrays.asList(getMostExpensiveProjects())).build();
     builder.addAttributesBuilder().setKey("Worker Count").setLongValue(getWorkerCount()).build();
     builder.addAttributesBuilder().setKey("Max Worker Count").setLongValue(getWorkerMaxCount()).build();
     return builder.build();
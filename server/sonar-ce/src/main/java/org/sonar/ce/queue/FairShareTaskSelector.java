@@ -0,0 +1,66 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.queue;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.sonar.db.ce.EligibleTaskDto;
+
+/**
+ * Selects the next task to be processed among the eligible tasks of a {@link CeQueueLane}:
+ * <ul>
+ *   <li>projects take turns, so that a project with many pending tasks (eg. analyses of many branches) does not
+ *       starve the other projects</li>
+ *   <li>oldest tasks are selected first</li>
+ * </ul>
+ * Turns are kept in memory, hence they are specific to the current Compute Engine node.
+ */
+class FairShareTaskSelector {
+
+  /**
+   * Turn of the projects which have been served more recently than the others, by main component uuid
+   */
+  private final Map<String, Long> nextTurnByProject = new HashMap<>();
+  private long currentTurn = 0;
+
+  synchronized Optional<EligibleTaskDto> select(List<EligibleTaskDto> eligibles) {
+    return eligibles.stream()
+      .min(Comparator.comparingLong(this::turnOf)
+        .thenComparingLong(EligibleTaskDto::getCreatedAt));
+  }
+
+  /**
+   * Records that the specified task, returned by {@link #select(List)}, is being processed.
+   */
+  synchronized void served(EligibleTaskDto task) {
+    long turn = turnOf(task);
+    currentTurn = turn;
+    nextTurnByProject.put(task.getMainComponentUuid(), turn + 1);
+    // projects which turn is passed don't need to be remembered
+    nextTurnByProject.values().removeIf(nextTurn -> nextTurn <= currentTurn);
+  }
+
+  private long turnOf(EligibleTaskDto task) {
+    return Math.max(currentTurn, nextTurnByProject.getOrDefault(task.getMainComponentUuid(), currentTurn));
+  }
+}
@@ -40,6 +40,7 @@ import org.sonar.db.DbSession;
 import org.sonar.db.ce.CeActivityDto;
 import org.sonar.db.ce.CeQueueDao;
 import org.sonar.db.ce.CeQueueDto;
+import org.sonar.db.ce.EligibleTaskDto;
 import org.sonar.server.computation.task.projectanalysis.component.VisitException;
 import org.sonar.server.computation.task.step.TypedException;
 import org.sonar.server.organization.DefaultOrganizationProvider;
@@ -47,17 +48,24 @@ import org.sonar.server.organization.DefaultOrganizationProvider;
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.lang.String.format;
 import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toList;
 
 @ComputeEngineSide
 public class InternalCeQueueImpl extends CeQueueImpl implements InternalCeQueue {
   private static final org.sonar.api.utils.log.Logger LOG = Loggers.get(InternalCeQueueImpl.class);
 
   private static final int MAX_EXECUTION_COUNT = 2;
+  /**
+   * Maximum number of candidates among which the next task to process is selected. There is at most one candidate
+   * per project and lane: its oldest eligible task.
+   */
+  private static final int MAX_PEEK_CANDIDATES = 100;
 
   private final System2 system2;
   private final DbClient dbClient;
   private final CEQueueStatus queueStatus;
   private final ComputeEngineStatus computeEngineStatus;
+  private final FairShareTaskSelector fairShareTaskSelector = new FairShareTaskSelector();
 
   public InternalCeQueueImpl(System2 system2, DbClient dbClient, UuidFactory uuidFactory, CEQueueStatus queueStatus,
     DefaultOrganizationProvider defaultOrganizationProvider, ComputeEngineStatus computeEngineStatus) {
@@ -81,14 +89,31 @@ public class InternalCeQueueImpl extends CeQueueImpl implements InternalCeQueue
       if (i > 0) {
         LOG.debug("{} in progress tasks reset for worker uuid {}", i, workerUuid);
       }
-      Optional<CeQueueDto> dto = ceQueueDao.peek(dbSession, workerUuid, MAX_EXECUTION_COUNT);
-      CeTask task = null;
-      if (dto.isPresent()) {
-        task = loadTask(dbSession, dto.get());
-        queueStatus.addInProgress();
+      List<EligibleTaskDto> eligibles = ceQueueDao.selectEligibleForPeek(dbSession, MAX_EXECUTION_COUNT, MAX_PEEK_CANDIDATES);
+      for (CeQueueLane lane : CeQueueLane.values()) {
+        boolean onLongLivedBranches = lane == CeQueueLane.LONG_LIVED_BRANCHES;
+        Optional<EligibleTaskDto> eligible = fairShareTaskSelector.select(eligibles.stream()
+          .filter(candidate -> candidate.isOnLongLivedBranch() == onLongLivedBranches)
+          .collect(toList()));
+        if (eligible.isPresent()) {
+          return tryToPeek(dbSession, lane, eligible.get(), workerUuid);
+        }
       }
-      return Optional.ofNullable(task);
+      return Optional.empty();
+    }
+  }
+
+  private Optional<CeTask> tryToPeek(DbSession dbSession, CeQueueLane lane, EligibleTaskDto eligible, String workerUuid) {
+    Optional<CeQueueDto> dto = dbClient.ceQueueDao().tryToPeek(dbSession, eligible, workerUuid);
+    if (!dto.isPresent()) {
+      return Optional.empty();
     }
+    fairShareTaskSelector.served(eligible);
+    CeTask task = loadTask(dbSession, dto.get());
+    queueStatus.addInProgress();
+    // createdAt is set by the node which submitted the task, ignore clock skew between nodes
+    queueStatus.addWaitTime(lane, Math.max(0L, system2.now() - dto.get().getCreatedAt()));
+    return Optional.of(task);
   }
 
   @Override
@@ -115,6 +140,9 @@ public class InternalCeQueueImpl extends CeQueueImpl implements InternalCeQueue
     if (taskResult != null) {
       Optional<String> analysisUuid = taskResult.getAnalysisUuid();
       analysisUuid.ifPresent(activityDto::setAnalysisUuid);
+      taskResult.getCpuTimeMs().ifPresent(activityDto::setCpuTimeMs);
+      taskResult.getAllocatedBytes().ifPresent(activityDto::setAllocatedBytes);
+      taskResult.getDbTimeMs().ifPresent(activityDto::setDbTimeMs);
     }
   }
 
@@ -36,6 +36,11 @@ import static java.util.concurrent.TimeUnit.MILLISECONDS;
 public class CeProcessingSchedulerImpl implements CeProcessingScheduler {
   private static final Logger LOG = Loggers.get(CeProcessingSchedulerImpl.class);
   private static final long DELAY_BETWEEN_DISABLED_TASKS = 30 * 1000L; // 30 seconds
+  /**
+   * When the queue is empty, the delay between two polls of a worker is doubled until it reaches
+   * this factor of the polling delay, in order to reduce the load on database of idle workers.
+   */
+  private static final int MAX_NO_TASK_DELAY_FACTOR = 4;
 
   private final CeProcessingSchedulerExecutorService executorService;
   private final long delayBetweenEnabledTasks;
@@ -107,6 +112,7 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler {
   private class ChainingCallback implements FutureCallback<CeWorker.Result> {
     private volatile boolean keepRunning = true;
     private final CeWorker worker;
+    private long noTaskDelay = delayBetweenEnabledTasks;
 
     @CheckForNull
     private ListenableFuture<CeWorker.Result> workerFuture;
@@ -126,7 +132,7 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler {
               chainWithDisabledTaskDelay();
               break;
             case NO_TASK:
-              chainWithEnabledTaskDelay();
+              chainWithNoTaskDelay();
               break;
             case TASK_PROCESSED:
             default:
@@ -146,10 +152,17 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler {
     }
 
     private void chainWithoutDelay() {
+      noTaskDelay = delayBetweenEnabledTasks;
       workerFuture = executorService.submit(worker);
       addCallback();
     }
 
+    private void chainWithNoTaskDelay() {
+      workerFuture = executorService.schedule(worker, noTaskDelay, timeUnit);
+      noTaskDelay = Math.min(noTaskDelay * 2, delayBetweenEnabledTasks * MAX_NO_TASK_DELAY_FACTOR);
+      addCallback();
+    }
+
     private void chainWithEnabledTaskDelay() {
       workerFuture = executorService.schedule(worker, delayBetweenEnabledTasks, timeUnit);
       addCallback();
@@ -33,6 +33,8 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
+import static org.sonar.ce.queue.CeQueueLane.LONG_LIVED_BRANCHES;
+import static org.sonar.ce.queue.CeQueueLane.PRIORITY;
 
 public class CEQueueStatusImplTest {
   private static final int SOME_RANDOM_MAX = 96535;
@@ -139,4 +141,64 @@ public class CEQueueStatusImplTest {
 
     assertThat(underTest.getPendingCount()).isEqualTo(42);
   }
+
+  @Test
+  public void getWaitTimePercentile_returns_0_if_no_wait_time() {
+    assertThat(underTest.getWaitTimePercentile(50)).isEqualTo(0);
+    assertThat(underTest.getWaitTimePercentile(100)).isEqualTo(0);
+  }
+
+  @Test
+  public void getWaitTimePercentile_computes_percentile_of_recorded_wait_times() {
+    for (int i = 100; i >= 1; i--) {
+      underTest.addWaitTime(PRIORITY, i);
+    }
+
+    assertThat(underTest.getWaitTimePercentile(50)).isEqualTo(50);
+    assertThat(underTest.getWaitTimePercentile(95)).isEqualTo(95);
+    assertThat(underTest.getWaitTimePercentile(100)).isEqualTo(100);
+  }
+
+  @Test
+  public void getWaitTimePercentile_ignores_oldest_wait_times() {
+    for (int i = 0; i < 1_000; i++) {
+      underTest.addWaitTime(PRIORITY, 1_000_000);
+    }
+    for (int i = 0; i < 1_000; i++) {
+      underTest.addWaitTime(LONG_LIVED_BRANCHES, 10);
+    }
+
+    assertThat(underTest.getWaitTimePercentile(100)).isEqualTo(10);
+  }
+
+  @Test
+  public void getWaitTimePercentile_of_lane_ignores_wait_times_of_other_lanes() {
+    for (int i = 1; i <= 100; i++) {
+      underTest.addWaitTime(PRIORITY, i);
+      underTest.addWaitTime(LONG_LIVED_BRANCHES, 1_000 + i);
+    }
+
+    assertThat(underTest.getWaitTimePercentile(PRIORITY, 50)).isEqualTo(50);
+    assertThat(underTest.getWaitTimePercentile(PRIORITY, 100)).isEqualTo(100);
+    assertThat(underTest.getWaitTimePercentile(LONG_LIVED_BRANCHES, 50)).isEqualTo(1_050);
+    assertThat(underTest.getWaitTimePercentile(LONG_LIVED_BRANCHES, 100)).isEqualTo(1_100);
+    assertThat(underTest.getWaitTimePercentile(50)).isEqualTo(100);
+    assertThat(underTest.getWaitTimePercentile(100)).isEqualTo(1_100);
+  }
+
+  @Test
+  public void addWaitTime_throws_IAE_if_time_is_less_than_0() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Wait time can not be < 0");
+
+    underTest.addWaitTime(PRIORITY, -1);
+  }
+
+  @Test
+  public void getWaitTimePercentile_throws_IAE_if_percentile_is_out_of_range() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Percentile must be > 0 and <= 100");
+
+    underTest.getWaitTimePercentile(0);
+  }
 }
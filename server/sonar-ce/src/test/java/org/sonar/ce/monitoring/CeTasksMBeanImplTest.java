@@ -20,13 +20,17 @@
 package org.sonar.ce.monitoring;
 
 import java.lang.management.ManagementFactory;
+import java.util.Collections;
 import javax.annotation.CheckForNull;
 import javax.management.InstanceNotFoundException;
 import javax.management.ObjectInstance;
 import javax.management.ObjectName;
 import org.junit.Test;
 import org.sonar.ce.configuration.CeConfiguration;
+import org.sonar.ce.queue.CeQueueLane;
+import org.sonar.ce.queue.CeTask;
 import org.sonar.process.systeminfo.protobuf.ProtobufSystemInfo;
+import org.sonar.server.computation.taskprocessor.TasksResourceUsage;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -36,10 +40,14 @@ public class CeTasksMBeanImplTest {
   private static final long ERROR_COUNT = 10;
   private static final long SUCCESS_COUNT = 13;
   private static final long PROCESSING_TIME = 987;
+  private static final long WAIT_TIME_MEDIAN = 150;
+  private static final long WAIT_TIME_95TH_PERCENTILE = 1_500;
+  private static final long WAIT_TIME_99TH_PERCENTILE = 4_000;
   private static final int WORKER_MAX_COUNT = 666;
   private static final int WORKER_COUNT = 56;
 
-  private CeTasksMBeanImpl underTest = new CeTasksMBeanImpl(new DumbCEQueueStatus(), new DumbCeConfiguration());
+  private TasksResourceUsage tasksResourceUsage = new TasksResourceUsage();
+  private CeTasksMBeanImpl underTest = new CeTasksMBeanImpl(new DumbCEQueueStatus(), new DumbCeConfiguration(), tasksResourceUsage);
 
   @Test
   public void register_and_unregister() throws Exception {
@@ -59,6 +67,13 @@ public class CeTasksMBeanImplTest {
     assertThat(underTest.getErrorCount()).isEqualTo(ERROR_COUNT);
     assertThat(underTest.getSuccessCount()).isEqualTo(SUCCESS_COUNT);
     assertThat(underTest.getProcessingTime()).isEqualTo(PROCESSING_TIME);
+    assertThat(underTest.getWaitTimeMedian()).isEqualTo(WAIT_TIME_MEDIAN);
+    assertThat(underTest.getWaitTime95thPercentile()).isEqualTo(WAIT_TIME_95TH_PERCENTILE);
+    assertThat(underTest.getWaitTime99thPercentile()).isEqualTo(WAIT_TIME_99TH_PERCENTILE);
+    assertThat(underTest.getPriorityLaneWaitTimeMedian()).isEqualTo(WAIT_TIME_MEDIAN - 1);
+    assertThat(underTest.getPriorityLaneWaitTime95thPercentile()).isEqualTo(WAIT_TIME_95TH_PERCENTILE - 1);
+    assertThat(underTest.getLongLivedBranchesLaneWaitTimeMedian()).isEqualTo(WAIT_TIME_MEDIAN + 1);
+    assertThat(underTest.getLongLivedBranchesLaneWaitTime95thPercentile()).isEqualTo(WAIT_TIME_95TH_PERCENTILE + 1);
   }
 
   @Test
@@ -71,11 +86,39 @@ public class CeTasksMBeanImplTest {
     assertThat(underTest.getWorkerMaxCount()).isEqualTo(WORKER_MAX_COUNT);
   }
 
+  @Test
+  public void resource_usage_methods_delegate_to_the_TasksResourceUsage_instance() {
+    tasksResourceUsage.add(newTask("P1"), 10, 1_000, 5);
+    tasksResourceUsage.add(newTask("P2"), 30, 2_000, 7);
+
+    assertThat(underTest.getCpuTime()).isEqualTo(40);
+    assertThat(underTest.getAllocatedBytes()).isEqualTo(3_000);
+    assertThat(underTest.getDbTime()).isEqualTo(12);
+    assertThat(underTest.getMostExpensiveProjects()).containsExactly(
+      "P2 (tasks=1, cpuTime=30ms, allocated=1 KB, dbTime=7ms)",
+      "P1 (tasks=1, cpuTime=10ms, allocated=1000 bytes, dbTime=5ms)");
+  }
+
   @Test
   public void export_system_info() {
+    tasksResourceUsage.add(newTask("P1"), 10, 1_000, 5);
+
     ProtobufSystemInfo.Section section = underTest.toProtobuf();
     assertThat(section.getName()).isEqualTo("Compute Engine Tasks");
-    assertThat(section.getAttributesCount()).isEqualTo(7);
+    assertThat(section.getAttributesCount()).isEqualTo(18);
+    assertThat(section.getAttributesList())
+      .filteredOn(attribute -> attribute.getKey().equals("Most Expensive Projects"))
+      .extracting(attribute -> attribute.getStringValuesList())
+      .containsExactly(Collections.singletonList("P1 (tasks=1, cpuTime=10ms, allocated=1000 bytes, dbTime=5ms)"));
+  }
+
+  private static CeTask newTask(String projectKey) {
+    return new CeTask.Builder()
+      .setOrganizationUuid("org1")
+      .setUuid("TASK_" + projectKey)
+      .setType("REPORT")
+      .setComponentKey(projectKey)
+      .build();
   }
 
   /**
@@ -124,6 +167,31 @@ public class CeTasksMBeanImplTest {
       return PROCESSING_TIME;
     }
 
+    @Override
+    public void addWaitTime(CeQueueLane lane, long waitTime) {
+      methodNotImplemented();
+    }
+
+    @Override
+    public long getWaitTimePercentile(int percentile) {
+      switch (percentile) {
+        case 50:
+          return WAIT_TIME_MEDIAN;
+        case 95:
+          return WAIT_TIME_95TH_PERCENTILE;
+        case 99:
+          return WAIT_TIME_99TH_PERCENTILE;
+        default:
+          return methodNotImplemented();
+      }
+    }
+
+    @Override
+    public long getWaitTimePercentile(CeQueueLane lane, int percentile) {
+      long waitTime = getWaitTimePercentile(percentile);
+      return lane == CeQueueLane.PRIORITY ? (waitTime - 1) : (waitTime + 1);
+    }
+
     private long methodNotImplemented() {
       throw new UnsupportedOperationException("Not Implemented");
     }
@@ -0,0 +1,93 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.queue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.junit.Test;
+import org.sonar.db.ce.EligibleTaskDto;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FairShareTaskSelectorTest {
+
+  private FairShareTaskSelector underTest = new FairShareTaskSelector();
+
+  @Test
+  public void select_returns_empty_if_no_eligible_task() {
+    assertThat(underTest.select(emptyList())).isEmpty();
+  }
+
+  @Test
+  public void select_oldest_task_of_projects_never_served() {
+    EligibleTaskDto task1 = newTask("t1", "P1", 1);
+    EligibleTaskDto task2 = newTask("t2", "P2", 2);
+
+    assertThat(underTest.select(asList(task1, task2))).contains(task1);
+  }
+
+  @Test
+  public void projects_take_turns() {
+    List<EligibleTaskDto> pending = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      pending.add(newTask("p1_" + i, "P1", i));
+    }
+    pending.add(newTask("p2_0", "P2", 100));
+    pending.add(newTask("p2_1", "P2", 101));
+    pending.add(newTask("p3_0", "P3", 102));
+
+    List<String> served = new ArrayList<>();
+    for (int i = 0; i < 6; i++) {
+      EligibleTaskDto task = underTest.select(pending).get();
+      underTest.served(task);
+      pending.remove(task);
+      served.add(task.getUuid());
+    }
+
+    assertThat(served).containsExactly("p1_0", "p2_0", "p3_0", "p1_1", "p2_1", "p1_2");
+  }
+
+  @Test
+  public void project_served_long_ago_does_not_get_extra_turns() {
+    EligibleTaskDto oldTask = newTask("p1_0", "P1", 1);
+    underTest.served(underTest.select(asList(oldTask)).get());
+    for (int i = 0; i < 5; i++) {
+      underTest.served(underTest.select(asList(newTask("p2_" + i, "P2", 10 + i))).get());
+    }
+
+    EligibleTaskDto p1Task = newTask("p1_1", "P1", 20);
+    EligibleTaskDto p2Task = newTask("p2_5", "P2", 15);
+    Optional<EligibleTaskDto> selected = underTest.select(asList(p2Task, p1Task));
+    assertThat(selected).contains(p1Task);
+    underTest.served(selected.get());
+
+    assertThat(underTest.select(asList(p2Task, newTask("p1_2", "P1", 21)))).contains(p2Task);
+  }
+
+  private static EligibleTaskDto newTask(String uuid, String mainComponentUuid, long createdAt) {
+    return new EligibleTaskDto()
+      .setUuid(uuid)
+      .setMainComponentUuid(mainComponentUuid)
+      .setCreatedAt(createdAt);
+  }
+}
@@ -22,8 +22,10 @@ package org.sonar.ce.queue;
 import com.google.common.collect.ImmutableSet;
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.Random;
 import javax.annotation.Nullable;
 import org.junit.Before;
@@ -41,7 +43,9 @@ import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
 import org.sonar.db.ce.CeActivityDto;
 import org.sonar.db.ce.CeQueueDto;
+import org.sonar.db.ce.CeTaskCharacteristicDto;
 import org.sonar.db.ce.CeTaskTypes;
+import org.sonar.db.component.BranchType;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.ComponentTesting;
 import org.sonar.db.organization.OrganizationDto;
@@ -51,6 +55,7 @@ import org.sonar.server.organization.DefaultOrganizationProvider;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -223,6 +228,53 @@ public class InternalCeQueueImplTest {
     assertThat(history.get().getAnalysisUuid()).isEqualTo("U1");
   }
 
+  @Test
+  public void remove_sets_resource_usage_in_CeActivity_when_measured_by_CeTaskResult() {
+    CeTask task = submit(CeTaskTypes.REPORT, "PROJECT_1");
+    CeTaskResult taskResult = new CeTaskResult() {
+      @Override
+      public Optional<String> getAnalysisUuid() {
+        return Optional.empty();
+      }
+
+      @Override
+      public OptionalLong getCpuTimeMs() {
+        return OptionalLong.of(400L);
+      }
+
+      @Override
+      public OptionalLong getAllocatedBytes() {
+        return OptionalLong.of(1_000_000L);
+      }
+
+      @Override
+      public OptionalLong getDbTimeMs() {
+        return OptionalLong.of(50L);
+      }
+    };
+
+    Optional<CeTask> peek = underTest.peek(WORKER_UUID_1);
+    underTest.remove(peek.get(), CeActivityDto.Status.SUCCESS, taskResult, null);
+
+    CeActivityDto activity = db.getDbClient().ceActivityDao().selectByUuid(db.getSession(), task.getUuid()).get();
+    assertThat(activity.getCpuTimeMs()).isEqualTo(400L);
+    assertThat(activity.getAllocatedBytes()).isEqualTo(1_000_000L);
+    assertThat(activity.getDbTimeMs()).isEqualTo(50L);
+  }
+
+  @Test
+  public void remove_does_not_set_resource_usage_in_CeActivity_when_not_measured() {
+    CeTask task = submit(CeTaskTypes.REPORT, "PROJECT_1");
+
+    Optional<CeTask> peek = underTest.peek(WORKER_UUID_1);
+    underTest.remove(peek.get(), CeActivityDto.Status.SUCCESS, newTaskResult(null), null);
+
+    CeActivityDto activity = db.getDbClient().ceActivityDao().selectByUuid(db.getSession(), task.getUuid()).get();
+    assertThat(activity.getCpuTimeMs()).isNull();
+    assertThat(activity.getAllocatedBytes()).isNull();
+    assertThat(activity.getDbTimeMs()).isNull();
+  }
+
   @Test
   public void remove_saves_error_message_and_stacktrace_when_exception_is_provided() {
     Throwable error = new NullPointerException("Fake NPE to test persistence to DB");
@@ -337,6 +389,37 @@ public class InternalCeQueueImplTest {
     assertThat(peek.isPresent()).isFalse();
   }
 
+  @Test
+  public void peek_tasks_on_long_lived_branches_after_the_other_tasks() {
+    CeTask longLivedBranchTask = submit(CeTaskTypes.REPORT, "BRANCH_1");
+    db.getDbClient().ceTaskCharacteristicsDao().insert(session, singletonList(new CeTaskCharacteristicDto()
+      .setUuid("characteristic_1")
+      .setTaskUuid(longLivedBranchTask.getUuid())
+      .setKey(CeTaskCharacteristicDto.BRANCH_TYPE_KEY)
+      .setValue(BranchType.LONG.name())));
+    db.commit();
+    CeTask mainBranchTask = submit(CeTaskTypes.REPORT, "PROJECT_2");
+
+    assertThat(underTest.peek(WORKER_UUID_1).get().getUuid()).isEqualTo(mainBranchTask.getUuid());
+    assertThat(underTest.peek(WORKER_UUID_2).get().getUuid()).isEqualTo(longLivedBranchTask.getUuid());
+    assertThat(underTest.peek(WORKER_UUID_1)).isEmpty();
+  }
+
+  @Test
+  public void peek_task_of_other_project_after_a_task_of_project_with_many_pending_branch_tasks() {
+    ComponentDto project = db.components().insertMainBranch();
+    List<CeTask> branchTasks = new ArrayList<>();
+    for (int i = 0; i < 150; i++) {
+      ComponentDto branch = db.components().insertProjectBranch(project, b -> b.setBranchType(BranchType.SHORT));
+      branchTasks.add(submit(CeTaskTypes.REPORT, branch.uuid()));
+    }
+    CeTask otherProjectTask = submit(CeTaskTypes.REPORT, "PROJECT_2");
+
+    assertThat(underTest.peek(WORKER_UUID_1).get().getUuid()).isEqualTo(branchTasks.get(0).getUuid());
+    assertThat(underTest.peek(WORKER_UUID_2).get().getUuid()).isEqualTo(otherProjectTask.getUuid());
+    assertThat(underTest.peek("worker uuid 3").get().getUuid()).isEqualTo(branchTasks.get(1).getUuid());
+  }
+
   @Test
   public void peek_peeks_pending_tasks_with_executionCount_equal_to_0_and_increases_it() {
     db.getDbClient().ceQueueDao().insert(session, new CeQueueDto()
@@ -756,9 +839,7 @@ public class InternalCeQueueImplTest {
   }
 
   private CeTaskResult newTaskResult(@Nullable String analysisUuid) {
-    CeTaskResult taskResult = mock(CeTaskResult.class);
-    when(taskResult.getAnalysisUuid()).thenReturn(java.util.Optional.ofNullable(analysisUuid));
-    return taskResult;
+    return () -> java.util.Optional.ofNullable(analysisUuid);
   }
 
   private ComponentDto insertComponent(ComponentDto componentDto) {
@@ -159,7 +159,30 @@ public class CeProcessingSchedulerImplTest {
       regularDelayedPoll,
       notDelayedPoll,
       regularDelayedPoll,
+      new SchedulerCall(ceWorker, 4000L, MILLISECONDS),
+      new SchedulerCall(ceWorker, 8000L, MILLISECONDS));
+  }
+
+  @Test
+  public void polls_with_exponential_delay_up_to_4_times_regular_delay_when_CeWorkerCallable_returns_NO_TASK() throws Exception {
+    when(ceWorker.call())
+      .thenReturn(NO_TASK)
+      .thenReturn(NO_TASK)
+      .thenReturn(NO_TASK)
+      .thenReturn(NO_TASK)
+      .thenReturn(TASK_PROCESSED)
+      .thenReturn(NO_TASK)
+      .thenThrow(ERROR_TO_INTERRUPT_CHAINING);
+
+    startSchedulingAndRun();
+
+    assertThat(processingExecutorService.getSchedulerCalls()).containsExactly(
       regularDelayedPoll,
+      regularDelayedPoll,
+      new SchedulerCall(ceWorker, 4000L, MILLISECONDS),
+      new SchedulerCall(ceWorker, 8000L, MILLISECONDS),
+      new SchedulerCall(ceWorker, 8000L, MILLISECONDS),
+      notDelayedPoll,
       regularDelayedPoll);
   }
 
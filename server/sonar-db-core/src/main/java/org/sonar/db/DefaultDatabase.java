@@ -55,6 +55,7 @@ public class DefaultDatabase implements Database {
   private static final String SONAR_JDBC = "sonar.jdbc.";
   private static final String SONAR_JDBC_DIALECT = "sonar.jdbc.dialect";
   private static final String SONAR_JDBC_URL = "sonar.jdbc.url";
+  private static final String SONAR_JDBC_CONNECTION_PROPERTIES = "sonar.jdbc.connectionProperties";
 
   private final LogbackHelper logbackHelper;
   private final Settings settings;
@@ -94,6 +95,9 @@ public class DefaultDatabase implements Database {
     // but it's correctly caught by start()
     LOG.info("Create JDBC data source for {}", properties.getProperty(DatabaseProperties.PROP_URL, DEFAULT_URL));
     BasicDataSource basicDataSource = (BasicDataSource) BasicDataSourceFactory.createDataSource(extractCommonsDbcpProperties(properties));
+    if (properties.getProperty(SONAR_JDBC_CONNECTION_PROPERTIES) == null) {
+      dialect.getDefaultConnectionProperties().forEach(basicDataSource::addConnectionProperty);
+    }
     datasource = new ProfiledDataSource(basicDataSource, NullConnectionInterceptor.INSTANCE);
     datasource.setConnectionInitSqls(dialect.getConnectionInitStatements());
     datasource.setValidationQuery(dialect.getValidationQuery());
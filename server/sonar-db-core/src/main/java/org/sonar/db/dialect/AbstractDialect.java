@@ -21,11 +21,14 @@ package org.sonar.db.dialect;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @since 3.2
  */
 abstract class AbstractDialect implements Dialect {
+  private static final int DEFAULT_BATCH_SIZE = 250;
+
   private final String id;
   private final String defaultDriverClassName;
   private final String trueSqlValue;
@@ -80,4 +83,14 @@ abstract class AbstractDialect implements Dialect {
   public int getScrollSingleRowFetchSize() {
     return 1;
   }
+
+  @Override
+  public int getBatchSize() {
+    return DEFAULT_BATCH_SIZE;
+  }
+
+  @Override
+  public Map<String, String> getDefaultConnectionProperties() {
+    return Collections.emptyMap();
+  }
 }
@@ -20,6 +20,7 @@
 package org.sonar.db.dialect;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * @since 1.12
@@ -78,6 +79,20 @@ public interface Dialect {
    */
   int getScrollSingleRowFetchSize();
 
+  /**
+   * Number of statements sent to the database in a single JDBC batch by batch sessions.
+   *
+   * @since 7.0
+   */
+  int getBatchSize();
+
+  /**
+   * JDBC connection properties used unless property sonar.jdbc.connectionProperties is set.
+   *
+   * @since 7.0
+   */
+  Map<String, String> getDefaultConnectionProperties();
+
   /**
    * Indicates whether DB migration can be perform on the DB vendor implementation associated with the current dialect.
    *
@@ -20,7 +20,9 @@
 package org.sonar.db.dialect;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import java.util.List;
+import java.util.Map;
 import org.apache.commons.lang.StringUtils;
 
 /**
@@ -30,6 +32,16 @@ public class PostgreSql extends AbstractDialect {
 
   public static final String ID = "postgresql";
   static final List<String> INIT_STATEMENTS = ImmutableList.of("SET standard_conforming_strings=on", "SET backslash_quote=off");
+  /**
+   * The driver rewrites batches of inserts into multi-row inserts, hence saving round-trips to the database.
+   * <p>
+   * These properties apply to all the connections of all the processes (web server, Compute Engine and database
+   * migrations), not only to the batches of the Compute Engine. They are not set when the property
+   * {@code sonar.jdbc.connectionProperties} is defined, and parameters of the JDBC URL {@code sonar.jdbc.url} take
+   * precedence over them, for example {@code jdbc:postgresql://localhost/sonar?reWriteBatchedInserts=false}.
+   * </p>
+   */
+  static final Map<String, String> DEFAULT_CONNECTION_PROPERTIES = ImmutableMap.of("reWriteBatchedInserts", "true");
 
   public PostgreSql() {
     super(ID, "org.postgresql.Driver", "true", "false", "SELECT 1");
@@ -49,4 +61,14 @@ public class PostgreSql extends AbstractDialect {
   public boolean supportsMigration() {
     return true;
   }
+
+  @Override
+  public int getBatchSize() {
+    return 1_000;
+  }
+
+  @Override
+  public Map<String, String> getDefaultConnectionProperties() {
+    return DEFAULT_CONNECTION_PROPERTIES;
+  }
 }
@@ -0,0 +1,75 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.profiling;
+
+import java.sql.Connection;
+
+/**
+ * Measures the time spent by the current thread in the execution of JDBC statements, between the calls to
+ * {@link #start()} and {@link #stop()}.
+ * <p>
+ * Only the statements of the connections obtained from {@link ProfiledDataSource} while the measure is started
+ * are timed, so that other threads do not pay for the measure. Fetching rows of result sets is not included.
+ * </p>
+ */
+public final class JdbcTime {
+  private static final ThreadLocal<long[]> ELAPSED_NS = new ThreadLocal<>();
+
+  private JdbcTime() {
+    // only static stuff
+  }
+
+  /**
+   * Starts the measure on the current thread. The time measured so far, if any, is reset.
+   */
+  public static void start() {
+    ELAPSED_NS.set(new long[1]);
+  }
+
+  /**
+   * Stops the measure on the current thread.
+   *
+   * @return the time spent executing statements since {@link #start()}, in milliseconds, or zero if the
+   *         measure is not started
+   */
+  public static long stop() {
+    long[] elapsedNs = ELAPSED_NS.get();
+    ELAPSED_NS.remove();
+    return elapsedNs == null ? 0L : (elapsedNs[0] / 1_000_000L);
+  }
+
+  static boolean isStarted() {
+    return ELAPSED_NS.get() != null;
+  }
+
+  static void add(long elapsedNs) {
+    long[] counter = ELAPSED_NS.get();
+    if (counter != null) {
+      counter[0] += elapsedNs;
+    }
+  }
+
+  static Connection wrapIfStarted(Connection connection) {
+    if (!isStarted()) {
+      return connection;
+    }
+    return TimingConnectionHandler.buildConnectionProxy(connection);
+  }
+}
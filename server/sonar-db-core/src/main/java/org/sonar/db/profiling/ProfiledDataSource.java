@@ -320,12 +320,12 @@ public class ProfiledDataSource extends BasicDataSource {
 
   @Override
   public Connection getConnection() throws SQLException {
-    return connectionInterceptor.getConnection(delegate);
+    return JdbcTime.wrapIfStarted(connectionInterceptor.getConnection(delegate));
   }
 
   @Override
   public Connection getConnection(String login, String password) throws SQLException {
-    return connectionInterceptor.getConnection(this, login, password);
+    return JdbcTime.wrapIfStarted(connectionInterceptor.getConnection(this, login, password));
   }
 
   @Override
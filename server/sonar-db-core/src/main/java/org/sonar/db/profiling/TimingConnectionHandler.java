@@ -0,0 +1,76 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.profiling;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+
+/**
+ * Times the execution of the statements created by a connection and adds it to {@link JdbcTime}
+ * of the thread executing them.
+ */
+class TimingConnectionHandler implements InvocationHandler {
+
+  private final Connection connection;
+
+  private TimingConnectionHandler(Connection connection) {
+    this.connection = connection;
+  }
+
+  static Connection buildConnectionProxy(Connection connection) {
+    return (Connection) Proxy.newProxyInstance(TimingConnectionHandler.class.getClassLoader(), new Class[] {Connection.class},
+      new TimingConnectionHandler(connection));
+  }
+
+  @Override
+  public Object invoke(Object target, Method method, Object[] args) throws Throwable {
+    Object result = InvocationUtils.invokeQuietly(connection, method, args);
+    if (result instanceof Statement && Statement.class.isAssignableFrom(method.getReturnType())) {
+      // Statement, PreparedStatement or CallableStatement
+      return Proxy.newProxyInstance(TimingConnectionHandler.class.getClassLoader(), new Class[] {method.getReturnType()},
+        new TimingStatementHandler((Statement) result));
+    }
+    return result;
+  }
+
+  private static class TimingStatementHandler implements InvocationHandler {
+    private final Statement statement;
+
+    private TimingStatementHandler(Statement statement) {
+      this.statement = statement;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      if (!method.getName().startsWith("execute")) {
+        return InvocationUtils.invokeQuietly(statement, method, args);
+      }
+      long start = System.nanoTime();
+      try {
+        return InvocationUtils.invokeQuietly(statement, method, args);
+      } finally {
+        JdbcTime.add(System.nanoTime() - start);
+      }
+    }
+  }
+}
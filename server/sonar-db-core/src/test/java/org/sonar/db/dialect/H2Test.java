@@ -55,4 +55,10 @@ public class H2Test {
   public void h2_does_not_supportMigration() {
     assertThat(dialect.supportsMigration()).isFalse();
   }
+
+  @Test
+  public void testBatchSize() {
+    assertThat(dialect.getBatchSize()).isEqualTo(250);
+    assertThat(dialect.getDefaultConnectionProperties()).isEmpty();
+  }
 }
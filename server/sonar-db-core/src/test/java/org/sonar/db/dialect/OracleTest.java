@@ -56,4 +56,10 @@ public class OracleTest {
   public void oracle_does_supportMigration() {
     assertThat(underTest.supportsMigration()).isTrue();
   }
+
+  @Test
+  public void testBatchSize() {
+    assertThat(underTest.getBatchSize()).isEqualTo(1_000);
+    assertThat(underTest.getDefaultConnectionProperties()).isEmpty();
+  }
 }
@@ -22,6 +22,7 @@ package org.sonar.db.dialect;
 import org.junit.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
 
 public class PostgreSqlTest {
 
@@ -60,4 +61,10 @@ public class PostgreSqlTest {
   public void postgres_does_supportMigration() {
     assertThat(dialect.supportsMigration()).isTrue();
   }
+
+  @Test
+  public void batch_inserts_are_rewritten_into_multi_row_inserts() {
+    assertThat(dialect.getBatchSize()).isEqualTo(1_000);
+    assertThat(dialect.getDefaultConnectionProperties()).containsOnly(entry("reWriteBatchedInserts", "true"));
+  }
 }
@@ -0,0 +1,84 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.profiling;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import org.apache.commons.dbcp.BasicDataSource;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class JdbcTimeTest {
+
+  private BasicDataSource originDataSource = mock(BasicDataSource.class);
+  private Connection connection = mock(Connection.class);
+  private ProfiledDataSource underTest = new ProfiledDataSource(originDataSource, NullConnectionInterceptor.INSTANCE);
+
+  @After
+  public void tearDown() {
+    JdbcTime.stop();
+  }
+
+  @Test
+  public void stop_returns_zero_if_not_started() {
+    assertThat(JdbcTime.stop()).isEqualTo(0L);
+  }
+
+  @Test
+  public void connections_are_not_wrapped_if_measure_is_not_started() throws Exception {
+    when(originDataSource.getConnection()).thenReturn(connection);
+
+    assertThat(underTest.getConnection()).isSameAs(connection);
+  }
+
+  @Test
+  public void measure_time_of_execution_of_statements() throws Exception {
+    PreparedStatement statement = mock(PreparedStatement.class);
+    when(originDataSource.getConnection()).thenReturn(connection);
+    when(connection.prepareStatement("select 1")).thenReturn(statement);
+    when(statement.execute()).thenAnswer(invocation -> {
+      Thread.sleep(20L);
+      return true;
+    });
+
+    JdbcTime.start();
+    Connection wrapped = underTest.getConnection();
+    PreparedStatement wrappedStatement = wrapped.prepareStatement("select 1");
+    wrappedStatement.setInt(1, 42);
+    assertThat(wrappedStatement.execute()).isTrue();
+
+    assertThat(wrapped).isNotSameAs(connection);
+    assertThat(JdbcTime.stop()).isGreaterThanOrEqualTo(20L);
+    assertThat(JdbcTime.stop()).isEqualTo(0L);
+  }
+
+  @Test
+  public void start_resets_measure() throws Exception {
+    JdbcTime.start();
+    JdbcTime.add(50_000_000L);
+    JdbcTime.start();
+
+    assertThat(JdbcTime.stop()).isEqualTo(0L);
+  }
+}
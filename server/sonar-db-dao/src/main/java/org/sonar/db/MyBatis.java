@@ -270,7 +270,7 @@ public class MyBatis implements Startable {
   public DbSession openSession(boolean batch) {
     if (batch) {
       SqlSession session = sessionFactory.openSession(ExecutorType.BATCH);
-      return new BatchSession(session);
+      return new BatchSession(session, database.getDialect().getBatchSize());
     }
     SqlSession session = sessionFactory.openSession(ExecutorType.REUSE);
     return new DbSessionImpl(session);
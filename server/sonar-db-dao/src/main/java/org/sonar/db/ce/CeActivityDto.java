@@ -51,6 +51,12 @@ public class CeActivityDto {
   private long createdAt;
   private long updatedAt;
   private Long executionTimeMs;
+  /**
+   * Resources consumed by the processing of the task, if measured (eg. only by the processing of analysis reports).
+   */
+  private Long cpuTimeMs;
+  private Long allocatedBytes;
+  private Long dbTimeMs;
   /**
    * The error message of the activity. Shall be non null only when status is FAILED. When status is FAILED, can be null
    * (eg. for activity created before the column has been introduced).
@@ -215,6 +221,36 @@ public class CeActivityDto {
     return this;
   }
 
+  @CheckForNull
+  public Long getCpuTimeMs() {
+    return cpuTimeMs;
+  }
+
+  public CeActivityDto setCpuTimeMs(@Nullable Long l) {
+    this.cpuTimeMs = l;
+    return this;
+  }
+
+  @CheckForNull
+  public Long getAllocatedBytes() {
+    return allocatedBytes;
+  }
+
+  public CeActivityDto setAllocatedBytes(@Nullable Long l) {
+    this.allocatedBytes = l;
+    return this;
+  }
+
+  @CheckForNull
+  public Long getDbTimeMs() {
+    return dbTimeMs;
+  }
+
+  public CeActivityDto setDbTimeMs(@Nullable Long l) {
+    this.dbTimeMs = l;
+    return this;
+  }
+
   @CheckForNull
   public String getAnalysisUuid() {
     return analysisUuid;
@@ -313,6 +349,9 @@ public class CeActivityDto {
       ", createdAt=" + createdAt +
       ", updatedAt=" + updatedAt +
       ", executionTimeMs=" + executionTimeMs +
+      ", cpuTimeMs=" + cpuTimeMs +
+      ", allocatedBytes=" + allocatedBytes +
+      ", dbTimeMs=" + dbTimeMs +
       ", errorMessage='" + errorMessage + '\'' +
       ", errorStacktrace='" + errorStacktrace + '\'' +
       ", hasScannerContext=" + hasScannerContext +
@@ -36,8 +36,6 @@ import static org.sonar.db.ce.CeQueueDto.Status.PENDING;
 
 public class CeQueueDao implements Dao {
 
-  private static final Pagination ONE_RESULT_PAGINATION = Pagination.forPage(1).andSize(1);
-
   private final System2 system2;
 
   public CeQueueDao(System2 system2) {
@@ -135,17 +133,20 @@ public class CeQueueDao implements Dao {
     return mapper(dbSession).countByStatusAndComponentUuid(status, componentUuid);
   }
 
-  public Optional<CeQueueDto> peek(DbSession session, String workerUuid, int maxExecutionCount) {
-    List<EligibleTaskDto> eligibles = mapper(session).selectEligibleForPeek(maxExecutionCount, ONE_RESULT_PAGINATION);
-    if (eligibles.isEmpty()) {
-      return Optional.empty();
-    }
-
-    EligibleTaskDto eligible = eligibles.get(0);
-    return tryToPeek(session, eligible, workerUuid);
+  /**
+   * Pending tasks which can be peeked, limited to the oldest task of each main component (ie. project of the branches)
+   * among the tasks on long-lived branches and among the other tasks. Tasks which are not on long-lived branches are
+   * returned first, then each group is ordered by ascending creation date: oldest to newest.
+   */
+  public List<EligibleTaskDto> selectEligibleForPeek(DbSession session, int maxExecutionCount, int maxResults) {
+    return mapper(session).selectEligibleForPeek(maxExecutionCount, Pagination.forPage(1).andSize(maxResults));
   }
 
-  private Optional<CeQueueDto> tryToPeek(DbSession session, EligibleTaskDto eligible, String workerUuid) {
+  /**
+   * Assigns the specified eligible task to the specified worker, unless it has been peeked by another worker in
+   * the meantime.
+   */
+  public Optional<CeQueueDto> tryToPeek(DbSession session, EligibleTaskDto eligible, String workerUuid) {
     long now = system2.now();
     int touchedRows = mapper(session).updateIf(eligible.getUuid(),
       new UpdateIf.NewProperties(IN_PROGRESS, workerUuid, eligible.getExecutionCount() + 1, now, now),
@@ -19,9 +19,18 @@
  */
 package org.sonar.db.ce;
 
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
 public class EligibleTaskDto {
   private String uuid;
   private int executionCount;
+  private long createdAt;
+  /**
+   * Uuid of the project when the task is about a branch, otherwise the uuid of the component of the task
+   */
+  private String mainComponentUuid;
+  private boolean onLongLivedBranch;
 
   public String getUuid() {
     return uuid;
@@ -41,11 +50,42 @@ public class EligibleTaskDto {
     return this;
   }
 
+  public long getCreatedAt() {
+    return createdAt;
+  }
+
+  public EligibleTaskDto setCreatedAt(long createdAt) {
+    this.createdAt = createdAt;
+    return this;
+  }
+
+  @CheckForNull
+  public String getMainComponentUuid() {
+    return mainComponentUuid;
+  }
+
+  public EligibleTaskDto setMainComponentUuid(@Nullable String mainComponentUuid) {
+    this.mainComponentUuid = mainComponentUuid;
+    return this;
+  }
+
+  public boolean isOnLongLivedBranch() {
+    return onLongLivedBranch;
+  }
+
+  public EligibleTaskDto setOnLongLivedBranch(boolean onLongLivedBranch) {
+    this.onLongLivedBranch = onLongLivedBranch;
+    return this;
+  }
+
   @Override
   public String toString() {
     return "EligibleTaskDto{" +
         "uuid='" + uuid + '\'' +
         ", executionCount=" + executionCount +
+        ", createdAt=" + createdAt +
+        ", mainComponentUuid='" + mainComponentUuid + '\'' +
+        ", onLongLivedBranch=" + onLongLivedBranch +
         '}';
   }
 }
@@ -251,6 +251,15 @@ public class ComponentDao implements Dao {
     return mapper(session).selectProjects();
   }
 
+  /**
+   * Select the uuids of all the projects and of their branches, including disabled ones.
+   *
+   * Used to partition the initial indexing of the documents of projects.
+   */
+  public List<String> selectProjectAndBranchUuids(DbSession session) {
+    return mapper(session).selectProjectAndBranchUuids();
+  }
+
   /**
    * Select all root components (projects and views), including disabled ones, for a given organization.
    *
@@ -82,6 +82,8 @@ public interface ComponentMapper {
    */
   List<ComponentDto> selectProjects();
 
+  List<String> selectProjectAndBranchUuids();
+
   List<ComponentDto> selectAllRootsByOrganization(@Param("organizationUuid") String organizationUuid);
 
   /**
@@ -73,6 +73,25 @@ public class EsQueueDao implements Dao {
     return mapper(dbSession).selectForRecovery(beforeDate, limit);
   }
 
+  /**
+   * Same as {@link #selectForRecovery(DbSession, long, long)} but restricted to a single
+   * document type, so that each type can be recovered independently.
+   */
+  public Collection<EsQueueDto> selectForRecovery(DbSession dbSession, String docType, long beforeDate, long limit) {
+    return mapper(dbSession).selectForRecoveryByDocType(docType, beforeDate, limit);
+  }
+
+  /**
+   * The distinct document types of the items waiting in the queue
+   */
+  public List<String> selectDocTypes(DbSession dbSession) {
+    return mapper(dbSession).selectDocTypes();
+  }
+
+  public long count(DbSession dbSession) {
+    return mapper(dbSession).countAll();
+  }
+
   private static EsQueueMapper mapper(DbSession dbSession) {
     return dbSession.getMapper(EsQueueMapper.class);
   }
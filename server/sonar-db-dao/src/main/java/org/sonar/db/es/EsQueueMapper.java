@@ -30,4 +30,10 @@ public interface EsQueueMapper {
   void delete(@Param("uuids") List<String> uuids);
 
   Collection<EsQueueDto> selectForRecovery(@Param("beforeDate") long beforeDate, @Param("limit") long limit);
+
+  Collection<EsQueueDto> selectForRecoveryByDocType(@Param("docType") String docType, @Param("beforeDate") long beforeDate, @Param("limit") long limit);
+
+  List<String> selectDocTypes();
+
+  long countAll();
 }
@@ -73,6 +73,9 @@ public class CeActivityDaoTest {
     assertThat(dto.getStartedAt()).isEqualTo(1_500_000_000_000L);
     assertThat(dto.getExecutedAt()).isEqualTo(1_500_000_000_500L);
     assertThat(dto.getExecutionTimeMs()).isEqualTo(500L);
+    assertThat(dto.getCpuTimeMs()).isEqualTo(400L);
+    assertThat(dto.getAllocatedBytes()).isEqualTo(1_000_000L);
+    assertThat(dto.getDbTimeMs()).isEqualTo(50L);
     assertThat(dto.getAnalysisUuid()).isEqualTo(inserted.getAnalysisUuid());
     assertThat(dto.toString()).isNotEmpty();
     assertThat(dto.getErrorMessage()).isNull();
@@ -359,6 +362,9 @@ public class CeActivityDaoTest {
     dto.setStartedAt(1_500_000_000_000L);
     dto.setExecutedAt(1_500_000_000_500L);
     dto.setExecutionTimeMs(500L);
+    dto.setCpuTimeMs(400L);
+    dto.setAllocatedBytes(1_000_000L);
+    dto.setDbTimeMs(50L);
     dto.setAnalysisUuid(uuid + "_2");
     if (status == FAILED) {
       dto.setErrorMessage("error msg for " + uuid);
@@ -37,6 +37,8 @@ import org.sonar.api.utils.System2;
 import org.sonar.api.utils.internal.AlwaysIncreasingSystem2;
 import org.sonar.api.utils.internal.TestSystem2;
 import org.sonar.db.DbTester;
+import org.sonar.db.component.BranchType;
+import org.sonar.db.component.ComponentDto;
 
 import static com.google.common.collect.FluentIterable.from;
 import static com.google.common.collect.Lists.newArrayList;
@@ -229,7 +231,7 @@ public class CeQueueDaoTest {
   @Test
   public void resetAllToPendingStatus_resets_startedAt() {
     assertThat(insert(TASK_UUID_1, COMPONENT_UUID_1, PENDING).getStartedAt()).isNull();
-    assertThat(underTest.peek(db.getSession(), WORKER_UUID_1, MAX_EXECUTION_COUNT).get().getUuid()).isEqualTo(TASK_UUID_1);
+    assertThat(peek(WORKER_UUID_1, MAX_EXECUTION_COUNT).get().getUuid()).isEqualTo(TASK_UUID_1);
     assertThat(underTest.selectByUuid(db.getSession(), TASK_UUID_1).get().getStartedAt()).isNotNull();
 
     underTest.resetAllToPendingStatus(db.getSession());
@@ -362,11 +364,11 @@ public class CeQueueDaoTest {
 
   @Test
   public void peek_none_if_no_pendings() throws Exception {
-    assertThat(underTest.peek(db.getSession(), WORKER_UUID_1, MAX_EXECUTION_COUNT).isPresent()).isFalse();
+    assertThat(peek(WORKER_UUID_1, MAX_EXECUTION_COUNT).isPresent()).isFalse();
 
     // not pending, but in progress
     insert(TASK_UUID_1, COMPONENT_UUID_1, IN_PROGRESS);
-    assertThat(underTest.peek(db.getSession(), WORKER_UUID_1, MAX_EXECUTION_COUNT).isPresent()).isFalse();
+    assertThat(peek(WORKER_UUID_1, MAX_EXECUTION_COUNT).isPresent()).isFalse();
   }
 
   @Test
@@ -379,7 +381,7 @@ public class CeQueueDaoTest {
     verifyCeQueueStatuses(TASK_UUID_1, PENDING, TASK_UUID_2, PENDING);
 
     // peek first one
-    Optional<CeQueueDto> peek = underTest.peek(db.getSession(), WORKER_UUID_1, MAX_EXECUTION_COUNT);
+    Optional<CeQueueDto> peek = peek(WORKER_UUID_1, MAX_EXECUTION_COUNT);
     assertThat(peek).isPresent();
     assertThat(peek.get().getUuid()).isEqualTo(TASK_UUID_1);
     assertThat(peek.get().getStatus()).isEqualTo(IN_PROGRESS);
@@ -388,7 +390,7 @@ public class CeQueueDaoTest {
     verifyCeQueueStatuses(TASK_UUID_1, IN_PROGRESS, TASK_UUID_2, PENDING);
 
     // peek second one
-    peek = underTest.peek(db.getSession(), WORKER_UUID_2, MAX_EXECUTION_COUNT);
+    peek = peek(WORKER_UUID_2, MAX_EXECUTION_COUNT);
     assertThat(peek).isPresent();
     assertThat(peek.get().getUuid()).isEqualTo(TASK_UUID_2);
     assertThat(peek.get().getStatus()).isEqualTo(IN_PROGRESS);
@@ -397,7 +399,7 @@ public class CeQueueDaoTest {
     verifyCeQueueStatuses(TASK_UUID_1, IN_PROGRESS, TASK_UUID_2, IN_PROGRESS);
 
     // no more pendings
-    assertThat(underTest.peek(db.getSession(), WORKER_UUID_1, MAX_EXECUTION_COUNT).isPresent()).isFalse();
+    assertThat(peek(WORKER_UUID_1, MAX_EXECUTION_COUNT).isPresent()).isFalse();
   }
 
   @Test
@@ -407,7 +409,7 @@ public class CeQueueDaoTest {
     system2.setNow(INIT_TIME + 3_000_000);
     insert(TASK_UUID_2, COMPONENT_UUID_1, PENDING);
 
-    Optional<CeQueueDto> peek = underTest.peek(db.getSession(), WORKER_UUID_1, MAX_EXECUTION_COUNT);
+    Optional<CeQueueDto> peek = peek(WORKER_UUID_1, MAX_EXECUTION_COUNT);
     assertThat(peek).isPresent();
     assertThat(peek.get().getUuid()).isEqualTo(TASK_UUID_1);
     assertThat(peek.get().getWorkerUuid()).isEqualTo(WORKER_UUID_1);
@@ -415,17 +417,77 @@ public class CeQueueDaoTest {
     verifyCeQueueStatuses(TASK_UUID_1, IN_PROGRESS, TASK_UUID_2, PENDING);
 
     // do not peek second task as long as the first one is in progress
-    peek = underTest.peek(db.getSession(), WORKER_UUID_1, MAX_EXECUTION_COUNT);
+    peek = peek(WORKER_UUID_1, MAX_EXECUTION_COUNT);
     assertThat(peek.isPresent()).isFalse();
 
     // first one is finished
     underTest.deleteByUuid(db.getSession(), TASK_UUID_1);
-    peek = underTest.peek(db.getSession(), WORKER_UUID_2, MAX_EXECUTION_COUNT);
+    peek = peek(WORKER_UUID_2, MAX_EXECUTION_COUNT);
     assertThat(peek.get().getUuid()).isEqualTo(TASK_UUID_2);
     assertThat(peek.get().getWorkerUuid()).isEqualTo(WORKER_UUID_2);
     assertThat(peek.get().getExecutionCount()).isEqualTo(1);
   }
 
+  @Test
+  public void selectEligibleForPeek_returns_oldest_pending_task_of_project_by_lane() {
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto branch = db.components().insertProjectBranch(project, b -> b.setBranchType(BranchType.LONG));
+    ComponentDto shortBranch = db.components().insertProjectBranch(project, b -> b.setBranchType(BranchType.SHORT));
+    system2.setNow(INIT_TIME + 1_000_000);
+    insert(TASK_UUID_1, shortBranch.uuid(), PENDING);
+    insertBranchType(TASK_UUID_1, BranchType.SHORT);
+    system2.setNow(INIT_TIME + 3_000_000);
+    insert(TASK_UUID_2, branch.uuid(), PENDING);
+    insertBranchType(TASK_UUID_2, BranchType.LONG);
+    system2.setNow(INIT_TIME + 6_000_000);
+    insert(TASK_UUID_3, project.uuid(), PENDING);
+    insert("TASK_4", COMPONENT_UUID_2, IN_PROGRESS);
+    db.commit();
+
+    List<EligibleTaskDto> eligibles = underTest.selectEligibleForPeek(db.getSession(), MAX_EXECUTION_COUNT, 10);
+    assertThat(eligibles).extracting(EligibleTaskDto::getUuid).containsExactly(TASK_UUID_1, TASK_UUID_2);
+    assertThat(eligibles).extracting(EligibleTaskDto::getMainComponentUuid).containsExactly(project.uuid(), project.uuid());
+    assertThat(eligibles).extracting(EligibleTaskDto::isOnLongLivedBranch).containsExactly(false, true);
+    assertThat(eligibles).extracting(EligibleTaskDto::getCreatedAt).containsExactly(INIT_TIME + 1_000_000, INIT_TIME + 3_000_000);
+    assertThat(underTest.selectEligibleForPeek(db.getSession(), MAX_EXECUTION_COUNT, 1)).extracting(EligibleTaskDto::getUuid).containsExactly(TASK_UUID_1);
+  }
+
+  @Test
+  public void selectEligibleForPeek_returns_tasks_of_priority_lane_first() {
+    ComponentDto project1 = db.components().insertPrivateProject();
+    ComponentDto branch = db.components().insertProjectBranch(project1, b -> b.setBranchType(BranchType.LONG));
+    ComponentDto project2 = db.components().insertPrivateProject();
+    insert(TASK_UUID_1, branch.uuid(), PENDING);
+    insertBranchType(TASK_UUID_1, BranchType.LONG);
+    system2.setNow(INIT_TIME + 1_000_000);
+    insert(TASK_UUID_2, project2.uuid(), PENDING);
+    db.commit();
+
+    assertThat(underTest.selectEligibleForPeek(db.getSession(), MAX_EXECUTION_COUNT, 10)).extracting(EligibleTaskDto::getUuid)
+      .containsExactly(TASK_UUID_2, TASK_UUID_1);
+    assertThat(underTest.selectEligibleForPeek(db.getSession(), MAX_EXECUTION_COUNT, 1)).extracting(EligibleTaskDto::getUuid)
+      .containsExactly(TASK_UUID_2);
+  }
+
+  @Test
+  public void selectEligibleForPeek_returns_oldest_task_of_project_among_tasks_which_component_is_not_in_progress() {
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto shortBranch = db.components().insertProjectBranch(project, b -> b.setBranchType(BranchType.SHORT));
+    insert(TASK_UUID_1, project.uuid(), IN_PROGRESS);
+    system2.setNow(INIT_TIME + 1_000_000);
+    insert(TASK_UUID_2, project.uuid(), PENDING);
+    system2.setNow(INIT_TIME + 2_000_000);
+    insert(TASK_UUID_3, shortBranch.uuid(), PENDING);
+    insertBranchType(TASK_UUID_3, BranchType.SHORT);
+    system2.setNow(INIT_TIME + 3_000_000);
+    insert("TASK_4", COMPONENT_UUID_2, PENDING);
+    db.commit();
+
+    List<EligibleTaskDto> eligibles = underTest.selectEligibleForPeek(db.getSession(), MAX_EXECUTION_COUNT, 10);
+    assertThat(eligibles).extracting(EligibleTaskDto::getUuid).containsExactly(TASK_UUID_3, "TASK_4");
+    assertThat(eligibles).extracting(EligibleTaskDto::getMainComponentUuid).containsExactly(project.uuid(), COMPONENT_UUID_2);
+  }
+
   @Test
   public void peek_ignores_rows_with_executionCount_greater_or_equal_to_specified_maxExecutionCount_0() {
     peek_ignores_rows_with_executionCount_greater_or_equal_to_specified_maxExecutionCount(0, null);
@@ -462,7 +524,7 @@ public class CeQueueDaoTest {
     insert("u1", CeQueueDto.Status.PENDING, 1);
     insert("u0", CeQueueDto.Status.PENDING, 0);
 
-    Optional<CeQueueDto> dto = underTest.peek(db.getSession(), WORKER_UUID_1, maxExecutionCount);
+    Optional<CeQueueDto> dto = peek(WORKER_UUID_1, maxExecutionCount);
     if (expected == null) {
       assertThat(dto.isPresent()).isFalse();
     } else {
@@ -597,6 +659,22 @@ public class CeQueueDaoTest {
     assertThat(underTest.countByStatus(db.getSession(), IN_PROGRESS)).isEqualTo(2);
   }
 
+  private Optional<CeQueueDto> peek(String workerUuid, int maxExecutionCount) {
+    List<EligibleTaskDto> eligibles = underTest.selectEligibleForPeek(db.getSession(), maxExecutionCount, 1);
+    if (eligibles.isEmpty()) {
+      return Optional.empty();
+    }
+    return underTest.tryToPeek(db.getSession(), eligibles.get(0), workerUuid);
+  }
+
+  private void insertBranchType(String taskUuid, BranchType branchType) {
+    db.getDbClient().ceTaskCharacteristicsDao().insert(db.getSession(), singletonList(new CeTaskCharacteristicDto()
+      .setUuid("characteristic_" + taskUuid)
+      .setTaskUuid(taskUuid)
+      .setKey(CeTaskCharacteristicDto.BRANCH_TYPE_KEY)
+      .setValue(branchType.name())));
+  }
+
   private void insert(CeQueueDto dto) {
     underTest.insert(db.getSession(), dto);
     db.commit();
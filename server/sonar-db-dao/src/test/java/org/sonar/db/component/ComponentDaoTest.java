@@ -690,6 +690,19 @@ public class ComponentDaoTest {
       .containsOnly(project.uuid());
   }
 
+  @Test
+  public void select_project_and_branch_uuids() {
+    ComponentDto project = db.components().insertMainBranch();
+    ComponentDto branch = db.components().insertProjectBranch(project);
+    ComponentDto module = db.components().insertComponent(newModuleDto(project));
+    db.components().insertComponent(newFileDto(module));
+    ComponentDto disabledProject = db.components().insertPrivateProject(p -> p.setEnabled(false));
+    db.components().insertView();
+
+    assertThat(underTest.selectProjectAndBranchUuids(dbSession))
+      .containsOnly(project.uuid(), branch.uuid(), disabledProject.uuid());
+  }
+
   @Test
   public void select_all_roots_by_organization() {
     OrganizationDto organization = db.organizations().insert();
@@ -126,4 +126,46 @@ public class EsQueueDaoTest {
       .extracting(EsQueueDto::getUuid)
       .containsExactly(i3.getUuid(), i2.getUuid(), i1.getUuid());
   }
+
+  @Test
+  public void selectForRecovery_by_doc_type_returns_only_rows_of_this_type() {
+    system2.setNow(1_000L);
+    EsQueueDto foo1 = underTest.insert(dbSession, EsQueueDto.create("foo", UuidFactoryFast.getInstance().create()));
+    system2.setNow(1_001L);
+    underTest.insert(dbSession, EsQueueDto.create("bar", UuidFactoryFast.getInstance().create()));
+    system2.setNow(1_002L);
+    EsQueueDto foo2 = underTest.insert(dbSession, EsQueueDto.create("foo", UuidFactoryFast.getInstance().create()));
+
+    assertThat(underTest.selectForRecovery(dbSession, "foo", 2_000, LIMIT))
+      .extracting(EsQueueDto::getUuid)
+      .containsExactly(foo2.getUuid(), foo1.getUuid());
+    assertThat(underTest.selectForRecovery(dbSession, "foo", 2_000, 1))
+      .extracting(EsQueueDto::getUuid)
+      .containsExactly(foo2.getUuid());
+    assertThat(underTest.selectForRecovery(dbSession, "foo", 1_001, LIMIT))
+      .extracting(EsQueueDto::getUuid)
+      .containsExactly(foo1.getUuid());
+    assertThat(underTest.selectForRecovery(dbSession, "baz", 2_000, LIMIT)).isEmpty();
+  }
+
+  @Test
+  public void selectDocTypes_returns_distinct_types() {
+    assertThat(underTest.selectDocTypes(dbSession)).isEmpty();
+
+    underTest.insert(dbSession, EsQueueDto.create("foo", UuidFactoryFast.getInstance().create()));
+    underTest.insert(dbSession, EsQueueDto.create("bar", UuidFactoryFast.getInstance().create()));
+    underTest.insert(dbSession, EsQueueDto.create("foo", UuidFactoryFast.getInstance().create()));
+
+    assertThat(underTest.selectDocTypes(dbSession)).containsOnly("foo", "bar");
+  }
+
+  @Test
+  public void count_returns_number_of_rows() {
+    assertThat(underTest.count(dbSession)).isEqualTo(0L);
+
+    underTest.insert(dbSession, EsQueueDto.create("foo", UuidFactoryFast.getInstance().create()));
+    underTest.insert(dbSession, EsQueueDto.create("bar", UuidFactoryFast.getInstance().create()));
+
+    assertThat(underTest.count(dbSession)).isEqualTo(2L);
+  }
 }
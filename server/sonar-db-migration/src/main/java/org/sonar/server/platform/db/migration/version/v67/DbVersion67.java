@@ -34,6 +34,8 @@ public class DbVersion67 implements DbVersion {
       .add(1835, "Populate WEBHOOK_DELIVERIES.ANALYSIS_UUID", PopulateAnalysisUuidColumnOnWebhookDeliveries.class)
       .add(1836, "Migrate 'previous_analysis' leak periods to 'previous_version'", MigratePreviousAnalysisToPreviousVersion.class)
       .add(1837, "Drop old licenses", DropOldLicenses.class)
+      .add(1838, "Add index on ES_QUEUE.DOC_TYPE and ES_QUEUE.CREATED_AT", AddIndexOnEsQueueDocTypeAndCreatedAt.class)
+      .add(1839, "Add CE_ACTIVITY.CPU_TIME_MS, ALLOCATED_BYTES and DB_TIME_MS", AddResourceUsageColumnsToCeActivity.class)
     ;
   }
 }
@@ -20,6 +20,7 @@
 package org.sonar.ce.queue;
 
 import java.util.Optional;
+import java.util.OptionalLong;
 import org.sonar.ce.taskprocessor.CeTaskProcessor;
 
 /**
@@ -33,4 +34,25 @@ public interface CeTaskResult {
    * The UUID of the analysis created, if any, for the Component in {@link CeTask}
    */
   Optional<String> getAnalysisUuid();
+
+  /**
+   * The CPU time consumed by the processing of the task, in milliseconds, if measured
+   */
+  default OptionalLong getCpuTimeMs() {
+    return OptionalLong.empty();
+  }
+
+  /**
+   * The heap memory allocated by the processing of the task, in bytes, if measured
+   */
+  default OptionalLong getAllocatedBytes() {
+    return OptionalLong.empty();
+  }
+
+  /**
+   * The time spent by the processing of the task in the execution of SQL statements, in milliseconds, if measured
+   */
+  default OptionalLong getDbTimeMs() {
+    return OptionalLong.empty();
+  }
 }
@@ -74,7 +74,8 @@ public class TaskAction implements CeWsAction {
       .setResponseExample(getClass().getResource("task-example.json"))
       .setSince("5.2")
       .setChangelog(
-        new Change("6.6", "fields \"branch\" and \"branchType\" added"))
+        new Change("6.6", "fields \"branch\" and \"branchType\" added"),
+        new Change("7.0", "fields \"cpuTimeMs\", \"allocatedBytes\" and \"dbTimeMs\" added"))
       .setHandler(this);
 
     action
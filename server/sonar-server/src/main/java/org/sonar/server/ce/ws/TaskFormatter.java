@@ -125,6 +125,9 @@ public class TaskFormatter {
     setNullable(dto.getStartedAt(), builder::setStartedAt, DateUtils::formatDateTime);
     setNullable(dto.getExecutedAt(), builder::setExecutedAt, DateUtils::formatDateTime);
     setNullable(dto.getExecutionTimeMs(), builder::setExecutionTimeMs);
+    setNullable(dto.getCpuTimeMs(), builder::setCpuTimeMs);
+    setNullable(dto.getAllocatedBytes(), builder::setAllocatedBytes);
+    setNullable(dto.getDbTimeMs(), builder::setDbTimeMs);
     setNullable(dto.getErrorMessage(), builder::setErrorMessage);
     setNullable(dto.getErrorStacktrace(), builder::setErrorStacktrace);
     setNullable(dto.getErrorType(), builder::setErrorType);
@@ -116,7 +116,8 @@ public class SearchProjectsAction implements ComponentsWsAction {
         new Change("6.4", "The 'visibility' field is added"),
         new Change("6.5", "The 'filter' parameter now allows 'NO_DATA' as value for numeric metrics"),
         new Change("6.5", "Added the option 'analysisDate' for the 'sort' parameter"),
-        new Change("6.5", format("Value '%s' is added to parameter '%s'", LEAK_PERIOD_DATE, FIELDS)))
+        new Change("6.5", format("Value '%s' is added to parameter '%s'", LEAK_PERIOD_DATE, FIELDS)),
+        new Change("7.0", "The 'partial' field is added. It's true when the search timed out, in which case components, total and facets are partial"))
       .setHandler(this);
 
     action.createFieldsParam(POSSIBLE_FIELDS)
@@ -241,7 +242,8 @@ public class SearchProjectsAction implements ComponentsWsAction {
 
     SearchIdResult<String> esResults = index.search(query, new SearchOptions()
       .addFacets(request.getFacets())
-      .setPage(request.getPage(), request.getPageSize()));
+      .setPage(request.getPage(), request.getPageSize())
+      .setPartialResultsAllowed(true));
 
     List<String> projectUuids = esResults.getIds();
     Ordering<ComponentDto> ordering = Ordering.explicit(projectUuids).onResultOf(ComponentDto::uuid);
@@ -321,6 +323,7 @@ public class SearchProjectsAction implements ComponentsWsAction {
         return response;
       })
       .map(response -> addFacets(searchResults, response))
+      .map(response -> searchResults.timedOut ? response.setPartial(true) : response)
       .map(SearchProjectsWsResponse.Builder::build)
       .findFirst()
       .orElseThrow(() -> new IllegalStateException("SearchProjectsWsResponse not built"));
@@ -456,12 +459,14 @@ public class SearchProjectsAction implements ComponentsWsAction {
     private final Map<String, SnapshotDto> analysisByProjectUuid;
     private final ProjectMeasuresQuery query;
     private final int total;
+    private final boolean timedOut;
 
     private SearchResults(List<ComponentDto> projects, Set<String> favoriteProjectUuids, SearchIdResult<String> searchResults, Map<String, SnapshotDto> analysisByProjectUuid,
       ProjectMeasuresQuery query) {
       this.projects = projects;
       this.favoriteProjectUuids = favoriteProjectUuids;
       this.total = (int) searchResults.getTotal();
+      this.timedOut = searchResults.isTimedOut();
       this.facets = searchResults.getFacets();
       this.analysisByProjectUuid = analysisByProjectUuid;
       this.query = query;
@@ -22,15 +22,20 @@ package org.sonar.server.computation.task.projectanalysis.batch;
 import java.io.File;
 import java.util.Objects;
 
-public class ImmutableBatchReportDirectoryHolder implements BatchReportDirectoryHolder {
-  private final File directory;
+public class BatchReportZipHolderImpl implements MutableBatchReportZipHolder {
 
-  public ImmutableBatchReportDirectoryHolder(File directory) {
-    this.directory = Objects.requireNonNull(directory);
+  private File zipFile;
+
+  @Override
+  public void setZipFile(File newZipFile) {
+    this.zipFile = Objects.requireNonNull(newZipFile);
   }
 
   @Override
-  public File getDirectory() {
-    return directory;
+  public File getZipFile() {
+    if (this.zipFile == null) {
+      throw new IllegalStateException("Zip file has not been set yet");
+    }
+    return this.zipFile;
   }
 }
@@ -21,14 +21,14 @@ package org.sonar.server.computation.task.projectanalysis.batch;
 
 import java.io.File;
 
-public interface MutableBatchReportDirectoryHolder extends BatchReportDirectoryHolder {
+public interface MutableBatchReportZipHolder extends BatchReportZipHolder {
   /**
-   * Sets the File of the directory in the BatchReportDirectoryHolder. Settings a File more than once is allowed but it
+   * Sets the zip file in the BatchReportZipHolder. Settings a File more than once is allowed but it
    * can never be set to {@code null}.
    *
-   * @param newDirectory a {@link File}, can not be {@code null}
+   * @param newZipFile a {@link File}, can not be {@code null}
    *
-   * @throws NullPointerException if {@code newDirectory} is {@code null}
+   * @throws NullPointerException if {@code newZipFile} is {@code null}
    */
-  void setDirectory(File newDirectory);
+  void setZipFile(File newZipFile);
 }
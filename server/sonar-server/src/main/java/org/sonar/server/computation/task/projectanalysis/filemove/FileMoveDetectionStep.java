@@ -19,6 +19,7 @@
  */
 package org.sonar.server.computation.task.projectanalysis.filemove;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Splitter;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableMap;
@@ -26,19 +27,20 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.stream.IntStream;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
 import org.sonar.api.resources.Qualifiers;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
-import org.sonar.core.hash.SourceLinesHashesComputer;
-import org.sonar.core.util.CloseableIterator;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.component.ComponentDto;
@@ -52,7 +54,7 @@ import org.sonar.server.computation.task.projectanalysis.component.DepthTraversa
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
 import org.sonar.server.computation.task.projectanalysis.component.TypeAwareVisitorAdapter;
 import org.sonar.server.computation.task.projectanalysis.filemove.FileSimilarity.File;
-import org.sonar.server.computation.task.projectanalysis.source.SourceLinesRepository;
+import org.sonar.server.computation.task.projectanalysis.source.SourceLinesHashRepository;
 import org.sonar.server.computation.task.step.ComputationStep;
 
 import static com.google.common.base.MoreObjects.firstNonNull;
@@ -63,6 +65,12 @@ import static org.sonar.server.computation.task.projectanalysis.component.Compon
 
 public class FileMoveDetectionStep implements ComputationStep {
   protected static final int MIN_REQUIRED_SCORE = 85;
+  /**
+   * Each scored pair of files costs an edit distance computation, proportional to the product of their numbers of
+   * lines. Above this number of pairs remaining after pruning, detection is skipped rather than slowing down the
+   * analysis for a long time.
+   */
+  private static final long DEFAULT_MAX_SCORED_PAIRS = 1_000_000L;
   private static final Logger LOG = Loggers.get(FileMoveDetectionStep.class);
   private static final List<String> FILE_QUALIFIERS = asList(Qualifiers.FILE, Qualifiers.UNIT_TEST_FILE);
   private static final Splitter LINES_HASHES_SPLITTER = on('\n');
@@ -70,18 +78,27 @@ public class FileMoveDetectionStep implements ComputationStep {
   private final AnalysisMetadataHolder analysisMetadataHolder;
   private final TreeRootHolder rootHolder;
   private final DbClient dbClient;
-  private final SourceLinesRepository sourceLinesRepository;
+  private final SourceLinesHashRepository sourceLinesHashRepository;
   private final FileSimilarity fileSimilarity;
   private final MutableMovedFilesRepository movedFilesRepository;
+  private final long maxScoredPairs;
 
   public FileMoveDetectionStep(AnalysisMetadataHolder analysisMetadataHolder, TreeRootHolder rootHolder, DbClient dbClient,
-    SourceLinesRepository sourceLinesRepository, FileSimilarity fileSimilarity, MutableMovedFilesRepository movedFilesRepository) {
+    SourceLinesHashRepository sourceLinesHashRepository, FileSimilarity fileSimilarity, MutableMovedFilesRepository movedFilesRepository) {
+    this(analysisMetadataHolder, rootHolder, dbClient, sourceLinesHashRepository, fileSimilarity, movedFilesRepository, DEFAULT_MAX_SCORED_PAIRS);
+  }
+
+  @VisibleForTesting
+  FileMoveDetectionStep(AnalysisMetadataHolder analysisMetadataHolder, TreeRootHolder rootHolder, DbClient dbClient,
+    SourceLinesHashRepository sourceLinesHashRepository, FileSimilarity fileSimilarity, MutableMovedFilesRepository movedFilesRepository,
+    long maxScoredPairs) {
     this.analysisMetadataHolder = analysisMetadataHolder;
     this.rootHolder = rootHolder;
     this.dbClient = dbClient;
-    this.sourceLinesRepository = sourceLinesRepository;
+    this.sourceLinesHashRepository = sourceLinesHashRepository;
     this.fileSimilarity = fileSimilarity;
     this.movedFilesRepository = movedFilesRepository;
+    this.maxScoredPairs = maxScoredPairs;
   }
 
   @Override
@@ -123,6 +140,9 @@ public class FileMoveDetectionStep implements ComputationStep {
 
     // compute score matrix
     ScoreMatrix scoreMatrix = computeScoreMatrix(dbFilesByKey, removedFileKeys, reportFileSourcesByKey);
+    if (scoreMatrix == null) {
+      return;
+    }
     printIfDebug(scoreMatrix);
 
     // not a single match with score higher than MIN_REQUIRED_SCORE => abort
@@ -179,48 +199,87 @@ public class FileMoveDetectionStep implements ComputationStep {
   private Map<String, File> getReportFileSourcesByKey(Map<String, Component> reportFilesByKey, Set<String> addedFileKeys) {
     ImmutableMap.Builder<String, File> builder = ImmutableMap.builder();
     for (String fileKey : addedFileKeys) {
-      // FIXME computation of sourceHash and lineHashes might be done multiple times for some files: here, in ComputeFileSourceData, in
-      // SourceHashRepository
       Component component = reportFilesByKey.get(fileKey);
-      SourceLinesHashesComputer linesHashesComputer = new SourceLinesHashesComputer();
-      try (CloseableIterator<String> lineIterator = sourceLinesRepository.readLines(component)) {
-        while (lineIterator.hasNext()) {
-          String line = lineIterator.next();
-          linesHashesComputer.addLine(line);
-        }
-      }
-      builder.put(fileKey, new File(component.getReportAttributes().getPath(), linesHashesComputer.getLineHashes()));
+      builder.put(fileKey, new File(component.getReportAttributes().getPath(), sourceLinesHashRepository.getAndStoreLineHashes(component)));
     }
     return builder.build();
   }
 
+  /**
+   * @return null if there are too many pairs of files to score
+   */
+  @CheckForNull
   private ScoreMatrix computeScoreMatrix(Map<String, DbComponent> dtosByKey, Set<String> dbFileKeys, Map<String, File> reportFileSourcesByKey) {
-    int[][] scoreMatrix = new int[dbFileKeys.size()][reportFileSourcesByKey.size()];
-    int maxScore = 0;
-
+    List<File> dbFiles = new ArrayList<>(dbFileKeys.size());
     try (DbSession dbSession = dbClient.openSession(false)) {
-      int dbFileIndex = 0;
       for (String removedFileKey : dbFileKeys) {
-        File fileInDb = getFile(dbSession, dtosByKey.get(removedFileKey));
-        if (fileInDb == null) {
-          continue;
-        }
+        dbFiles.add(getFile(dbSession, dtosByKey.get(removedFileKey)));
+      }
+    }
+    List<File> reportFiles = new ArrayList<>(reportFileSourcesByKey.values());
+
+    long totalPairs = (long) dbFiles.size() * reportFiles.size();
+    long scoredPairs = dbFiles.stream()
+      .filter(Objects::nonNull)
+      .mapToLong(fileInDb -> reportFiles.stream().filter(reportFile -> canMatch(fileInDb, reportFile)).count())
+      .sum();
+    LOG.debug("{} pairs of files to be scored, {} pruned", scoredPairs, totalPairs - scoredPairs);
+    if (scoredPairs > maxScoredPairs) {
+      LOG.warn("File move detection is skipped: {} pairs of files would have to be scored, more than the limit of {}", scoredPairs, maxScoredPairs);
+      return null;
+    }
 
-        int reportFileIndex = 0;
-        for (Map.Entry<String, File> reportFileSourceAndKey : reportFileSourcesByKey.entrySet()) {
-          File unmatchedFile = reportFileSourceAndKey.getValue();
-          int score = fileSimilarity.score(fileInDb, unmatchedFile);
-          scoreMatrix[dbFileIndex][reportFileIndex] = score;
-          if (score > maxScore) {
-            maxScore = score;
-          }
-          reportFileIndex++;
+    int[][] reportFileIndexes = new int[dbFiles.size()][];
+    int[][] scores = new int[dbFiles.size()][];
+    int[] maxScoreByRow = new int[dbFiles.size()];
+    // rows are independent from each other, they are computed in parallel
+    IntStream.range(0, dbFiles.size()).parallel().forEach(dbFileIndex -> {
+      File fileInDb = dbFiles.get(dbFileIndex);
+      if (fileInDb != null) {
+        maxScoreByRow[dbFileIndex] = scoreRow(fileInDb, reportFiles, dbFileIndex, reportFileIndexes, scores);
+      }
+    });
+
+    return new ScoreMatrix(new ArrayList<>(dbFileKeys), new ArrayList<>(reportFileSourcesByKey.keySet()), reportFileIndexes, scores,
+      IntStream.of(maxScoreByRow).max().orElse(0));
+  }
+
+  /**
+   * Keeps only the scores greater than or equal to {@link #MIN_REQUIRED_SCORE}.
+   *
+   * @return the maximum score of the row
+   */
+  private int scoreRow(File fileInDb, List<File> reportFiles, int dbFileIndex, int[][] reportFileIndexes, int[][] scores) {
+    int maxScore = 0;
+    int[] rowIndexes = new int[1];
+    int[] rowScores = new int[1];
+    int kept = 0;
+    for (int reportFileIndex = 0; reportFileIndex < reportFiles.size(); reportFileIndex++) {
+      File reportFile = reportFiles.get(reportFileIndex);
+      if (!canMatch(fileInDb, reportFile)) {
+        continue;
+      }
+      int score = fileSimilarity.score(fileInDb, reportFile);
+      maxScore = Math.max(maxScore, score);
+      if (score >= MIN_REQUIRED_SCORE) {
+        if (kept == rowIndexes.length) {
+          rowIndexes = Arrays.copyOf(rowIndexes, 2 * kept);
+          rowScores = Arrays.copyOf(rowScores, 2 * kept);
         }
-        dbFileIndex++;
+        rowIndexes[kept] = reportFileIndex;
+        rowScores[kept] = score;
+        kept++;
       }
     }
+    if (kept > 0) {
+      reportFileIndexes[dbFileIndex] = Arrays.copyOf(rowIndexes, kept);
+      scores[dbFileIndex] = Arrays.copyOf(rowScores, kept);
+    }
+    return maxScore;
+  }
 
-    return new ScoreMatrix(dbFileKeys, reportFileSourcesByKey, scoreMatrix, maxScore);
+  private boolean canMatch(File fileInDb, File reportFile) {
+    return fileSimilarity.maxScore(fileInDb, reportFile) >= MIN_REQUIRED_SCORE;
   }
 
   @CheckForNull
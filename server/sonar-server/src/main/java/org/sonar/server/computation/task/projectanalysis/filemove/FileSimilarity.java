@@ -48,4 +48,11 @@ public interface FileSimilarity {
   }
 
   int score(File file1, File file2);
+
+  /**
+   * Upper bound of {@link #score(File, File)}, which is cheaper to compute.
+   */
+  default int maxScore(File file1, File file2) {
+    return 100;
+  }
 }
@@ -19,33 +19,52 @@
  */
 package org.sonar.server.computation.task.projectanalysis.filemove;
 
-import java.util.Map;
-import java.util.Objects;
-import java.util.Set;
+import java.util.List;
 
+import static org.sonar.server.computation.task.projectanalysis.filemove.FileMoveDetectionStep.MIN_REQUIRED_SCORE;
+
+/**
+ * Scores of the pairs of files removed since the previous analysis (rows) and files added in the report
+ * (columns). Only the scores greater than or equal to {@link FileMoveDetectionStep#MIN_REQUIRED_SCORE} are
+ * kept, the other ones are considered as zero, so that the size of the matrix does not depend on the number of
+ * pairs of files.
+ */
 final class ScoreMatrix {
-  private final Set<String> dbFileKeys;
-  private final Map<String, FileSimilarity.File> reportFileSourcesByKey;
+  private static final int[] NO_SCORES = new int[0];
+
+  private final List<String> dbFileKeys;
+  private final List<String> reportFileKeys;
+  // for each row, the columns of the kept scores, in ascending order
+  private final int[][] reportFileIndexes;
   private final int[][] scores;
   private final int maxScore;
 
-  public ScoreMatrix(Set<String> dbFileKeys, Map<String, FileSimilarity.File> reportFileSourcesByKey, int[][] scores, int maxScore) {
+  /**
+   * @param reportFileIndexes for each db file, the indexes in {@code reportFileKeys} of the files it has a score with,
+   *                          in ascending order. The row is null if none.
+   * @param scores for each db file, the scores with the files of {@code reportFileIndexes}. The row is null if none.
+   * @param maxScore the maximum score of all the pairs of files, including the ones which are not kept
+   */
+  public ScoreMatrix(List<String> dbFileKeys, List<String> reportFileKeys, int[][] reportFileIndexes, int[][] scores, int maxScore) {
     this.dbFileKeys = dbFileKeys;
-    this.reportFileSourcesByKey = reportFileSourcesByKey;
+    this.reportFileKeys = reportFileKeys;
+    this.reportFileIndexes = reportFileIndexes;
     this.scores = scores;
     this.maxScore = maxScore;
   }
 
+  /**
+   * Visits the kept scores, row by row.
+   */
   public void accept(ScoreMatrixVisitor visitor) {
-    int dbFileIndex = 0;
-    for (String dbFileKey : dbFileKeys) {
-      int reportFileIndex = 0;
-      for (Map.Entry<String, FileSimilarity.File> reportFileSourceAndKey : reportFileSourcesByKey.entrySet()) {
-        int score = scores[dbFileIndex][reportFileIndex];
-        visitor.visit(dbFileKey, reportFileSourceAndKey.getKey(), score);
-        reportFileIndex++;
+    for (int dbFileIndex = 0; dbFileIndex < dbFileKeys.size(); dbFileIndex++) {
+      int[] rowIndexes = rowOf(reportFileIndexes, dbFileIndex);
+      int[] rowScores = rowOf(scores, dbFileIndex);
+      for (int i = 0; i < rowIndexes.length; i++) {
+        if (rowScores[i] >= MIN_REQUIRED_SCORE) {
+          visitor.visit(dbFileKeys.get(dbFileIndex), reportFileKeys.get(rowIndexes[i]), rowScores[i]);
+        }
       }
-      dbFileIndex++;
     }
   }
 
@@ -53,25 +72,32 @@ final class ScoreMatrix {
     StringBuilder res = new StringBuilder();
     // first row: empty column, then one column for each report file (its key)
     res.append(separator);
-    for (Map.Entry<String, FileSimilarity.File> reportEntry : reportFileSourcesByKey.entrySet()) {
-      res.append(reportEntry.getKey()).append(separator);
+    for (String reportFileKey : reportFileKeys) {
+      res.append(reportFileKey).append(separator);
     }
     // rows with data: column with db file (its key), then one column for each value
-    accept(new ScoreMatrixVisitor() {
-      private String previousDbFileKey = null;
-
-      @Override
-      public void visit(String dbFileKey, String reportFileKey, int score) {
-        if (!Objects.equals(previousDbFileKey, dbFileKey)) {
-          res.append('\n').append(dbFileKey).append(separator);
-          previousDbFileKey = dbFileKey;
+    for (int dbFileIndex = 0; dbFileIndex < dbFileKeys.size(); dbFileIndex++) {
+      res.append('\n').append(dbFileKeys.get(dbFileIndex)).append(separator);
+      int[] rowIndexes = rowOf(reportFileIndexes, dbFileIndex);
+      int[] rowScores = rowOf(scores, dbFileIndex);
+      int i = 0;
+      for (int reportFileIndex = 0; reportFileIndex < reportFileKeys.size(); reportFileIndex++) {
+        int score = 0;
+        if (i < rowIndexes.length && rowIndexes[i] == reportFileIndex) {
+          score = rowScores[i];
+          i++;
         }
         res.append(score).append(separator);
       }
-    });
+    }
     return res.toString();
   }
 
+  private static int[] rowOf(int[][] matrix, int row) {
+    int[] res = matrix[row];
+    return res == null ? NO_SCORES : res;
+  }
+
   @FunctionalInterface
   public interface ScoreMatrixVisitor {
     void visit(String dbFileKey, String reportFileKey, int score);
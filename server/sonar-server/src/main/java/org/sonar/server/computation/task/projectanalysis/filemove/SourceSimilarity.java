@@ -28,4 +28,12 @@ public interface SourceSimilarity {
    * Range: between 0 and 100
    */
   <T extends Object> int score(List<T> left, List<T> right);
+
+  /**
+   * Upper bound of {@link #score(List, List)}, which is cheaper to compute. Pairs of sources with a maximum
+   * score lower than the required one don't need to be scored.
+   */
+  default <T extends Object> int maxScore(List<T> left, List<T> right) {
+    return 100;
+  }
 }
@@ -35,6 +35,20 @@ public class SourceSimilarityImpl implements SourceSimilarity {
     return (int) (100 * (1.0 - ((double) distance) / (max(left.size(), right.size()))));
   }
 
+  /**
+   * The edit distance is at least the difference between the sizes of the lists.
+   */
+  @Override
+  public <T> int maxScore(List<T> left, List<T> right) {
+    if (left.isEmpty() && right.isEmpty()) {
+      return 0;
+    }
+    int maxSize = max(left.size(), right.size());
+    int minDistance = maxSize - min(left.size(), right.size());
+    // same expression as score(), which can only be lower as the distance can only be greater
+    return (int) (100 * (1.0 - ((double) minDistance) / maxSize));
+  }
+
   private static <T> int levenshteinDistance(List<T> left, List<T> right) {
     int len0 = left.size() + 1;
     int len1 = right.size() + 1;
@@ -0,0 +1,40 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.issue;
+
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Keys of the issues which are inserted or updated in DB by the analysis. It's populated by
+ * {@link org.sonar.server.computation.task.projectanalysis.step.PersistIssuesStep} and used to index only these
+ * issues.
+ */
+public interface ChangedIssuesRepository {
+
+  /**
+   * Keys of the issues inserted or updated in DB.
+   *
+   * @return {@link Optional#empty()} if the documents of all the issues of the branch must be indexed, for example
+   * because too many issues changed or because some fields of the index changed for issues which did not change.
+   */
+  Optional<Set<String>> getChangedIssueKeys();
+
+}
@@ -0,0 +1,76 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.issue;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+import static java.util.Collections.unmodifiableSet;
+import static java.util.Objects.requireNonNull;
+
+public class ChangedIssuesRepositoryImpl implements MutableChangedIssuesRepository {
+
+  /**
+   * Beyond this number of changed issues, indexing all the issues of the branch is more efficient than loading
+   * the changed issues by keys
+   */
+  private static final int DEFAULT_MAX_CHANGED_ISSUES = 10_000;
+
+  private final int maxChangedIssues;
+  private final Set<String> changedIssueKeys = new HashSet<>();
+  private boolean allIssuesChanged = false;
+
+  public ChangedIssuesRepositoryImpl() {
+    this(DEFAULT_MAX_CHANGED_ISSUES);
+  }
+
+  @VisibleForTesting
+  ChangedIssuesRepositoryImpl(int maxChangedIssues) {
+    this.maxChangedIssues = maxChangedIssues;
+  }
+
+  @Override
+  public void addChangedIssueKey(String issueKey) {
+    requireNonNull(issueKey, "issueKey can't be null");
+    if (allIssuesChanged) {
+      return;
+    }
+    changedIssueKeys.add(issueKey);
+    if (changedIssueKeys.size() > maxChangedIssues) {
+      markAllIssuesChanged();
+    }
+  }
+
+  @Override
+  public void markAllIssuesChanged() {
+    allIssuesChanged = true;
+    changedIssueKeys.clear();
+  }
+
+  @Override
+  public Optional<Set<String>> getChangedIssueKeys() {
+    if (allIssuesChanged) {
+      return Optional.empty();
+    }
+    return Optional.of(unmodifiableSet(changedIssueKeys));
+  }
+}
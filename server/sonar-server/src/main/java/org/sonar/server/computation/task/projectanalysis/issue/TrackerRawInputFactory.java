@@ -39,25 +39,24 @@ import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
 import org.sonar.server.computation.task.projectanalysis.issue.commonrule.CommonRuleEngine;
 import org.sonar.server.computation.task.projectanalysis.issue.filter.IssueFilter;
-import org.sonar.server.computation.task.projectanalysis.source.SourceLinesRepository;
+import org.sonar.server.computation.task.projectanalysis.source.SourceLinesHashRepository;
 import org.sonar.server.rule.CommonRuleKeys;
 
-import static com.google.common.collect.Lists.newArrayList;
 import static org.apache.commons.lang.StringUtils.isNotEmpty;
 
 public class TrackerRawInputFactory {
 
   private final TreeRootHolder treeRootHolder;
   private final BatchReportReader reportReader;
-  private final SourceLinesRepository sourceLinesRepository;
+  private final SourceLinesHashRepository sourceLinesHashRepository;
   private final CommonRuleEngine commonRuleEngine;
   private final IssueFilter issueFilter;
 
   public TrackerRawInputFactory(TreeRootHolder treeRootHolder, BatchReportReader reportReader,
-    SourceLinesRepository sourceLinesRepository, CommonRuleEngine commonRuleEngine, IssueFilter issueFilter) {
+    SourceLinesHashRepository sourceLinesHashRepository, CommonRuleEngine commonRuleEngine, IssueFilter issueFilter) {
     this.treeRootHolder = treeRootHolder;
     this.reportReader = reportReader;
-    this.sourceLinesRepository = sourceLinesRepository;
+    this.sourceLinesHashRepository = sourceLinesHashRepository;
     this.commonRuleEngine = commonRuleEngine;
     this.issueFilter = issueFilter;
   }
@@ -75,15 +74,10 @@ public class TrackerRawInputFactory {
 
     @Override
     protected LineHashSequence loadLineHashSequence() {
-      List<String> lines;
       if (component.getType() == Component.Type.FILE) {
-        try (CloseableIterator<String> linesIt = sourceLinesRepository.readLines(component)) {
-          lines = newArrayList(linesIt);
-        }
-      } else {
-        lines = Collections.emptyList();
+        return new LineHashSequence(sourceLinesHashRepository.getLineHashes(component));
       }
-      return LineHashSequence.createForLines(lines);
+      return LineHashSequence.createForLines(Collections.emptyList());
     }
 
     @Override
@@ -21,14 +21,23 @@ package org.sonar.server.computation.task.projectanalysis.measure;
 
 import static java.util.Objects.requireNonNull;
 import static org.sonar.server.computation.task.projectanalysis.component.ComponentFunctions.toReportRef;
+import static org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor.Order.PRE_ORDER;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import org.picocontainer.Startable;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
@@ -37,6 +46,10 @@ import org.sonar.db.measure.MeasureQuery;
 import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.server.computation.task.projectanalysis.batch.BatchReportReader;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.CrawlerDepthLimit;
+import org.sonar.server.computation.task.projectanalysis.component.DepthTraversalTypeAwareCrawler;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
+import org.sonar.server.computation.task.projectanalysis.component.TypeAwareVisitorAdapter;
 import org.sonar.server.computation.task.projectanalysis.measure.MapBasedRawMeasureRepository.OverridePolicy;
 import org.sonar.server.computation.task.projectanalysis.metric.Metric;
 import org.sonar.server.computation.task.projectanalysis.metric.MetricRepository;
@@ -45,24 +58,52 @@ import org.sonar.server.computation.task.projectanalysis.metric.ReportMetricVali
 import com.google.common.base.Optional;
 import com.google.common.collect.SetMultimap;
 
-public class MeasureRepositoryImpl implements MeasureRepository {
+public class MeasureRepositoryImpl implements MeasureRepository, Startable {
+  private static final Logger LOGGER = Loggers.get(MeasureRepositoryImpl.class);
+  private static final int BASE_MEASURES_CHUNK_SIZE = 1_000;
+  private static final int MAX_CACHED_BASE_MEASURE_CHUNKS = 20;
+
   private final MapBasedRawMeasureRepository<Integer> delegate = new MapBasedRawMeasureRepository<>(toReportRef());
   private final DbClient dbClient;
   private final BatchReportReader reportReader;
   private final BatchMeasureToMeasure batchMeasureToMeasure;
   private final MetricRepository metricRepository;
   private final ReportMetricValidator reportMetricValidator;
+  private final TreeRootHolder treeRootHolder;
 
   private MeasureDtoToMeasure measureTransformer = new MeasureDtoToMeasure();
   private final Set<Integer> loadedComponents = new HashSet<>();
+  private List<String> componentUuidsOfTree;
+  private Map<String, Integer> chunkIndexByComponentUuid;
+  private final Map<Integer, Map<String, Map<Integer, MeasureDto>>> baseMeasuresByChunkIndex = new LinkedHashMap<Integer, Map<String, Map<Integer, MeasureDto>>>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Integer, Map<String, Map<Integer, MeasureDto>>> eldest) {
+      return size() > MAX_CACHED_BASE_MEASURE_CHUNKS;
+    }
+  };
+  private long baseMeasureHits = 0;
+  private long baseMeasureMisses = 0;
 
   public MeasureRepositoryImpl(DbClient dbClient, BatchReportReader reportReader, MetricRepository metricRepository,
-    ReportMetricValidator reportMetricValidator) {
+    ReportMetricValidator reportMetricValidator, TreeRootHolder treeRootHolder) {
     this.dbClient = dbClient;
     this.reportReader = reportReader;
     this.reportMetricValidator = reportMetricValidator;
     this.batchMeasureToMeasure = new BatchMeasureToMeasure();
     this.metricRepository = metricRepository;
+    this.treeRootHolder = treeRootHolder;
+  }
+
+  @Override
+  public void start() {
+    // nothing to do
+  }
+
+  @Override
+  public void stop() {
+    if (baseMeasureHits + baseMeasureMisses > 0) {
+      LOGGER.info("Base measures: {} cache hits, {} cache misses", baseMeasureHits, baseMeasureMisses);
+    }
   }
 
   @Override
@@ -71,14 +112,73 @@ public class MeasureRepositoryImpl implements MeasureRepository {
     requireNonNull(component);
     requireNonNull(metric);
 
-    try (DbSession dbSession = dbClient.openSession(false)) {
-      MeasureQuery query = MeasureQuery.builder().setComponentUuid(component.getUuid()).setMetricKey(metric.getKey()).build();
-      java.util.Optional<MeasureDto> measureDto = dbClient.measureDao().selectSingle(dbSession, query);
-      if (measureDto.isPresent()) {
-        return measureTransformer.toMeasure(measureDto.get(), metric);
+    MeasureDto measureDto = getBaseMeasureDtosByMetricId(component).get(metric.getId());
+    if (measureDto != null) {
+      return measureTransformer.toMeasure(measureDto, metric);
+    }
+    return Optional.absent();
+  }
+
+  /**
+   * Components of the tree are split in chunks of {@link #BASE_MEASURES_CHUNK_SIZE} components, in depth-first
+   * order. All the base measures of a chunk are loaded by a single request the first time one of its components
+   * is requested. At most {@link #MAX_CACHED_BASE_MEASURE_CHUNKS} chunks are kept in memory, so that the ancestors
+   * visited in post-order are usually still cached when their children have been visited.
+   */
+  private Map<Integer, MeasureDto> getBaseMeasureDtosByMetricId(Component component) {
+    Integer chunkIndex = getChunkIndexByComponentUuid().get(component.getUuid());
+    if (chunkIndex == null) {
+      // component is not part of the tree
+      baseMeasureMisses++;
+      return toDtosByMetricId(selectBaseMeasures(MeasureQuery.builder().setComponentUuid(component.getUuid()).build()));
+    }
+    Map<String, Map<Integer, MeasureDto>> chunk = baseMeasuresByChunkIndex.get(chunkIndex);
+    if (chunk == null) {
+      baseMeasureMisses++;
+      chunk = loadChunk(chunkIndex);
+      baseMeasuresByChunkIndex.put(chunkIndex, chunk);
+    } else {
+      baseMeasureHits++;
+    }
+    return chunk.getOrDefault(component.getUuid(), Collections.emptyMap());
+  }
+
+  private Map<String, Integer> getChunkIndexByComponentUuid() {
+    if (chunkIndexByComponentUuid == null) {
+      componentUuidsOfTree = new ArrayList<>();
+      new DepthTraversalTypeAwareCrawler(new TypeAwareVisitorAdapter(CrawlerDepthLimit.LEAVES, PRE_ORDER) {
+        @Override
+        public void visitAny(Component any) {
+          componentUuidsOfTree.add(any.getUuid());
+        }
+      }).visit(treeRootHolder.getRoot());
+      chunkIndexByComponentUuid = new HashMap<>(componentUuidsOfTree.size());
+      for (int i = 0; i < componentUuidsOfTree.size(); i++) {
+        chunkIndexByComponentUuid.put(componentUuidsOfTree.get(i), i / BASE_MEASURES_CHUNK_SIZE);
       }
-      return Optional.absent();
     }
+    return chunkIndexByComponentUuid;
+  }
+
+  private Map<String, Map<Integer, MeasureDto>> loadChunk(int chunkIndex) {
+    int from = chunkIndex * BASE_MEASURES_CHUNK_SIZE;
+    List<String> componentUuids = componentUuidsOfTree.subList(from, Math.min(from + BASE_MEASURES_CHUNK_SIZE, componentUuidsOfTree.size()));
+    MeasureQuery query = MeasureQuery.builder().setComponentUuids(treeRootHolder.getRoot().getUuid(), componentUuids).build();
+    Map<String, Map<Integer, MeasureDto>> dtosByComponentUuid = new HashMap<>();
+    for (MeasureDto dto : selectBaseMeasures(query)) {
+      dtosByComponentUuid.computeIfAbsent(dto.getComponentUuid(), uuid -> new HashMap<>()).putIfAbsent(dto.getMetricId(), dto);
+    }
+    return dtosByComponentUuid;
+  }
+
+  private List<MeasureDto> selectBaseMeasures(MeasureQuery query) {
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      return dbClient.measureDao().selectByQuery(dbSession, query);
+    }
+  }
+
+  private static Map<Integer, MeasureDto> toDtosByMetricId(List<MeasureDto> dtos) {
+    return dtos.stream().collect(Collectors.toMap(MeasureDto::getMetricId, Function.identity(), (dto1, dto2) -> dto1));
   }
 
   @Override
@@ -0,0 +1,53 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.source;
+
+import java.util.List;
+import org.sonar.server.computation.task.projectanalysis.component.Component;
+
+public interface SourceLinesHashRepository {
+
+  /**
+   * The hashes of the lines of the source of the specified FILE component in the analysis report, as computed by
+   * {@link org.sonar.core.hash.SourceLinesHashesComputer}.
+   * <p>
+   * Line hashes previously stored by {@link #getAndStoreLineHashes(Component)} are read from disk, otherwise they
+   * are computed from the source of the file.
+   * </p>
+   *
+   * @throws NullPointerException if specified component is {@code null}
+   * @throws IllegalArgumentException if specified component if not a {@link Component.Type#FILE}
+   */
+  List<String> getLineHashes(Component file);
+
+  /**
+   * Same as {@link #getLineHashes(Component)}, but the line hashes are also stored on disk, so that the next calls
+   * for the same file do not read and hash its source again, without keeping them in memory.
+   * <p>
+   * To be used only for the files which are known to be read again later in the task (for example the files
+   * considered by the detection of moved files), so that the line hashes of every file are not written.
+   * </p>
+   *
+   * @throws NullPointerException if specified component is {@code null}
+   * @throws IllegalArgumentException if specified component if not a {@link Component.Type#FILE}
+   */
+  List<String> getAndStoreLineHashes(Component file);
+
+}
@@ -0,0 +1,117 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.source;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.CheckForNull;
+import org.sonar.api.utils.TempFolder;
+import org.sonar.core.hash.SourceLinesHashesComputer;
+import org.sonar.core.util.CloseableIterator;
+import org.sonar.server.computation.task.projectanalysis.component.Component;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+public class SourceLinesHashRepositoryImpl implements SourceLinesHashRepository {
+  private final SourceLinesRepository sourceLinesRepository;
+  private final TempFolder tempFolder;
+  private final Set<Integer> cachedFileRefs = ConcurrentHashMap.newKeySet();
+  @CheckForNull
+  private File cacheDirectory;
+
+  public SourceLinesHashRepositoryImpl(SourceLinesRepository sourceLinesRepository, TempFolder tempFolder) {
+    this.sourceLinesRepository = sourceLinesRepository;
+    this.tempFolder = tempFolder;
+  }
+
+  @Override
+  public List<String> getLineHashes(Component file) {
+    checkFile(file);
+
+    int fileRef = file.getReportAttributes().getRef();
+    if (cachedFileRefs.contains(fileRef)) {
+      return load(getCacheFile(fileRef));
+    }
+    return compute(file);
+  }
+
+  @Override
+  public List<String> getAndStoreLineHashes(Component file) {
+    checkFile(file);
+
+    int fileRef = file.getReportAttributes().getRef();
+    File cacheFile = getCacheFile(fileRef);
+    if (cachedFileRefs.contains(fileRef)) {
+      return load(cacheFile);
+    }
+    List<String> lineHashes = compute(file);
+    save(cacheFile, lineHashes);
+    cachedFileRefs.add(fileRef);
+    return lineHashes;
+  }
+
+  private static void checkFile(Component file) {
+    requireNonNull(file, "Specified component can not be null");
+    checkArgument(file.getType() == Component.Type.FILE, "Line hashes can only be retrieved from FILE components (got %s)", file.getType());
+  }
+
+  private File getCacheFile(int fileRef) {
+    return new File(getCacheDirectory(), String.valueOf(fileRef));
+  }
+
+  private synchronized File getCacheDirectory() {
+    if (cacheDirectory == null) {
+      cacheDirectory = tempFolder.newDir("line_hashes");
+    }
+    return cacheDirectory;
+  }
+
+  private List<String> compute(Component file) {
+    SourceLinesHashesComputer linesHashesComputer = new SourceLinesHashesComputer();
+    try (CloseableIterator<String> linesIterator = sourceLinesRepository.readLines(file)) {
+      while (linesIterator.hasNext()) {
+        linesHashesComputer.addLine(linesIterator.next());
+      }
+    }
+    return linesHashesComputer.getLineHashes();
+  }
+
+  private static void save(File cacheFile, List<String> lineHashes) {
+    try {
+      Files.write(cacheFile.toPath(), lineHashes, UTF_8);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to write line hashes into file " + cacheFile, e);
+    }
+  }
+
+  private static List<String> load(File cacheFile) {
+    try {
+      return Files.readAllLines(cacheFile.toPath(), UTF_8);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to read line hashes from file " + cacheFile, e);
+    }
+  }
+}
@@ -19,38 +19,46 @@
  */
 package org.sonar.server.computation.task.projectanalysis.step;
 
-import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
 import java.util.Optional;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import org.sonar.api.utils.MessageException;
 import org.sonar.api.utils.TempFolder;
-import org.sonar.api.utils.ZipUtils;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
 import org.sonar.ce.queue.CeTask;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.ce.CeTaskInputDao;
-import org.sonar.server.computation.task.projectanalysis.batch.MutableBatchReportDirectoryHolder;
+import org.sonar.server.computation.task.projectanalysis.batch.MutableBatchReportZipHolder;
 import org.sonar.server.computation.task.step.ComputationStep;
 
+import static org.apache.commons.io.FileUtils.byteCountToDisplaySize;
+
 /**
- * Extracts the content zip file of the {@link CeTask} to a temp directory and adds a {@link File}
- * representing that temp directory to the {@link MutableBatchReportDirectoryHolder}.
+ * Copies the content zip file of the {@link CeTask} to a temp file and adds it to the {@link MutableBatchReportZipHolder}.
+ * The zip file is not extracted: report files are read from it when needed.
  */
 public class ExtractReportStep implements ComputationStep {
+  private static final Logger LOGGER = Loggers.get(ExtractReportStep.class);
 
   private final DbClient dbClient;
   private final CeTask task;
   private final TempFolder tempFolder;
-  private final MutableBatchReportDirectoryHolder reportDirectoryHolder;
+  private final MutableBatchReportZipHolder reportZipHolder;
 
   public ExtractReportStep(DbClient dbClient, CeTask task, TempFolder tempFolder,
-    MutableBatchReportDirectoryHolder reportDirectoryHolder) {
+    MutableBatchReportZipHolder reportZipHolder) {
     this.dbClient = dbClient;
     this.task = task;
     this.tempFolder = tempFolder;
-    this.reportDirectoryHolder = reportDirectoryHolder;
+    this.reportZipHolder = reportZipHolder;
   }
 
   @Override
@@ -58,20 +66,31 @@ public class ExtractReportStep implements ComputationStep {
     try (DbSession dbSession = dbClient.openSession(false)) {
       Optional<CeTaskInputDao.DataStream> opt = dbClient.ceTaskInputDao().selectData(dbSession, task.getUuid());
       if (opt.isPresent()) {
-        File unzippedDir = tempFolder.newDir();
+        File zipFile = tempFolder.newFile("report", ".zip");
         try (CeTaskInputDao.DataStream reportStream = opt.get();
-             InputStream zipStream = new BufferedInputStream(reportStream.getInputStream())) {
-          ZipUtils.unzip(zipStream, unzippedDir);
+             InputStream zipStream = reportStream.getInputStream()) {
+          Files.copy(zipStream, zipFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+          LOGGER.info("Analysis report is {} compressed, {} of temp disk saved by not extracting it",
+            byteCountToDisplaySize(zipFile.length()), byteCountToDisplaySize(uncompressedSizeOf(zipFile)));
         } catch (IOException e) {
-          throw new IllegalStateException("Fail to extract report " + task.getUuid() + " from database", e);
+          throw new IllegalStateException("Fail to copy report " + task.getUuid() + " from database", e);
         }
-        reportDirectoryHolder.setDirectory(unzippedDir);
+        reportZipHolder.setZipFile(zipFile);
       } else {
         throw MessageException.of("Analysis report " + task.getUuid() + " is missing in database");
       }
     }
   }
 
+  private static long uncompressedSizeOf(File zipFile) throws IOException {
+    try (ZipFile zip = new ZipFile(zipFile)) {
+      return Collections.list(zip.entries()).stream()
+        .mapToLong(ZipEntry::getSize)
+        .filter(size -> size > 0)
+        .sum();
+    }
+  }
+
   @Override
   public String getDescription() {
     return "Extract report";
@@ -19,30 +19,69 @@
  */
 package org.sonar.server.computation.task.projectanalysis.step;
 
+import java.util.Optional;
+import java.util.Set;
+import javax.annotation.Nullable;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
+import org.sonar.server.computation.task.projectanalysis.issue.ChangedIssuesRepository;
 import org.sonar.server.computation.task.step.ComputationStep;
 import org.sonar.server.es.ProjectIndexer;
+import org.sonar.server.issue.index.IssueIndexer;
 
 public class IndexAnalysisStep implements ComputationStep {
 
   private static final Logger LOGGER = Loggers.get(IndexAnalysisStep.class);
 
   private final TreeRootHolder treeRootHolder;
+  @Nullable
+  private final IssueIndexer issueIndexer;
+  @Nullable
+  private final ChangedIssuesRepository changedIssuesRepository;
   private final ProjectIndexer[] indexers;
 
+  /**
+   * Used when the issues changed by the task are not known. All the issues of the branch are indexed.
+   */
   public IndexAnalysisStep(TreeRootHolder treeRootHolder, ProjectIndexer... indexers) {
     this.treeRootHolder = treeRootHolder;
+    this.issueIndexer = null;
+    this.changedIssuesRepository = null;
+    this.indexers = indexers;
+  }
+
+  public IndexAnalysisStep(TreeRootHolder treeRootHolder, IssueIndexer issueIndexer, ChangedIssuesRepository changedIssuesRepository,
+    ProjectIndexer... indexers) {
+    this.treeRootHolder = treeRootHolder;
+    this.issueIndexer = issueIndexer;
+    this.changedIssuesRepository = changedIssuesRepository;
     this.indexers = indexers;
   }
 
   @Override
   public void execute() {
     String branchUuid = treeRootHolder.getRoot().getUuid();
+    if (issueIndexer != null) {
+      indexIssues(branchUuid);
+    }
     for (ProjectIndexer indexer : indexers) {
-      LOGGER.debug("Call {}", indexer);
-      indexer.indexOnAnalysis(branchUuid);
+      // issues are already indexed
+      if (indexer != issueIndexer) {
+        LOGGER.debug("Call {}", indexer);
+        indexer.indexOnAnalysis(branchUuid);
+      }
+    }
+  }
+
+  private void indexIssues(String branchUuid) {
+    Optional<Set<String>> changedIssueKeys = changedIssuesRepository.getChangedIssueKeys();
+    if (changedIssueKeys.isPresent()) {
+      LOGGER.debug("Index {} changed issues", changedIssueKeys.get().size());
+      issueIndexer.indexOnAnalysis(branchUuid, changedIssueKeys.get());
+    } else {
+      LOGGER.debug("Call {}", issueIndexer);
+      issueIndexer.indexOnAnalysis(branchUuid);
     }
   }
 
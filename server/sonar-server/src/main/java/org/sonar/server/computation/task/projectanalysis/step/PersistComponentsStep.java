@@ -51,6 +51,7 @@ import org.sonar.server.computation.task.projectanalysis.component.PathAwareCraw
 import org.sonar.server.computation.task.projectanalysis.component.PathAwareVisitor;
 import org.sonar.server.computation.task.projectanalysis.component.PathAwareVisitorAdapter;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
+import org.sonar.server.computation.task.projectanalysis.issue.MutableChangedIssuesRepository;
 import org.sonar.server.computation.task.step.ComputationStep;
 
 import static com.google.common.collect.FluentIterable.from;
@@ -72,11 +73,12 @@ public class PersistComponentsStep implements ComputationStep {
   private final MutableDisabledComponentsHolder disabledComponentsHolder;
   private final AnalysisMetadataHolder analysisMetadataHolder;
   private final BranchPersister branchPersister;
+  private final MutableChangedIssuesRepository changedIssuesRepository;
 
   public PersistComponentsStep(DbClient dbClient, TreeRootHolder treeRootHolder,
     MutableDbIdsRepository dbIdsRepository, System2 system2,
     MutableDisabledComponentsHolder disabledComponentsHolder, AnalysisMetadataHolder analysisMetadataHolder,
-    BranchPersister branchPersister) {
+    BranchPersister branchPersister, MutableChangedIssuesRepository changedIssuesRepository) {
     this.dbClient = dbClient;
     this.treeRootHolder = treeRootHolder;
     this.dbIdsRepository = dbIdsRepository;
@@ -84,6 +86,7 @@ public class PersistComponentsStep implements ComputationStep {
     this.disabledComponentsHolder = disabledComponentsHolder;
     this.analysisMetadataHolder = analysisMetadataHolder;
     this.branchPersister = branchPersister;
+    this.changedIssuesRepository = changedIssuesRepository;
   }
 
   @Override
@@ -256,6 +259,10 @@ public class PersistComponentsStep implements ComputationStep {
       if (update.isPresent()) {
         ComponentUpdateDto updateDto = update.get();
         dbClient.componentDao().update(dbSession, updateDto);
+        if (isIssueLocationChanged(existingComponent, componentDto)) {
+          // location fields are copied in the issue documents of all the files of the component
+          changedIssuesRepository.markAllIssuesChanged();
+        }
 
         // update the fields in memory in order the PathAwareVisitor.Path
         // to be up-to-date
@@ -456,6 +463,12 @@ public class PersistComponentsStep implements ComputationStep {
     return ofNullable(update);
   }
 
+  private static boolean isIssueLocationChanged(ComponentDto existing, ComponentDto target) {
+    return !StringUtils.equals(existing.moduleUuid(), target.moduleUuid()) ||
+      !StringUtils.equals(existing.moduleUuidPath(), target.moduleUuidPath()) ||
+      !StringUtils.equals(existing.path(), target.path());
+  }
+
   private static String getFileQualifier(Component component) {
     return component.getFileAttributes().isUnitTest() ? Qualifiers.UNIT_TEST_FILE : Qualifiers.FILE;
   }
@@ -19,7 +19,11 @@
  */
 package org.sonar.server.computation.task.projectanalysis.step;
 
+import java.util.ArrayList;
+import java.util.List;
 import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.issue.DefaultIssue;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.db.DbClient;
@@ -28,58 +32,98 @@ import org.sonar.db.issue.IssueChangeMapper;
 import org.sonar.db.issue.IssueDto;
 import org.sonar.db.issue.IssueMapper;
 import org.sonar.server.computation.task.projectanalysis.issue.IssueCache;
+import org.sonar.server.computation.task.projectanalysis.issue.MutableChangedIssuesRepository;
 import org.sonar.server.computation.task.projectanalysis.issue.RuleRepository;
 import org.sonar.server.computation.task.projectanalysis.issue.UpdateConflictResolver;
 import org.sonar.server.computation.task.step.ComputationStep;
 import org.sonar.server.issue.IssueStorage;
 
 public class PersistIssuesStep implements ComputationStep {
+  private static final Logger LOG = Loggers.get(PersistIssuesStep.class);
 
   private final DbClient dbClient;
   private final System2 system2;
   private final UpdateConflictResolver conflictResolver;
   private final RuleRepository ruleRepository;
   private final IssueCache issueCache;
+  private final MutableChangedIssuesRepository changedIssuesRepository;
 
   public PersistIssuesStep(DbClient dbClient, System2 system2, UpdateConflictResolver conflictResolver,
-    RuleRepository ruleRepository, IssueCache issueCache) {
+    RuleRepository ruleRepository, IssueCache issueCache, MutableChangedIssuesRepository changedIssuesRepository) {
     this.dbClient = dbClient;
     this.system2 = system2;
     this.conflictResolver = conflictResolver;
     this.ruleRepository = ruleRepository;
     this.issueCache = issueCache;
+    this.changedIssuesRepository = changedIssuesRepository;
   }
 
   @Override
   public void execute() {
+    long start = system2.now();
+    int persistedIssues = 0;
     try (DbSession dbSession = dbClient.openSession(true);
       CloseableIterator<DefaultIssue> issues = issueCache.traverse()) {
 
       IssueMapper mapper = dbSession.getMapper(IssueMapper.class);
       IssueChangeMapper changeMapper = dbSession.getMapper(IssueChangeMapper.class);
+      IssuesToPersist issuesToPersist = new IssuesToPersist(mapper, changeMapper, dbClient.getDatabase().getDialect().getBatchSize());
       while (issues.hasNext()) {
-        DefaultIssue issue = issues.next();
-        boolean saved = persistIssueIfRequired(mapper, issue);
-        if (saved) {
-          IssueStorage.insertChanges(changeMapper, issue);
+        if (issuesToPersist.addIfRequired(issues.next())) {
+          persistedIssues++;
         }
       }
+      issuesToPersist.persist();
       dbSession.flushStatements();
       dbSession.commit();
     }
+    long duration = system2.now() - start;
+    LOG.info("Persisted {} issues in {}ms ({} issues/s)", persistedIssues, duration, persistedIssues * 1_000L / Math.max(1L, duration));
   }
 
-  private boolean persistIssueIfRequired(IssueMapper mapper, DefaultIssue issue) {
-    if (issue.isNew() || issue.isCopied()) {
-      persistNewIssue(mapper, issue);
-      return true;
+  /**
+   * Statements are grouped by type, so that the JDBC batches of the batch session are not split each time an issue
+   * insert is followed by an issue update or by the insert of an issue change. Groups are flushed at the batch size
+   * of the dialect, which is the size of the JDBC batches of the batch session.
+   */
+  private class IssuesToPersist {
+    private final IssueMapper mapper;
+    private final IssueChangeMapper changeMapper;
+    private final int batchSize;
+    private final List<DefaultIssue> newIssues;
+    private final List<DefaultIssue> changedIssues;
+
+    private IssuesToPersist(IssueMapper mapper, IssueChangeMapper changeMapper, int batchSize) {
+      this.mapper = mapper;
+      this.changeMapper = changeMapper;
+      this.batchSize = batchSize;
+      this.newIssues = new ArrayList<>(batchSize);
+      this.changedIssues = new ArrayList<>(batchSize);
     }
 
-    if (issue.isChanged()) {
-      persistChangedIssue(mapper, issue);
+    private boolean addIfRequired(DefaultIssue issue) {
+      if (issue.isNew() || issue.isCopied()) {
+        newIssues.add(issue);
+      } else if (issue.isChanged()) {
+        changedIssues.add(issue);
+      } else {
+        return false;
+      }
+      changedIssuesRepository.addChangedIssueKey(issue.key());
+      if (newIssues.size() + changedIssues.size() >= batchSize) {
+        persist();
+      }
       return true;
     }
-    return false;
+
+    private void persist() {
+      newIssues.forEach(issue -> persistNewIssue(mapper, issue));
+      changedIssues.forEach(issue -> persistChangedIssue(mapper, issue));
+      newIssues.forEach(issue -> IssueStorage.insertChanges(changeMapper, issue));
+      changedIssues.forEach(issue -> IssueStorage.insertChanges(changeMapper, issue));
+      newIssues.clear();
+      changedIssues.clear();
+    }
   }
 
   private void persistNewIssue(IssueMapper mapper, DefaultIssue issue) {
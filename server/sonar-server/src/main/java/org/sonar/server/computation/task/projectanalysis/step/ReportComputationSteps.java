@@ -89,8 +89,9 @@ public class ReportComputationSteps extends AbstractComputationSteps {
     PersistAnalysisPropertiesStep.class,
     PersistMeasuresStep.class,
     PersistIssuesStep.class,
-    PersistProjectLinksStep.class,
     PersistEventsStep.class,
+    // Executed concurrently
+    PersistProjectLinksStep.class,
     PersistFileSourcesStep.class,
     PersistTestsStep.class,
     PersistCrossProjectDuplicationIndexStep.class,
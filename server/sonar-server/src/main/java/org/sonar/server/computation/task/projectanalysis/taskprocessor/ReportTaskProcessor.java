@@ -20,6 +20,8 @@
 package org.sonar.server.computation.task.projectanalysis.taskprocessor;
 
 import java.util.Collections;
+import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.Set;
 import javax.annotation.CheckForNull;
 import org.sonar.ce.queue.CeTask;
@@ -32,6 +34,7 @@ import org.sonar.server.computation.task.container.TaskContainer;
 import org.sonar.server.computation.task.projectanalysis.container.ContainerFactory;
 import org.sonar.server.computation.task.step.ComputationStepExecutor;
 import org.sonar.server.computation.taskprocessor.TaskResultHolder;
+import org.sonar.server.computation.taskprocessor.TasksResourceUsage;
 
 public class ReportTaskProcessor implements CeTaskProcessor {
 
@@ -39,24 +42,28 @@ public class ReportTaskProcessor implements CeTaskProcessor {
 
   private final ContainerFactory containerFactory;
   private final ComponentContainer serverContainer;
+  private final TasksResourceUsage tasksResourceUsage;
   @CheckForNull
   private final ReportAnalysisComponentProvider[] componentProviders;
 
   /**
    * Used when at least one Privileged plugin is installed
    */
-  public ReportTaskProcessor(ContainerFactory containerFactory, ComponentContainer serverContainer, ReportAnalysisComponentProvider[] componentProviders) {
+  public ReportTaskProcessor(ContainerFactory containerFactory, ComponentContainer serverContainer, TasksResourceUsage tasksResourceUsage,
+    ReportAnalysisComponentProvider[] componentProviders) {
     this.containerFactory = containerFactory;
     this.serverContainer = serverContainer;
+    this.tasksResourceUsage = tasksResourceUsage;
     this.componentProviders = componentProviders;
   }
 
   /**
    * Used when no privileged plugin is installed
    */
-  public ReportTaskProcessor(ContainerFactory containerFactory, ComponentContainer serverContainer) {
+  public ReportTaskProcessor(ContainerFactory containerFactory, ComponentContainer serverContainer, TasksResourceUsage tasksResourceUsage) {
     this.containerFactory = containerFactory;
     this.serverContainer = serverContainer;
+    this.tasksResourceUsage = tasksResourceUsage;
     this.componentProviders = null;
   }
 
@@ -70,8 +77,51 @@ public class ReportTaskProcessor implements CeTaskProcessor {
     try (TaskContainer ceContainer = containerFactory.create(serverContainer, task, componentProviders)) {
       ceContainer.bootup();
 
-      ceContainer.getComponentByType(ComputationStepExecutor.class).execute();
-      return ceContainer.getComponentByType(TaskResultHolder.class).getResult();
+      ComputationStepExecutor stepExecutor = ceContainer.getComponentByType(ComputationStepExecutor.class);
+      try {
+        stepExecutor.execute();
+      } finally {
+        tasksResourceUsage.add(task, stepExecutor.getCpuTimeMs(), stepExecutor.getAllocatedBytes(), stepExecutor.getDbTimeMs());
+      }
+      return new ResourceUsageTaskResult(ceContainer.getComponentByType(TaskResultHolder.class).getResult(), stepExecutor);
+    }
+  }
+
+  /**
+   * Adds the resources consumed by the computation steps to the result of the task, so that they are persisted
+   * in CE_ACTIVITY.
+   */
+  private static final class ResourceUsageTaskResult implements CeTaskResult {
+    private final CeTaskResult delegate;
+    private final long cpuTimeMs;
+    private final long allocatedBytes;
+    private final long dbTimeMs;
+
+    private ResourceUsageTaskResult(CeTaskResult delegate, ComputationStepExecutor stepExecutor) {
+      this.delegate = delegate;
+      this.cpuTimeMs = stepExecutor.getCpuTimeMs();
+      this.allocatedBytes = stepExecutor.getAllocatedBytes();
+      this.dbTimeMs = stepExecutor.getDbTimeMs();
+    }
+
+    @Override
+    public Optional<String> getAnalysisUuid() {
+      return delegate.getAnalysisUuid();
+    }
+
+    @Override
+    public OptionalLong getCpuTimeMs() {
+      return OptionalLong.of(cpuTimeMs);
+    }
+
+    @Override
+    public OptionalLong getAllocatedBytes() {
+      return OptionalLong.of(allocatedBytes);
+    }
+
+    @Override
+    public OptionalLong getDbTimeMs() {
+      return OptionalLong.of(dbTimeMs);
     }
   }
 }
@@ -19,18 +19,34 @@
  */
 package org.sonar.server.computation.task.step;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
+import org.slf4j.MDC;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.util.logs.Profiler;
+import org.sonar.core.util.logs.ThreadResourceUsage;
+import org.sonar.db.profiling.JdbcTime;
 
 public final class ComputationStepExecutor {
   private static final Logger LOGGER = Loggers.get(ComputationStepExecutor.class);
+  private static final int MAX_CONCURRENT_STEPS = 4;
 
   private final ComputationSteps steps;
   @CheckForNull
   private final Listener listener;
+  private final LongAdder cpuTimeMs = new LongAdder();
+  private final LongAdder allocatedBytes = new LongAdder();
+  private final LongAdder dbTimeMs = new LongAdder();
 
   /**
    * Used when no {@link ComputationStepExecutor.Listener} is available in pico
@@ -59,10 +75,125 @@ public final class ComputationStepExecutor {
   }
 
   private void executeSteps(Profiler stepProfiler) {
+    List<ComputationStep> concurrentSteps = new ArrayList<>();
     for (ComputationStep step : steps.instances()) {
-      stepProfiler.start();
+      if (step instanceof ConcurrentComputationStep) {
+        concurrentSteps.add(step);
+      } else {
+        executeConcurrently(concurrentSteps, stepProfiler);
+        concurrentSteps.clear();
+        executeStep(step, stepProfiler);
+      }
+    }
+    executeConcurrently(concurrentSteps, stepProfiler);
+  }
+
+  private void executeStep(ComputationStep step, Profiler stepProfiler) {
+    ThreadResourceUsage resourceUsage = ThreadResourceUsage.start();
+    JdbcTime.start();
+    stepProfiler.start();
+    long stepDbTimeMs;
+    try {
       step.execute();
-      stepProfiler.stopDebug(step.getDescription());
+    } finally {
+      stepDbTimeMs = JdbcTime.stop();
+      dbTimeMs.add(stepDbTimeMs);
+      addResourceUsage(resourceUsage);
+    }
+    resourceUsage.addContextTo(stepProfiler)
+      .addContext("dbTime", stepDbTimeMs + "ms")
+      .stopDebug(step.getDescription());
+  }
+
+  private void addResourceUsage(ThreadResourceUsage resourceUsage) {
+    long stepCpuTimeMs = resourceUsage.getCpuTimeMs();
+    if (stepCpuTimeMs >= 0) {
+      cpuTimeMs.add(stepCpuTimeMs);
+    }
+    long stepAllocatedBytes = resourceUsage.getAllocatedBytes();
+    if (stepAllocatedBytes >= 0) {
+      allocatedBytes.add(stepAllocatedBytes);
+    }
+  }
+
+  /**
+   * CPU time consumed by the steps executed so far, in milliseconds. Zero if not supported by the JVM.
+   */
+  public long getCpuTimeMs() {
+    return cpuTimeMs.sum();
+  }
+
+  /**
+   * Heap memory allocated by the steps executed so far, in bytes. Zero if not supported by the JVM.
+   */
+  public long getAllocatedBytes() {
+    return allocatedBytes.sum();
+  }
+
+  /**
+   * Time spent by the steps executed so far in the execution of SQL statements, in milliseconds.
+   *
+   * @see JdbcTime
+   */
+  public long getDbTimeMs() {
+    return dbTimeMs.sum();
+  }
+
+  /**
+   * Executes a group of consecutive {@link ConcurrentComputationStep} on a bounded pool and waits for all of them
+   * to complete. The first failure, in order of declaration of the steps, is propagated as is.
+   */
+  private void executeConcurrently(List<ComputationStep> concurrentSteps, Profiler stepProfiler) {
+    if (concurrentSteps.size() <= 1) {
+      concurrentSteps.forEach(step -> executeStep(step, stepProfiler));
+      return;
+    }
+
+    Map<String, String> loggingContext = MDC.getCopyOfContextMap();
+    ExecutorService executorService = Executors.newFixedThreadPool(
+      Math.min(concurrentSteps.size(), MAX_CONCURRENT_STEPS),
+      new ThreadFactoryBuilder().setNameFormat(Thread.currentThread().getName() + "-step-%d").setDaemon(true).build());
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (ComputationStep step : concurrentSteps) {
+        futures.add(executorService.submit(() -> {
+          if (loggingContext != null) {
+            MDC.setContextMap(loggingContext);
+          }
+          try {
+            // Profiler is not thread-safe
+            executeStep(step, Profiler.create(LOGGER));
+          } finally {
+            MDC.clear();
+          }
+        }));
+      }
+      waitFor(futures);
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  private static void waitFor(List<Future<?>> futures) {
+    RuntimeException firstFailure = null;
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while waiting for execution of steps", e);
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof Error) {
+          throw (Error) cause;
+        }
+        if (firstFailure == null) {
+          firstFailure = cause instanceof RuntimeException ? (RuntimeException) cause : new IllegalStateException(cause);
+        }
+      }
+    }
+    if (firstFailure != null) {
+      throw firstFailure;
     }
   }
 
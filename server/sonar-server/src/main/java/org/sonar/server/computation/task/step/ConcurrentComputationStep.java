@@ -0,0 +1,31 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.step;
+
+/**
+ * A {@link ComputationStep} which can be executed concurrently with the other {@link ConcurrentComputationStep}
+ * it is declared next to in the ordered list of steps.
+ * <p>
+ * Implementations must only read holders and repositories which are fully populated by previous steps, and
+ * must not write into any state read by other steps of the same group (typically they only persist data in DB
+ * with their own {@link org.sonar.db.DbSession}).
+ */
+public interface ConcurrentComputationStep extends ComputationStep {
+}
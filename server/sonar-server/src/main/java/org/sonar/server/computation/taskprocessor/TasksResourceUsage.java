@@ -0,0 +1,147 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.taskprocessor;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.sonar.ce.queue.CeTask;
+
+import static java.util.stream.Collectors.toList;
+import static org.apache.commons.io.FileUtils.byteCountToDisplaySize;
+
+/**
+ * CPU time, heap memory and database time consumed by the computation steps of the tasks processed since startup
+ * of the Compute Engine, in total and by project, so that the most expensive projects can be reported.
+ */
+public class TasksResourceUsage {
+  static final int MAX_PROJECTS = 10_000;
+
+  private final LongAdder cpuTimeMs = new LongAdder();
+  private final LongAdder allocatedBytes = new LongAdder();
+  private final LongAdder dbTimeMs = new LongAdder();
+  private final ConcurrentMap<String, Counters> countersByProjectKey = new ConcurrentHashMap<>();
+
+  /**
+   * @param cpuTimeMs CPU time consumed by the task, in milliseconds, or a negative value if it's not supported by the JVM
+   * @param allocatedBytes heap memory allocated by the task, in bytes, or a negative value if it's not supported by the JVM
+   * @param dbTimeMs time spent by the task in the execution of SQL statements, in milliseconds
+   */
+  public void add(CeTask task, long cpuTimeMs, long allocatedBytes, long dbTimeMs) {
+    long taskCpuTimeMs = Math.max(0L, cpuTimeMs);
+    long taskAllocatedBytes = Math.max(0L, allocatedBytes);
+    this.cpuTimeMs.add(taskCpuTimeMs);
+    this.allocatedBytes.add(taskAllocatedBytes);
+    this.dbTimeMs.add(dbTimeMs);
+
+    String projectKey = task.getComponentKey();
+    if (projectKey == null || (countersByProjectKey.size() >= MAX_PROJECTS && !countersByProjectKey.containsKey(projectKey))) {
+      return;
+    }
+    Counters counters = countersByProjectKey.computeIfAbsent(projectKey, k -> new Counters());
+    counters.taskCount.increment();
+    counters.cpuTimeMs.add(taskCpuTimeMs);
+    counters.allocatedBytes.add(taskAllocatedBytes);
+    counters.dbTimeMs.add(dbTimeMs);
+  }
+
+  /**
+   * CPU time consumed by the tasks processed since startup, in milliseconds
+   */
+  public long getCpuTimeMs() {
+    return cpuTimeMs.sum();
+  }
+
+  /**
+   * Heap memory allocated by the tasks processed since startup, in bytes
+   */
+  public long getAllocatedBytes() {
+    return allocatedBytes.sum();
+  }
+
+  /**
+   * Time spent by the tasks processed since startup in the execution of SQL statements, in milliseconds
+   */
+  public long getDbTimeMs() {
+    return dbTimeMs.sum();
+  }
+
+  /**
+   * The projects which tasks consumed the most CPU time since startup, most expensive first
+   */
+  public List<ProjectResourceUsage> getMostExpensiveProjects(int limit) {
+    // counters are copied before being sorted, as they can be updated concurrently
+    return countersByProjectKey.entrySet().stream()
+      .map(entry -> new ProjectResourceUsage(entry.getKey(), entry.getValue()))
+      .sorted(Comparator.comparingLong(ProjectResourceUsage::getCpuTimeMs).reversed())
+      .limit(limit)
+      .collect(toList());
+  }
+
+  private static final class Counters {
+    private final LongAdder taskCount = new LongAdder();
+    private final LongAdder cpuTimeMs = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final LongAdder dbTimeMs = new LongAdder();
+  }
+
+  public static final class ProjectResourceUsage {
+    private final String projectKey;
+    private final long taskCount;
+    private final long cpuTimeMs;
+    private final long allocatedBytes;
+    private final long dbTimeMs;
+
+    private ProjectResourceUsage(String projectKey, Counters counters) {
+      this.projectKey = projectKey;
+      this.taskCount = counters.taskCount.sum();
+      this.cpuTimeMs = counters.cpuTimeMs.sum();
+      this.allocatedBytes = counters.allocatedBytes.sum();
+      this.dbTimeMs = counters.dbTimeMs.sum();
+    }
+
+    public String getProjectKey() {
+      return projectKey;
+    }
+
+    public long getTaskCount() {
+      return taskCount;
+    }
+
+    public long getCpuTimeMs() {
+      return cpuTimeMs;
+    }
+
+    public long getAllocatedBytes() {
+      return allocatedBytes;
+    }
+
+    public long getDbTimeMs() {
+      return dbTimeMs;
+    }
+
+    @Override
+    public String toString() {
+      return projectKey + " (tasks=" + taskCount + ", cpuTime=" + cpuTimeMs + "ms, allocated=" + byteCountToDisplaySize(allocatedBytes) + ")";
+    }
+  }
+}
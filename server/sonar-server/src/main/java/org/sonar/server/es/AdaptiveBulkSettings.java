@@ -0,0 +1,100 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Adapts the size of bulk requests and the number of concurrent bulk requests to the load of Elasticsearch.
+ * Latencies and rejections are observed over a window of bulk requests:
+ * <ul>
+ *   <li>if some documents are rejected or if latency is high, then size and concurrency are decreased</li>
+ *   <li>if latency is low, then size and concurrency are increased</li>
+ * </ul>
+ * Settings are shared by the {@link BulkIndexer}s of a same index and size, see
+ * {@link BulkIndexerMetrics.IndexMetrics}, so that they are not restarted from initial values
+ * by each indexing. Thread-safe.
+ */
+class AdaptiveBulkSettings {
+
+  static final long MIN_BYTES = 512 * 1024L;
+  static final long MAX_BYTES = 16 * 1024 * 1024L;
+  static final int WINDOW = 10;
+  static final long HIGH_LATENCY_MS = 2_000L;
+  static final long LOW_LATENCY_MS = 500L;
+
+  private final int maxConcurrentRequests;
+  private long bulkSizeBytes;
+  private int concurrentRequests;
+  private long version = 0L;
+
+  private int windowBulks = 0;
+  private long windowLatencyMs = 0L;
+  private int windowRejections = 0;
+
+  AdaptiveBulkSettings(long initialBulkSizeBytes, int initialConcurrentRequests, int maxConcurrentRequests) {
+    checkArgument(initialConcurrentRequests <= maxConcurrentRequests, "Initial concurrent requests %s is greater than max %s",
+      initialConcurrentRequests, maxConcurrentRequests);
+    this.bulkSizeBytes = initialBulkSizeBytes;
+    this.concurrentRequests = initialConcurrentRequests;
+    this.maxConcurrentRequests = maxConcurrentRequests;
+  }
+
+  synchronized void onBulk(long latencyMs, int rejections) {
+    windowBulks++;
+    windowLatencyMs += latencyMs;
+    windowRejections += rejections;
+    if (windowBulks < WINDOW) {
+      return;
+    }
+    long meanLatencyMs = windowLatencyMs / windowBulks;
+    if (windowRejections > 0 || meanLatencyMs > HIGH_LATENCY_MS) {
+      update(Math.max(MIN_BYTES, bulkSizeBytes / 2), Math.max(0, concurrentRequests - 1));
+    } else if (meanLatencyMs < LOW_LATENCY_MS) {
+      update(Math.min(MAX_BYTES, bulkSizeBytes * 2), Math.min(maxConcurrentRequests, concurrentRequests + 1));
+    }
+    windowBulks = 0;
+    windowLatencyMs = 0L;
+    windowRejections = 0;
+  }
+
+  private void update(long newBulkSizeBytes, int newConcurrentRequests) {
+    if (newBulkSizeBytes != bulkSizeBytes || newConcurrentRequests != concurrentRequests) {
+      bulkSizeBytes = newBulkSizeBytes;
+      concurrentRequests = newConcurrentRequests;
+      version++;
+    }
+  }
+
+  /**
+   * Incremented each time settings change
+   */
+  synchronized long getVersion() {
+    return version;
+  }
+
+  synchronized long getBulkSizeBytes() {
+    return bulkSizeBytes;
+  }
+
+  synchronized int getConcurrentRequests() {
+    return concurrentRequests;
+  }
+}
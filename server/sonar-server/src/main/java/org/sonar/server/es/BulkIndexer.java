@@ -24,6 +24,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 import org.elasticsearch.action.DocWriteRequest;
@@ -44,6 +45,8 @@ import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHitField;
 import org.elasticsearch.search.sort.SortOrder;
@@ -51,29 +54,38 @@ import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.util.ProgressLogger;
 
+import static com.google.common.base.Preconditions.checkState;
 import static java.lang.String.format;
 
 /**
  * Helper to bulk requests in an efficient way :
  * <ul>
- *   <li>bulk request is sent on the wire when its size is higher than 5Mb</li>
+ *   <li>bulk request is sent on the wire when its size is higher than a threshold, initially 1Mb</li>
+ *   <li>size of bulk requests and number of concurrent requests are adapted to the latency of
+ *   bulk requests and to the rejections of documents by Elasticsearch. Rejected documents are
+ *   retried with an exponential backoff.</li>
  *   <li>on large table indexing, replicas and automatic refresh can be temporarily disabled</li>
+ *   <li>documents can be added concurrently by several threads</li>
  * </ul>
  */
 public class BulkIndexer {
 
   private static final Logger LOGGER = Loggers.get(BulkIndexer.class);
-  private static final ByteSizeValue FLUSH_BYTE_SIZE = new ByteSizeValue(1, ByteSizeUnit.MB);
+  private static final ByteSizeValue INITIAL_FLUSH_BYTE_SIZE = new ByteSizeValue(1, ByteSizeUnit.MB);
   private static final int FLUSH_ACTIONS = -1;
   private static final String REFRESH_INTERVAL_SETTING = "index.refresh_interval";
   private static final int DEFAULT_NUMBER_OF_SHARDS = 5;
+  private static final TimeValue CLOSE_TIMEOUT = TimeValue.timeValueMinutes(1);
 
   private final EsClient client;
   private final IndexType indexType;
-  private final BulkProcessor bulkProcessor;
   private final IndexingResult result = new IndexingResult();
   private final IndexingListener indexingListener;
   private final SizeHandler sizeHandler;
+  private final AdaptiveBulkSettings adaptiveSettings;
+  private final BulkIndexerMetrics.IndexMetrics metrics;
+  private BulkProcessor bulkProcessor;
+  private long settingsVersion;
 
   public BulkIndexer(EsClient client, IndexType indexType, Size size) {
     this(client, indexType, size, IndexingListener.FAIL_ON_ERROR);
@@ -84,12 +96,23 @@ public class BulkIndexer {
     this.indexType = indexType;
     this.sizeHandler = size.createHandler(Runtime2.INSTANCE);
     this.indexingListener = indexingListener;
-    BulkProcessorListener bulkProcessorListener = new BulkProcessorListener();
-    this.bulkProcessor = BulkProcessor.builder(client.nativeClient(), bulkProcessorListener)
+    this.metrics = client.getBulkIndexerMetrics().getOrCreate(indexType.getIndex());
+    this.adaptiveSettings = metrics.getOrCreateAdaptiveSettings(size, () -> new AdaptiveBulkSettings(INITIAL_FLUSH_BYTE_SIZE.getBytes(),
+      sizeHandler.getConcurrentRequests(), sizeHandler.getMaxConcurrentRequests()));
+    this.bulkProcessor = createBulkProcessor();
+  }
+
+  private BulkProcessor createBulkProcessor() {
+    // version is read first, so that a concurrent change is detected by the next call to addToBulkProcessor()
+    settingsVersion = adaptiveSettings.getVersion();
+    long bulkSizeBytes = adaptiveSettings.getBulkSizeBytes();
+    int concurrentRequests = adaptiveSettings.getConcurrentRequests();
+    return BulkProcessor.builder(client.nativeClient(), new BulkProcessorListener())
+      // documents rejected because of full queues are retried
       .setBackoffPolicy(BackoffPolicy.exponentialBackoff())
-      .setBulkSize(FLUSH_BYTE_SIZE)
+      .setBulkSize(new ByteSizeValue(bulkSizeBytes))
       .setBulkActions(FLUSH_ACTIONS)
-      .setConcurrentRequests(sizeHandler.getConcurrentRequests())
+      .setConcurrentRequests(concurrentRequests)
       .build();
   }
 
@@ -106,33 +129,60 @@ public class BulkIndexer {
    * @return the number of documents successfully indexed
    */
   public IndexingResult stop() {
-    try {
-      bulkProcessor.awaitClose(1, TimeUnit.MINUTES);
-    } catch (InterruptedException e) {
-      Thread.currentThread().interrupt();
-      throw new IllegalStateException("Elasticsearch bulk requests still being executed after 1 minute", e);
+    boolean closed;
+    synchronized (this) {
+      closed = awaitClose(bulkProcessor);
     }
     client.prepareRefresh(indexType.getIndex()).get();
     sizeHandler.afterStop(this);
+    // result would be incomplete
+    checkState(closed, "Elasticsearch bulk requests of index %s still being executed after %s", indexType.getIndex(), CLOSE_TIMEOUT);
     indexingListener.onFinish(result);
     return result;
   }
 
   public void add(IndexRequest request) {
     result.incrementRequests();
-    bulkProcessor.add(request);
+    addToBulkProcessor(request);
   }
 
   public void add(DeleteRequest request) {
     result.incrementRequests();
-    bulkProcessor.add(request);
+    addToBulkProcessor(request);
   }
 
   public void add(DocWriteRequest request) {
     result.incrementRequests();
+    addToBulkProcessor(request);
+  }
+
+  private synchronized void addToBulkProcessor(DocWriteRequest request) {
+    if (adaptiveSettings.getVersion() != settingsVersion) {
+      // size and concurrency of BulkProcessor can't be changed. Pending requests
+      // are sent before replacing it.
+      if (!awaitClose(bulkProcessor)) {
+        LOGGER.warn("Elasticsearch bulk requests of index {} still being executed after {}. They are not awaited anymore.",
+          indexType.getIndex(), CLOSE_TIMEOUT);
+      }
+      bulkProcessor = createBulkProcessor();
+      LOGGER.debug("Bulk requests of index {} changed to {} bytes and {} concurrent requests",
+        indexType.getIndex(), adaptiveSettings.getBulkSizeBytes(), adaptiveSettings.getConcurrentRequests());
+    }
     bulkProcessor.add(request);
   }
 
+  /**
+   * @return false if some bulk requests are still being executed after {@link #CLOSE_TIMEOUT}
+   */
+  private static boolean awaitClose(BulkProcessor processor) {
+    try {
+      return processor.awaitClose(CLOSE_TIMEOUT.millis(), TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for completion of Elasticsearch bulk requests", e);
+    }
+  }
+
   public void addDeletion(SearchRequestBuilder searchRequest) {
     // TODO to be replaced by delete_by_query that is back in ES5
     searchRequest
@@ -189,29 +239,51 @@ public class BulkIndexer {
     return bulk.stop();
   }
 
+  /**
+   * Execution ids are generated by each {@link BulkProcessor}, so a listener is created for each of them. Requests
+   * of a replaced processor which are still being executed don't collide with the requests of the new one.
+   */
   private final class BulkProcessorListener implements Listener {
+    private final Map<Long, Long> startNanosByExecutionId = new ConcurrentHashMap<>();
+
     @Override
     public void beforeBulk(long executionId, BulkRequest request) {
-      // no action required
+      startNanosByExecutionId.put(executionId, System.nanoTime());
     }
 
     @Override
     public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
       List<DocId> successDocIds = new ArrayList<>();
+      int failures = 0;
+      int rejections = 0;
       for (BulkItemResponse item : response.getItems()) {
         if (item.isFailed()) {
           LOGGER.error("index [{}], type [{}], id [{}], message [{}]", item.getIndex(), item.getType(), item.getId(), item.getFailureMessage());
+          failures++;
+          if (item.getFailure().getStatus() == RestStatus.TOO_MANY_REQUESTS) {
+            rejections++;
+          }
         } else {
           result.incrementSuccess();
           successDocIds.add(new DocId(item.getIndex(), item.getType(), item.getId()));
         }
       }
+      onBulkCompleted(executionId, request, failures, rejections);
       indexingListener.onSuccess(successDocIds);
     }
 
     @Override
     public void afterBulk(long executionId, BulkRequest req, Throwable e) {
       LOGGER.error("Fail to execute bulk index request: " + req, e);
+      int failures = req.numberOfActions();
+      onBulkCompleted(executionId, req, failures, e instanceof EsRejectedExecutionException ? failures : 0);
+    }
+
+    private void onBulkCompleted(long executionId, BulkRequest request, int failures, int rejections) {
+      Long startNanos = startNanosByExecutionId.remove(executionId);
+      long latencyMs = startNanos == null ? 0L : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+      metrics.onBulk(request.numberOfActions(), failures, rejections, latencyMs);
+      adaptiveSettings.onBulk(latencyMs, rejections);
     }
   }
 
@@ -257,6 +329,13 @@ public class BulkIndexer {
       return 0;
     }
 
+    /**
+     * Upper bound of the number of concurrent requests when indexing is fast
+     */
+    int getMaxConcurrentRequests() {
+      return getConcurrentRequests();
+    }
+
     void beforeStart(BulkIndexer bulkIndexer) {
       // nothing to do, to be overridden if needed
     }
@@ -284,6 +363,12 @@ public class BulkIndexer {
       return Math.max(1, cores / DEFAULT_NUMBER_OF_SHARDS) - 1;
     }
 
+    @Override
+    int getMaxConcurrentRequests() {
+      // Elasticsearch shares the CPUs with the web server or the Compute Engine
+      return Math.max(1, runtime2.getCores() / 2);
+    }
+
     @Override
     void beforeStart(BulkIndexer bulkIndexer) {
       this.progress = new ProgressLogger(format("Progress[BulkIndexer[%s]]", bulkIndexer.indexType.getIndex()), bulkIndexer.result.total, LOGGER)
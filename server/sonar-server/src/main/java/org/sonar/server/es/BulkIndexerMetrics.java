@@ -0,0 +1,123 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Statistics of the bulk requests sent by {@link BulkIndexer} since startup, per index. Also holds the
+ * {@link AdaptiveBulkSettings} shared by the indexers of an index.
+ */
+public class BulkIndexerMetrics {
+
+  private final ConcurrentMap<String, IndexMetrics> metricsByIndex = new ConcurrentHashMap<>();
+
+  IndexMetrics getOrCreate(String index) {
+    return metricsByIndex.computeIfAbsent(index, i -> new IndexMetrics());
+  }
+
+  public Optional<IndexMetrics> get(String index) {
+    return Optional.ofNullable(metricsByIndex.get(index));
+  }
+
+  public static class IndexMetrics {
+    private final AtomicLong bulkRequests = new AtomicLong(0L);
+    private final AtomicLong documents = new AtomicLong(0L);
+    private final AtomicLong failures = new AtomicLong(0L);
+    private final AtomicLong rejections = new AtomicLong(0L);
+    private final AtomicLong totalLatencyMs = new AtomicLong(0L);
+    private final ConcurrentMap<BulkIndexer.Size, AdaptiveBulkSettings> adaptiveSettingsBySize = new ConcurrentHashMap<>();
+
+    void onBulk(int bulkDocuments, int bulkFailures, int bulkRejections, long latencyMs) {
+      bulkRequests.incrementAndGet();
+      documents.addAndGet(bulkDocuments);
+      failures.addAndGet(bulkFailures);
+      rejections.addAndGet(bulkRejections);
+      totalLatencyMs.addAndGet(latencyMs);
+    }
+
+    AdaptiveBulkSettings getOrCreateAdaptiveSettings(BulkIndexer.Size size, Supplier<AdaptiveBulkSettings> initialSettings) {
+      return adaptiveSettingsBySize.computeIfAbsent(size, s -> initialSettings.get());
+    }
+
+    public long getBulkRequests() {
+      return bulkRequests.get();
+    }
+
+    public long getDocuments() {
+      return documents.get();
+    }
+
+    /**
+     * Documents that failed to be indexed, including the rejected ones
+     */
+    public long getFailures() {
+      return failures.get();
+    }
+
+    /**
+     * Documents rejected by Elasticsearch because its queues were full, after all the retries
+     */
+    public long getRejections() {
+      return rejections.get();
+    }
+
+    public long getMeanLatencyMs() {
+      long requests = bulkRequests.get();
+      return requests == 0 ? 0L : (totalLatencyMs.get() / requests);
+    }
+
+    /**
+     * Number of documents sent per second of bulk request. Concurrent requests are not taken into account.
+     */
+    public long getDocumentsPerSecond() {
+      return documents.get() * 1_000L / Math.max(1L, totalLatencyMs.get());
+    }
+
+    /**
+     * Sizes of the indexers which have been used on this index
+     */
+    public Set<BulkIndexer.Size> getIndexerSizes() {
+      return new TreeSet<>(adaptiveSettingsBySize.keySet());
+    }
+
+    /**
+     * Current size of the bulk requests of the indexers of the given size, 0 if no such indexer has been used
+     */
+    public long getBulkSizeBytes(BulkIndexer.Size size) {
+      AdaptiveBulkSettings settings = adaptiveSettingsBySize.get(size);
+      return settings == null ? 0L : settings.getBulkSizeBytes();
+    }
+
+    /**
+     * Current number of concurrent bulk requests of the indexers of the given size, 0 if no such indexer has been used
+     */
+    public int getConcurrentRequests(BulkIndexer.Size size) {
+      AdaptiveBulkSettings settings = adaptiveSettingsBySize.get(size);
+      return settings == null ? 0 : settings.getConcurrentRequests();
+    }
+  }
+}
@@ -77,13 +77,34 @@ public class EsClient implements Closeable {
   public static final Logger LOGGER = Loggers.get("es");
 
   private final Client nativeClient;
+  private final long searchTimeoutMs;
+  private final BulkIndexerMetrics bulkIndexerMetrics = new BulkIndexerMetrics();
+  private final SearchRequestMetrics searchRequestMetrics = new SearchRequestMetrics();
 
   public EsClient(Client nativeClient) {
+    this(nativeClient, 0L);
+  }
+
+  /**
+   * @param searchTimeoutMs timeout of the search requests which allow partial results, zero to disable.
+   * @see #prepareSearch(boolean, IndexType...)
+   */
+  public EsClient(Client nativeClient, long searchTimeoutMs) {
     this.nativeClient = requireNonNull(nativeClient);
+    this.searchTimeoutMs = searchTimeoutMs;
   }
 
   public EsClient() {
     this.nativeClient = null;
+    this.searchTimeoutMs = 0L;
+  }
+
+  public BulkIndexerMetrics getBulkIndexerMetrics() {
+    return bulkIndexerMetrics;
+  }
+
+  public SearchRequestMetrics getSearchRequestMetrics() {
+    return searchRequestMetrics;
   }
 
   public RefreshRequestBuilder prepareRefresh(String... indices) {
@@ -131,11 +152,20 @@ public class EsClient implements Closeable {
   }
 
   public SearchRequestBuilder prepareSearch(String... indices) {
-    return new ProxySearchRequestBuilder(nativeClient()).setIndices(indices);
+    return new ProxySearchRequestBuilder(nativeClient(), searchRequestMetrics, 0L).setIndices(indices);
   }
 
   public SearchRequestBuilder prepareSearch(IndexType... indexType) {
-    return new ProxySearchRequestBuilder(nativeClient())
+    return prepareSearch(false, indexType);
+  }
+
+  /**
+   * @param partialResultsAllowed if {@code true}, then the request times out after the delay defined by
+   *                              sonar.search.requestTimeoutInMs. Results are then partial, so the caller
+   *                              must check {@link org.elasticsearch.action.search.SearchResponse#isTimedOut()}.
+   */
+  public SearchRequestBuilder prepareSearch(boolean partialResultsAllowed, IndexType... indexType) {
+    return new ProxySearchRequestBuilder(nativeClient(), searchRequestMetrics, partialResultsAllowed ? searchTimeoutMs : 0L)
       .setIndices(IndexType.getIndices(indexType))
       .setTypes(IndexType.getTypes(indexType));
   }
@@ -56,6 +56,9 @@ import static org.sonar.process.cluster.NodeType.SEARCH;
 @ServerSide
 public class EsClientProvider extends ProviderAdapter {
 
+  static final String PROPERTY_SEARCH_TIMEOUT = "sonar.search.requestTimeoutInMs";
+  static final long DEFAULT_SEARCH_TIMEOUT_MS = 10_000L;
+
   private static final Logger LOGGER = Loggers.get(EsClientProvider.class);
 
   private EsClient cache;
@@ -82,7 +85,7 @@ public class EsClientProvider extends ProviderAdapter {
         LOGGER.info("Connected to local Elasticsearch: [{}]", displayedAddresses(nativeClient));
       }
 
-      cache = new EsClient(nativeClient);
+      cache = new EsClient(nativeClient, config.getLong(PROPERTY_SEARCH_TIMEOUT).orElse(DEFAULT_SEARCH_TIMEOUT_MS));
     }
     return cache;
   }
@@ -0,0 +1,114 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import org.sonar.api.config.Configuration;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.core.util.ProgressLogger;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.String.format;
+
+/**
+ * Initial indexing of the documents of all the projects, with several threads loading
+ * the documents of different projects from db. Projects are distributed dynamically to the
+ * threads, so that a few large projects do not delay the indexing of the others.
+ * <p>
+ * It is disabled by default (a single thread, which loads all documents with a single SQL request) as
+ * it has not been benchmarked yet. It is enabled by setting {@link #THREADS_PROPERTY} to more than 1.
+ * Note that the threads share a single {@link BulkIndexer}: when the bulk requests are not
+ * concurrent (less than 10 cores, see {@link BulkIndexer.Size#LARGE}), they are sent one at a time
+ * by the thread which fills them, while the other threads wait.
+ * </p>
+ */
+public class ParallelProjectIndexing {
+
+  public static final String THREADS_PROPERTY = "sonar.search.initialIndexing.threads";
+  private static final int DEFAULT_THREADS = 1;
+  private static final Logger LOGGER = Loggers.get(ParallelProjectIndexing.class);
+
+  private ParallelProjectIndexing() {
+    // only static methods
+  }
+
+  public static int getThreads(Configuration config) {
+    int threads = config.getInt(THREADS_PROPERTY).orElse(DEFAULT_THREADS);
+    checkArgument(threads > 0, "Property %s must be strictly positive. Got %s", THREADS_PROPERTY, threads);
+    return threads;
+  }
+
+  /**
+   * Calls {@code projectIndexer} once for each of the given projects, from {@code threads} threads. The method
+   * returns when all projects are processed. It fails as soon as the indexing of a project fails.
+   */
+  public static void execute(IndexType indexType, List<String> projectUuids, int threads, Consumer<String> projectIndexer) {
+    AtomicLong counter = new AtomicLong(0L);
+    ProgressLogger progress = new ProgressLogger(format("Progress[ParallelProjectIndexing[%s]]", indexType.getIndex()), counter, LOGGER)
+      .setPluralLabel("projects")
+      .setExpectedTotal(projectUuids.size());
+    Queue<String> remainingProjectUuids = new ConcurrentLinkedQueue<>(projectUuids);
+    ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+      .setNameFormat(format("ProjectIndexing[%s]-%%d", indexType.getIndex()))
+      .setDaemon(true)
+      .build());
+    progress.start();
+    try {
+      List<Future<?>> futures = new ArrayList<>(threads);
+      for (int i = 0; i < threads; i++) {
+        futures.add(executor.submit(() -> indexRemainingProjects(remainingProjectUuids, projectIndexer, counter)));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(format("Indexing of %s has been interrupted", indexType), e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(format("Fail to index projects of %s", indexType), e.getCause());
+    } finally {
+      // other threads stop as soon as possible if a project failed
+      remainingProjectUuids.clear();
+      executor.shutdownNow();
+      progress.stop();
+    }
+    progress.log();
+  }
+
+  private static void indexRemainingProjects(Queue<String> remainingProjectUuids, Consumer<String> projectIndexer, AtomicLong counter) {
+    String projectUuid = remainingProjectUuids.poll();
+    while (projectUuid != null) {
+      projectIndexer.accept(projectUuid);
+      counter.incrementAndGet();
+      projectUuid = remainingProjectUuids.poll();
+    }
+  }
+}
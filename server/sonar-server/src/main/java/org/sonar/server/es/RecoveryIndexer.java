@@ -21,13 +21,18 @@
 package org.sonar.server.es;
 
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.collect.ListMultimap;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import org.apache.commons.lang.math.RandomUtils;
@@ -37,13 +42,21 @@ import org.sonar.api.utils.System2;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.api.utils.log.Profiler;
-import org.sonar.core.util.stream.MoreCollectors;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.es.EsQueueDto;
 
 import static java.lang.String.format;
 
+/**
+ * Periodically re-indexes the documents that are referenced by the table ES_QUEUE, for
+ * instance because Elasticsearch was not available when they were changed.
+ * <p>
+ * Document types are recovered in parallel (see property sonar.search.recovery.threads). Each
+ * type is processed by batches of sonar.search.recovery.loopLimit items, with a pause between two
+ * batches so that the indexing of analyses is not starved when the backlog is large
+ * (see property sonar.search.recovery.pauseRatio).
+ */
 public class RecoveryIndexer implements Startable {
 
   private static final Logger LOGGER = Loggers.get(RecoveryIndexer.class);
@@ -52,9 +65,17 @@ public class RecoveryIndexer implements Startable {
   private static final String PROPERTY_DELAY = "sonar.search.recovery.delayInMs";
   private static final String PROPERTY_MIN_AGE = "sonar.search.recovery.minAgeInMs";
   private static final String PROPERTY_LOOP_LIMIT = "sonar.search.recovery.loopLimit";
+  private static final String PROPERTY_THREADS = "sonar.search.recovery.threads";
+  /**
+   * Duration of the pause between two batches of the same document type, expressed as a ratio
+   * of the duration of the previous batch. Zero disables the pause.
+   */
+  private static final String PROPERTY_PAUSE_RATIO = "sonar.search.recovery.pauseRatio";
   private static final long DEFAULT_DELAY_IN_MS = 5L * 60 * 1000;
   private static final long DEFAULT_MIN_AGE_IN_MS = 5L * 60 * 1000;
   private static final int DEFAULT_LOOP_LIMIT = 10_000;
+  private static final int DEFAULT_THREADS = 4;
+  private static final double DEFAULT_PAUSE_RATIO = 0.25;
   private static final double CIRCUIT_BREAKER_IN_PERCENT = 0.7;
 
   private final ScheduledExecutorService executorService = Executors.newScheduledThreadPool(1,
@@ -62,12 +83,16 @@ public class RecoveryIndexer implements Startable {
       .setPriority(Thread.MIN_PRIORITY)
       .setNameFormat("RecoveryIndexer-%d")
       .build());
+  private final ExecutorService typeExecutorService;
   private final System2 system2;
   private final Configuration config;
   private final DbClient dbClient;
   private final Map<IndexType, ResilientIndexer> indexersByType;
   private final long minAgeInMs;
   private final long loopLimit;
+  private final double pauseRatio;
+  private volatile long lastRunDocuments = 0L;
+  private volatile long lastRunDocumentsPerSecond = 0L;
 
   public RecoveryIndexer(System2 system2, Configuration config, DbClient dbClient, ResilientIndexer... indexers) {
     this.system2 = system2;
@@ -77,6 +102,14 @@ public class RecoveryIndexer implements Startable {
     Arrays.stream(indexers).forEach(i -> i.getIndexTypes().forEach(indexType -> indexersByType.put(indexType, i)));
     this.minAgeInMs = getSetting(PROPERTY_MIN_AGE, DEFAULT_MIN_AGE_IN_MS);
     this.loopLimit = getSetting(PROPERTY_LOOP_LIMIT, DEFAULT_LOOP_LIMIT);
+    this.pauseRatio = Math.max(0d, config.getDouble(PROPERTY_PAUSE_RATIO).orElse(DEFAULT_PAUSE_RATIO));
+    LOGGER.debug(LOG_PREFIX + "{}={}", PROPERTY_PAUSE_RATIO, pauseRatio);
+    int threads = (int) Math.max(1L, getSetting(PROPERTY_THREADS, DEFAULT_THREADS));
+    this.typeExecutorService = Executors.newFixedThreadPool(threads,
+      new ThreadFactoryBuilder()
+        .setPriority(Thread.MIN_PRIORITY)
+        .setNameFormat("RecoveryIndexer-type-%d")
+        .build());
   }
 
   @Override
@@ -96,28 +129,101 @@ public class RecoveryIndexer implements Startable {
 
   @Override
   public void stop() {
+    stop(executorService);
+    stop(typeExecutorService);
+  }
+
+  private static void stop(ExecutorService executor) {
     try {
-      executorService.shutdown();
-      executorService.awaitTermination(5, TimeUnit.SECONDS);
+      executor.shutdown();
+      executor.awaitTermination(5, TimeUnit.SECONDS);
     } catch (InterruptedException e) {
       LOGGER.error(LOG_PREFIX + "Unable to stop recovery indexer in timely fashion", e);
-      executorService.shutdownNow();
+      executor.shutdownNow();
       Thread.currentThread().interrupt();
     }
   }
 
   @VisibleForTesting
   void recover() {
-    try (DbSession dbSession = dbClient.openSession(false)) {
+    try {
       Profiler profiler = Profiler.create(LOGGER).start();
-      long beforeDate = system2.now() - minAgeInMs;
+      long startedAt = system2.now();
+      long beforeDate = startedAt - minAgeInMs;
       IndexingResult result = new IndexingResult();
 
-      Collection<EsQueueDto> items = dbClient.esQueueDao().selectForRecovery(dbSession, beforeDate, loopLimit);
-      while (!items.isEmpty()) {
-        IndexingResult loopResult = new IndexingResult();
+      List<IndexType> types = new ArrayList<>();
+      List<Callable<IndexingResult>> tasks = new ArrayList<>();
+      try (DbSession dbSession = dbClient.openSession(false)) {
+        for (String docType : dbClient.esQueueDao().selectDocTypes(dbSession)) {
+          IndexType type = IndexType.parse(docType);
+          ResilientIndexer indexer = indexersByType.get(type);
+          if (indexer == null) {
+            logUnsupportedType(dbSession, type, beforeDate);
+          } else {
+            types.add(type);
+            tasks.add(() -> recover(indexer, type, beforeDate));
+          }
+        }
+      }
+
+      // the failure of a type does not prevent the results of the other types from being collected
+      List<Future<IndexingResult>> futures = typeExecutorService.invokeAll(tasks);
+      for (int i = 0; i < futures.size(); i++) {
+        try {
+          result.add(futures.get(i).get());
+        } catch (ExecutionException e) {
+          LOGGER.error(LOG_PREFIX + "fail to recover documents of type " + types.get(i), e.getCause());
+        }
+      }
+
+      long durationInMs = Math.max(1L, system2.now() - startedAt);
+      lastRunDocuments = result.getTotal();
+      lastRunDocumentsPerSecond = result.getTotal() * 1_000L / durationInMs;
+      if (result.getTotal() > 0L) {
+        profiler.stopInfo(LOG_PREFIX + format("%d documents processed [%d failures] at %d documents/sec, %d remaining in queue",
+          result.getTotal(), result.getFailures(), lastRunDocumentsPerSecond, countBacklog()));
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (Throwable t) {
+      LOGGER.error(LOG_PREFIX + "fail to recover documents", t);
+    }
+  }
+
+  /**
+   * Number of items waiting in the table ES_QUEUE, whatever their age
+   */
+  public long countBacklog() {
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      return dbClient.esQueueDao().count(dbSession);
+    }
+  }
+
+  /**
+   * Number of documents processed by the last run of recovery on this node, including failures
+   */
+  public long getLastRunDocuments() {
+    return lastRunDocuments;
+  }
+
+  /**
+   * Number of documents processed per second by the last run of recovery on this node
+   */
+  public long getLastRunDocumentsPerSecond() {
+    return lastRunDocumentsPerSecond;
+  }
 
-        groupItemsByType(items).asMap().forEach((type, typeItems) -> loopResult.add(doIndex(dbSession, type, typeItems)));
+  private IndexingResult recover(ResilientIndexer indexer, IndexType type, long beforeDate) throws InterruptedException {
+    IndexingResult result = new IndexingResult();
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      Collection<EsQueueDto> items = dbClient.esQueueDao().selectForRecovery(dbSession, type.format(), beforeDate, loopLimit);
+      while (!items.isEmpty()) {
+        long loopStartedAt = system2.now();
+        LOGGER.trace(LOG_PREFIX + "processing {} {}", items.size(), type);
+        // documents referenced multiple times in the queue are indexed only once by
+        // the indexer, which then deletes all the related rows
+        IndexingResult loopResult = indexer.index(dbSession, items);
         result.add(loopResult);
 
         if (loopResult.getSuccessRatio() <= CIRCUIT_BREAKER_IN_PERCENT) {
@@ -129,29 +235,25 @@ public class RecoveryIndexer implements Startable {
           break;
         }
 
-        items = dbClient.esQueueDao().selectForRecovery(dbSession, beforeDate, loopLimit);
-      }
-      if (result.getTotal() > 0L) {
-        profiler.stopInfo(LOG_PREFIX + format("%d documents processed [%d failures]", result.getTotal(), result.getFailures()));
+        pause(system2.now() - loopStartedAt);
+        items = dbClient.esQueueDao().selectForRecovery(dbSession, type.format(), beforeDate, loopLimit);
       }
-    } catch (Throwable t) {
-      LOGGER.error(LOG_PREFIX + "fail to recover documents", t);
     }
+    return result;
   }
 
-  private IndexingResult doIndex(DbSession dbSession, IndexType type, Collection<EsQueueDto> typeItems) {
-    LOGGER.trace(LOG_PREFIX + "processing {} {}", typeItems.size(), type);
-
-    ResilientIndexer indexer = indexersByType.get(type);
-    if (indexer == null) {
-      LOGGER.error(LOG_PREFIX + "ignore {} items with unsupported type {}", typeItems.size(), type);
-      return new IndexingResult();
+  private void pause(long loopDurationInMs) throws InterruptedException {
+    long pauseInMs = (long) (loopDurationInMs * pauseRatio);
+    if (pauseInMs > 0L) {
+      Thread.sleep(pauseInMs);
     }
-    return indexer.index(dbSession, typeItems);
   }
 
-  private static ListMultimap<IndexType, EsQueueDto> groupItemsByType(Collection<EsQueueDto> items) {
-    return items.stream().collect(MoreCollectors.index(i -> IndexType.parse(i.getDocType())));
+  private void logUnsupportedType(DbSession dbSession, IndexType type, long beforeDate) {
+    Collection<EsQueueDto> items = dbClient.esQueueDao().selectForRecovery(dbSession, type.format(), beforeDate, loopLimit);
+    if (!items.isEmpty()) {
+      LOGGER.error(LOG_PREFIX + "ignore {} items with unsupported type {}", items.size(), type);
+    }
   }
 
   private long getSetting(String key, long defaultValue) {
@@ -0,0 +1,103 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import java.util.Base64;
+import javax.annotation.Nullable;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.sonar.server.ws.WsUtils.checkRequest;
+
+/**
+ * Opaque token wrapping the sort values of the last hit of a page, as returned by
+ * {@link org.elasticsearch.search.SearchHit#getSortValues()}. It is given back to
+ * Elasticsearch as "search_after" to load the next page, which does not depend on
+ * the index.max_result_window limit that applies to offset-based pagination.
+ * <p/>
+ * The requests must be sorted on a unique field (as a tie-breaker) so that pages
+ * do not overlap.
+ */
+public final class SearchAfterCursor {
+
+  private SearchAfterCursor() {
+    // only static methods
+  }
+
+  public static String encode(Object[] sortValues) {
+    JsonArray json = new JsonArray();
+    for (Object value : sortValues) {
+      json.add(toJson(value));
+    }
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(json.toString().getBytes(UTF_8));
+  }
+
+  public static Object[] decode(String cursor) {
+    JsonArray json;
+    try {
+      JsonElement element = new JsonParser().parse(new String(Base64.getUrlDecoder().decode(cursor), UTF_8));
+      json = element.isJsonArray() ? element.getAsJsonArray() : null;
+    } catch (IllegalArgumentException | JsonParseException e) {
+      json = null;
+    }
+    checkRequest(json != null && json.size() > 0, "Invalid cursor: %s", cursor);
+    Object[] sortValues = new Object[json.size()];
+    for (int i = 0; i < sortValues.length; i++) {
+      sortValues[i] = fromJson(json.get(i), cursor);
+    }
+    return sortValues;
+  }
+
+  private static JsonElement toJson(@Nullable Object value) {
+    if (value == null) {
+      return JsonNull.INSTANCE;
+    }
+    if (value instanceof Number) {
+      return new JsonPrimitive((Number) value);
+    }
+    if (value instanceof Boolean) {
+      return new JsonPrimitive((Boolean) value);
+    }
+    return new JsonPrimitive(value.toString());
+  }
+
+  @Nullable
+  private static Object fromJson(JsonElement element, String cursor) {
+    if (element.isJsonNull()) {
+      return null;
+    }
+    checkRequest(element.isJsonPrimitive(), "Invalid cursor: %s", cursor);
+    JsonPrimitive primitive = element.getAsJsonPrimitive();
+    if (primitive.isBoolean()) {
+      return primitive.getAsBoolean();
+    }
+    if (primitive.isNumber()) {
+      String number = primitive.getAsString();
+      // keep precision of long values, for example the sentinels of missing values
+      return number.contains(".") || number.contains("e") || number.contains("E") ? (Object) primitive.getAsDouble() : (Object) primitive.getAsLong();
+    }
+    return primitive.getAsString();
+  }
+}
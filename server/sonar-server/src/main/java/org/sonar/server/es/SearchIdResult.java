@@ -33,11 +33,13 @@ public class SearchIdResult<ID> {
   private final List<ID> ids;
   private final Facets facets;
   private final long total;
+  private final boolean timedOut;
 
   public SearchIdResult(SearchResponse response, Function<String, ID> converter, TimeZone timeZone) {
     this.facets = new Facets(response, timeZone);
     this.total = response.getHits().getTotalHits();
     this.ids = convertToIds(response.getHits(), converter);
+    this.timedOut = response.isTimedOut();
   }
 
   public List<ID> getIds() {
@@ -52,6 +54,13 @@ public class SearchIdResult<ID> {
     return this.facets;
   }
 
+  /**
+   * Whether the request reached its timeout. In this case ids, total and facets are partial.
+   */
+  public boolean isTimedOut() {
+    return timedOut;
+  }
+
   @Override
   public String toString() {
     return ReflectionToStringBuilder.toString(this);
@@ -24,6 +24,7 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.Set;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.apache.commons.lang.StringUtils;
 import org.sonar.api.server.ws.WebService;
@@ -45,6 +46,8 @@ public class SearchOptions {
   private int limit = DEFAULT_LIMIT;
   private final Set<String> facets = new LinkedHashSet<>();
   private final Set<String> fieldsToReturn = new HashSet<>();
+  private Object[] searchAfter = null;
+  private boolean partialResultsAllowed = false;
 
   /**
    * Offset of the first result to return. Defaults to {@link #DEFAULT_OFFSET}
@@ -98,6 +101,46 @@ public class SearchOptions {
     return this;
   }
 
+  /**
+   * Sort values of the last hit of the previous page, if results are paginated
+   * with "search_after" instead of offset.
+   *
+   * @see SearchAfterCursor
+   */
+  @CheckForNull
+  public Object[] getSearchAfter() {
+    return searchAfter;
+  }
+
+  /**
+   * Requests the results following the hit with the given sort values. Offset must
+   * be zero, as it's not supported by Elasticsearch with "search_after".
+   */
+  public SearchOptions setSearchAfter(@Nullable Object[] sortValues) {
+    checkArgument(sortValues == null || offset == 0, "Offset must be zero when searching after a cursor");
+    this.searchAfter = sortValues;
+    return this;
+  }
+
+  /**
+   * Whether the request can time out, in which case results are partial. Defaults to {@code false}.
+   *
+   * @see EsClient#prepareSearch(boolean, IndexType...)
+   */
+  public boolean isPartialResultsAllowed() {
+    return partialResultsAllowed;
+  }
+
+  /**
+   * Allows the request to time out after the delay defined by the property sonar.search.requestTimeoutInMs.
+   * Only callers which check {@link SearchIdResult#isTimedOut()}, for example to flag their response as
+   * partial, should allow partial results.
+   */
+  public SearchOptions setPartialResultsAllowed(boolean b) {
+    this.partialResultsAllowed = b;
+    return this;
+  }
+
   /**
    * Lists selected facets.
    */
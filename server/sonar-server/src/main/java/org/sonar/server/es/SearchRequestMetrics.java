@@ -0,0 +1,116 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Statistics of the search requests sent to Elasticsearch since startup, per index.
+ */
+public class SearchRequestMetrics {
+
+  /**
+   * Upper bounds (inclusive) of the ranges of the latency histograms
+   */
+  static final long[] LATENCY_BOUNDS_MS = {10L, 50L, 100L, 500L, 1_000L, 5_000L, 10_000L};
+  static final String ALL_INDICES = "_all";
+
+  private final ConcurrentMap<String, IndexMetrics> metricsByIndex = new ConcurrentHashMap<>();
+
+  public void onSearch(String[] indices, long latencyMs, boolean timedOut) {
+    if (indices.length == 0) {
+      getOrCreate(ALL_INDICES).onSearch(latencyMs, timedOut);
+    }
+    for (String index : indices) {
+      getOrCreate(index).onSearch(latencyMs, timedOut);
+    }
+  }
+
+  private IndexMetrics getOrCreate(String index) {
+    return metricsByIndex.computeIfAbsent(index, i -> new IndexMetrics());
+  }
+
+  public Optional<IndexMetrics> get(String index) {
+    return Optional.ofNullable(metricsByIndex.get(index));
+  }
+
+  /**
+   * Metrics sorted by index name
+   */
+  public Map<String, IndexMetrics> getAll() {
+    return new TreeMap<>(metricsByIndex);
+  }
+
+  public static class IndexMetrics {
+    private final AtomicLong requests = new AtomicLong(0L);
+    private final AtomicLong timedOutRequests = new AtomicLong(0L);
+    private final AtomicLong totalLatencyMs = new AtomicLong(0L);
+    private final AtomicLongArray latencyHistogram = new AtomicLongArray(LATENCY_BOUNDS_MS.length + 1);
+
+    void onSearch(long latencyMs, boolean timedOut) {
+      requests.incrementAndGet();
+      if (timedOut) {
+        timedOutRequests.incrementAndGet();
+      }
+      totalLatencyMs.addAndGet(latencyMs);
+      int range = 0;
+      while (range < LATENCY_BOUNDS_MS.length && latencyMs > LATENCY_BOUNDS_MS[range]) {
+        range++;
+      }
+      latencyHistogram.incrementAndGet(range);
+    }
+
+    public long getRequests() {
+      return requests.get();
+    }
+
+    /**
+     * Requests that reached the timeout. Their results are partial.
+     */
+    public long getTimedOutRequests() {
+      return timedOutRequests.get();
+    }
+
+    public long getMeanLatencyMs() {
+      long count = requests.get();
+      return count == 0 ? 0L : (totalLatencyMs.get() / count);
+    }
+
+    /**
+     * Number of requests per range of latency, for example "<= 100 ms" or "> 10000 ms". Ranges
+     * are not cumulative.
+     */
+    public Map<String, Long> getLatencyHistogram() {
+      Map<String, Long> histogram = new LinkedHashMap<>();
+      for (int i = 0; i < LATENCY_BOUNDS_MS.length; i++) {
+        histogram.put("<= " + LATENCY_BOUNDS_MS[i] + " ms", latencyHistogram.get(i));
+      }
+      histogram.put("> " + LATENCY_BOUNDS_MS[LATENCY_BOUNDS_MS.length - 1] + " ms", latencyHistogram.get(LATENCY_BOUNDS_MS.length));
+      return histogram;
+    }
+  }
+}
@@ -20,6 +20,7 @@
 package org.sonar.server.es.request;
 
 import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 import org.elasticsearch.action.ListenableActionFuture;
 import org.elasticsearch.action.search.SearchAction;
 import org.elasticsearch.action.search.SearchRequestBuilder;
@@ -28,18 +29,41 @@ import org.elasticsearch.client.Client;
 import org.elasticsearch.common.unit.TimeValue;
 import org.sonar.api.utils.log.Profiler;
 import org.sonar.server.es.EsClient;
+import org.sonar.server.es.SearchRequestMetrics;
 
 public class ProxySearchRequestBuilder extends SearchRequestBuilder {
 
+  private final SearchRequestMetrics metrics;
+  private final long defaultTimeoutMs;
+
   public ProxySearchRequestBuilder(Client client) {
+    this(client, new SearchRequestMetrics(), 0L);
+  }
+
+  /**
+   * @param defaultTimeoutMs timeout applied if the request does not define its own timeout and is
+   *                         not scrolled. Zero to disable. The response must then be checked with
+   *                         {@link SearchResponse#isTimedOut()} because its results can be partial.
+   */
+  public ProxySearchRequestBuilder(Client client, SearchRequestMetrics metrics, long defaultTimeoutMs) {
     super(client, SearchAction.INSTANCE);
+    this.metrics = metrics;
+    this.defaultTimeoutMs = defaultTimeoutMs;
   }
 
   @Override
   public SearchResponse get() {
+    applyDefaultTimeout();
     Profiler profiler = Profiler.createIfTrace(EsClient.LOGGER).start();
+    long startNanos = System.nanoTime();
     try {
-      return super.execute().actionGet();
+      SearchResponse response = super.execute().actionGet();
+      long latencyMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+      metrics.onSearch(request.indices(), latencyMs, response.isTimedOut());
+      if (response.isTimedOut()) {
+        EsClient.LOGGER.warn("Search request on indices {} timed out after {} ms. Results are partial.", Arrays.toString(request.indices()), latencyMs);
+      }
+      return response;
     } catch (Exception e) {
       throw new IllegalStateException(String.format("Fail to execute %s", toString()), e);
     } finally {
@@ -49,6 +73,17 @@ public class ProxySearchRequestBuilder extends SearchRequestBuilder {
     }
   }
 
+  /**
+   * Results of scrolled requests must be complete, for example when deleting
+   * documents, so they do not time out.
+   */
+  private void applyDefaultTimeout() {
+    boolean hasTimeout = request.source() != null && request.source().timeout() != null;
+    if (defaultTimeoutMs > 0L && request.scroll() == null && !hasTimeout) {
+      setTimeout(TimeValue.timeValueMillis(defaultTimeoutMs));
+    }
+  }
+
   @Override
   public SearchResponse get(TimeValue timeout) {
     throw new IllegalStateException("Not yet implemented");
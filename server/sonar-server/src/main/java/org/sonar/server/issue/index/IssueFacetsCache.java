@@ -0,0 +1,168 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue.index;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import org.sonar.api.server.ServerSide;
+import org.sonar.api.utils.System2;
+
+import static com.google.common.collect.ImmutableSet.copyOf;
+import static java.util.Collections.disjoint;
+
+/**
+ * Cache of the facets returned by {@link IssueIndex#searchWithFacets(org.sonar.server.issue.IssueQuery, org.sonar.server.es.SearchOptions)}.
+ * <p>
+ * Keys are computed by {@link IssueIndex} from the Elasticsearch filters of the query, which include the
+ * authorization scope of the user. Entries are evicted when issues are changed by the web server
+ * (see {@link IssueIndexer}) and when permissions are re-indexed.
+ * <p>
+ * This cache lives in the web server only and is not shared between the nodes of a cluster. The
+ * changes made by the Compute Engine, for instance the issues of a new analysis, and the changes
+ * made on other nodes are not notified: the related entries are invalidated by their TTL only,
+ * so facets can lag up to one minute behind.
+ * <p>
+ * This class is thread-safe.
+ */
+@ServerSide
+public class IssueFacetsCache {
+
+  private static final int DEFAULT_MAX_ENTRIES = 1_000;
+  private static final long DEFAULT_TTL_IN_MS = 60_000L;
+
+  private final System2 system2;
+  private final int maxEntries;
+  private final long ttlInMs;
+  private final Map<String, Entry> entries;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  public IssueFacetsCache(System2 system2) {
+    this(system2, DEFAULT_MAX_ENTRIES, DEFAULT_TTL_IN_MS);
+  }
+
+  @VisibleForTesting
+  IssueFacetsCache(System2 system2, int maxEntries, long ttlInMs) {
+    this.system2 = system2;
+    this.maxEntries = maxEntries;
+    this.ttlInMs = ttlInMs;
+    // access order, so that the least recently used entries are the first to be removed
+    this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+        return size() > IssueFacetsCache.this.maxEntries;
+      }
+    };
+  }
+
+  /**
+   * A cache that never stores anything. Used when no instance is provided by the container, for example
+   * by the Compute Engine.
+   */
+  public static IssueFacetsCache disabled(System2 system2) {
+    return new IssueFacetsCache(system2, 0, 0L);
+  }
+
+  /**
+   * @return a copy of the cached facets, so that callers are free to change it
+   */
+  public synchronized Optional<LinkedHashMap<String, LinkedHashMap<String, Long>>> get(String key) {
+    Entry entry = entries.get(key);
+    if (entry == null || entry.expiresAt <= system2.now()) {
+      if (entry != null) {
+        entries.remove(key);
+      }
+      misses.incrementAndGet();
+      return Optional.empty();
+    }
+    hits.incrementAndGet();
+    return Optional.of(copy(entry.facets));
+  }
+
+  /**
+   * @param projectUuids the projects or branches the facets were computed on. Empty if the query is not
+   *                     restricted to some projects, for example for organizations or portfolios.
+   */
+  public synchronized void put(String key, Set<String> projectUuids, Map<String, LinkedHashMap<String, Long>> facets) {
+    if (maxEntries == 0) {
+      return;
+    }
+    entries.put(key, new Entry(copyOf(projectUuids), copy(facets), system2.now() + ttlInMs));
+  }
+
+  /**
+   * Evicts the entries related to the given projects or branches, including the entries which are not
+   * restricted to some projects.
+   */
+  public synchronized void evictProjects(Collection<String> projectUuids) {
+    if (projectUuids.isEmpty()) {
+      return;
+    }
+    entries.values().removeIf(entry -> entry.projectUuids.isEmpty() || !disjoint(entry.projectUuids, projectUuids));
+  }
+
+  public synchronized void evictAll() {
+    entries.clear();
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  /**
+   * @return the percentage of requests served by the cache, between 0 and 100
+   */
+  public long getHitRatio() {
+    long h = hits.get();
+    long total = h + misses.get();
+    return total == 0L ? 0L : (h * 100L / total);
+  }
+
+  private static LinkedHashMap<String, LinkedHashMap<String, Long>> copy(Map<String, LinkedHashMap<String, Long>> facets) {
+    LinkedHashMap<String, LinkedHashMap<String, Long>> copy = new LinkedHashMap<>();
+    facets.forEach((name, values) -> copy.put(name, new LinkedHashMap<>(values)));
+    return copy;
+  }
+
+  private static class Entry {
+    private final Set<String> projectUuids;
+    private final LinkedHashMap<String, LinkedHashMap<String, Long>> facets;
+    private final long expiresAt;
+
+    private Entry(Set<String> projectUuids, LinkedHashMap<String, LinkedHashMap<String, Long>> facets, long expiresAt) {
+      this.projectUuids = projectUuids;
+      this.facets = facets;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
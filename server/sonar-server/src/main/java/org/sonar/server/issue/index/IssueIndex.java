@@ -22,14 +22,20 @@ package org.sonar.server.issue.index;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Maps;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.regex.Pattern;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -60,6 +66,8 @@ import org.elasticsearch.search.aggregations.metrics.min.Min;
 import org.elasticsearch.search.aggregations.metrics.sum.SumAggregationBuilder;
 import org.elasticsearch.search.aggregations.metrics.valuecount.InternalValueCount;
 import org.elasticsearch.search.sort.FieldSortBuilder;
+import org.elasticsearch.search.sort.SortBuilders;
+import org.elasticsearch.search.sort.SortOrder;
 import org.joda.time.DateTimeZone;
 import org.joda.time.Duration;
 import org.sonar.api.utils.DateUtils;
@@ -69,6 +77,7 @@ import org.sonar.db.organization.OrganizationDto;
 import org.sonar.server.es.BaseDoc;
 import org.sonar.server.es.EsClient;
 import org.sonar.server.es.EsUtils;
+import org.sonar.server.es.Facets;
 import org.sonar.server.es.SearchOptions;
 import org.sonar.server.es.Sorting;
 import org.sonar.server.es.StickyFacetBuilder;
@@ -142,6 +151,7 @@ public class IssueIndex {
   // TODO move to Facets ?
   private static final String FACET_SUFFIX_MISSING = "_missing";
   private static final String IS_ASSIGNED_FILTER = "__isAssigned";
+  private static final String AUTHORIZATION_FILTER = "__authorization";
   private static final SumAggregationBuilder EFFORT_AGGREGATION = AggregationBuilders.sum(FACET_MODE_EFFORT).field(IssueIndexDefinition.FIELD_ISSUE_EFFORT);
   private static final Order EFFORT_AGGREGATION_ORDER = Order.aggregation(FACET_MODE_EFFORT, false);
   private static final int DEFAULT_FACET_SIZE = 15;
@@ -153,12 +163,18 @@ public class IssueIndex {
   private final System2 system;
   private final UserSession userSession;
   private final AuthorizationTypeSupport authorizationTypeSupport;
+  private final IssueFacetsCache facetsCache;
 
   public IssueIndex(EsClient client, System2 system, UserSession userSession, AuthorizationTypeSupport authorizationTypeSupport) {
+    this(client, system, userSession, authorizationTypeSupport, IssueFacetsCache.disabled(system));
+  }
+
+  public IssueIndex(EsClient client, System2 system, UserSession userSession, AuthorizationTypeSupport authorizationTypeSupport, IssueFacetsCache facetsCache) {
     this.client = client;
     this.system = system;
     this.userSession = userSession;
     this.authorizationTypeSupport = authorizationTypeSupport;
+    this.facetsCache = facetsCache;
 
     this.sorting = new Sorting();
     this.sorting.add(IssueQuery.SORT_BY_ASSIGNEE, IssueIndexDefinition.FIELD_ISSUE_ASSIGNEE);
@@ -197,6 +213,10 @@ public class IssueIndex {
 
   private static void configurePagination(SearchOptions options, SearchRequestBuilder esSearch) {
     esSearch.setFrom(options.getOffset()).setSize(options.getLimit());
+    Object[] searchAfter = options.getSearchAfter();
+    if (searchAfter != null) {
+      esSearch.searchAfter(searchAfter);
+    }
   }
 
   private static void addComponentRelatedFilters(IssueQuery query, Map<String, QueryBuilder> filters) {
@@ -331,7 +351,12 @@ public class IssueIndex {
 
   @CheckForNull
   private static QueryBuilder createTermsFilter(String field, Collection<?> values) {
-    return values.isEmpty() ? null : termsQuery(field, values);
+    if (values.isEmpty()) {
+      return null;
+    }
+    // values are sorted so that equivalent queries generate the same request, which
+    // is used as key of IssueFacetsCache
+    return termsQuery(field, values.stream().map(Object::toString).sorted().collect(MoreCollectors.toList(values.size())));
   }
 
   @CheckForNull
@@ -340,7 +365,7 @@ public class IssueIndex {
   }
 
   public SearchResponse search(IssueQuery query, SearchOptions options) {
-    SearchRequestBuilder requestBuilder = client.prepareSearch(INDEX_TYPE_ISSUE);
+    SearchRequestBuilder requestBuilder = client.prepareSearch(options.isPartialResultsAllowed(), INDEX_TYPE_ISSUE);
 
     configureSorting(query, requestBuilder);
     configurePagination(options, requestBuilder);
@@ -365,22 +390,91 @@ public class IssueIndex {
     return requestBuilder.get();
   }
 
+  /**
+   * Same as {@link #search(IssueQuery, SearchOptions)}, except that the requested facets are
+   * loaded from {@link IssueFacetsCache} when the same filters were recently requested with the
+   * same authorization scope. In this case Elasticsearch does not compute the aggregations.
+   */
+  public IssueSearchResult searchWithFacets(IssueQuery query, SearchOptions options) {
+    if (options.getFacets().isEmpty()) {
+      return new IssueSearchResult(search(query, options), null);
+    }
+
+    String cacheKey = createFacetsCacheKey(query, options);
+    Optional<LinkedHashMap<String, LinkedHashMap<String, Long>>> cachedFacets = facetsCache.get(cacheKey);
+    if (cachedFacets.isPresent()) {
+      SearchOptions optionsWithoutFacets = new SearchOptions()
+        .setOffset(options.getOffset())
+        .setLimit(options.getLimit())
+        .setSearchAfter(options.getSearchAfter());
+      return new IssueSearchResult(search(query, optionsWithoutFacets), new Facets(cachedFacets.get(), system.getDefaultTimeZone()));
+    }
+
+    SearchResponse response = search(query, options);
+    Facets facets = new Facets(response, system.getDefaultTimeZone());
+    if (!response.isTimedOut()) {
+      // partial facets must not be cached
+      facetsCache.put(cacheKey, getProjectScope(query), facets.getAll());
+    }
+    return new IssueSearchResult(response, facets);
+  }
+
+  /**
+   * The key contains the Elasticsearch filters and the authorization scope of the user, so
+   * that users with different permissions do not share the same entries. The authorization
+   * filter itself is not part of the key, as it can list thousands of project uuids.
+   */
+  private String createFacetsCacheKey(IssueQuery query, SearchOptions options) {
+    StringBuilder key = new StringBuilder();
+    new TreeMap<>(createFilters(query)).forEach((name, filter) -> {
+      if (filter != null && !AUTHORIZATION_FILTER.equals(name)) {
+        key.append(name).append('=').append(filter).append('\n');
+      }
+    });
+    key.append("authorization=").append(authorizationTypeSupport.getAuthorizationKey()).append('\n');
+    key.append("facets=").append(new TreeSet<>(options.getFacets())).append('\n');
+    key.append("facetMode=").append(query.facetMode()).append('\n');
+    if (options.getFacets().contains(FACET_ASSIGNED_TO_ME)) {
+      key.append("login=").append(userSession.getLogin()).append('\n');
+    }
+    return key.toString();
+  }
+
+  private static Set<String> getProjectScope(IssueQuery query) {
+    if (query.projectUuids().isEmpty() || !query.viewUuids().isEmpty()) {
+      // not restricted to some projects
+      return Collections.emptySet();
+    }
+    Set<String> uuids = new HashSet<>(query.projectUuids());
+    if (query.branchUuid() != null) {
+      uuids.add(query.branchUuid());
+    }
+    return uuids;
+  }
+
   private void configureSorting(IssueQuery query, SearchRequestBuilder esRequest) {
     createSortBuilders(query).forEach(esRequest::addSort);
   }
 
   private List<FieldSortBuilder> createSortBuilders(IssueQuery query) {
     String sortField = query.sort();
+    List<FieldSortBuilder> sortBuilders = new ArrayList<>();
     if (sortField != null) {
       boolean asc = BooleanUtils.isTrue(query.asc());
-      return sorting.fill(sortField, asc);
+      sortBuilders.addAll(sorting.fill(sortField, asc));
+    } else {
+      sortBuilders.addAll(sorting.fillDefault());
+    }
+    // issue key is the tie-breaker required to paginate with "search_after"
+    if (sortBuilders.stream().noneMatch(sortBuilder -> IssueIndexDefinition.FIELD_ISSUE_KEY.equals(sortBuilder.getFieldName()))) {
+      sortBuilders.add(SortBuilders.fieldSort(IssueIndexDefinition.FIELD_ISSUE_KEY).order(SortOrder.ASC));
     }
-    return sorting.fillDefault();
+    return sortBuilders;
   }
 
   private Map<String, QueryBuilder> createFilters(IssueQuery query) {
     Map<String, QueryBuilder> filters = new HashMap<>();
-    filters.put("__authorization", createAuthorizationFilter(query.checkAuthorization()));
+    filters.put(AUTHORIZATION_FILTER, createAuthorizationFilter(query.checkAuthorization()));
 
     // Issue is assigned Filter
     if (BooleanUtils.isTrue(query.assigned())) {
@@ -421,7 +515,7 @@ public class IssueIndex {
 
   private QueryBuilder createAuthorizationFilter(boolean checkAuthorization) {
     if (checkAuthorization) {
-      return authorizationTypeSupport.createQueryFilter();
+      return authorizationTypeSupport.createQueryFilter(INDEX_TYPE_ISSUE);
     }
     return matchAllQuery();
   }
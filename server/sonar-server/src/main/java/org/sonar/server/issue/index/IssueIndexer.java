@@ -26,10 +26,13 @@ import com.google.common.collect.ListMultimap;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.sonar.api.config.Configuration;
 import org.sonar.api.resources.Qualifiers;
+import org.sonar.api.utils.System2;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.util.stream.MoreCollectors;
@@ -45,11 +48,13 @@ import org.sonar.server.es.IndexingListener;
 import org.sonar.server.es.IndexingResult;
 import org.sonar.server.es.OneToManyResilientIndexingListener;
 import org.sonar.server.es.OneToOneResilientIndexingListener;
+import org.sonar.server.es.ParallelProjectIndexing;
 import org.sonar.server.es.ProjectIndexer;
 import org.sonar.server.permission.index.AuthorizationScope;
 import org.sonar.server.permission.index.NeedAuthorizationIndexer;
 
 import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
 import static org.elasticsearch.index.query.QueryBuilders.boolQuery;
 import static org.elasticsearch.index.query.QueryBuilders.termQuery;
 import static org.sonar.server.issue.index.IssueIndexDefinition.FIELD_ISSUE_PROJECT_UUID;
@@ -72,11 +77,24 @@ public class IssueIndexer implements ProjectIndexer, NeedAuthorizationIndexer {
   private final EsClient esClient;
   private final DbClient dbClient;
   private final IssueIteratorFactory issueIteratorFactory;
+  private final int startupThreads;
+  private final IssueFacetsCache facetsCache;
 
   public IssueIndexer(EsClient esClient, DbClient dbClient, IssueIteratorFactory issueIteratorFactory) {
+    this(esClient, dbClient, issueIteratorFactory, 1, IssueFacetsCache.disabled(System2.INSTANCE));
+  }
+
+  public IssueIndexer(EsClient esClient, DbClient dbClient, IssueIteratorFactory issueIteratorFactory, Configuration config, IssueFacetsCache facetsCache) {
+    this(esClient, dbClient, issueIteratorFactory, ParallelProjectIndexing.getThreads(config), facetsCache);
+  }
+
+  @VisibleForTesting
+  IssueIndexer(EsClient esClient, DbClient dbClient, IssueIteratorFactory issueIteratorFactory, int startupThreads, IssueFacetsCache facetsCache) {
     this.esClient = esClient;
     this.dbClient = dbClient;
     this.issueIteratorFactory = issueIteratorFactory;
+    this.startupThreads = startupThreads;
+    this.facetsCache = facetsCache;
   }
 
   @Override
@@ -91,9 +109,26 @@ public class IssueIndexer implements ProjectIndexer, NeedAuthorizationIndexer {
 
   @Override
   public void indexOnStartup(Set<IndexType> uninitializedIndexTypes) {
-    try (IssueIterator issues = issueIteratorFactory.createForAll()) {
-      doIndex(issues, Size.LARGE, IndexingListener.FAIL_ON_ERROR);
+    if (startupThreads == 1) {
+      try (IssueIterator issues = issueIteratorFactory.createForAll()) {
+        doIndex(issues, Size.LARGE, IndexingListener.FAIL_ON_ERROR);
+      }
+      return;
     }
+    // one SQL request per project or branch instead of a single request on the whole table,
+    // so that the requests can be executed concurrently
+    List<String> projectUuids;
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      projectUuids = dbClient.componentDao().selectProjectAndBranchUuids(dbSession);
+    }
+    BulkIndexer bulkIndexer = createBulkIndexer(Size.LARGE, IndexingListener.FAIL_ON_ERROR);
+    bulkIndexer.start();
+    ParallelProjectIndexing.execute(INDEX_TYPE_ISSUE, projectUuids, startupThreads, projectUuid -> {
+      try (IssueIterator issues = issueIteratorFactory.createForProject(projectUuid)) {
+        issues.forEachRemaining(issue -> bulkIndexer.add(newIndexRequest(issue)));
+      }
+    });
+    bulkIndexer.stop();
   }
 
   @Override
@@ -103,6 +138,30 @@ public class IssueIndexer implements ProjectIndexer, NeedAuthorizationIndexer {
     }
   }
 
+  /**
+   * Indexes only the given issues of the branch, for example the issues inserted or updated
+   * by the analysis. Issues which do not exist in db anymore are deleted from index.
+   * <p>
+   * If indexing fails, then the recovery daemon will retry later and this
+   * method successfully returns.
+   */
+  public void indexOnAnalysis(String branchUuid, Collection<String> issueKeys) {
+    if (issueKeys.isEmpty()) {
+      return;
+    }
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      ListMultimap<String, EsQueueDto> itemsByIssueKey = ArrayListMultimap.create();
+      issueKeys.stream()
+        .map(issueKey -> createQueueDto(issueKey, ID_TYPE_ISSUE_KEY, branchUuid))
+        .forEach(i -> itemsByIssueKey.put(i.getDocId(), i));
+      dbClient.esQueueDao().insert(dbSession, itemsByIssueKey.values());
+
+      dbSession.commit();
+
+      doIndexIssueItems(dbSession, itemsByIssueKey);
+    }
+  }
+
   @Override
   public Collection<EsQueueDto> prepareForRecovery(DbSession dbSession, Collection<String> projectUuids, ProjectIndexer.Cause cause) {
     switch (cause) {
@@ -145,6 +204,7 @@ public class IssueIndexer implements ProjectIndexer, NeedAuthorizationIndexer {
     dbSession.commit();
 
     doIndexIssueItems(dbSession, itemsByIssueKey);
+    facetsCache.evictProjects(issues.stream().map(IssueDto::getProjectUuid).collect(MoreCollectors.toSet()));
   }
 
   @Override
@@ -164,6 +224,7 @@ public class IssueIndexer implements ProjectIndexer, NeedAuthorizationIndexer {
     IndexingResult result = new IndexingResult();
     result.add(doIndexIssueItems(dbSession, itemsByIssueKey));
     result.add(doIndexProjectItems(dbSession, itemsByProjectKey));
+    facetsCache.evictProjects(items.stream().map(EsQueueDto::getDocRouting).filter(Objects::nonNull).collect(MoreCollectors.toSet()));
     return result;
   }
 
@@ -230,6 +291,7 @@ public class IssueIndexer implements ProjectIndexer, NeedAuthorizationIndexer {
     bulkIndexer.start();
     issueKeys.forEach(issueKey -> bulkIndexer.addDeletion(INDEX_TYPE_ISSUE, issueKey, projectUuid));
     bulkIndexer.stop();
+    facetsCache.evictProjects(singletonList(projectUuid));
   }
 
   @VisibleForTesting
@@ -0,0 +1,53 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue.index;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.elasticsearch.action.search.SearchResponse;
+import org.sonar.server.es.Facets;
+
+/**
+ * Result of {@link IssueIndex#searchWithFacets(org.sonar.server.issue.IssueQuery, org.sonar.server.es.SearchOptions)}.
+ * The facets must be read from {@link #getFacets()}, as the aggregations of the Elasticsearch
+ * response are missing when the facets are loaded from cache.
+ */
+public class IssueSearchResult {
+
+  private final SearchResponse response;
+  private final Facets facets;
+
+  IssueSearchResult(SearchResponse response, @Nullable Facets facets) {
+    this.response = response;
+    this.facets = facets;
+  }
+
+  public SearchResponse getResponse() {
+    return response;
+  }
+
+  /**
+   * @return null if no facets were requested
+   */
+  @CheckForNull
+  public Facets getFacets() {
+    return facets;
+  }
+}
@@ -19,6 +19,7 @@
  */
 package org.sonar.server.issue.ws;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Joiner;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.Lists;
@@ -45,10 +46,12 @@ import org.sonar.api.utils.Paging;
 import org.sonar.api.utils.System2;
 import org.sonar.core.util.stream.MoreCollectors;
 import org.sonar.server.es.Facets;
+import org.sonar.server.es.SearchAfterCursor;
 import org.sonar.server.es.SearchOptions;
 import org.sonar.server.issue.IssueQuery;
 import org.sonar.server.issue.IssueQueryFactory;
 import org.sonar.server.issue.index.IssueIndex;
+import org.sonar.server.issue.index.IssueSearchResult;
 import org.sonar.server.user.UserSession;
 import org.sonarqube.ws.Issues.SearchWsResponse;
 import org.sonarqube.ws.client.issue.SearchWsRequest;
@@ -85,6 +88,7 @@ import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_CREATED_AFT
 import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_CREATED_AT;
 import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_CREATED_BEFORE;
 import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_CREATED_IN_LAST;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_CURSOR;
 import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_DIRECTORIES;
 import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_FILE_UUIDS;
 import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_ISSUES;
@@ -138,10 +142,16 @@ public class SearchAction implements IssuesWsAction {
       .setDescription(
         "Search for issues.<br>" +
           "At most one of the following parameters can be provided at the same time: %s, %s, %s, %s, %s.<br>" +
-          "Requires the 'Browse' permission on the specified project(s).",
+          "Requires the 'Browse' permission on the specified project(s).<br>" +
+          "Facets are cached for one minute. They can lag behind the field 'total' during this delay when issues " +
+          "are changed by an analysis or by another node of the cluster.",
         PARAM_COMPONENT_KEYS, PARAM_COMPONENT_UUIDS, PARAM_COMPONENTS, PARAM_COMPONENT_ROOT_UUIDS, PARAM_COMPONENT_ROOTS)
       .setSince("3.6")
       .setChangelog(
+        new Change("7.0", "parameter 'cursor' and response field 'nextCursor' are added to iterate over more than 10'000 issues"),
+        new Change("7.0", "facets are cached for one minute and can lag behind the issues changed by an analysis"),
+        new Change("7.0", "response field 'partial' is added. It's true when the search timed out, in which case issues, total and facets are partial " +
+          "and 'nextCursor' is not returned"),
         new Change("6.5", "parameters 'projects', 'projectUuids', 'moduleUuids', 'directories', 'fileUuids' are marked as internal"),
         new Change("6.3", "response field 'email' is renamed 'avatar'"),
         new Change("5.5", "response fields 'reporter' and 'actionPlan' are removed (drop of action plan and manual issue features)"),
@@ -161,6 +171,12 @@ public class SearchAction implements IssuesWsAction {
         "Since 5.5, 'debt' mode is deprecated and replaced by 'effort'")
       .setPossibleValues(FACET_MODE_COUNT, FACET_MODE_EFFORT, DEPRECATED_FACET_MODE_DEBT);
     action.addSortParams(IssueQuery.SORTS, null, true);
+    action.createParam(PARAM_CURSOR)
+      .setSince("7.0")
+      .setDescription("Cursor returned as 'nextCursor' by the previous page. It allows to iterate over all the issues, without " +
+        "the limit of 10'000 results that applies to the '%s' parameter. The other parameters must not change between pages, " +
+        "and '%s' must be 1. No cursor is returned when the response is partial: the page must then be requested again.", Param.PAGE, Param.PAGE)
+      .setExampleValue("WzE1MDg0MTkyMDAwMDAsIkFWZ0ZtX3VPIl0");
     action.createParam(PARAM_ADDITIONAL_FIELDS)
       .setSince("5.2")
       .setDescription("Comma-separated list of the optional fields to be returned in response. Action plans are dropped in 5.5, it is not returned in the response.")
@@ -326,18 +342,19 @@ public class SearchAction implements IssuesWsAction {
     IssueQuery query = issueQueryFactory.create(request);
 
     // execute request
-    SearchResponse result = issueIndex.search(query, options);
-    List<String> issueKeys = Arrays.stream(result.getHits().getHits())
+    IssueSearchResult searchResult = issueIndex.searchWithFacets(query, options);
+    SearchResponse result = searchResult.getResponse();
+    SearchHit[] hits = result.getHits().getHits();
+    List<String> issueKeys = Arrays.stream(hits)
       .map(SearchHit::getId)
-      .collect(MoreCollectors.toList(result.getHits().getHits().length));
+      .collect(MoreCollectors.toList(hits.length));
 
     // load the additional information to be returned in response
     SearchResponseLoader.Collector collector = new SearchResponseLoader.Collector(additionalFields, issueKeys);
     collectLoggedInUser(collector);
     collectRequestParams(collector, request);
-    Facets facets = null;
-    if (!options.getFacets().isEmpty()) {
-      facets = new Facets(result, system2.getDefaultTimeZone());
+    Facets facets = searchResult.getFacets();
+    if (facets != null) {
       // add missing values to facets. For example if assignee "john" and facet on "assignees" are requested, then
       // "john" should always be listed in the facet. If it is not present, then it is added with value zero.
       // This is a constraint from webapp UX.
@@ -363,14 +380,41 @@ public class SearchAction implements IssuesWsAction {
     // FIXME allow long in Paging
     Paging paging = forPageIndex(options.getPage()).withPageSize(options.getLimit()).andTotal((int) result.getHits().getTotalHits());
 
-    return searchResponseFormat.formatSearch(additionalFields, data, paging, facets);
+    SearchWsResponse searchWsResponse = searchResponseFormat.formatSearch(additionalFields, data, paging, facets);
+    boolean hasNextPage = hits.length > 0 && hits.length == options.getLimit();
+    return completeWithCursorAndPartial(searchWsResponse, hasNextPage ? hits[hits.length - 1].getSortValues() : null, result.isTimedOut());
+  }
+
+  /**
+   * Adds the fields 'nextCursor' and 'partial'. No cursor is returned when the search timed out: the hits of a
+   * partial response are not guaranteed to be the first ones in sort order, so resuming after the last of them
+   * could silently skip issues.
+   *
+   * @param lastSortValues sort values of the last hit if the page is full, else {@code null}
+   */
+  @VisibleForTesting
+  static SearchWsResponse completeWithCursorAndPartial(SearchWsResponse searchWsResponse, @Nullable Object[] lastSortValues, boolean timedOut) {
+    if (timedOut) {
+      return searchWsResponse.toBuilder().setPartial(true).build();
+    }
+    if (lastSortValues == null) {
+      return searchWsResponse;
+    }
+    return searchWsResponse.toBuilder().setNextCursor(SearchAfterCursor.encode(lastSortValues)).build();
   }
 
   private static SearchOptions createSearchOptionsFromRequest(SearchWsRequest request) {
     SearchOptions options = new SearchOptions();
     options.setPage(request.getPage(), request.getPageSize());
     options.addFacets(request.getFacets());
+    // the response is flagged as partial if the request times out
+    options.setPartialResultsAllowed(true);
 
+    String cursor = request.getCursor();
+    if (cursor != null) {
+      checkArgument(request.getPage() == 1, "Parameter '%s' must be 1 when '%s' is set", Param.PAGE, PARAM_CURSOR);
+      options.setSearchAfter(SearchAfterCursor.decode(cursor));
+    }
     return options;
   }
 
@@ -481,6 +525,7 @@ public class SearchAction implements IssuesWsAction {
       .setCreatedAt(request.param(PARAM_CREATED_AT))
       .setCreatedBefore(request.param(PARAM_CREATED_BEFORE))
       .setCreatedInLast(request.param(PARAM_CREATED_IN_LAST))
+      .setCursor(request.param(PARAM_CURSOR))
       .setDirectories(request.paramAsStrings(PARAM_DIRECTORIES))
       .setFacetMode(request.mandatoryParam(FACET_MODE))
       .setFacets(request.paramAsStrings(Param.FACETS))
@@ -19,17 +19,33 @@
  */
 package org.sonar.server.issue.ws;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.MultimapBuilder;
 import com.google.common.collect.SetMultimap;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import javax.annotation.Nullable;
+import org.sonar.api.Startable;
 import org.sonar.api.rule.RuleKey;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.api.utils.log.Profiler;
 import org.sonar.core.issue.DefaultIssue;
 import org.sonar.core.util.stream.MoreCollectors;
 import org.sonar.db.DbClient;
@@ -37,6 +53,7 @@ import org.sonar.db.DbSession;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.issue.IssueChangeDto;
 import org.sonar.db.issue.IssueDto;
+import org.sonar.db.organization.OrganizationDto;
 import org.sonar.db.protobuf.DbIssues;
 import org.sonar.db.rule.RuleDefinitionDto;
 import org.sonar.db.user.UserDto;
@@ -49,7 +66,9 @@ import static com.google.common.base.MoreObjects.firstNonNull;
 import static com.google.common.collect.ImmutableSet.copyOf;
 import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.collect.Sets.difference;
+import static java.lang.String.format;
 import static java.util.Collections.emptyList;
+import static java.util.Collections.emptySet;
 import static java.util.stream.Stream.concat;
 import static org.sonar.api.web.UserRole.ISSUE_ADMIN;
 import static org.sonar.core.util.stream.MoreCollectors.toList;
@@ -65,12 +84,22 @@ import static org.sonar.server.issue.ws.SearchAdditionalField.USERS;
 
 /**
  * Loads all the information required for the response of api/issues/search.
+ * <p>
+ * Rules, users, comments and components do not depend on each other. They are loaded
+ * concurrently, each with its own DB session, then merged into {@link SearchResponseData}
+ * by the thread of the request. When all loading threads are busy, the thread of the
+ * request loads them by itself.
  */
-public class SearchResponseLoader {
+public class SearchResponseLoader implements Startable {
+
+  private static final Logger LOGGER = Loggers.get(SearchResponseLoader.class);
+  private static final int MAX_LOADING_THREADS = 8;
 
   private final UserSession userSession;
   private final DbClient dbClient;
   private final TransitionService transitionService;
+  // the collections are loaded sequentially as long as the component is not started
+  private ExecutorService executorService = MoreExecutors.newDirectExecutorService();
 
   public SearchResponseLoader(UserSession userSession, DbClient dbClient, TransitionService transitionService) {
     this.userSession = userSession;
@@ -78,25 +107,31 @@ public class SearchResponseLoader {
     this.transitionService = transitionService;
   }
 
+  @Override
+  public void start() {
+    this.executorService = new ThreadPoolExecutor(0, MAX_LOADING_THREADS, 60L, TimeUnit.SECONDS, new SynchronousQueue<>(),
+      new ThreadFactoryBuilder()
+        .setNameFormat("IssuesSearchLoader-%d")
+        .setDaemon(true)
+        .build(),
+      // run by the thread of the request when all threads are busy, or when stopped
+      (task, executor) -> task.run());
+  }
+
+  @Override
+  public void stop() {
+    executorService.shutdown();
+  }
+
   /**
    * The issue keys are given by the multi-criteria search in Elasticsearch index.
    */
   public SearchResponseData load(Collector collector, @Nullable Facets facets) {
+    List<IssueDto> issues;
     try (DbSession dbSession = dbClient.openSession(false)) {
-      SearchResponseData result = new SearchResponseData(dbClient.issueDao().selectByOrderedKeys(dbSession, collector.getIssueKeys()));
-      collector.collect(result.getIssues());
-
-      loadRules(collector, dbSession, result);
-      // order is important - loading of comments complete the list of users: loadComments() is
-      // before loadUsers()
-      loadComments(collector, dbSession, result);
-      loadUsers(collector, dbSession, result);
-      loadComponents(collector, dbSession, result);
-      loadOrganizations(dbSession, result);
-      loadActionsAndTransitions(collector, result);
-      completeTotalEffortFromFacet(facets, result);
-      return result;
+      issues = dbClient.issueDao().selectByOrderedKeys(dbSession, collector.getIssueKeys());
     }
+    return load(new SearchResponseData(emptyList()), new SearchResponseData(issues), collector, facets);
   }
 
   /**
@@ -108,21 +143,40 @@ public class SearchResponseLoader {
    * </p>
    */
   public SearchResponseData load(SearchResponseData preloadedResponseData, Collector collector, @Nullable Facets facets) {
+    List<IssueDto> issues;
     try (DbSession dbSession = dbClient.openSession(false)) {
-      SearchResponseData result = new SearchResponseData(loadIssues(preloadedResponseData, collector, dbSession));
-      collector.collect(result.getIssues());
-
-      loadRules(preloadedResponseData, collector, dbSession, result);
-      // order is important - loading of comments complete the list of users: loadComments() is
-      // before loadUsers()
-      loadComments(collector, dbSession, result);
-      loadUsers(preloadedResponseData, collector, dbSession, result);
-      loadComponents(preloadedResponseData, collector, dbSession, result);
-      loadOrganizations(dbSession, result);
-      loadActionsAndTransitions(collector, result);
-      completeTotalEffortFromFacet(facets, result);
-      return result;
+      issues = loadIssues(preloadedResponseData, collector, dbSession);
     }
+    return load(preloadedResponseData, new SearchResponseData(issues), collector, facets);
+  }
+
+  private SearchResponseData load(SearchResponseData preloadedResponseData, SearchResponseData result, Collector collector, @Nullable Facets facets) {
+    collector.collect(result.getIssues());
+
+    // the collector is not thread-safe. The keys to be loaded are copied before submitting the tasks.
+    Set<RuleKey> ruleKeysToLoad = getRuleKeysToLoad(preloadedResponseData, collector);
+    Set<String> loginsToLoad = getLoginsToLoad(preloadedResponseData, collector);
+    Set<String> componentUuids = ImmutableSet.copyOf(collector.getComponentUuids());
+    Set<String> projectUuids = ImmutableSet.copyOf(collector.getProjectUuids());
+    Collection<ComponentDto> preloadedComponents = ImmutableList.copyOf(preloadedResponseData.getComponents());
+
+    Future<List<RuleDefinitionDto>> rules = submit("rules", dbSession -> dbClient.ruleDao().selectDefinitionByKeys(dbSession, ruleKeysToLoad),
+      !ruleKeysToLoad.isEmpty());
+    Future<List<UserDto>> users = submit("users", dbSession -> dbClient.userDao().selectByLogins(dbSession, loginsToLoad),
+      !loginsToLoad.isEmpty());
+    Future<List<IssueChangeDto>> comments = submit("comments",
+      dbSession -> dbClient.issueChangeDao().selectByTypeAndIssueKeys(dbSession, collector.getIssueKeys(), IssueChangeDto.TYPE_COMMENT),
+      collector.contains(COMMENTS));
+    Future<LoadedComponents> components = submit("components", dbSession -> loadComponents(dbSession, preloadedComponents, componentUuids, projectUuids));
+
+    completeRules(preloadedResponseData, collector, get(rules), result);
+    // order is important - loading of comments complete the list of users
+    completeComments(collector, get(comments), result);
+    completeUsers(preloadedResponseData, collector, get(users), result);
+    completeComponents(collector, get(components), result);
+    loadActionsAndTransitions(collector, result);
+    completeTotalEffortFromFacet(facets, result);
+    return result;
   }
 
   private List<IssueDto> loadIssues(SearchResponseData preloadedResponseData, Collector collector, DbSession dbSession) {
@@ -138,74 +192,56 @@ public class SearchResponseLoader {
       .collect(toList(preloadedIssues.size() + loadedIssues.size()));
   }
 
-  private void loadUsers(SearchResponseData preloadedResponseData, Collector collector, DbSession dbSession, SearchResponseData result) {
-    if (collector.contains(USERS)) {
-      List<UserDto> preloadedUsers = firstNonNull(preloadedResponseData.getUsers(), emptyList());
-      Set<String> preloadedLogins = preloadedUsers.stream().map(UserDto::getLogin).collect(MoreCollectors.toSet(preloadedUsers.size()));
-      Set<String> requestedLogins = collector.get(USERS);
-      Set<String> loginsToLoad = copyOf(difference(requestedLogins, preloadedLogins));
-
-      if (loginsToLoad.isEmpty()) {
-        result.setUsers(preloadedUsers);
-      } else {
-        List<UserDto> loadedUsers = dbClient.userDao().selectByLogins(dbSession, loginsToLoad);
-        result.setUsers(concat(preloadedUsers.stream(), loadedUsers.stream()).collect(toList(preloadedUsers.size() + loadedUsers.size())));
-      }
+  private static Set<RuleKey> getRuleKeysToLoad(SearchResponseData preloadedResponseData, Collector collector) {
+    if (!collector.contains(RULES)) {
+      return emptySet();
     }
+    List<RuleDefinitionDto> preloadedRules = firstNonNull(preloadedResponseData.getRules(), emptyList());
+    Set<RuleKey> preloadedRuleKeys = preloadedRules.stream().map(RuleDefinitionDto::getKey).collect(MoreCollectors.toSet());
+    return copyOf(difference(collector.get(RULES), preloadedRuleKeys));
   }
 
-  private void loadComponents(SearchResponseData preloadedResponseData, Collector collector, DbSession dbSession, SearchResponseData result) {
-    Collection<ComponentDto> preloadedComponents = preloadedResponseData.getComponents();
-    Set<String> preloadedComponentUuids = preloadedComponents.stream().map(ComponentDto::uuid).collect(MoreCollectors.toSet(preloadedComponents.size()));
-    Set<String> componentUuidsToLoad = copyOf(difference(collector.getComponentUuids(), preloadedComponentUuids));
+  private static Set<String> getLoginsToLoad(SearchResponseData preloadedResponseData, Collector collector) {
+    if (!collector.contains(USERS)) {
+      return emptySet();
+    }
+    List<UserDto> preloadedUsers = firstNonNull(preloadedResponseData.getUsers(), emptyList());
+    Set<String> preloadedLogins = preloadedUsers.stream().map(UserDto::getLogin).collect(MoreCollectors.toSet(preloadedUsers.size()));
+    return copyOf(difference(collector.get(USERS), preloadedLogins));
+  }
 
-    result.addComponents(preloadedComponents);
+  private LoadedComponents loadComponents(DbSession dbSession, Collection<ComponentDto> preloadedComponents, Set<String> componentUuids, Set<String> projectUuids) {
+    Map<String, ComponentDto> componentsByUuid = new HashMap<>();
+    preloadedComponents.forEach(c -> componentsByUuid.put(c.uuid(), c));
+    Set<String> componentUuidsToLoad = copyOf(difference(componentUuids, componentsByUuid.keySet()));
     if (!componentUuidsToLoad.isEmpty()) {
-      result.addComponents(dbClient.componentDao().selectByUuids(dbSession, componentUuidsToLoad));
+      dbClient.componentDao().selectByUuids(dbSession, componentUuidsToLoad).forEach(c -> componentsByUuid.put(c.uuid(), c));
     }
 
     // always load components and projects, because some issue fields still relate to component ids/keys.
     // They should be dropped but are kept for backward-compatibility (see SearchResponseFormat)
-    result.addComponents(dbClient.componentDao().selectSubProjectsByComponentUuids(dbSession, collector.getComponentUuids()));
-    addProjectUuids(collector, dbSession, result);
-  }
+    dbClient.componentDao().selectSubProjectsByComponentUuids(dbSession, componentUuids).forEach(c -> componentsByUuid.put(c.uuid(), c));
 
-  private void addProjectUuids(Collector collector, DbSession dbSession, SearchResponseData result) {
-    Collection<ComponentDto> loadedComponents = result.getComponents();
-    for (ComponentDto component : loadedComponents) {
-      collector.addProjectUuid(component.projectUuid());
-    }
-    Set<String> loadedProjectUuids = loadedComponents.stream().filter(cpt -> cpt.uuid().equals(cpt.projectUuid())).map(ComponentDto::uuid).collect(MoreCollectors.toSet());
-    Set<String> projectUuidsToLoad = copyOf(difference(collector.getProjectUuids(), loadedProjectUuids));
+    Set<String> allProjectUuids = new HashSet<>(projectUuids);
+    componentsByUuid.values().forEach(c -> allProjectUuids.add(c.projectUuid()));
+    Set<String> projectUuidsToLoad = copyOf(difference(allProjectUuids, componentsByUuid.keySet()));
     if (!projectUuidsToLoad.isEmpty()) {
-      List<ComponentDto> projects = dbClient.componentDao().selectByUuids(dbSession, collector.getProjectUuids());
-      result.addComponents(projects);
+      dbClient.componentDao().selectByUuids(dbSession, projectUuidsToLoad).forEach(c -> componentsByUuid.put(c.uuid(), c));
     }
+
+    Set<String> organizationUuids = componentsByUuid.values().stream().map(ComponentDto::getOrganizationUuid).collect(MoreCollectors.toSet());
+    return new LoadedComponents(componentsByUuid.values(), dbClient.organizationDao().selectByUuids(dbSession, organizationUuids));
   }
 
-  private void loadRules(SearchResponseData preloadedResponseData, Collector collector, DbSession dbSession, SearchResponseData result) {
+  private static void completeRules(SearchResponseData preloadedResponseData, Collector collector, List<RuleDefinitionDto> loadedRules, SearchResponseData result) {
     if (collector.contains(RULES)) {
       List<RuleDefinitionDto> preloadedRules = firstNonNull(preloadedResponseData.getRules(), emptyList());
-      Set<RuleKey> preloaedRuleKeys = preloadedRules.stream().map(RuleDefinitionDto::getKey).collect(MoreCollectors.toSet());
-      Set<RuleKey> ruleKeysToLoad = copyOf(difference(collector.get(RULES), preloaedRuleKeys));
-      if (ruleKeysToLoad.isEmpty()) {
-        result.setRules(preloadedResponseData.getRules());
-      } else {
-        List<RuleDefinitionDto> loadedRules = dbClient.ruleDao().selectDefinitionByKeys(dbSession, ruleKeysToLoad);
-        result.setRules(concat(preloadedRules.stream(), loadedRules.stream()).collect(toList(preloadedRules.size() + loadedRules.size())));
-      }
+      result.setRules(concat(preloadedRules.stream(), loadedRules.stream()).collect(toList(preloadedRules.size() + loadedRules.size())));
     }
   }
 
-  private void loadUsers(Collector collector, DbSession dbSession, SearchResponseData result) {
-    if (collector.contains(USERS)) {
-      result.setUsers(dbClient.userDao().selectByLogins(dbSession, collector.getList(USERS)));
-    }
-  }
-
-  private void loadComments(Collector collector, DbSession dbSession, SearchResponseData result) {
+  private void completeComments(Collector collector, List<IssueChangeDto> comments, SearchResponseData result) {
     if (collector.contains(COMMENTS)) {
-      List<IssueChangeDto> comments = dbClient.issueChangeDao().selectByTypeAndIssueKeys(dbSession, collector.getIssueKeys(), IssueChangeDto.TYPE_COMMENT);
       result.setComments(comments);
       for (IssueChangeDto comment : comments) {
         collector.add(USERS, comment.getUserLogin());
@@ -216,30 +252,63 @@ public class SearchResponseLoader {
     }
   }
 
-  private boolean canEditOrDelete(IssueChangeDto dto) {
-    return userSession.isLoggedIn() && userSession.getLogin().equals(dto.getUserLogin());
+  private void completeUsers(SearchResponseData preloadedResponseData, Collector collector, List<UserDto> loadedUsers, SearchResponseData result) {
+    if (collector.contains(USERS)) {
+      List<UserDto> preloadedUsers = firstNonNull(preloadedResponseData.getUsers(), emptyList());
+      List<UserDto> users = concat(preloadedUsers.stream(), loadedUsers.stream()).collect(MoreCollectors.toArrayList());
+
+      // authors of comments are known only once comments are loaded
+      Set<String> knownLogins = users.stream().map(UserDto::getLogin).collect(MoreCollectors.toSet(users.size()));
+      Set<String> loginsToLoad = copyOf(difference(collector.get(USERS), knownLogins));
+      if (!loginsToLoad.isEmpty()) {
+        try (DbSession dbSession = dbClient.openSession(false)) {
+          users.addAll(dbClient.userDao().selectByLogins(dbSession, loginsToLoad));
+        }
+      }
+      result.setUsers(users);
+    }
   }
 
-  private void loadRules(Collector collector, DbSession dbSession, SearchResponseData result) {
-    if (collector.contains(RULES)) {
-      result.setRules(dbClient.ruleDao().selectDefinitionByKeys(dbSession, collector.getList(RULES)));
+  private static void completeComponents(Collector collector, LoadedComponents loadedComponents, SearchResponseData result) {
+    result.addComponents(loadedComponents.components);
+    loadedComponents.components.forEach(c -> collector.addProjectUuid(c.projectUuid()));
+    loadedComponents.organizations.forEach(result::addOrganization);
+  }
+
+  private <T> Future<List<T>> submit(String collectionName, Function<DbSession, List<T>> loader, boolean enabled) {
+    if (!enabled) {
+      return Futures.immediateFuture(Collections.<T>emptyList());
     }
+    return submit(collectionName, loader);
   }
 
-  private void loadComponents(Collector collector, DbSession dbSession, SearchResponseData result) {
-    // always load components and projects, because some issue fields still relate to component ids/keys.
-    // They should be dropped but are kept for backward-compatibility (see SearchResponseFormat)
-    result.addComponents(dbClient.componentDao().selectByUuids(dbSession, collector.getComponentUuids()));
-    result.addComponents(dbClient.componentDao().selectSubProjectsByComponentUuids(dbSession, collector.getComponentUuids()));
-    addProjectUuids(collector, dbSession, result);
+  private <T> Future<T> submit(String collectionName, Function<DbSession, T> loader) {
+    return executorService.submit(() -> {
+      Profiler profiler = Profiler.create(LOGGER).start();
+      try (DbSession dbSession = dbClient.openSession(false)) {
+        T loaded = loader.apply(dbSession);
+        profiler.stopDebug(format("Loaded %s of issues", collectionName));
+        return loaded;
+      }
+    });
   }
 
-  private void loadOrganizations(DbSession dbSession, SearchResponseData result) {
-    Collection<ComponentDto> components = result.getComponents();
-    dbClient.organizationDao().selectByUuids(
-      dbSession,
-      components.stream().map(ComponentDto::getOrganizationUuid).collect(MoreCollectors.toSet()))
-      .forEach(result::addOrganization);
+  private static <T> T get(Future<T> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while loading data of issues", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException("Fail to load data of issues", e.getCause());
+    }
+  }
+
+  private boolean canEditOrDelete(IssueChangeDto dto) {
+    return userSession.isLoggedIn() && userSession.getLogin().equals(dto.getUserLogin());
   }
 
   private void loadActionsAndTransitions(Collector collector, SearchResponseData result) {
@@ -292,6 +361,16 @@ public class SearchResponseLoader {
     }
   }
 
+  private static class LoadedComponents {
+    private final Collection<ComponentDto> components;
+    private final List<OrganizationDto> organizations;
+
+    private LoadedComponents(Collection<ComponentDto> components, List<OrganizationDto> organizations) {
+      this.components = components;
+      this.organizations = organizations;
+    }
+  }
+
   /**
    * Collects the keys of all the data to be loaded (users, rules, ...)
    */
@@ -167,7 +167,7 @@ public class ProjectMeasuresIndex {
 
   public SearchIdResult<String> search(ProjectMeasuresQuery query, SearchOptions searchOptions) {
     SearchRequestBuilder requestBuilder = client
-      .prepareSearch(INDEX_TYPE_PROJECT_MEASURES)
+      .prepareSearch(searchOptions.isPartialResultsAllowed(), INDEX_TYPE_PROJECT_MEASURES)
       .setFetchSource(false)
       .setFrom(searchOptions.getOffset())
       .setSize(searchOptions.getLimit());
@@ -348,7 +348,7 @@ public class ProjectMeasuresIndex {
 
   private Map<String, QueryBuilder> createFilters(ProjectMeasuresQuery query) {
     Map<String, QueryBuilder> filters = new HashMap<>();
-    filters.put("__authorization", authorizationTypeSupport.createQueryFilter());
+    filters.put("__authorization", authorizationTypeSupport.createQueryFilter(INDEX_TYPE_PROJECT_MEASURES));
     Multimap<String, MetricCriterion> metricCriterionMultimap = ArrayListMultimap.create();
     query.getMetricCriteria().forEach(metricCriterion -> metricCriterionMultimap.put(metricCriterion.getMetricKey(), metricCriterion));
     metricCriterionMultimap.asMap().forEach((key, value) -> {
@@ -434,7 +434,7 @@ public class ProjectMeasuresIndex {
 
     SearchRequestBuilder searchQuery = client
       .prepareSearch(INDEX_TYPE_PROJECT_MEASURES)
-      .setQuery(authorizationTypeSupport.createQueryFilter())
+      .setQuery(authorizationTypeSupport.createQueryFilter(INDEX_TYPE_PROJECT_MEASURES))
       .setFetchSource(false)
       .setSize(0)
       .addAggregation(tagFacet);
@@ -19,6 +19,7 @@
  */
 package org.sonar.server.measure.index;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableSet;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -29,10 +30,12 @@ import java.util.List;
 import java.util.Set;
 import javax.annotation.Nullable;
 import org.elasticsearch.action.index.IndexRequest;
+import org.sonar.api.config.Configuration;
 import org.sonar.api.resources.Qualifiers;
 import org.sonar.core.util.stream.MoreCollectors;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
+import org.sonar.db.component.ComponentDto;
 import org.sonar.db.es.EsQueueDto;
 import org.sonar.db.measure.ProjectMeasuresIndexerIterator;
 import org.sonar.db.measure.ProjectMeasuresIndexerIterator.ProjectMeasures;
@@ -43,6 +46,7 @@ import org.sonar.server.es.IndexType;
 import org.sonar.server.es.IndexingListener;
 import org.sonar.server.es.IndexingResult;
 import org.sonar.server.es.OneToOneResilientIndexingListener;
+import org.sonar.server.es.ParallelProjectIndexing;
 import org.sonar.server.es.ProjectIndexer;
 import org.sonar.server.permission.index.AuthorizationScope;
 import org.sonar.server.permission.index.NeedAuthorizationIndexer;
@@ -56,10 +60,21 @@ public class ProjectMeasuresIndexer implements ProjectIndexer, NeedAuthorization
 
   private final DbClient dbClient;
   private final EsClient esClient;
+  private final int startupThreads;
 
   public ProjectMeasuresIndexer(DbClient dbClient, EsClient esClient) {
+    this(dbClient, esClient, 1);
+  }
+
+  public ProjectMeasuresIndexer(DbClient dbClient, EsClient esClient, Configuration config) {
+    this(dbClient, esClient, ParallelProjectIndexing.getThreads(config));
+  }
+
+  @VisibleForTesting
+  ProjectMeasuresIndexer(DbClient dbClient, EsClient esClient, int startupThreads) {
     this.dbClient = dbClient;
     this.esClient = esClient;
+    this.startupThreads = startupThreads;
   }
 
   @Override
@@ -69,7 +84,25 @@ public class ProjectMeasuresIndexer implements ProjectIndexer, NeedAuthorization
 
   @Override
   public void indexOnStartup(Set<IndexType> uninitializedIndexTypes) {
-    doIndex(Size.LARGE, null);
+    if (startupThreads == 1) {
+      doIndex(Size.LARGE, null);
+      return;
+    }
+    List<String> projectUuids;
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      projectUuids = dbClient.componentDao().selectProjects(dbSession).stream()
+        .map(ComponentDto::uuid)
+        .collect(MoreCollectors.toList());
+    }
+    BulkIndexer bulkIndexer = createBulkIndexer(Size.LARGE, IndexingListener.FAIL_ON_ERROR);
+    bulkIndexer.start();
+    ParallelProjectIndexing.execute(INDEX_TYPE_PROJECT_MEASURES, projectUuids, startupThreads, projectUuid -> {
+      try (DbSession dbSession = dbClient.openSession(false);
+        ProjectMeasuresIndexerIterator rowIt = ProjectMeasuresIndexerIterator.create(dbSession, projectUuid)) {
+        rowIt.forEachRemaining(doc -> bulkIndexer.add(newIndexRequest(toProjectMeasuresDoc(doc))));
+      }
+    });
+    bulkIndexer.stop();
   }
 
   @Override
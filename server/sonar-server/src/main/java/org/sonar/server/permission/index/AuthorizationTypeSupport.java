@@ -20,14 +20,23 @@
 package org.sonar.server.permission.index;
 
 import com.google.common.collect.ImmutableMap;
+import java.util.Arrays;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.index.query.BoolQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.join.query.JoinQueryBuilders;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.SearchHits;
 import org.sonar.api.ce.ComputeEngineSide;
 import org.sonar.api.server.ServerSide;
+import org.sonar.core.util.stream.MoreCollectors;
 import org.sonar.db.user.GroupDto;
+import org.sonar.server.es.EsClient;
 import org.sonar.server.es.IndexType;
 import org.sonar.server.es.NewIndex;
 import org.sonar.server.user.UserSession;
@@ -36,6 +45,7 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Objects.requireNonNull;
 import static org.elasticsearch.index.query.QueryBuilders.boolQuery;
 import static org.elasticsearch.index.query.QueryBuilders.termQuery;
+import static org.elasticsearch.index.query.QueryBuilders.termsQuery;
 
 @ServerSide
 @ComputeEngineSide
@@ -52,10 +62,35 @@ public class AuthorizationTypeSupport {
    */
   public static final String FIELD_ALLOW_ANYONE = "allowAnyone";
 
+  /**
+   * Routing of the documents of the types requiring authorization, which is
+   * the uuid of the parent project
+   */
+  private static final String FIELD_ROUTING = "_routing";
+
+  /**
+   * Above this number of authorized projects, the filter is the join on the type "authorization". A larger
+   * terms filter would be sent with each request and would use too much space in {@link AuthorizedProjectsCache}.
+   * Must not be greater than the max result window of the index (10'000).
+   */
+  private static final int MAX_LISTED_PROJECTS = 5_000;
+
   private final UserSession userSession;
+  @Nullable
+  private final EsClient esClient;
+  @Nullable
+  private final AuthorizedProjectsCache authorizedProjectsCache;
 
   public AuthorizationTypeSupport(UserSession userSession) {
     this.userSession = userSession;
+    this.esClient = null;
+    this.authorizedProjectsCache = null;
+  }
+
+  public AuthorizationTypeSupport(UserSession userSession, EsClient esClient, AuthorizedProjectsCache authorizedProjectsCache) {
+    this.userSession = userSession;
+    this.esClient = esClient;
+    this.authorizedProjectsCache = authorizedProjectsCache;
   }
 
   /**
@@ -100,7 +135,78 @@ public class AuthorizationTypeSupport {
     if (userSession.isRoot()) {
       return QueryBuilders.matchAllQuery();
     }
+    return createJoinFilter();
+  }
+
+  /**
+   * Same as {@link #createQueryFilter()}, except that for the users who can browse at most 5'000 projects,
+   * the join on the type "authorization" is replaced by a filter on the routing of documents, which is the
+   * project uuid. The uuids are loaded from the type "authorization" of the index with a single request,
+   * then cached by {@link AuthorizedProjectsCache}.
+   * <p>
+   * The cache is evicted when permissions are indexed by the same process. Otherwise it can be up to
+   * 10 seconds stale, for example when permissions are changed on another node of a cluster or when
+   * a project is created by the Compute Engine.
+   *
+   * @param indexType the type of the searched documents, for example {@code issues/issue}
+   */
+  public QueryBuilder createQueryFilter(IndexType indexType) {
+    if (userSession.isRoot()) {
+      return QueryBuilders.matchAllQuery();
+    }
+    if (esClient == null || authorizedProjectsCache == null) {
+      return createJoinFilter();
+    }
+    String cacheKey = indexType.getIndex() + "|" + getAuthorizationKey();
+    Optional<Set<String>> projectUuids = authorizedProjectsCache.get(cacheKey, () -> loadAuthorizedProjectUuids(esClient, indexType));
+    if (projectUuids.isPresent()) {
+      return termsQuery(FIELD_ROUTING, projectUuids.get());
+    }
+    return createJoinFilter();
+  }
+
+  /**
+   * Identifies the permissions of the user: two users with the same key
+   * are authorized on the same projects.
+   */
+  public String getAuthorizationKey() {
+    if (userSession.isRoot()) {
+      return "root";
+    }
+    String groupIds = userSession.getGroups().stream()
+      .map(GroupDto::getId)
+      .sorted()
+      .map(String::valueOf)
+      .collect(Collectors.joining(","));
+    return "user=" + userSession.getUserId() + ";groups=" + groupIds;
+  }
+
+  private QueryBuilder createJoinFilter() {
+    return JoinQueryBuilders.hasParentQuery(
+      TYPE_AUTHORIZATION,
+      QueryBuilders.boolQuery().filter(createPermissionsFilter()),
+      false);
+  }
+
+  private Optional<Set<String>> loadAuthorizedProjectUuids(EsClient client, IndexType indexType) {
+    SearchResponse response = client.prepareSearch(getAuthorizationIndexType(indexType))
+      .setQuery(boolQuery().filter(createPermissionsFilter()))
+      .setFetchSource(false)
+      .setSize(MAX_LISTED_PROJECTS)
+      .get();
+    SearchHits hits = response.getHits();
+    if (response.isTimedOut() || hits.getTotalHits() > MAX_LISTED_PROJECTS) {
+      return Optional.empty();
+    }
+    return Optional.of(Arrays.stream(hits.getHits())
+      .map(SearchHit::getId)
+      .collect(MoreCollectors.toSet(hits.getHits().length)));
+  }
 
+  /**
+   * Filter on the documents of type "authorization"
+   */
+  private BoolQueryBuilder createPermissionsFilter() {
     Integer userId = userSession.getUserId();
     BoolQueryBuilder filter = boolQuery();
 
@@ -118,9 +224,6 @@ public class AuthorizationTypeSupport {
       .map(GroupDto::getId)
       .forEach(groupId -> filter.should(termQuery(FIELD_GROUP_IDS, groupId)));
 
-    return JoinQueryBuilders.hasParentQuery(
-      TYPE_AUTHORIZATION,
-      QueryBuilders.boolQuery().filter(filter),
-      false);
+    return filter;
   }
 }
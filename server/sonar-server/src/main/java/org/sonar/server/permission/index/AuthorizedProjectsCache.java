@@ -0,0 +1,164 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.permission.index;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.ce.ComputeEngineSide;
+import org.sonar.api.server.ServerSide;
+import org.sonar.api.utils.System2;
+
+import static com.google.common.collect.ImmutableSet.copyOf;
+
+/**
+ * Cache of the uuids of the projects that can be browsed by a user, per index. Keys are computed by
+ * {@link AuthorizationTypeSupport} from the index, the user and its groups.
+ * <p>
+ * Entries are evicted when permissions are indexed by {@link PermissionIndexer} in the same process.
+ * Permissions indexed by other processes or by other nodes of a cluster are taken into account
+ * when entries expire, after 10 seconds. Until then, users can still browse the projects
+ * they were just removed from, and can't browse yet the projects they were just granted access to.
+ * <p>
+ * The size of the cache is bounded by the number of entries and by the total number of
+ * project uuids, about 100 bytes of heap each.
+ * <p>
+ * This class is thread-safe.
+ */
+@ServerSide
+@ComputeEngineSide
+public class AuthorizedProjectsCache {
+
+  private static final int DEFAULT_MAX_ENTRIES = 1_000;
+  private static final int DEFAULT_MAX_PROJECT_UUIDS = 100_000;
+  private static final long DEFAULT_TTL_IN_MS = 10_000L;
+
+  private final System2 system2;
+  private final int maxEntries;
+  private final int maxProjectUuids;
+  private final long ttlInMs;
+  // access order, so that the least recently used entries are the first to be removed
+  private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private int projectUuidsCount = 0;
+  // incremented on eviction, so that values loaded before are not cached
+  private long generation = 0L;
+
+  public AuthorizedProjectsCache(System2 system2) {
+    this(system2, DEFAULT_MAX_ENTRIES, DEFAULT_MAX_PROJECT_UUIDS, DEFAULT_TTL_IN_MS);
+  }
+
+  @VisibleForTesting
+  AuthorizedProjectsCache(System2 system2, int maxEntries, int maxProjectUuids, long ttlInMs) {
+    this.system2 = system2;
+    this.maxEntries = maxEntries;
+    this.maxProjectUuids = maxProjectUuids;
+    this.ttlInMs = ttlInMs;
+  }
+
+  /**
+   * A cache that never stores anything. Used when no instance is provided by the container.
+   */
+  static AuthorizedProjectsCache disabled(System2 system2) {
+    return new AuthorizedProjectsCache(system2, 0, 0, 0L);
+  }
+
+  /**
+   * Returns the cached project uuids, or loads them if absent or expired. The loader is
+   * called outside of any lock, so concurrent requests of the same key may load it twice.
+   * The loaded value is not cached if the cache is evicted in the meantime, as it may
+   * have been read before the permissions were indexed.
+   *
+   * @param loader returns the uuids of the authorized projects, or empty if they are too
+   *               many to be listed. Empty values are cached too.
+   */
+  public Optional<Set<String>> get(String key, Supplier<Optional<Set<String>>> loader) {
+    long generationBeforeLoad;
+    synchronized (this) {
+      Entry entry = getEntry(key);
+      if (entry != null) {
+        return Optional.ofNullable(entry.projectUuids);
+      }
+      generationBeforeLoad = generation;
+    }
+    Optional<Set<String>> projectUuids = loader.get();
+    put(key, projectUuids.orElse(null), generationBeforeLoad);
+    return projectUuids;
+  }
+
+  @CheckForNull
+  private Entry getEntry(String key) {
+    Entry entry = entries.get(key);
+    if (entry != null && entry.expiresAt <= system2.now()) {
+      entries.remove(key);
+      projectUuidsCount -= entry.weight();
+      return null;
+    }
+    return entry;
+  }
+
+  private synchronized void put(String key, @Nullable Set<String> projectUuids, long generationBeforeLoad) {
+    if (maxEntries == 0 || generationBeforeLoad != generation) {
+      return;
+    }
+    Entry entry = new Entry(projectUuids == null ? null : copyOf(projectUuids), system2.now() + ttlInMs);
+    Entry previous = entries.put(key, entry);
+    if (previous != null) {
+      projectUuidsCount -= previous.weight();
+    }
+    projectUuidsCount += entry.weight();
+
+    Iterator<Entry> leastRecentlyUsed = entries.values().iterator();
+    while ((entries.size() > maxEntries || projectUuidsCount > maxProjectUuids) && leastRecentlyUsed.hasNext()) {
+      projectUuidsCount -= leastRecentlyUsed.next().weight();
+      leastRecentlyUsed.remove();
+    }
+  }
+
+  public synchronized void evictAll() {
+    entries.clear();
+    projectUuidsCount = 0;
+    generation++;
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  private static class Entry {
+    // null if too many projects
+    private final Set<String> projectUuids;
+    private final long expiresAt;
+
+    private Entry(@Nullable Set<String> projectUuids, long expiresAt) {
+      this.projectUuids = projectUuids;
+      this.expiresAt = expiresAt;
+    }
+
+    private int weight() {
+      return projectUuids == null ? 0 : projectUuids.size();
+    }
+  }
+}
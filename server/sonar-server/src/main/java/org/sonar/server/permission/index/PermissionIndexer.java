@@ -29,6 +29,7 @@ import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.elasticsearch.action.index.IndexRequest;
+import org.sonar.api.utils.System2;
 import org.sonar.core.util.stream.MoreCollectors;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
@@ -40,6 +41,7 @@ import org.sonar.server.es.IndexType;
 import org.sonar.server.es.IndexingResult;
 import org.sonar.server.es.OneToOneResilientIndexingListener;
 import org.sonar.server.es.ProjectIndexer;
+import org.sonar.server.issue.index.IssueFacetsCache;
 import org.sonar.server.permission.index.PermissionIndexerDao.Dto;
 
 import static java.util.Collections.emptyList;
@@ -55,19 +57,50 @@ public class PermissionIndexer implements ProjectIndexer {
 
   private final DbClient dbClient;
   private final EsClient esClient;
+  private final AuthorizedProjectsCache authorizedProjectsCache;
+  private final IssueFacetsCache issueFacetsCache;
   private final Collection<AuthorizationScope> authorizationScopes;
   private final Set<IndexType> indexTypes;
 
+  /**
+   * Used when the container provides none of the caches. Caches are disabled, as a private instance
+   * would never be read by the searches.
+   */
   public PermissionIndexer(DbClient dbClient, EsClient esClient, NeedAuthorizationIndexer... needAuthorizationIndexers) {
-    this(dbClient, esClient, Arrays.stream(needAuthorizationIndexers)
+    this(dbClient, esClient, AuthorizedProjectsCache.disabled(System2.INSTANCE), needAuthorizationIndexers);
+  }
+
+  /**
+   * Used by Compute Engine, which does not cache facets of issues. The cache of facets is disabled.
+   */
+  public PermissionIndexer(DbClient dbClient, EsClient esClient, AuthorizedProjectsCache authorizedProjectsCache,
+    NeedAuthorizationIndexer... needAuthorizationIndexers) {
+    this(dbClient, esClient, authorizedProjectsCache, IssueFacetsCache.disabled(System2.INSTANCE), needAuthorizationIndexers);
+  }
+
+  /**
+   * Used by web server, which shares the caches with the searches of issues and projects
+   */
+
+  public PermissionIndexer(DbClient dbClient, EsClient esClient, AuthorizedProjectsCache authorizedProjectsCache, IssueFacetsCache issueFacetsCache,
+    NeedAuthorizationIndexer... needAuthorizationIndexers) {
+    this(dbClient, esClient, authorizedProjectsCache, issueFacetsCache, Arrays.stream(needAuthorizationIndexers)
       .map(NeedAuthorizationIndexer::getAuthorizationScope)
       .collect(MoreCollectors.toList(needAuthorizationIndexers.length)));
   }
 
   @VisibleForTesting
   public PermissionIndexer(DbClient dbClient, EsClient esClient, Collection<AuthorizationScope> authorizationScopes) {
+    this(dbClient, esClient, AuthorizedProjectsCache.disabled(System2.INSTANCE), IssueFacetsCache.disabled(System2.INSTANCE), authorizationScopes);
+  }
+
+  @VisibleForTesting
+  public PermissionIndexer(DbClient dbClient, EsClient esClient, AuthorizedProjectsCache authorizedProjectsCache, IssueFacetsCache issueFacetsCache,
+    Collection<AuthorizationScope> authorizationScopes) {
     this.dbClient = dbClient;
     this.esClient = esClient;
+    this.authorizedProjectsCache = authorizedProjectsCache;
+    this.issueFacetsCache = issueFacetsCache;
     this.authorizationScopes = authorizationScopes;
     this.indexTypes = authorizationScopes.stream()
       .map(AuthorizationScope::getIndexType)
@@ -144,6 +177,7 @@ public class PermissionIndexer implements ProjectIndexer {
 
       bulkIndexer.stop();
     });
+    evictCaches();
   }
 
   @Override
@@ -176,10 +210,20 @@ public class PermissionIndexer implements ProjectIndexer {
     remainingProjectUuids.forEach(projectUuid -> bulkIndexers.forEach(bi -> bi.addDeletion(bi.getIndexType(), projectUuid, projectUuid)));
 
     bulkIndexers.forEach(b -> result.add(b.stop()));
+    evictCaches();
 
     return result;
   }
 
+  /**
+   * Facets of issues are cached per authorization scope of users, so they can't be kept
+   * once the permissions of any project changed.
+   */
+  private void evictCaches() {
+    authorizedProjectsCache.evictAll();
+    issueFacetsCache.evictAll();
+  }
+
   private static IndexRequest newIndexRequest(PermissionIndexerDao.Dto dto, IndexType indexType) {
     Map<String, Object> doc = new HashMap<>();
     if (dto.isAllowAnyone()) {
@@ -19,6 +19,7 @@
  */
 package org.sonar.server.platform.monitoring;
 
+import java.util.Locale;
 import java.util.Map;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.action.admin.indices.stats.IndexStats;
@@ -28,18 +29,27 @@ import org.sonar.api.utils.log.Loggers;
 import org.sonar.process.systeminfo.Global;
 import org.sonar.process.systeminfo.SystemInfoSection;
 import org.sonar.process.systeminfo.protobuf.ProtobufSystemInfo;
+import org.sonar.server.es.BulkIndexer;
+import org.sonar.server.es.BulkIndexerMetrics.IndexMetrics;
 import org.sonar.server.es.EsClient;
+import org.sonar.server.es.RecoveryIndexer;
+import org.sonar.server.issue.index.IssueFacetsCache;
 
 import static org.apache.commons.io.FileUtils.byteCountToDisplaySize;
 import static org.sonar.process.systeminfo.SystemInfoUtils.setAttribute;
+import static org.sonar.server.issue.index.IssueIndexDefinition.INDEX_TYPE_ISSUE;
 
 @ServerSide
 public class EsIndexesSection implements SystemInfoSection, Global {
 
   private final EsClient esClient;
+  private final IssueFacetsCache issueFacetsCache;
+  private final RecoveryIndexer recoveryIndexer;
 
-  public EsIndexesSection(EsClient esClient) {
+  public EsIndexesSection(EsClient esClient, IssueFacetsCache issueFacetsCache, RecoveryIndexer recoveryIndexer) {
     this.esClient = esClient;
+    this.issueFacetsCache = issueFacetsCache;
+    this.recoveryIndexer = recoveryIndexer;
   }
 
   @Override
@@ -52,9 +62,20 @@ public class EsIndexesSection implements SystemInfoSection, Global {
       Loggers.get(EsIndexesSection.class).warn("Failed to retrieve ES attributes. There will be only a single \"Error\" attribute.", es);
       setAttribute(protobuf, "Error", es.getCause() instanceof ElasticsearchException ? es.getCause().getMessage() : es.getMessage());
     }
+    completeRecoveryAttributes(protobuf);
     return protobuf.build();
   }
 
+  /**
+   * The backlog is read from DB, so it is shared by all the nodes of a cluster. The last run is
+   * the one of the current node.
+   */
+  private void completeRecoveryAttributes(ProtobufSystemInfo.Section.Builder protobuf) {
+    setAttribute(protobuf, "Recovery Queue Size", recoveryIndexer.countBacklog());
+    setAttribute(protobuf, "Recovery Last Run Documents", recoveryIndexer.getLastRunDocuments());
+    setAttribute(protobuf, "Recovery Last Run Throughput (docs/s)", recoveryIndexer.getLastRunDocumentsPerSecond());
+  }
+
   private void completeIndexAttributes(ProtobufSystemInfo.Section.Builder protobuf) {
     IndicesStatsResponse indicesStats = esClient.prepareStats().all().get();
     for (Map.Entry<String, IndexStats> indexStats : indicesStats.getIndices().entrySet()) {
@@ -62,6 +83,31 @@ public class EsIndexesSection implements SystemInfoSection, Global {
       setAttribute(protobuf, prefix + "Docs", indexStats.getValue().getPrimaries().getDocs().getCount());
       setAttribute(protobuf, prefix + "Shards", indexStats.getValue().getShards().length);
       setAttribute(protobuf, prefix + "Store Size", byteCountToDisplaySize(indexStats.getValue().getPrimaries().getStore().getSizeInBytes()));
+      esClient.getBulkIndexerMetrics().get(indexStats.getKey()).ifPresent(metrics -> completeBulkAttributes(protobuf, prefix, metrics));
+      if (INDEX_TYPE_ISSUE.getIndex().equals(indexStats.getKey())) {
+        completeFacetsCacheAttributes(protobuf, prefix);
+      }
+    }
+  }
+
+  private void completeFacetsCacheAttributes(ProtobufSystemInfo.Section.Builder protobuf, String prefix) {
+    setAttribute(protobuf, prefix + "Facets Cache Entries", issueFacetsCache.size());
+    setAttribute(protobuf, prefix + "Facets Cache Hits", issueFacetsCache.getHits());
+    setAttribute(protobuf, prefix + "Facets Cache Misses", issueFacetsCache.getMisses());
+    setAttribute(protobuf, prefix + "Facets Cache Hit Ratio (%)", issueFacetsCache.getHitRatio());
+  }
+
+  private static void completeBulkAttributes(ProtobufSystemInfo.Section.Builder protobuf, String prefix, IndexMetrics metrics) {
+    setAttribute(protobuf, prefix + "Bulk Requests", metrics.getBulkRequests());
+    setAttribute(protobuf, prefix + "Bulk Documents", metrics.getDocuments());
+    setAttribute(protobuf, prefix + "Bulk Failed Documents", metrics.getFailures());
+    setAttribute(protobuf, prefix + "Bulk Rejected Documents", metrics.getRejections());
+    setAttribute(protobuf, prefix + "Bulk Mean Latency (ms)", metrics.getMeanLatencyMs());
+    setAttribute(protobuf, prefix + "Bulk Throughput (docs/s)", metrics.getDocumentsPerSecond());
+    for (BulkIndexer.Size size : metrics.getIndexerSizes()) {
+      String sizeSuffix = " (" + size.name().toLowerCase(Locale.ENGLISH) + ")";
+      setAttribute(protobuf, prefix + "Bulk Size" + sizeSuffix, byteCountToDisplaySize(metrics.getBulkSizeBytes(size)));
+      setAttribute(protobuf, prefix + "Bulk Concurrent Requests" + sizeSuffix, metrics.getConcurrentRequests(size));
     }
   }
 }
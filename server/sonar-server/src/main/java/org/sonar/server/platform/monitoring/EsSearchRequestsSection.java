@@ -0,0 +1,76 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.sonar.process.systeminfo.protobuf.ProtobufSystemInfo;
+import org.sonar.server.es.EsClient;
+import org.sonar.server.es.SearchRequestMetrics.IndexMetrics;
+
+import static org.sonar.process.systeminfo.SystemInfoUtils.setAttribute;
+
+/**
+ * Latency of the search requests sent by the web server to Elasticsearch
+ */
+public class EsSearchRequestsSection extends BaseSectionMBean implements EsSearchRequestsSectionMBean {
+
+  private final EsClient esClient;
+
+  public EsSearchRequestsSection(EsClient esClient) {
+    this.esClient = esClient;
+  }
+
+  @Override
+  public String name() {
+    return "SearchRequests";
+  }
+
+  @Override
+  public long getRequests() {
+    return esClient.getSearchRequestMetrics().getAll().values().stream().mapToLong(IndexMetrics::getRequests).sum();
+  }
+
+  @Override
+  public long getTimedOutRequests() {
+    return esClient.getSearchRequestMetrics().getAll().values().stream().mapToLong(IndexMetrics::getTimedOutRequests).sum();
+  }
+
+  @Override
+  public Map<String, Map<String, Long>> getLatencyHistograms() {
+    Map<String, Map<String, Long>> histograms = new LinkedHashMap<>();
+    esClient.getSearchRequestMetrics().getAll().forEach((index, metrics) -> histograms.put(index, metrics.getLatencyHistogram()));
+    return histograms;
+  }
+
+  @Override
+  public ProtobufSystemInfo.Section toProtobuf() {
+    ProtobufSystemInfo.Section.Builder protobuf = ProtobufSystemInfo.Section.newBuilder();
+    protobuf.setName("Web Search Requests");
+    esClient.getSearchRequestMetrics().getAll().forEach((index, metrics) -> {
+      String prefix = "Index " + index + " - ";
+      setAttribute(protobuf, prefix + "Requests", metrics.getRequests());
+      setAttribute(protobuf, prefix + "Timed Out Requests", metrics.getTimedOutRequests());
+      setAttribute(protobuf, prefix + "Mean Latency (ms)", metrics.getMeanLatencyMs());
+      metrics.getLatencyHistogram().forEach((range, count) -> setAttribute(protobuf, prefix + "Latency " + range, count));
+    });
+    return protobuf.build();
+  }
+}
@@ -0,0 +1,40 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+import java.util.Map;
+
+public interface EsSearchRequestsSectionMBean {
+
+  /**
+   * Number of search requests since startup, all indices included
+   */
+  long getRequests();
+
+  /**
+   * Number of search requests that reached the timeout, all indices included. Their results are partial.
+   */
+  long getTimedOutRequests();
+
+  /**
+   * Number of search requests per index and per range of latency, for example "<= 100 ms"
+   */
+  Map<String, Map<String, Long>> getLatencyHistograms();
+}
@@ -48,6 +48,7 @@ public class WebSystemInfoModule {
       DbConnectionSection.class,
       EsStateSection.class,
       EsIndexesSection.class,
+      EsSearchRequestsSection.class,
       LoggingSection.class,
       PluginsSection.class,
       SettingsSection.class,
@@ -67,6 +68,7 @@ public class WebSystemInfoModule {
       DbSection.class,
       DbConnectionSection.class,
       EsIndexesSection.class,
+      EsSearchRequestsSection.class,
       EsClusterStateSection.class,
       GlobalSystemSection.class,
       LoggingSection.class,
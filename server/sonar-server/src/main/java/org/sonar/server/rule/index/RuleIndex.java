@@ -141,7 +141,7 @@ public class RuleIndex {
 
   public SearchIdResult<RuleKey> search(RuleQuery query, SearchOptions options) {
     SearchRequestBuilder esSearch = client
-      .prepareSearch(INDEX_TYPE_RULE);
+      .prepareSearch(options.isPartialResultsAllowed(), INDEX_TYPE_RULE);
 
     QueryBuilder qb = buildQuery(query);
     Map<String, QueryBuilder> filters = buildFilters(query);
@@ -40,6 +40,7 @@ import org.sonar.api.rule.RuleKey;
 import org.sonar.api.rule.RuleStatus;
 import org.sonar.api.rule.Severity;
 import org.sonar.api.rules.RuleType;
+import org.sonar.api.server.ws.Change;
 import org.sonar.api.server.ws.Request;
 import org.sonar.api.server.ws.Response;
 import org.sonar.api.server.ws.WebService;
@@ -179,6 +180,9 @@ public class SearchAction implements RulesWsAction {
     response.setTotal(searchResult.total);
     response.setP(context.getPage());
     response.setPs(context.getLimit());
+    if (searchResult.timedOut) {
+      response.setPartial(true);
+    }
   }
 
   private void doDefinition(WebService.NewAction action) {
@@ -194,6 +198,7 @@ public class SearchAction implements RulesWsAction {
       "</ul>")
       .setResponseExample(getClass().getResource("search-example.json"))
       .setSince("4.4")
+      .setChangelog(new Change("7.0", "The 'partial' field is added. It's true when the search timed out, in which case rules, total and facets are partial"))
       .setHandler(this);
 
     // Rule-specific search parameters
@@ -325,7 +330,9 @@ public class SearchAction implements RulesWsAction {
     SearchOptions context = loadCommonContext(request);
     SearchOptions searchOptions = new SearchOptions()
       .setLimit(context.getLimit())
-      .setOffset(context.getOffset());
+      .setOffset(context.getOffset())
+      // the response is flagged as partial if the request times out
+      .setPartialResultsAllowed(true);
     if (context.getFacets().contains(RuleIndex.FACET_OLD_DEFAULT)) {
       searchOptions.addFacets(DEFAULT_FACETS);
     } else {
@@ -373,7 +380,8 @@ public class SearchAction implements RulesWsAction {
       .setRuleParameters(ruleParamDtos)
       .setTemplateRules(templateRules)
       .setFacets(result.getFacets())
-      .setTotal(result.getTotal());
+      .setTotal(result.getTotal())
+      .setTimedOut(result.isTimedOut());
   }
 
   private void doContextResponse(DbSession dbSession, SearchWsRequest request, SearchResult result, SearchResponse.Builder response, RuleQuery query) {
@@ -477,6 +485,7 @@ public class SearchAction implements RulesWsAction {
     private final ListMultimap<Integer, RuleParamDto> ruleParamsByRuleId;
     private final Map<Integer, RuleDefinitionDto> templateRulesByRuleId;
     private Long total;
+    private boolean timedOut;
     private Facets facets;
 
     public SearchResult() {
@@ -537,6 +546,15 @@ public class SearchAction implements RulesWsAction {
       this.facets = facets;
       return this;
     }
+
+    public boolean isTimedOut() {
+      return timedOut;
+    }
+
+    public SearchResult setTimedOut(boolean timedOut) {
+      this.timedOut = timedOut;
+      return this;
+    }
   }
 
 }
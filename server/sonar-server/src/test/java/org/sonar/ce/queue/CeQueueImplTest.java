@@ -40,6 +40,7 @@ import org.sonar.db.DbTester;
 import org.sonar.db.ce.CeActivityDto;
 import org.sonar.db.ce.CeQueueDto;
 import org.sonar.db.ce.CeTaskTypes;
+import org.sonar.db.ce.EligibleTaskDto;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.ComponentTesting;
 import org.sonar.server.organization.DefaultOrganizationProvider;
@@ -145,7 +146,7 @@ public class CeQueueImplTest {
   @Test
   public void fail_to_cancel_if_in_progress() throws Exception {
     submit(CeTaskTypes.REPORT, "PROJECT_1");
-    CeQueueDto ceQueueDto = db.getDbClient().ceQueueDao().peek(session, WORKER_UUID, MAX_EXECUTION_COUNT).get();
+    CeQueueDto ceQueueDto = peek();
 
     expectedException.expect(IllegalStateException.class);
     expectedException.expectMessage(startsWith("Task is in progress and can't be canceled"));
@@ -159,7 +160,7 @@ public class CeQueueImplTest {
     CeTask pendingTask1 = submit(CeTaskTypes.REPORT, "PROJECT_2");
     CeTask pendingTask2 = submit(CeTaskTypes.REPORT, "PROJECT_3");
 
-    db.getDbClient().ceQueueDao().peek(session, WORKER_UUID, MAX_EXECUTION_COUNT);
+    peek();
 
     int canceledCount = underTest.cancelAll();
     assertThat(canceledCount).isEqualTo(2);
@@ -230,4 +231,9 @@ public class CeQueueImplTest {
     session.commit();
     return componentDto;
   }
+
+  private CeQueueDto peek() {
+    EligibleTaskDto eligible = db.getDbClient().ceQueueDao().selectEligibleForPeek(session, MAX_EXECUTION_COUNT, 1).get(0);
+    return db.getDbClient().ceQueueDao().tryToPeek(session, eligible, WORKER_UUID).get();
+  }
 }
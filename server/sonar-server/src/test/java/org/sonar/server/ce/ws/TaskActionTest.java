@@ -122,9 +122,30 @@ public class TaskActionTest {
     assertThat(task.getComponentName()).isEqualTo(project.name());
     assertThat(task.getAnalysisId()).isEqualTo(activityDto.getAnalysisUuid());
     assertThat(task.getExecutionTimeMs()).isEqualTo(500L);
+    assertThat(task.hasCpuTimeMs()).isFalse();
+    assertThat(task.hasAllocatedBytes()).isFalse();
+    assertThat(task.hasDbTimeMs()).isFalse();
     assertThat(task.getLogs()).isFalse();
   }
 
+  @Test
+  public void return_resource_usage_of_archived_task() {
+    logInAsRoot();
+
+    persist(createActivityDto(SOME_TASK_UUID)
+      .setCpuTimeMs(400L)
+      .setAllocatedBytes(1_000_000L)
+      .setDbTimeMs(50L));
+
+    Ce.Task task = ws.newRequest()
+      .setParam("id", SOME_TASK_UUID)
+      .executeProtobuf(Ce.TaskResponse.class)
+      .getTask();
+    assertThat(task.getCpuTimeMs()).isEqualTo(400L);
+    assertThat(task.getAllocatedBytes()).isEqualTo(1_000_000L);
+    assertThat(task.getDbTimeMs()).isEqualTo(50L);
+  }
+
   @Test
   public void long_living_branch_in_past_activity() {
     logInAsRoot();
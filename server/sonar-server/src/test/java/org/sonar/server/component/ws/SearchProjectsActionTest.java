@@ -151,7 +151,8 @@ public class SearchProjectsActionTest {
       tuple("6.4", "The 'visibility' field is added"),
       tuple("6.5", "The 'filter' parameter now allows 'NO_DATA' as value for numeric metrics"),
       tuple("6.5", "Added the option 'analysisDate' for the 'sort' parameter"),
-      tuple("6.5", "Value 'leakPeriodDate' is added to parameter 'f'"));
+      tuple("6.5", "Value 'leakPeriodDate' is added to parameter 'f'"),
+      tuple("7.0", "The 'partial' field is added. It's true when the search timed out, in which case components, total and facets are partial"));
 
     Param organization = def.param("organization");
     assertThat(organization.isRequired()).isFalse();
@@ -22,9 +22,11 @@ package org.sonar.server.computation.task.projectanalysis.batch;
 import java.io.File;
 import java.io.IOException;
 import org.apache.commons.io.FileUtils;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.sonar.api.utils.ZipUtils;
 import org.sonar.api.utils.internal.JUnitTempFolder;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.scanner.protocol.output.ScannerReport;
@@ -59,9 +61,25 @@ public class BatchReportReaderImplTest {
 
   @Before
   public void setUp() {
-    BatchReportDirectoryHolder holder = new ImmutableBatchReportDirectoryHolder(tempFolder.newDir());
-    underTest = new BatchReportReaderImpl(holder);
-    writer = new ScannerReportWriter(holder.getDirectory());
+    File reportDir = tempFolder.newDir();
+    writer = new ScannerReportWriter(reportDir);
+    // report is zipped when first read, after being written by the test
+    underTest = new BatchReportReaderImpl(() -> zip(reportDir));
+  }
+
+  @After
+  public void tearDown() {
+    underTest.stop();
+  }
+
+  private File zip(File reportDir) {
+    File zip = new File(tempFolder.newDir(), "report.zip");
+    try {
+      ZipUtils.zipDir(reportDir, zip);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    return zip;
   }
 
   @Test(expected = IllegalStateException.class)
@@ -95,6 +113,15 @@ public class BatchReportReaderImplTest {
     assertThat(logs.hasNext()).isFalse();
   }
 
+  @Test
+  public void stop_closes_zip_file_which_is_reopened_when_read_again() {
+    writer.writeComponent(COMPONENT);
+
+    assertThat(underTest.readComponent(COMPONENT_REF)).isEqualTo(COMPONENT);
+    underTest.stop();
+    assertThat(underTest.readComponent(COMPONENT_REF)).isEqualTo(COMPONENT);
+  }
+
   @Test
   public void readComponentMeasures_returns_empty_list_if_there_is_no_measure() {
     assertThat(underTest.readComponentMeasures(COMPONENT_REF)).isEmpty();
@@ -24,19 +24,19 @@ import org.junit.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
-public class BatchReportDirectoryHolderImplTest {
+public class BatchReportZipHolderImplTest {
 
   @Test(expected = IllegalStateException.class)
-  public void getDirectory_throws_ISE_if_holder_is_empty() {
-    new BatchReportDirectoryHolderImpl().getDirectory();
+  public void getZipFile_throws_ISE_if_holder_is_empty() {
+    new BatchReportZipHolderImpl().getZipFile();
   }
 
   @Test
-  public void getDirectory_returns_File_set_with_setDirectory() {
+  public void getZipFile_returns_File_set_with_setZipFile() {
     File file = new File("");
-    BatchReportDirectoryHolderImpl holder = new BatchReportDirectoryHolderImpl();
-    holder.setDirectory(file);
+    BatchReportZipHolderImpl holder = new BatchReportZipHolderImpl();
+    holder.setZipFile(file);
 
-    assertThat(holder.getDirectory()).isSameAs(file);
+    assertThat(holder.getZipFile()).isSameAs(file);
   }
 }
@@ -34,6 +34,10 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatcher;
+import org.sonar.api.utils.internal.JUnitTempFolder;
+import org.sonar.api.utils.log.LogTester;
+import org.sonar.api.utils.log.LoggerLevel;
 import org.sonar.core.hash.SourceLinesHashesComputer;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
@@ -47,15 +51,22 @@ import org.sonar.server.computation.task.projectanalysis.analysis.AnalysisMetada
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.ReportComponent;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolderRule;
+import org.sonar.server.computation.task.projectanalysis.source.SourceLinesHashRepositoryImpl;
 import org.sonar.server.computation.task.projectanalysis.source.SourceLinesRepositoryRule;
 
 import static com.google.common.base.Joiner.on;
+import static java.util.Arrays.copyOf;
 import static java.util.Arrays.stream;
 import static java.util.stream.Collectors.toList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.argThat;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.sonar.api.resources.Qualifiers.FILE;
 import static org.sonar.api.resources.Qualifiers.UNIT_TEST_FILE;
@@ -221,17 +232,21 @@ public class FileMoveDetectionStepTest {
   @Rule
   public SourceLinesRepositoryRule sourceLinesRepository = new SourceLinesRepositoryRule();
   @Rule
+  public JUnitTempFolder temp = new JUnitTempFolder();
+  @Rule
   public MutableMovedFilesRepositoryRule movedFilesRepository = new MutableMovedFilesRepositoryRule();
+  @Rule
+  public LogTester logTester = new LogTester();
 
   private DbClient dbClient = mock(DbClient.class);
   private DbSession dbSession = mock(DbSession.class);
   private ComponentDao componentDao = mock(ComponentDao.class);
   private FileSourceDao fileSourceDao = mock(FileSourceDao.class);
-  private FileSimilarity fileSimilarity = new FileSimilarityImpl(new SourceSimilarityImpl());
+  private FileSimilarity fileSimilarity = spy(new FileSimilarityImpl(new SourceSimilarityImpl()));
   private long dbIdGenerator = 0;
 
   private FileMoveDetectionStep underTest = new FileMoveDetectionStep(analysisMetadataHolder, treeRootHolder, dbClient,
-    sourceLinesRepository, fileSimilarity, movedFilesRepository);
+    new SourceLinesHashRepositoryImpl(sourceLinesRepository, temp), fileSimilarity, movedFilesRepository);
 
   @Before
   public void setUp() throws Exception {
@@ -454,6 +469,61 @@ public class FileMoveDetectionStepTest {
     assertThat(originalFile5.getUuid()).isEqualTo(dtos[3].uuid());
   }
 
+  @Test
+  public void execute_scores_only_pairs_of_files_with_close_numbers_of_lines() {
+    analysisMetadataHolder.setBaseAnalysis(ANALYSIS);
+    mockComponents(FILE_1.getKey());
+    mockContentOfFileInDb(FILE_1.getKey(), CONTENT1);
+    setFilesInReport(FILE_2, FILE_3);
+    // one line more than CONTENT1: can still have the required score
+    String[] content1WithOneMoreLine = copyOf(CONTENT1, CONTENT1.length + 1);
+    content1WithOneMoreLine[CONTENT1.length] = "// comment";
+    setFileContentInReport(FILE_2_REF, content1WithOneMoreLine);
+    // too few lines to have the required score, whatever the content
+    setFileContentInReport(FILE_3_REF, LESS_CONTENT1);
+
+    underTest.execute();
+
+    assertThat(movedFilesRepository.getComponentsWithOriginal()).containsExactly(FILE_2);
+    verify(fileSimilarity, times(1)).score(any(FileSimilarity.File.class), any(FileSimilarity.File.class));
+    verify(fileSimilarity, never()).score(any(FileSimilarity.File.class), argThat(hasLines(LESS_CONTENT1.length)));
+  }
+
+  @Test
+  public void execute_detects_move_of_file_listed_after_a_file_without_path_in_DB() {
+    analysisMetadataHolder.setBaseAnalysis(ANALYSIS);
+    ComponentDto[] dtos = mockComponents(key -> key.equals(FILE_1.getKey()) ? newComponentDto(key).setPath(null) : newComponentDto(key),
+      FILE_1.getKey(), FILE_2.getKey());
+    mockContentOfFileInDb(FILE_1.getKey(), LESS_CONTENT1);
+    mockContentOfFileInDb(FILE_2.getKey(), CONTENT1);
+    setFilesInReport(FILE_3);
+    setFileContentInReport(FILE_3_REF, CONTENT1);
+
+    underTest.execute();
+
+    assertThat(movedFilesRepository.getComponentsWithOriginal()).containsExactly(FILE_3);
+    assertThat(movedFilesRepository.getOriginalFile(FILE_3).get().getKey()).isEqualTo(dtos[1].getDbKey());
+  }
+
+  @Test
+  public void execute_detects_no_move_if_too_many_pairs_of_files_have_to_be_scored() {
+    FileMoveDetectionStep underTest = new FileMoveDetectionStep(analysisMetadataHolder, treeRootHolder, dbClient,
+      new SourceLinesHashRepositoryImpl(sourceLinesRepository, temp), fileSimilarity, movedFilesRepository, 1);
+    analysisMetadataHolder.setBaseAnalysis(ANALYSIS);
+    mockComponents(FILE_1.getKey());
+    mockContentOfFileInDb(FILE_1.getKey(), CONTENT1);
+    setFilesInReport(FILE_2, FILE_3);
+    setFileContentInReport(FILE_2_REF, CONTENT1);
+    setFileContentInReport(FILE_3_REF, CONTENT1);
+
+    underTest.execute();
+
+    assertThat(movedFilesRepository.getComponentsWithOriginal()).isEmpty();
+    verify(fileSimilarity, never()).score(any(FileSimilarity.File.class), any(FileSimilarity.File.class));
+    assertThat(logTester.logs(LoggerLevel.WARN))
+      .containsExactly("File move detection is skipped: 2 pairs of files would have to be scored, more than the limit of 1");
+  }
+
   /**
    * JH: A bug was encountered in the algorithm and I didn't manage to forge a simpler test case.
    */
@@ -497,6 +567,15 @@ public class FileMoveDetectionStepTest {
       .isEqualTo("AddComponentUuidColumnToDuplicationsIndex.java");
   }
 
+  private static ArgumentMatcher<FileSimilarity.File> hasLines(int lines) {
+    return new ArgumentMatcher<FileSimilarity.File>() {
+      @Override
+      public boolean matches(Object argument) {
+        return ((FileSimilarity.File) argument).getLineHashes().size() == lines;
+      }
+    };
+  }
+
   private String[] readLines(File filename) throws IOException {
     return FileUtils
       .readLines(filename, StandardCharsets.UTF_8)
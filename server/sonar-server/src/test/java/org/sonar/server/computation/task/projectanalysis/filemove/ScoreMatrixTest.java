@@ -0,0 +1,59 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.filemove;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ScoreMatrixTest {
+
+  private int[][] reportFileIndexes = {
+    {1, 2},
+    null,
+    {0}
+  };
+  private int[][] scores = {
+    {90, 60},
+    null,
+    {100}
+  };
+  private ScoreMatrix underTest = new ScoreMatrix(asList("A", "B", "C"), asList("1", "2", "3"), reportFileIndexes, scores, 100);
+
+  @Test
+  public void visit_only_scores_greater_than_or_equal_to_min_required_score() {
+    List<String> visited = new ArrayList<>();
+
+    underTest.accept((dbFileKey, reportFileKey, score) -> visited.add(dbFileKey + reportFileKey + "=" + score));
+
+    assertThat(visited).containsExactly("A2=90", "C1=100");
+  }
+
+  @Test
+  public void scores_which_are_not_kept_are_zero_in_csv() {
+    assertThat(underTest.toCsv(';')).isEqualTo(";1;2;3;\n" +
+      "A;0;90;60;\n" +
+      "B;0;0;0;\n" +
+      "C;100;0;0;");
+  }
+}
@@ -19,6 +19,7 @@
  */
 package org.sonar.server.computation.task.projectanalysis.filemove;
 
+import java.util.ArrayList;
 import java.util.List;
 import org.junit.Rule;
 import org.junit.Test;
@@ -59,4 +60,25 @@ public class SourceSimilarityImplTest {
   public void two_empty_lists_are_not_considered_as_equal() {
     assertThat(underTest.score(emptyList(), emptyList())).isEqualTo(0);
   }
+
+  @Test
+  public void max_score_depends_on_difference_of_sizes() {
+    assertThat(underTest.maxScore(asList("a", "b", "c"), asList("d", "e", "f"))).isEqualTo(100);
+    assertThat(underTest.maxScore(asList("a"), asList("a", "b", "c"))).isEqualTo(33);
+    assertThat(underTest.maxScore(asList("a", "b", "c"), asList("a"))).isEqualTo(33);
+    assertThat(underTest.maxScore(emptyList(), asList("a"))).isEqualTo(0);
+    assertThat(underTest.maxScore(emptyList(), emptyList())).isEqualTo(0);
+  }
+
+  @Test
+  public void max_score_is_never_lower_than_score() {
+    List<String> left = asList("a", "b", "c", "d", "e", "f", "g");
+    for (int size = 0; size <= 10; size++) {
+      List<String> right = new ArrayList<>();
+      for (int i = 0; i < size; i++) {
+        right.add(i % 2 == 0 ? left.get(i % left.size()) : "x");
+      }
+      assertThat(underTest.maxScore(left, right)).isGreaterThanOrEqualTo(underTest.score(left, right));
+    }
+  }
 }
@@ -0,0 +1,74 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.issue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ChangedIssuesRepositoryImplTest {
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  private ChangedIssuesRepositoryImpl underTest = new ChangedIssuesRepositoryImpl(2);
+
+  @Test
+  public void no_changed_issues_by_default() {
+    assertThat(underTest.getChangedIssueKeys().get()).isEmpty();
+  }
+
+  @Test
+  public void add_changed_issue_keys() {
+    underTest.addChangedIssueKey("I1");
+    underTest.addChangedIssueKey("I2");
+    underTest.addChangedIssueKey("I1");
+
+    assertThat(underTest.getChangedIssueKeys().get()).containsOnly("I1", "I2");
+  }
+
+  @Test
+  public void all_issues_are_changed_when_threshold_is_exceeded() {
+    underTest.addChangedIssueKey("I1");
+    underTest.addChangedIssueKey("I2");
+    underTest.addChangedIssueKey("I3");
+
+    assertThat(underTest.getChangedIssueKeys()).isEmpty();
+  }
+
+  @Test
+  public void mark_all_issues_changed() {
+    underTest.addChangedIssueKey("I1");
+    underTest.markAllIssuesChanged();
+    underTest.addChangedIssueKey("I2");
+
+    assertThat(underTest.getChangedIssueKeys()).isEmpty();
+  }
+
+  @Test
+  public void fail_if_key_is_null() {
+    expectedException.expect(NullPointerException.class);
+    expectedException.expectMessage("issueKey can't be null");
+
+    underTest.addChangedIssueKey(null);
+  }
+}
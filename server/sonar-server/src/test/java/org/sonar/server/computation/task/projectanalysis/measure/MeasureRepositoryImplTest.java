@@ -34,17 +34,22 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.sonar.api.utils.System2;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
+import org.sonar.db.measure.MeasureDao;
 import org.sonar.db.measure.MeasureDto;
+import org.sonar.db.measure.MeasureQuery;
 import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.scanner.protocol.output.ScannerReport.Measure.StringValue;
 import org.sonar.server.computation.task.projectanalysis.batch.BatchReportReader;
 import org.sonar.server.computation.task.projectanalysis.batch.BatchReportReaderRule;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.ReportComponent;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolderRule;
 import org.sonar.server.computation.task.projectanalysis.metric.Metric;
 import org.sonar.server.computation.task.projectanalysis.metric.MetricImpl;
 import org.sonar.server.computation.task.projectanalysis.metric.MetricRepository;
@@ -52,10 +57,15 @@ import org.sonar.server.computation.task.projectanalysis.metric.ReportMetricVali
 
 import static com.google.common.collect.FluentIterable.from;
 import static java.lang.String.format;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.guava.api.Assertions.assertThat;
 import static org.junit.Assert.fail;
+import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
@@ -73,6 +83,10 @@ public class MeasureRepositoryImplTest {
 
   private static final String FILE_COMPONENT_KEY = "file cpt key";
   private static final ReportComponent FILE_COMPONENT = ReportComponent.builder(Component.Type.FILE, 1).setKey(FILE_COMPONENT_KEY).build();
+
+  @Rule
+  public TreeRootHolderRule treeRootHolder = new TreeRootHolderRule().setRoot(FILE_COMPONENT);
+
   private static final ReportComponent OTHER_COMPONENT = ReportComponent.builder(Component.Type.FILE, 2).setKey("some other key").build();
   private static final String METRIC_KEY_1 = "metric 1";
   private static final int METRIC_ID_1 = 1;
@@ -89,19 +103,23 @@ public class MeasureRepositoryImplTest {
 
   private DbClient dbClient = dbTester.getDbClient();
   private MetricRepository metricRepository = mock(MetricRepository.class);
-  private MeasureRepositoryImpl underTest = new MeasureRepositoryImpl(dbClient, reportReader, metricRepository, reportMetricValidator);
+  private MeasureRepositoryImpl underTest = new MeasureRepositoryImpl(dbClient, reportReader, metricRepository, reportMetricValidator, treeRootHolder);
 
   private DbClient mockedDbClient = mock(DbClient.class);
   private BatchReportReader mockBatchReportReader = mock(BatchReportReader.class);
-  private MeasureRepositoryImpl underTestWithMock = new MeasureRepositoryImpl(mockedDbClient, mockBatchReportReader, metricRepository, reportMetricValidator);
+  private TreeRootHolder mockedTreeRootHolder = mock(TreeRootHolder.class);
+  private MeasureRepositoryImpl underTestWithMock = new MeasureRepositoryImpl(mockedDbClient, mockBatchReportReader, metricRepository, reportMetricValidator,
+    mockedTreeRootHolder);
 
   private DbSession dbSession = dbTester.getSession();
 
   @Before
   public void setUp() {
     when(metric1.getKey()).thenReturn(METRIC_KEY_1);
+    when(metric1.getId()).thenReturn(METRIC_ID_1);
     when(metric1.getType()).thenReturn(Metric.MetricType.STRING);
     when(metric2.getKey()).thenReturn(METRIC_KEY_2);
+    when(metric2.getId()).thenReturn(METRIC_ID_2);
     when(metric2.getType()).thenReturn(Metric.MetricType.STRING);
 
     // references to metrics are consistent with DB by design
@@ -155,6 +173,45 @@ public class MeasureRepositoryImplTest {
     assertThat(res).isAbsent();
   }
 
+  @Test
+  public void getBaseMeasure_loads_measures_of_components_of_tree_in_a_single_request() {
+    ReportComponent directory = ReportComponent.builder(Component.Type.DIRECTORY, 3).addChildren(FILE_COMPONENT, OTHER_COMPONENT).build();
+    when(mockedTreeRootHolder.getRoot()).thenReturn(directory);
+    MeasureDao measureDao = mock(MeasureDao.class);
+    when(mockedDbClient.openSession(false)).thenReturn(mock(DbSession.class));
+    when(mockedDbClient.measureDao()).thenReturn(measureDao);
+    when(measureDao.selectByQuery(any(DbSession.class), any(MeasureQuery.class)))
+      .thenReturn(asList(
+        createMeasureDto(METRIC_ID_1, FILE_COMPONENT.getUuid(), LAST_ANALYSIS_UUID),
+        createMeasureDto(METRIC_ID_2, OTHER_COMPONENT.getUuid(), LAST_ANALYSIS_UUID)));
+
+    assertThat(underTestWithMock.getBaseMeasure(FILE_COMPONENT, metric1)).isPresent();
+    assertThat(underTestWithMock.getBaseMeasure(FILE_COMPONENT, metric2)).isAbsent();
+    assertThat(underTestWithMock.getBaseMeasure(OTHER_COMPONENT, metric2)).isPresent();
+    assertThat(underTestWithMock.getBaseMeasure(directory, metric1)).isAbsent();
+
+    ArgumentCaptor<MeasureQuery> query = ArgumentCaptor.forClass(MeasureQuery.class);
+    verify(measureDao, times(1)).selectByQuery(any(DbSession.class), query.capture());
+    assertThat(query.getValue().getProjectUuid()).isEqualTo(directory.getUuid());
+    assertThat(query.getValue().getComponentUuids()).containsExactly(directory.getUuid(), FILE_COMPONENT.getUuid(), OTHER_COMPONENT.getUuid());
+  }
+
+  @Test
+  public void getBaseMeasure_loads_measures_of_component_outside_of_tree_on_its_own() {
+    when(mockedTreeRootHolder.getRoot()).thenReturn(FILE_COMPONENT);
+    MeasureDao measureDao = mock(MeasureDao.class);
+    when(mockedDbClient.openSession(false)).thenReturn(mock(DbSession.class));
+    when(mockedDbClient.measureDao()).thenReturn(measureDao);
+    when(measureDao.selectByQuery(any(DbSession.class), any(MeasureQuery.class)))
+      .thenReturn(singletonList(createMeasureDto(METRIC_ID_1, OTHER_COMPONENT.getUuid(), LAST_ANALYSIS_UUID)));
+
+    assertThat(underTestWithMock.getBaseMeasure(OTHER_COMPONENT, metric1)).isPresent();
+
+    ArgumentCaptor<MeasureQuery> query = ArgumentCaptor.forClass(MeasureQuery.class);
+    verify(measureDao).selectByQuery(any(DbSession.class), query.capture());
+    assertThat(query.getValue().getComponentUuid()).isEqualTo(OTHER_COMPONENT.getUuid());
+  }
+
   @Test
   public void add_throws_NPE_if_Component_argument_is_null() {
     expectedException.expect(NullPointerException.class);
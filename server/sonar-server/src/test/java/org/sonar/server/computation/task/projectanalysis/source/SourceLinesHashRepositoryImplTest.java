@@ -0,0 +1,118 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.source;
+
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.utils.internal.JUnitTempFolder;
+import org.sonar.core.hash.SourceLinesHashesComputer;
+import org.sonar.core.util.CloseableIterator;
+import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.ReportComponent;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SourceLinesHashRepositoryImplTest {
+  private static final int FILE_REF = 112;
+  private static final Component FILE_COMPONENT = ReportComponent.builder(Component.Type.FILE, FILE_REF).setKey("file key").build();
+  private static final String[] SOME_LINES = {"line 1", "", "  ", "line 4 minus 1", "line 100 by 10"};
+
+  @Rule
+  public SourceLinesRepositoryRule sourceLinesRepository = new SourceLinesRepositoryRule();
+  @Rule
+  public JUnitTempFolder temp = new JUnitTempFolder();
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  private SourceLinesRepository mockedSourceLinesRepository = mock(SourceLinesRepository.class);
+
+  private SourceLinesHashRepositoryImpl underTest = new SourceLinesHashRepositoryImpl(sourceLinesRepository, temp);
+  private SourceLinesHashRepositoryImpl mockedUnderTest = new SourceLinesHashRepositoryImpl(mockedSourceLinesRepository, temp);
+
+  @Test
+  public void getLineHashes_throws_NPE_if_Component_argument_is_null() {
+    expectedException.expect(NullPointerException.class);
+    expectedException.expectMessage("Specified component can not be null");
+
+    underTest.getLineHashes(null);
+  }
+
+  @Test
+  public void getLineHashes_throws_IAE_if_Component_argument_is_not_FILE() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Line hashes can only be retrieved from FILE components (got DIRECTORY)");
+
+    underTest.getLineHashes(ReportComponent.builder(Component.Type.DIRECTORY, 2).build());
+  }
+
+  @Test
+  public void getLineHashes_computes_hashes_of_lines() {
+    sourceLinesRepository.addLines(FILE_REF, SOME_LINES);
+
+    assertThat(underTest.getLineHashes(FILE_COMPONENT)).isEqualTo(computeLineHashes(SOME_LINES));
+  }
+
+  @Test
+  public void getLineHashes_returns_empty_list_for_empty_file() {
+    when(mockedSourceLinesRepository.readLines(FILE_COMPONENT)).thenReturn(CloseableIterator.emptyCloseableIterator());
+
+    assertThat(mockedUnderTest.getAndStoreLineHashes(FILE_COMPONENT)).isEmpty();
+    assertThat(mockedUnderTest.getLineHashes(FILE_COMPONENT)).isEmpty();
+  }
+
+  @Test
+  public void getLineHashes_does_not_store_line_hashes() {
+    when(mockedSourceLinesRepository.readLines(FILE_COMPONENT))
+      .thenReturn(CloseableIterator.from(Arrays.asList(SOME_LINES).iterator()))
+      .thenReturn(CloseableIterator.from(Arrays.asList(SOME_LINES).iterator()));
+
+    assertThat(mockedUnderTest.getLineHashes(FILE_COMPONENT)).isEqualTo(computeLineHashes(SOME_LINES));
+    assertThat(mockedUnderTest.getLineHashes(FILE_COMPONENT)).isEqualTo(computeLineHashes(SOME_LINES));
+
+    verify(mockedSourceLinesRepository, times(2)).readLines(FILE_COMPONENT);
+  }
+
+  @Test
+  public void getAndStoreLineHashes_reads_lines_of_file_only_once() {
+    when(mockedSourceLinesRepository.readLines(FILE_COMPONENT))
+      .thenReturn(CloseableIterator.from(Arrays.asList(SOME_LINES).iterator()));
+
+    assertThat(mockedUnderTest.getAndStoreLineHashes(FILE_COMPONENT)).isEqualTo(computeLineHashes(SOME_LINES));
+    assertThat(mockedUnderTest.getLineHashes(FILE_COMPONENT)).isEqualTo(computeLineHashes(SOME_LINES));
+    assertThat(mockedUnderTest.getAndStoreLineHashes(FILE_COMPONENT)).isEqualTo(computeLineHashes(SOME_LINES));
+
+    verify(mockedSourceLinesRepository, times(1)).readLines(FILE_COMPONENT);
+  }
+
+  private static List<String> computeLineHashes(String... lines) {
+    SourceLinesHashesComputer computer = new SourceLinesHashesComputer();
+    for (String line : lines) {
+      computer.addLine(line);
+    }
+    return computer.getLineHashes();
+  }
+}
@@ -26,11 +26,15 @@ import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.ReportComponent;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolderRule;
 import org.sonar.server.computation.task.projectanalysis.component.ViewsComponent;
+import org.sonar.server.computation.task.projectanalysis.issue.ChangedIssuesRepositoryImpl;
 import org.sonar.server.computation.task.step.ComputationStep;
 import org.sonar.server.es.ProjectIndexer;
+import org.sonar.server.issue.index.IssueIndexer;
 
+import static java.util.Collections.singleton;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.PROJECT;
 import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.VIEW;
 
@@ -67,6 +71,33 @@ public class IndexAnalysisStepTest extends BaseStepTest {
     verify(componentIndexer).indexOnAnalysis(PROJECT_UUID);
   }
 
+  @Test
+  public void index_only_changed_issues_when_they_are_known() {
+    treeRootHolder.setRoot(ReportComponent.builder(PROJECT, 1).setUuid(PROJECT_UUID).setKey(PROJECT_KEY).build());
+    IssueIndexer issueIndexer = mock(IssueIndexer.class);
+    ChangedIssuesRepositoryImpl changedIssuesRepository = new ChangedIssuesRepositoryImpl();
+    changedIssuesRepository.addChangedIssueKey("ISSUE_1");
+
+    new IndexAnalysisStep(treeRootHolder, issueIndexer, changedIssuesRepository, componentIndexer, issueIndexer).execute();
+
+    verify(issueIndexer).indexOnAnalysis(PROJECT_UUID, singleton("ISSUE_1"));
+    verifyNoMoreInteractions(issueIndexer);
+    verify(componentIndexer).indexOnAnalysis(PROJECT_UUID);
+  }
+
+  @Test
+  public void index_all_issues_when_all_issues_changed() {
+    treeRootHolder.setRoot(ReportComponent.builder(PROJECT, 1).setUuid(PROJECT_UUID).setKey(PROJECT_KEY).build());
+    IssueIndexer issueIndexer = mock(IssueIndexer.class);
+    ChangedIssuesRepositoryImpl changedIssuesRepository = new ChangedIssuesRepositoryImpl();
+    changedIssuesRepository.markAllIssuesChanged();
+
+    new IndexAnalysisStep(treeRootHolder, issueIndexer, changedIssuesRepository, issueIndexer).execute();
+
+    verify(issueIndexer).indexOnAnalysis(PROJECT_UUID);
+    verifyNoMoreInteractions(issueIndexer);
+  }
+
   @Override
   protected ComputationStep step() {
     return underTest;
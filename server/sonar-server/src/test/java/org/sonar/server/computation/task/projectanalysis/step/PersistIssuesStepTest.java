@@ -30,9 +30,12 @@ import org.junit.rules.TemporaryFolder;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.rules.RuleType;
 import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.LogTester;
+import org.sonar.api.utils.log.LoggerLevel;
 import org.sonar.core.issue.DefaultIssue;
 import org.sonar.core.issue.DefaultIssueComment;
 import org.sonar.core.issue.FieldDiffs;
+import org.sonar.db.BatchSession;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
@@ -46,12 +49,15 @@ import org.sonar.db.rule.RuleTesting;
 import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.server.computation.task.projectanalysis.analysis.AnalysisMetadataHolderRule;
 import org.sonar.server.computation.task.projectanalysis.batch.BatchReportReaderRule;
+import org.sonar.server.computation.task.projectanalysis.issue.ChangedIssuesRepositoryImpl;
 import org.sonar.server.computation.task.projectanalysis.issue.IssueCache;
 import org.sonar.server.computation.task.projectanalysis.issue.RuleRepositoryImpl;
 import org.sonar.server.computation.task.projectanalysis.issue.UpdateConflictResolver;
 import org.sonar.server.computation.task.step.ComputationStep;
 import org.sonar.server.util.cache.DiskCache;
 
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
@@ -71,6 +77,8 @@ public class PersistIssuesStepTest extends BaseStepTest {
   @Rule
   public DbTester db = DbTester.create(System2.INSTANCE);
   @Rule
+  public LogTester logTester = new LogTester();
+  @Rule
   public BatchReportReaderRule reportReader = new BatchReportReaderRule();
   @Rule
   public AnalysisMetadataHolderRule analysisMetadataHolder = new AnalysisMetadataHolderRule()
@@ -80,6 +88,7 @@ public class PersistIssuesStepTest extends BaseStepTest {
   private DbClient dbClient = db.getDbClient();
   private System2 system2;
   private IssueCache issueCache;
+  private ChangedIssuesRepositoryImpl changedIssuesRepository = new ChangedIssuesRepositoryImpl();
   private ComputationStep step;
 
   @Override
@@ -94,7 +103,8 @@ public class PersistIssuesStepTest extends BaseStepTest {
     when(system2.now()).thenReturn(NOW);
     reportReader.setMetadata(ScannerReport.Metadata.getDefaultInstance());
 
-    step = new PersistIssuesStep(dbClient, system2, new UpdateConflictResolver(), new RuleRepositoryImpl(dbClient, analysisMetadataHolder), issueCache);
+    step = new PersistIssuesStep(dbClient, system2, new UpdateConflictResolver(), new RuleRepositoryImpl(dbClient, analysisMetadataHolder), issueCache,
+      changedIssuesRepository);
   }
 
   @After
@@ -236,6 +246,7 @@ public class PersistIssuesStepTest extends BaseStepTest {
     assertThat(result.getSeverity()).isEqualTo(BLOCKER);
     assertThat(result.getStatus()).isEqualTo(STATUS_OPEN);
     assertThat(result.getType()).isEqualTo(RuleType.BUG.getDbConstant());
+    assertThat(changedIssuesRepository.getChangedIssueKeys()).contains(singleton("ISSUE"));
   }
 
   @Test
@@ -263,6 +274,20 @@ public class PersistIssuesStepTest extends BaseStepTest {
     IssueDto issueReloaded = db.getDbClient().issueDao().selectByKey(db.getSession(), issue.getKey()).get();
     assertThat(issueReloaded.getStatus()).isEqualTo(STATUS_CLOSED);
     assertThat(issueReloaded.getResolution()).isEqualTo(RESOLUTION_FIXED);
+    assertThat(changedIssuesRepository.getChangedIssueKeys()).contains(singleton(issue.getKey()));
+  }
+
+  @Test
+  public void do_not_record_unchanged_issue() {
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto file = db.components().insertComponent(newFileDto(project));
+    RuleDefinitionDto rule = db.rules().insert();
+    IssueDto issue = db.issues().insert(rule, project, file);
+    issueCache.newAppender().append(issue.toDefaultIssue().setNew(false).setChanged(false)).close();
+
+    step.execute();
+
+    assertThat(changedIssuesRepository.getChangedIssueKeys()).contains(emptySet());
   }
 
   @Test
@@ -335,4 +360,38 @@ public class PersistIssuesStepTest extends BaseStepTest {
       .containsOnly(IssueChangeDto.TYPE_FIELD_CHANGE, "john", "technicalDebt=1", issue.getKey(), NOW);
   }
 
+  @Test
+  public void insert_more_issues_than_batch_size_and_log_throughput() {
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto file = db.components().insertComponent(newFileDto(project));
+    RuleDefinitionDto rule = db.rules().insert();
+    int issueCount = BatchSession.MAX_BATCH_SIZE + 50;
+    DiskCache<DefaultIssue>.DiskAppender issueCacheAppender = issueCache.newAppender();
+    for (int i = 0; i < issueCount; i++) {
+      issueCacheAppender.append(new DefaultIssue()
+        .setKey("ISSUE_" + i)
+        .setType(RuleType.CODE_SMELL)
+        .setRuleKey(rule.getKey())
+        .setComponentUuid(file.uuid())
+        .setProjectUuid(project.uuid())
+        .setSeverity(BLOCKER)
+        .setStatus(STATUS_OPEN)
+        .setNew(true)
+        .addComment(new DefaultIssueComment()
+          .setKey("COMMENT_" + i)
+          .setIssueKey("ISSUE_" + i)
+          .setUserLogin("john")
+          .setMarkdownText("Some text")
+          .setCreatedAt(new Date(NOW))
+          .setNew(true)));
+    }
+    issueCacheAppender.close();
+
+    step.execute();
+
+    assertThat(db.countRowsOfTable("issues")).isEqualTo(issueCount);
+    assertThat(db.countRowsOfTable("issue_changes")).isEqualTo(issueCount);
+    // time is frozen by System2 mock
+    assertThat(logTester.logs(LoggerLevel.INFO)).contains("Persisted 300 issues in 0ms (300000 issues/s)");
+  }
 }
@@ -48,6 +48,7 @@ import org.sonar.server.computation.task.projectanalysis.component.MutableDbIdsR
 import org.sonar.server.computation.task.projectanalysis.component.MutableDisabledComponentsHolder;
 import org.sonar.server.computation.task.projectanalysis.component.ReportComponent;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolderRule;
+import org.sonar.server.computation.task.projectanalysis.issue.ChangedIssuesRepositoryImpl;
 import org.sonar.server.computation.task.step.ComputationStep;
 
 import static org.apache.commons.lang.StringUtils.isEmpty;
@@ -89,6 +90,7 @@ public class ReportPersistComponentsStepTest extends BaseStepTest {
   private MutableDisabledComponentsHolder disabledComponentsHolder = mock(MutableDisabledComponentsHolder.class, RETURNS_DEEP_STUBS);
   private PersistComponentsStep underTest;
   private BranchPersister branchPersister;
+  private ChangedIssuesRepositoryImpl changedIssuesRepository = new ChangedIssuesRepositoryImpl();
 
   @Before
   public void setup() throws Exception {
@@ -97,7 +99,8 @@ public class ReportPersistComponentsStepTest extends BaseStepTest {
 
     db.organizations().insertForUuid(ORGANIZATION_UUID);
     branchPersister = mock(BranchPersister.class);
-    underTest = new PersistComponentsStep(dbClient, treeRootHolder, dbIdsRepository, system2, disabledComponentsHolder, analysisMetadataHolder, branchPersister);
+    underTest = new PersistComponentsStep(dbClient, treeRootHolder, dbIdsRepository, system2, disabledComponentsHolder, analysisMetadataHolder, branchPersister,
+      changedIssuesRepository);
   }
 
   @Override
@@ -568,6 +571,8 @@ public class ReportPersistComponentsStepTest extends BaseStepTest {
     dbClient.componentDao().applyBChangesForRootComponentUuid(db.getSession(), project.uuid());
     assertNameAndDescription(project.getDbKey(), "New Project", "New project description");
     assertNameAndDescription(MODULE_KEY, "New Module", "New module description");
+    // issue documents do not contain names nor descriptions of components
+    assertThat(changedIssuesRepository.getChangedIssueKeys()).isPresent();
   }
 
   private void assertNameAndDescription(String key, String expectedName, String expectedDescription) {
@@ -675,6 +680,9 @@ public class ReportPersistComponentsStepTest extends BaseStepTest {
     assertThat(fileReloaded.moduleUuidPath()).isEqualTo(moduleBReloaded.moduleUuidPath());
     assertThat(fileReloaded.projectUuid()).isEqualTo(project.uuid());
     assertThat(fileReloaded.getRootUuid()).isEqualTo(moduleBReloaded.uuid());
+
+    // module paths are copied in issue documents, so all issues must be re-indexed
+    assertThat(changedIssuesRepository.getChangedIssueKeys()).isEmpty();
   }
 
   @Test
@@ -35,6 +35,7 @@ import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -65,6 +66,44 @@ public class ComputationStepExecutorTest {
     inOrder.verifyNoMoreInteractions();
   }
 
+  @Test
+  public void execute_runs_consecutive_ConcurrentComputationSteps_before_next_step() {
+    ComputationStep concurrentStep1 = mockConcurrentComputationStep("concurrent1");
+    ComputationStep concurrentStep2 = mockConcurrentComputationStep("concurrent2");
+
+    new ComputationStepExecutor(mockComputationSteps(computationStep1, concurrentStep1, concurrentStep2, computationStep2))
+      .execute();
+
+    InOrder inOrder = inOrder(computationStep1, concurrentStep1, computationStep2);
+    inOrder.verify(computationStep1).execute();
+    inOrder.verify(concurrentStep1).execute();
+    inOrder.verify(computationStep2).execute();
+    inOrder = inOrder(concurrentStep2, computationStep2);
+    inOrder.verify(concurrentStep2).execute();
+    inOrder.verify(computationStep2).execute();
+  }
+
+  @Test
+  public void execute_let_exception_thrown_by_ConcurrentComputationStep_go_up_as_is() {
+    RuntimeException toBeThrown = new RuntimeException("simulating failing concurrent step");
+    ComputationStep concurrentStep1 = mockConcurrentComputationStep("concurrent1");
+    ComputationStep concurrentStep2 = mockConcurrentComputationStep("concurrent2");
+    doThrow(toBeThrown)
+      .when(concurrentStep2)
+      .execute();
+
+    try {
+      new ComputationStepExecutor(mockComputationSteps(concurrentStep1, concurrentStep2, computationStep1), listener)
+        .execute();
+      fail("exception toBeThrown should have been raised");
+    } catch (RuntimeException e) {
+      assertThat(e).isSameAs(toBeThrown);
+      verify(concurrentStep1).execute();
+      verify(computationStep1, never()).execute();
+      verify(listener).finished(false);
+    }
+  }
+
   @Test
   public void execute_let_exception_thrown_by_ComputationStep_go_up_as_is() {
     String message = "Exception should go up";
@@ -96,6 +135,14 @@ public class ComputationStepExecutorTest {
     assertThat(infoLogs.get(1)).contains("step2 | time=");
   }
 
+  @Test
+  public void execute_logs_cpu_time_allocated_memory_and_db_time_of_each_ComputationStep_when_level_is_DEBUG() {
+    List<String> infoLogs = execute_logs_end_timing_for_each_ComputationStep_called_when_(LoggerLevel.DEBUG);
+    assertThat(infoLogs).hasSize(2);
+    assertThat(infoLogs.get(0)).contains(" | cpuTime=").contains(" | allocated=").contains(" | dbTime=0ms");
+    assertThat(infoLogs.get(1)).contains(" | cpuTime=").contains(" | allocated=").contains(" | dbTime=0ms");
+  }
+
   @Test
   public void execute_logs_end_timing_for_each_ComputationStep_called_when_level_is_TRACE() {
     List<String> infoLogs = execute_logs_end_timing_for_each_ComputationStep_called_when_(LoggerLevel.TRACE);
@@ -152,12 +199,54 @@ public class ComputationStepExecutorTest {
     new ComputationStepExecutor(mockComputationSteps(computationStep1), listener).execute();
   }
 
+  @Test
+  public void execute_accumulates_allocated_memory_of_all_steps() {
+    ComputationStepExecutor underTest = new ComputationStepExecutor(mockComputationSteps(allocatingStep(), allocatingStep()));
+
+    underTest.execute();
+
+    assertThat(underTest.getCpuTimeMs()).isGreaterThanOrEqualTo(0L);
+    assertThat(underTest.getAllocatedBytes()).isGreaterThanOrEqualTo(0L);
+  }
+
+  @Test
+  public void execute_measures_no_db_time_if_steps_do_not_execute_SQL() {
+    ComputationStepExecutor underTest = new ComputationStepExecutor(mockComputationSteps(allocatingStep(), allocatingStep()));
+
+    underTest.execute();
+
+    assertThat(underTest.getDbTimeMs()).isEqualTo(0L);
+  }
+
+  private static ComputationStep allocatingStep() {
+    return new ComputationStep() {
+      @Override
+      public void execute() {
+        byte[][] bytes = new byte[100][];
+        for (int i = 0; i < bytes.length; i++) {
+          bytes[i] = new byte[1_024];
+        }
+      }
+
+      @Override
+      public String getDescription() {
+        return "allocating step";
+      }
+    };
+  }
+
   private static ComputationSteps mockComputationSteps(ComputationStep... computationSteps) {
     ComputationSteps steps = mock(ComputationSteps.class);
     when(steps.instances()).thenReturn(Arrays.asList(computationSteps));
     return steps;
   }
 
+  private static ComputationStep mockConcurrentComputationStep(String desc) {
+    ComputationStep mock = mock(ConcurrentComputationStep.class);
+    when(mock.getDescription()).thenReturn(desc);
+    return mock;
+  }
+
   private static ComputationStep mockComputationStep(String desc) {
     ComputationStep mock = mock(ComputationStep.class);
     when(mock.getDescription()).thenReturn(desc);
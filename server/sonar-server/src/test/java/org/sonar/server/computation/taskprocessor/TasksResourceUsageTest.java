@@ -0,0 +1,98 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.taskprocessor;
+
+import org.junit.Test;
+import org.sonar.ce.queue.CeTask;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+public class TasksResourceUsageTest {
+
+  private TasksResourceUsage underTest = new TasksResourceUsage();
+
+  @Test
+  public void add_accumulates_resource_usage_in_total_and_by_project() {
+    underTest.add(newTask("P1"), 10, 100, 1);
+    underTest.add(newTask("P2"), 50, 200, 2);
+    underTest.add(newTask("P1"), 20, 300, 3);
+
+    assertThat(underTest.getCpuTimeMs()).isEqualTo(80);
+    assertThat(underTest.getAllocatedBytes()).isEqualTo(600);
+    assertThat(underTest.getDbTimeMs()).isEqualTo(6);
+    assertThat(underTest.getMostExpensiveProjects(10))
+      .extracting(TasksResourceUsage.ProjectResourceUsage::getProjectKey, TasksResourceUsage.ProjectResourceUsage::getTaskCount,
+        TasksResourceUsage.ProjectResourceUsage::getCpuTimeMs, TasksResourceUsage.ProjectResourceUsage::getAllocatedBytes,
+        TasksResourceUsage.ProjectResourceUsage::getDbTimeMs)
+      .containsExactly(
+        tuple("P2", 1L, 50L, 200L, 2L),
+        tuple("P1", 2L, 30L, 400L, 4L));
+  }
+
+  @Test
+  public void getMostExpensiveProjects_is_limited() {
+    underTest.add(newTask("P1"), 10, 0, 0);
+    underTest.add(newTask("P2"), 30, 0, 0);
+    underTest.add(newTask("P3"), 20, 0, 0);
+
+    assertThat(underTest.getMostExpensiveProjects(2))
+      .extracting(TasksResourceUsage.ProjectResourceUsage::getProjectKey)
+      .containsExactly("P2", "P3");
+  }
+
+  @Test
+  public void unsupported_measures_are_ignored() {
+    underTest.add(newTask("P1"), -1, -1, 0);
+
+    assertThat(underTest.getCpuTimeMs()).isZero();
+    assertThat(underTest.getAllocatedBytes()).isZero();
+    assertThat(underTest.getMostExpensiveProjects(10)).extracting(TasksResourceUsage.ProjectResourceUsage::getTaskCount).containsExactly(1L);
+  }
+
+  @Test
+  public void tasks_without_project_are_counted_only_in_total() {
+    underTest.add(newTask(null), 10, 100, 0);
+
+    assertThat(underTest.getCpuTimeMs()).isEqualTo(10);
+    assertThat(underTest.getAllocatedBytes()).isEqualTo(100);
+    assertThat(underTest.getMostExpensiveProjects(10)).isEmpty();
+  }
+
+  @Test
+  public void number_of_projects_is_bounded() {
+    for (int i = 0; i < TasksResourceUsage.MAX_PROJECTS; i++) {
+      underTest.add(newTask("P" + i), 1, 1, 0);
+    }
+    underTest.add(newTask("other"), 1_000, 1, 0);
+
+    assertThat(underTest.getCpuTimeMs()).isEqualTo(TasksResourceUsage.MAX_PROJECTS + 1_000);
+    assertThat(underTest.getMostExpensiveProjects(1)).extracting(TasksResourceUsage.ProjectResourceUsage::getProjectKey).doesNotContain("other");
+  }
+
+  private static CeTask newTask(String projectKey) {
+    return new CeTask.Builder()
+      .setOrganizationUuid("org1")
+      .setUuid("TASK_" + projectKey)
+      .setType("REPORT")
+      .setComponentKey(projectKey)
+      .build();
+  }
+}
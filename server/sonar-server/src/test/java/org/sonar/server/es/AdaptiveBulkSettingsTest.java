@@ -0,0 +1,107 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.server.es.AdaptiveBulkSettings.HIGH_LATENCY_MS;
+import static org.sonar.server.es.AdaptiveBulkSettings.LOW_LATENCY_MS;
+import static org.sonar.server.es.AdaptiveBulkSettings.MAX_BYTES;
+import static org.sonar.server.es.AdaptiveBulkSettings.MIN_BYTES;
+import static org.sonar.server.es.AdaptiveBulkSettings.WINDOW;
+
+public class AdaptiveBulkSettingsTest {
+
+  private static final long ONE_MB = 1024 * 1024L;
+
+  private AdaptiveBulkSettings underTest = new AdaptiveBulkSettings(ONE_MB, 1, 3);
+
+  @Test
+  public void settings_do_not_change_before_end_of_window() {
+    for (int i = 0; i < WINDOW - 1; i++) {
+      underTest.onBulk(10L, 0);
+    }
+
+    assertThat(underTest.getVersion()).isEqualTo(0L);
+    assertThat(underTest.getBulkSizeBytes()).isEqualTo(ONE_MB);
+    assertThat(underTest.getConcurrentRequests()).isEqualTo(1);
+  }
+
+  @Test
+  public void increase_size_and_concurrency_when_latency_is_low() {
+    completeWindow(LOW_LATENCY_MS - 1, 0);
+
+    assertThat(underTest.getVersion()).isEqualTo(1L);
+    assertThat(underTest.getBulkSizeBytes()).isEqualTo(2 * ONE_MB);
+    assertThat(underTest.getConcurrentRequests()).isEqualTo(2);
+  }
+
+  @Test
+  public void decrease_size_and_concurrency_when_latency_is_high() {
+    completeWindow(HIGH_LATENCY_MS + 1, 0);
+
+    assertThat(underTest.getVersion()).isEqualTo(1L);
+    assertThat(underTest.getBulkSizeBytes()).isEqualTo(ONE_MB / 2);
+    assertThat(underTest.getConcurrentRequests()).isEqualTo(0);
+  }
+
+  @Test
+  public void decrease_size_and_concurrency_when_documents_are_rejected() {
+    completeWindow(LOW_LATENCY_MS - 1, 1);
+
+    assertThat(underTest.getVersion()).isEqualTo(1L);
+    assertThat(underTest.getBulkSizeBytes()).isEqualTo(ONE_MB / 2);
+    assertThat(underTest.getConcurrentRequests()).isEqualTo(0);
+  }
+
+  @Test
+  public void do_not_change_settings_when_latency_is_acceptable() {
+    completeWindow((LOW_LATENCY_MS + HIGH_LATENCY_MS) / 2, 0);
+
+    assertThat(underTest.getVersion()).isEqualTo(0L);
+    assertThat(underTest.getBulkSizeBytes()).isEqualTo(ONE_MB);
+    assertThat(underTest.getConcurrentRequests()).isEqualTo(1);
+  }
+
+  @Test
+  public void settings_are_bounded() {
+    for (int i = 0; i < 10; i++) {
+      completeWindow(1L, 0);
+    }
+    long version = underTest.getVersion();
+    completeWindow(1L, 0);
+    assertThat(underTest.getVersion()).isEqualTo(version);
+    assertThat(underTest.getBulkSizeBytes()).isEqualTo(MAX_BYTES);
+    assertThat(underTest.getConcurrentRequests()).isEqualTo(3);
+
+    for (int i = 0; i < 10; i++) {
+      completeWindow(HIGH_LATENCY_MS + 1, 0);
+    }
+    assertThat(underTest.getBulkSizeBytes()).isEqualTo(MIN_BYTES);
+    assertThat(underTest.getConcurrentRequests()).isEqualTo(0);
+  }
+
+  private void completeWindow(long latencyMs, int rejections) {
+    for (int i = 0; i < WINDOW; i++) {
+      underTest.onBulk(latencyMs, i == 0 ? rejections : 0);
+    }
+  }
+}
@@ -96,6 +96,66 @@ public class BulkIndexerTest {
     assertThat(replicas()).isEqualTo(1);
   }
 
+  @Test
+  public void record_metrics_of_bulk_requests() {
+    EsClient client = esTester.client();
+
+    BulkIndexer indexer = new BulkIndexer(client, INDEX_TYPE_FAKE, Size.REGULAR);
+    indexer.start();
+    indexer.add(newIndexRequest(42));
+    indexer.add(newIndexRequest(78));
+    indexer.stop();
+
+    BulkIndexerMetrics.IndexMetrics metrics = client.getBulkIndexerMetrics().get(INDEX).get();
+    assertThat(metrics.getDocuments()).isEqualTo(2);
+    assertThat(metrics.getBulkRequests()).isEqualTo(1);
+    assertThat(metrics.getIndexerSizes()).containsExactly(Size.REGULAR);
+    assertThat(metrics.getBulkSizeBytes(Size.REGULAR)).isEqualTo(1024 * 1024L);
+    assertThat(metrics.getConcurrentRequests(Size.REGULAR)).isEqualTo(0);
+  }
+
+  @Test
+  public void adaptive_settings_are_shared_by_indexers_of_same_index_and_size() {
+    EsClient client = esTester.client();
+    BulkIndexerMetrics.IndexMetrics metrics = client.getBulkIndexerMetrics().getOrCreate(INDEX);
+
+    new BulkIndexer(client, INDEX_TYPE_FAKE, Size.REGULAR);
+    AdaptiveBulkSettings settings = metrics.getOrCreateAdaptiveSettings(Size.REGULAR, () -> {
+      throw new IllegalStateException("settings should already exist");
+    });
+    // low latency, bulk size is doubled
+    for (int i = 0; i < AdaptiveBulkSettings.WINDOW; i++) {
+      settings.onBulk(1L, 0);
+    }
+
+    new BulkIndexer(client, INDEX_TYPE_FAKE, Size.REGULAR);
+    assertThat(metrics.getOrCreateAdaptiveSettings(Size.REGULAR, () -> null)).isSameAs(settings);
+    assertThat(metrics.getBulkSizeBytes(Size.REGULAR)).isEqualTo(2 * 1024 * 1024L);
+    assertThat(metrics.getIndexerSizes()).containsExactly(Size.REGULAR);
+  }
+
+  @Test
+  public void pending_requests_are_sent_when_adaptive_settings_change() {
+    EsClient client = esTester.client();
+    BulkIndexerMetrics.IndexMetrics metrics = client.getBulkIndexerMetrics().getOrCreate(INDEX);
+
+    BulkIndexer indexer = new BulkIndexer(client, INDEX_TYPE_FAKE, Size.REGULAR);
+    indexer.start();
+    indexer.add(newIndexRequest(42));
+    AdaptiveBulkSettings settings = metrics.getOrCreateAdaptiveSettings(Size.REGULAR, () -> null);
+    for (int i = 0; i < AdaptiveBulkSettings.WINDOW; i++) {
+      settings.onBulk(1L, 0);
+    }
+    indexer.add(newIndexRequest(78));
+    IndexingResult result = indexer.stop();
+
+    assertThat(result.getSuccess()).isEqualTo(2);
+    assertThat(count()).isEqualTo(2);
+    // one bulk request per BulkProcessor
+    assertThat(metrics.getBulkRequests()).isEqualTo(2);
+    assertThat(metrics.getBulkSizeBytes(Size.REGULAR)).isEqualTo(2 * 1024 * 1024L);
+  }
+
   @Test
   public void bulk_delete() throws Exception {
     int max = 500;
@@ -19,6 +19,8 @@
  */
 package org.sonar.server.es;
 
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.common.unit.TimeValue;
 import org.junit.Rule;
 import org.junit.Test;
 import org.sonar.server.es.request.ProxyBulkRequestBuilder;
@@ -71,6 +73,19 @@ public class EsClientTest {
     underTest.close();
   }
 
+  @Test
+  public void search_requests_time_out_only_if_partial_results_are_allowed() {
+    EsClient underTest = new EsClient(es.client().nativeClient(), 5_000L);
+
+    SearchRequestBuilder complete = underTest.prepareSearch(INDEX_TYPE_FAKE).setSize(0);
+    complete.get();
+    SearchRequestBuilder partial = underTest.prepareSearch(true, INDEX_TYPE_FAKE).setSize(0);
+    partial.get();
+
+    assertThat(complete.request().source().timeout()).isNull();
+    assertThat(partial.request().source().timeout()).isEqualTo(TimeValue.timeValueMillis(5_000L));
+  }
+
   @Test
   public void isEmpty_should_return_true_if_index_is_empty() {
     assertThat(es.client().isEmpty(INDEX_TYPE_FAKE)).isTrue();
@@ -0,0 +1,92 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.config.internal.MapSettings;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ParallelProjectIndexingTest {
+
+  private static final IndexType INDEX_TYPE = new IndexType("foos", "foo");
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  private MapSettings settings = new MapSettings();
+
+  @Test
+  public void index_each_project_once() {
+    List<String> projectUuids = IntStream.range(0, 100).mapToObj(i -> "P" + i).collect(Collectors.toList());
+    Set<String> indexed = ConcurrentHashMap.newKeySet();
+    Set<String> threadNames = ConcurrentHashMap.newKeySet();
+
+    ParallelProjectIndexing.execute(INDEX_TYPE, projectUuids, 3, projectUuid -> {
+      assertThat(indexed.add(projectUuid)).isTrue();
+      threadNames.add(Thread.currentThread().getName());
+    });
+
+    assertThat(indexed).containsOnlyElementsOf(projectUuids).hasSize(100);
+    assertThat(threadNames.stream().allMatch(name -> name.startsWith("ProjectIndexing[foos]-"))).isTrue();
+  }
+
+  @Test
+  public void fail_if_indexing_of_a_project_fails() {
+    IllegalArgumentException cause = new IllegalArgumentException("Boom");
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("Fail to index projects of foos/foo");
+
+    ParallelProjectIndexing.execute(INDEX_TYPE, asList("P1", "P2"), 2, projectUuid -> {
+      throw cause;
+    });
+  }
+
+  @Test
+  public void threads_are_configurable() {
+    settings.setProperty("sonar.search.initialIndexing.threads", 6);
+
+    assertThat(ParallelProjectIndexing.getThreads(settings.asConfig())).isEqualTo(6);
+  }
+
+  @Test
+  public void parallel_indexing_is_disabled_by_default() {
+    assertThat(ParallelProjectIndexing.getThreads(settings.asConfig())).isEqualTo(1);
+  }
+
+  @Test
+  public void fail_if_threads_is_not_positive() {
+    settings.setProperty("sonar.search.initialIndexing.threads", 0);
+
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Property sonar.search.initialIndexing.threads must be strictly positive. Got 0");
+
+    ParallelProjectIndexing.getThreads(settings.asConfig());
+  }
+}
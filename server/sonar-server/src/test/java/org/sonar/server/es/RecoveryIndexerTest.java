@@ -304,6 +304,63 @@ public class RecoveryIndexerTest {
     assertThatLogsContain(INFO, "Elasticsearch recovery - 3 documents processed [0 failures]");
   }
 
+  @Test
+  public void log_remaining_backlog_at_the_end_of_run() {
+    insertItem(FOO_TYPE, "f1");
+    insertItem(FOO_TYPE, "f2");
+    advanceInTime();
+    // too recent to be recovered
+    insertItem(FOO_TYPE, "f3");
+
+    SuccessfulFakeIndexer indexer = new SuccessfulFakeIndexer(FOO_TYPE);
+    underTest = newRecoveryIndexer(indexer);
+    underTest.recover();
+
+    assertThatQueueHasSize(1);
+    assertThatLogsContain(INFO, "Elasticsearch recovery - 2 documents processed [0 failures] at ");
+    assertThatLogsContain(INFO, "documents/sec, 1 remaining in queue");
+    assertThat(underTest.getLastRunDocuments()).isEqualTo(2L);
+    assertThat(underTest.countBacklog()).isEqualTo(1L);
+  }
+
+  @Test
+  public void hard_failure_on_a_type_does_not_prevent_results_of_other_types_from_being_logged() {
+    insertItem(FOO_TYPE, "f1");
+    IndexType barType = new IndexType("bars", "bar");
+    insertItem(barType, "b1");
+    insertItem(barType, "b2");
+    advanceInTime();
+
+    HardFailingFakeIndexer fooIndexer = new HardFailingFakeIndexer(FOO_TYPE);
+    SuccessfulFakeIndexer barIndexer = new SuccessfulFakeIndexer(barType);
+    underTest = newRecoveryIndexer(fooIndexer, barIndexer);
+    underTest.recover();
+
+    assertThatLogsContain(ERROR, "Elasticsearch recovery - fail to recover documents of type " + FOO_TYPE);
+    assertThatLogsContain(INFO, "Elasticsearch recovery - 2 documents processed [0 failures]");
+    assertThat(underTest.getLastRunDocuments()).isEqualTo(2L);
+    assertThatQueueHasSize(1);
+  }
+
+  @Test
+  public void too_many_failures_on_a_type_do_not_stop_recovery_of_other_types() {
+    IntStream.range(0, 3).forEach(i -> insertItem(FOO_TYPE, "" + i));
+    IndexType barType = new IndexType("bars", "bar");
+    EsQueueDto bar = insertItem(barType, "b1");
+    advanceInTime();
+
+    PartiallyFailingIndexer fooIndexer = new PartiallyFailingIndexer(FOO_TYPE, 0);
+    SuccessfulFakeIndexer barIndexer = new SuccessfulFakeIndexer(barType);
+    underTest = newRecoveryIndexer(fooIndexer, barIndexer);
+    underTest.recover();
+
+    assertThatLogsContain(ERROR, "Elasticsearch recovery - too many failures [3/3 documents], waiting for next run");
+    assertThat(barIndexer.called).hasSize(1);
+    assertThat(barIndexer.called.get(0)).extracting(EsQueueDto::getUuid).containsExactly(bar.getUuid());
+    assertThatQueueHasSize(3);
+    assertThatLogsContain(INFO, "Elasticsearch recovery - 4 documents processed [3 failures]");
+  }
+
   private class FailingAlwaysOnSameElementIndexer implements ResilientIndexer {
     private final IndexType indexType;
     private final EsQueueDto failing;
@@ -0,0 +1,76 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.server.exceptions.BadRequestException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SearchAfterCursorTest {
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  @Test
+  public void encode_and_decode_sort_values() {
+    Object[] sortValues = {1_500_000_000_000L, "AU-Tpxb--iU5OvuD2FLy", null, Long.MAX_VALUE, 2.5d, true};
+
+    String cursor = SearchAfterCursor.encode(sortValues);
+
+    assertThat(cursor).matches("[A-Za-z0-9_-]+");
+    assertThat(SearchAfterCursor.decode(cursor)).containsExactly(1_500_000_000_000L, "AU-Tpxb--iU5OvuD2FLy", null, Long.MAX_VALUE, 2.5d, true);
+  }
+
+  @Test
+  public void integers_are_decoded_as_longs() {
+    String cursor = SearchAfterCursor.encode(new Object[] {42});
+
+    assertThat(SearchAfterCursor.decode(cursor)).containsExactly(42L);
+  }
+
+  @Test
+  public void fail_to_decode_invalid_base64() {
+    expectedException.expect(BadRequestException.class);
+    expectedException.expectMessage("Invalid cursor: foo%bar");
+
+    SearchAfterCursor.decode("foo%bar");
+  }
+
+  @Test
+  public void fail_to_decode_if_not_a_json_array() {
+    // {"a":1}
+    expectedException.expect(BadRequestException.class);
+    expectedException.expectMessage("Invalid cursor: eyJhIjoxfQ");
+
+    SearchAfterCursor.decode("eyJhIjoxfQ");
+  }
+
+  @Test
+  public void fail_to_decode_empty_array() {
+    // []
+    expectedException.expect(BadRequestException.class);
+    expectedException.expectMessage("Invalid cursor: W10");
+
+    SearchAfterCursor.decode("W10");
+  }
+}
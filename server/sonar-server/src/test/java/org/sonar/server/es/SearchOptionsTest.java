@@ -121,4 +121,27 @@ public class SearchOptionsTest {
 
     underTest.setPage(21, 500);
   }
+
+  @Test
+  public void search_after() {
+    SearchOptions options = new SearchOptions().setPage(1, 100).setSearchAfter(new Object[] {1_500_000_000_000L, "ABCD"});
+
+    assertThat(options.getSearchAfter()).containsExactly(1_500_000_000_000L, "ABCD");
+    assertThat(options.getOffset()).isEqualTo(0);
+    assertThat(new SearchOptions().getSearchAfter()).isNull();
+  }
+
+  @Test
+  public void fail_if_search_after_with_offset() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Offset must be zero when searching after a cursor");
+
+    underTest.setPage(2, 100).setSearchAfter(new Object[] {"ABCD"});
+  }
+
+  @Test
+  public void partial_results_are_not_allowed_by_default() {
+    assertThat(new SearchOptions().isPartialResultsAllowed()).isFalse();
+    assertThat(new SearchOptions().setPartialResultsAllowed(true).isPartialResultsAllowed()).isTrue();
+  }
 }
@@ -0,0 +1,76 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+public class SearchRequestMetricsTest {
+
+  private SearchRequestMetrics underTest = new SearchRequestMetrics();
+
+  @Test
+  public void no_metrics_if_no_requests() {
+    assertThat(underTest.get("issues")).isEmpty();
+    assertThat(underTest.getAll()).isEmpty();
+  }
+
+  @Test
+  public void aggregate_requests_per_index() {
+    underTest.onSearch(new String[] {"issues"}, 5L, false);
+    underTest.onSearch(new String[] {"issues", "rules"}, 15L, false);
+    underTest.onSearch(new String[] {"issues"}, 20_000L, true);
+
+    SearchRequestMetrics.IndexMetrics issues = underTest.get("issues").get();
+    assertThat(issues.getRequests()).isEqualTo(3L);
+    assertThat(issues.getTimedOutRequests()).isEqualTo(1L);
+    assertThat(issues.getMeanLatencyMs()).isEqualTo(6_673L);
+    assertThat(underTest.get("rules").get().getRequests()).isEqualTo(1L);
+    assertThat(underTest.getAll().keySet()).containsExactly("issues", "rules");
+  }
+
+  @Test
+  public void requests_without_indices_are_aggregated_on_all_indices() {
+    underTest.onSearch(new String[0], 5L, false);
+
+    assertThat(underTest.get("_all").get().getRequests()).isEqualTo(1L);
+  }
+
+  @Test
+  public void latency_histogram() {
+    underTest.onSearch(new String[] {"issues"}, 0L, false);
+    underTest.onSearch(new String[] {"issues"}, 10L, false);
+    underTest.onSearch(new String[] {"issues"}, 11L, false);
+    underTest.onSearch(new String[] {"issues"}, 700L, false);
+    underTest.onSearch(new String[] {"issues"}, 10_001L, false);
+
+    assertThat(underTest.get("issues").get().getLatencyHistogram()).containsExactly(
+      entry("<= 10 ms", 2L),
+      entry("<= 50 ms", 1L),
+      entry("<= 100 ms", 0L),
+      entry("<= 500 ms", 0L),
+      entry("<= 1000 ms", 1L),
+      entry("<= 5000 ms", 0L),
+      entry("<= 10000 ms", 0L),
+      entry("> 10000 ms", 1L));
+  }
+}
@@ -27,6 +27,7 @@ import org.sonar.api.utils.log.LoggerLevel;
 import org.sonar.server.es.EsTester;
 import org.sonar.server.es.FakeIndexDefinition;
 import org.sonar.server.es.IndexType;
+import org.sonar.server.es.SearchRequestMetrics;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.fail;
@@ -44,6 +45,46 @@ public class ProxySearchRequestBuilderTest {
     esTester.client().prepareSearch(FakeIndexDefinition.INDEX).get();
   }
 
+  @Test
+  public void apply_default_timeout() {
+    ProxySearchRequestBuilder request = new ProxySearchRequestBuilder(esTester.client().nativeClient(), new SearchRequestMetrics(), 5_000L);
+
+    request.setIndices(FakeIndexDefinition.INDEX).get();
+
+    assertThat(request.request().source().timeout()).isEqualTo(TimeValue.timeValueMillis(5_000L));
+  }
+
+  @Test
+  public void do_not_override_timeout_of_request() {
+    ProxySearchRequestBuilder request = new ProxySearchRequestBuilder(esTester.client().nativeClient(), new SearchRequestMetrics(), 5_000L);
+
+    request.setIndices(FakeIndexDefinition.INDEX).setTimeout(TimeValue.timeValueSeconds(30L)).get();
+
+    assertThat(request.request().source().timeout()).isEqualTo(TimeValue.timeValueSeconds(30L));
+  }
+
+  @Test
+  public void do_not_apply_default_timeout_to_scrolled_requests() {
+    ProxySearchRequestBuilder request = new ProxySearchRequestBuilder(esTester.client().nativeClient(), new SearchRequestMetrics(), 5_000L);
+
+    request.setIndices(FakeIndexDefinition.INDEX).setSize(10).setScroll(TimeValue.timeValueMinutes(1L)).get();
+
+    assertThat(request.request().source().timeout()).isNull();
+  }
+
+  @Test
+  public void record_metrics_per_index() {
+    SearchRequestMetrics metrics = new SearchRequestMetrics();
+    ProxySearchRequestBuilder request = new ProxySearchRequestBuilder(esTester.client().nativeClient(), metrics, 5_000L);
+
+    request.setIndices(FakeIndexDefinition.INDEX).get();
+
+    SearchRequestMetrics.IndexMetrics indexMetrics = metrics.get(FakeIndexDefinition.INDEX).get();
+    assertThat(indexMetrics.getRequests()).isEqualTo(1L);
+    assertThat(indexMetrics.getTimedOutRequests()).isEqualTo(0L);
+    assertThat(indexMetrics.getLatencyHistogram().values().stream().mapToLong(Long::longValue).sum()).isEqualTo(1L);
+  }
+
   @Test
   public void to_string() {
     assertThat(esTester.client().prepareSearch(FakeIndexDefinition.INDEX).setTypes(FakeIndexDefinition.TYPE).toString()).contains("ES search request '").contains(
@@ -0,0 +1,125 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue.index;
+
+import com.google.common.collect.ImmutableSet;
+import java.util.LinkedHashMap;
+import org.junit.Test;
+import org.sonar.api.utils.internal.TestSystem2;
+
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+public class IssueFacetsCacheTest {
+
+  private TestSystem2 system2 = new TestSystem2().setNow(1_000L);
+  private IssueFacetsCache underTest = new IssueFacetsCache(system2, 2, 100L);
+
+  @Test
+  public void get_returns_empty_if_key_is_not_cached() {
+    assertThat(underTest.get("foo")).isEmpty();
+
+    assertThat(underTest.getMisses()).isEqualTo(1L);
+    assertThat(underTest.getHits()).isEqualTo(0L);
+    assertThat(underTest.getHitRatio()).isEqualTo(0L);
+  }
+
+  @Test
+  public void get_returns_a_copy_of_cached_facets() {
+    underTest.put("foo", ImmutableSet.of("P1"), newFacets("severities", "MAJOR", 3L));
+
+    underTest.get("foo").get().get("severities").put("INFO", 0L);
+
+    assertThat(underTest.get("foo").get().get("severities")).containsOnly(entry("MAJOR", 3L));
+    assertThat(underTest.getHits()).isEqualTo(2L);
+    assertThat(underTest.getHitRatio()).isEqualTo(100L);
+  }
+
+  @Test
+  public void entries_expire_after_ttl() {
+    underTest.put("foo", ImmutableSet.of("P1"), newFacets("severities", "MAJOR", 3L));
+
+    system2.setNow(1_099L);
+    assertThat(underTest.get("foo")).isPresent();
+
+    system2.setNow(1_100L);
+    assertThat(underTest.get("foo")).isEmpty();
+    assertThat(underTest.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void least_recently_used_entries_are_removed_when_cache_is_full() {
+    underTest.put("foo", ImmutableSet.of("P1"), newFacets("severities", "MAJOR", 3L));
+    underTest.put("bar", ImmutableSet.of("P1"), newFacets("severities", "MAJOR", 3L));
+    underTest.get("foo");
+
+    underTest.put("baz", ImmutableSet.of("P1"), newFacets("severities", "MAJOR", 3L));
+
+    assertThat(underTest.size()).isEqualTo(2);
+    assertThat(underTest.get("foo")).isPresent();
+    assertThat(underTest.get("bar")).isEmpty();
+    assertThat(underTest.get("baz")).isPresent();
+  }
+
+  @Test
+  public void evictProjects_removes_entries_of_projects_and_entries_not_restricted_to_projects() {
+    underTest = new IssueFacetsCache(system2, 10, 100L);
+    underTest.put("p1", ImmutableSet.of("P1"), newFacets("severities", "MAJOR", 3L));
+    underTest.put("p1_p2", ImmutableSet.of("P1", "P2"), newFacets("severities", "MAJOR", 3L));
+    underTest.put("p2", ImmutableSet.of("P2"), newFacets("severities", "MAJOR", 3L));
+    underTest.put("all", emptySet(), newFacets("severities", "MAJOR", 3L));
+
+    underTest.evictProjects(singletonList("P1"));
+
+    assertThat(underTest.get("p1")).isEmpty();
+    assertThat(underTest.get("p1_p2")).isEmpty();
+    assertThat(underTest.get("all")).isEmpty();
+    assertThat(underTest.get("p2")).isPresent();
+  }
+
+  @Test
+  public void evictAll_removes_all_entries() {
+    underTest.put("foo", ImmutableSet.of("P1"), newFacets("severities", "MAJOR", 3L));
+
+    underTest.evictAll();
+
+    assertThat(underTest.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void disabled_cache_does_not_store_facets() {
+    underTest = IssueFacetsCache.disabled(system2);
+
+    underTest.put("foo", ImmutableSet.of("P1"), newFacets("severities", "MAJOR", 3L));
+
+    assertThat(underTest.get("foo")).isEmpty();
+    assertThat(underTest.size()).isEqualTo(0);
+  }
+
+  private static LinkedHashMap<String, LinkedHashMap<String, Long>> newFacets(String facetName, String value, long count) {
+    LinkedHashMap<String, Long> values = new LinkedHashMap<>();
+    values.put(value, count);
+    LinkedHashMap<String, LinkedHashMap<String, Long>> facets = new LinkedHashMap<>();
+    facets.put(facetName, values);
+    return facets;
+  }
+}
@@ -449,6 +449,72 @@ public class IssueIndexTest {
     assertThatFacetHasOnly(IssueQuery.builder(), "severities", entry("INFO", 2L), entry("MAJOR", 1L));
   }
 
+  @Test
+  public void searchWithFacets_loads_facets_from_cache_until_project_is_evicted() {
+    ComponentDto project = ComponentTesting.newPrivateProjectDto(newOrganizationDto());
+    ComponentDto file = newFileDto(project, null);
+    IssueFacetsCache facetsCache = new IssueFacetsCache(system2);
+    underTest = new IssueIndex(es.client(), system2, userSessionRule, new AuthorizationTypeSupport(userSessionRule), facetsCache);
+    IssueQuery query = IssueQuery.builder().projectUuids(singletonList(project.uuid())).build();
+    SearchOptions options = new SearchOptions().addFacets(singletonList("severities"));
+    indexIssues(
+      newDoc("I1", file).setSeverity(Severity.INFO),
+      newDoc("I2", file).setSeverity(Severity.MAJOR));
+
+    IssueSearchResult result = underTest.searchWithFacets(query, options);
+    assertThat(result.getFacets().get("severities")).containsOnly(entry("INFO", 1L), entry("MAJOR", 1L));
+
+    // index is changed without evicting the cache
+    indexIssues(newDoc("I3", file).setSeverity(Severity.INFO));
+
+    result = underTest.searchWithFacets(query, options);
+    assertThat(result.getResponse().getHits().getTotalHits()).isEqualTo(3L);
+    assertThat(result.getFacets().get("severities")).containsOnly(entry("INFO", 1L), entry("MAJOR", 1L));
+    assertThat(facetsCache.getHits()).isEqualTo(1L);
+    assertThat(facetsCache.getMisses()).isEqualTo(1L);
+
+    facetsCache.evictProjects(singletonList(project.uuid()));
+
+    result = underTest.searchWithFacets(query, options);
+    assertThat(result.getFacets().get("severities")).containsOnly(entry("INFO", 2L), entry("MAJOR", 1L));
+  }
+
+  @Test
+  public void searchWithFacets_does_not_share_cached_facets_between_different_authorization_scopes() {
+    OrganizationDto org = newOrganizationDto();
+    ComponentDto project1 = ComponentTesting.newPrivateProjectDto(org);
+    ComponentDto project2 = ComponentTesting.newPrivateProjectDto(org);
+    GroupDto group1 = newGroupDto();
+    GroupDto group2 = newGroupDto();
+    indexIssue(newDoc("I1", newFileDto(project1, null)).setSeverity(Severity.INFO));
+    authorizationIndexerTester.allowOnlyGroup(project1, group1);
+    indexIssue(newDoc("I2", newFileDto(project2, null)).setSeverity(Severity.MAJOR));
+    authorizationIndexerTester.allowOnlyGroup(project2, group2);
+    IssueFacetsCache facetsCache = new IssueFacetsCache(system2);
+    underTest = new IssueIndex(es.client(), system2, userSessionRule, new AuthorizationTypeSupport(userSessionRule), facetsCache);
+    SearchOptions options = new SearchOptions().addFacets(singletonList("severities"));
+
+    userSessionRule.logIn().setGroups(group1);
+    assertThat(underTest.searchWithFacets(IssueQuery.builder().build(), options).getFacets().get("severities")).containsOnly(entry("INFO", 1L));
+
+    userSessionRule.logIn().setGroups(group2);
+    assertThat(underTest.searchWithFacets(IssueQuery.builder().build(), options).getFacets().get("severities")).containsOnly(entry("MAJOR", 1L));
+
+    assertThat(facetsCache.getHits()).isEqualTo(0L);
+    assertThat(facetsCache.size()).isEqualTo(2);
+  }
+
+  @Test
+  public void searchWithFacets_returns_null_facets_if_not_requested() {
+    ComponentDto project = ComponentTesting.newPrivateProjectDto(newOrganizationDto());
+    indexIssues(newDoc("I1", newFileDto(project, null)));
+
+    IssueSearchResult result = underTest.searchWithFacets(IssueQuery.builder().build(), new SearchOptions());
+
+    assertThat(result.getFacets()).isNull();
+    assertThat(result.getResponse().getHits().getTotalHits()).isEqualTo(1L);
+  }
+
   @Test
   public void filter_by_statuses() {
     ComponentDto project = ComponentTesting.newPrivateProjectDto(newOrganizationDto());
@@ -22,6 +22,7 @@ package org.sonar.server.issue.index;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -32,6 +33,7 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.sonar.api.config.internal.MapSettings;
 import org.sonar.api.resources.Qualifiers;
+import org.sonar.api.utils.System2;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
 import org.sonar.db.DbSession;
@@ -52,6 +54,7 @@ import org.sonar.server.permission.index.PermissionIndexerDao;
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.sonar.db.component.ComponentTesting.newFileDto;
 import static org.sonar.server.issue.IssueDocTesting.newDoc;
@@ -69,6 +72,7 @@ public class IssueIndexerTest {
   @Rule
   public LogTester logTester = new LogTester();
 
+  private IssueFacetsCache facetsCache = new IssueFacetsCache(System2.INSTANCE);
   private OrganizationDto organization;
   private IssueIndexer underTest = new IssueIndexer(es.client(), db.getDbClient(), new IssueIteratorFactory(db.getDbClient()));
 
@@ -105,6 +109,21 @@ public class IssueIndexerTest {
     assertThatIndexHasOnly(issue1, issue2);
   }
 
+  @Test
+  public void indexOnStartup_with_several_threads_adds_issues_of_all_projects_and_branches_to_index() {
+    RuleDefinitionDto rule = db.rules().insert();
+    ComponentDto project = db.components().insertMainBranch(organization);
+    ComponentDto branch = db.components().insertProjectBranch(project);
+    IssueDto issue1 = db.issues().insertIssue(IssueTesting.newIssue(rule, project, db.components().insertComponent(newFileDto(project))));
+    IssueDto issue2 = db.issues().insertIssue(IssueTesting.newIssue(rule, branch, db.components().insertComponent(newFileDto(branch))));
+    IssueDto issue3 = db.issues().insertIssue(organization);
+    underTest = new IssueIndexer(es.client(), db.getDbClient(), new IssueIteratorFactory(db.getDbClient()), 2, facetsCache);
+
+    underTest.indexOnStartup(emptySet());
+
+    assertThatIndexHasOnly(issue1, issue2, issue3);
+  }
+
   @Test
   public void verify_indexed_fields() {
     RuleDefinitionDto rule = db.rules().insert();
@@ -201,6 +220,42 @@ public class IssueIndexerTest {
     }
   }
 
+  @Test
+  public void indexOnAnalysis_with_keys_indexes_only_the_given_issues_and_deletes_the_missing_ones() {
+    RuleDefinitionDto rule = db.rules().insert();
+    ComponentDto project = db.components().insertPrivateProject(organization);
+    ComponentDto file = db.components().insertComponent(newFileDto(project));
+    IssueDto issue1 = db.issues().insertIssue(IssueTesting.newIssue(rule, project, file));
+    IssueDto issue2 = db.issues().insertIssue(IssueTesting.newIssue(rule, project, file));
+    addIssueToIndex(project.uuid(), "removed");
+
+    underTest.indexOnAnalysis(project.uuid(), asList(issue1.getKey(), "removed"));
+
+    assertThatIndexHasOnly(issue1);
+    assertThatEsQueueTableHasSize(0);
+  }
+
+  @Test
+  public void indexing_errors_during_indexOnAnalysis_with_keys_are_recovered() {
+    RuleDefinitionDto rule = db.rules().insert();
+    ComponentDto project = db.components().insertPrivateProject(organization);
+    ComponentDto file = db.components().insertComponent(newFileDto(project));
+    IssueDto issue = db.issues().insertIssue(IssueTesting.newIssue(rule, project, file));
+    es.lockWrites(INDEX_TYPE_ISSUE);
+
+    underTest.indexOnAnalysis(project.uuid(), asList(issue.getKey()));
+
+    assertThatIndexHasSize(0);
+    assertThatEsQueueTableHasSize(1);
+
+    es.unlockWrites(INDEX_TYPE_ISSUE);
+    IndexingResult result = recover();
+
+    assertThatEsQueueTableHasSize(0);
+    assertThatIndexHasOnly(issue);
+    assertThat(result.isSuccess()).isTrue();
+  }
+
   @Test
   public void index_is_not_updated_when_creating_project() {
     // it's impossible to already have an issue on a project
@@ -269,6 +324,35 @@ public class IssueIndexerTest {
     assertThatIndexHasSize(0);
   }
 
+  @Test
+  public void deleteByKeys_evicts_cached_facets_of_project() {
+    ComponentDto project = db.components().insertPrivateProject(organization);
+    ComponentDto otherProject = db.components().insertPrivateProject(organization);
+    underTest = new IssueIndexer(es.client(), db.getDbClient(), new IssueIteratorFactory(db.getDbClient()), 1, facetsCache);
+    facetsCache.put("project", singleton(project.uuid()), new LinkedHashMap<>());
+    facetsCache.put("otherProject", singleton(otherProject.uuid()), new LinkedHashMap<>());
+
+    underTest.deleteByKeys(project.uuid(), asList("I1"));
+
+    assertThat(facetsCache.get("project")).isEmpty();
+    assertThat(facetsCache.get("otherProject")).isPresent();
+  }
+
+  @Test
+  public void commitAndIndexIssues_evicts_cached_facets_of_projects() {
+    RuleDefinitionDto rule = db.rules().insert();
+    ComponentDto project = db.components().insertPrivateProject(organization);
+    ComponentDto file = db.components().insertComponent(newFileDto(project));
+    IssueDto issue = IssueTesting.newIssue(rule, project, file);
+    db.getDbClient().issueDao().insert(db.getSession(), issue);
+    underTest = new IssueIndexer(es.client(), db.getDbClient(), new IssueIteratorFactory(db.getDbClient()), 1, facetsCache);
+    facetsCache.put("project", singleton(project.uuid()), new LinkedHashMap<>());
+
+    underTest.commitAndIndexIssues(db.getSession(), asList(issue));
+
+    assertThat(facetsCache.get("project")).isEmpty();
+  }
+
   @Test
   public void commitAndIndexIssues_commits_db_transaction_and_adds_issues_to_index() {
     RuleDefinitionDto rule = db.rules().insert();
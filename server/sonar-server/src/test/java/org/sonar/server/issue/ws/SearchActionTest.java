@@ -20,6 +20,8 @@
 package org.sonar.server.issue.ws;
 
 import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -48,6 +50,7 @@ import org.sonar.db.rule.RuleDto;
 import org.sonar.db.rule.RuleTesting;
 import org.sonar.db.user.UserDto;
 import org.sonar.server.es.EsTester;
+import org.sonar.server.es.SearchAfterCursor;
 import org.sonar.server.es.SearchOptions;
 import org.sonar.server.es.StartupIndexer;
 import org.sonar.server.issue.IssueFieldsSetter;
@@ -66,6 +69,7 @@ import org.sonar.server.tester.UserSessionRule;
 import org.sonar.server.ws.TestResponse;
 import org.sonar.server.ws.WsActionTester;
 import org.sonar.server.ws.WsResponseCommonFormat;
+import org.sonarqube.ws.Issues.SearchWsResponse;
 
 import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -77,6 +81,7 @@ import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_ADDITIONAL_
 import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_COMPONENTS;
 import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_COMPONENT_KEYS;
 import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_CREATED_AFTER;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_CURSOR;
 import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_HIDE_COMMENTS;
 import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_PAGE_INDEX;
 import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_PAGE_SIZE;
@@ -133,7 +138,7 @@ public class SearchActionTest {
       "additionalFields", "asc", "assigned", "assignees", "authors", "componentKeys", "componentRootUuids", "componentRoots", "componentUuids", "components", "branch",
       "organization",
       "createdAfter", "createdAt", "createdBefore", "createdInLast", "directories", "facetMode", "facets", "fileUuids", "issues", "languages", "moduleUuids", "onComponentOnly",
-      "p", "projectUuids", "projects", "ps", "resolutions", "resolved", "rules", "s", "severities", "sinceLeakPeriod",
+      "cursor", "p", "projectUuids", "projects", "ps", "resolutions", "resolved", "rules", "s", "severities", "sinceLeakPeriod",
       "statuses", "tags", "types");
 
     assertThat(def.param("organization"))
@@ -657,6 +662,78 @@ public class SearchActionTest {
       .assertJson(this.getClass(), "deprecated_paging.json");
   }
 
+  @Test
+  public void paging_with_cursor() {
+    RuleDto rule = newRule();
+    ComponentDto project = insertComponent(ComponentTesting.newPublicProjectDto(otherOrganization1, "PROJECT_ID").setDbKey("PROJECT_KEY"));
+    indexPermissions();
+    ComponentDto file = insertComponent(ComponentTesting.newFileDto(project, null, "FILE_ID").setDbKey("FILE_KEY"));
+    List<String> issueKeys = new ArrayList<>();
+    for (int i = 0; i < 12; i++) {
+      // same creation date, the issue key is the tie-breaker
+      IssueDto issue = IssueTesting.newDto(rule, file, project).setIssueCreationDate(DateUtils.parseDate("2017-10-19"));
+      dbClient.issueDao().insert(session, issue);
+      issueKeys.add(issue.getKey());
+    }
+    session.commit();
+    indexIssues();
+
+    List<String> returnedKeys = new ArrayList<>();
+    SearchWsResponse page = ws.newRequest()
+      .setParam(WebService.Param.PAGE_SIZE, "5")
+      .executeProtobuf(SearchWsResponse.class);
+    page.getIssuesList().forEach(issue -> returnedKeys.add(issue.getKey()));
+    assertThat(page.getIssuesCount()).isEqualTo(5);
+    while (page.hasNextCursor()) {
+      page = ws.newRequest()
+        .setParam(WebService.Param.PAGE_SIZE, "5")
+        .setParam(PARAM_CURSOR, page.getNextCursor())
+        .executeProtobuf(SearchWsResponse.class);
+      page.getIssuesList().forEach(issue -> returnedKeys.add(issue.getKey()));
+    }
+
+    assertThat(returnedKeys).containsExactlyInAnyOrder(issueKeys.toArray(new String[0]));
+    assertThat(page.getIssuesCount()).isEqualTo(2);
+    assertThat(page.getTotal()).isEqualTo(12);
+  }
+
+  @Test
+  public void fail_if_cursor_is_used_with_page_index() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Parameter 'p' must be 1 when 'cursor' is set");
+
+    ws.newRequest()
+      .setParam(WebService.Param.PAGE, "2")
+      .setParam(PARAM_CURSOR, SearchAfterCursor.encode(new Object[] {"ABCD"}))
+      .execute();
+  }
+
+  @Test
+  public void next_cursor_is_returned_if_page_is_full() {
+    Object[] lastSortValues = {1508419200000L, "ABCD"};
+
+    SearchWsResponse response = SearchAction.completeWithCursorAndPartial(SearchWsResponse.getDefaultInstance(), lastSortValues, false);
+
+    assertThat(response.getNextCursor()).isEqualTo(SearchAfterCursor.encode(lastSortValues));
+    assertThat(response.hasPartial()).isFalse();
+  }
+
+  @Test
+  public void next_cursor_is_not_returned_if_search_timed_out() {
+    SearchWsResponse response = SearchAction.completeWithCursorAndPartial(SearchWsResponse.getDefaultInstance(), new Object[] {1508419200000L, "ABCD"}, true);
+
+    assertThat(response.hasNextCursor()).isFalse();
+    assertThat(response.getPartial()).isTrue();
+  }
+
+  @Test
+  public void next_cursor_is_not_returned_on_last_page() {
+    SearchWsResponse response = SearchAction.completeWithCursorAndPartial(SearchWsResponse.getDefaultInstance(), null, false);
+
+    assertThat(response.hasNextCursor()).isFalse();
+    assertThat(response.hasPartial()).isFalse();
+  }
+
   @Test
   public void default_page_size_is_100() throws Exception {
     ws.newRequest()
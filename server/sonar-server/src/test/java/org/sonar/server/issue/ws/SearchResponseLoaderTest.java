@@ -0,0 +1,107 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue.ws;
+
+import java.util.EnumSet;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.LogTester;
+import org.sonar.api.utils.log.LoggerLevel;
+import org.sonar.db.DbTester;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.db.issue.IssueDto;
+import org.sonar.db.rule.RuleDefinitionDto;
+import org.sonar.db.user.UserDto;
+import org.sonar.server.issue.TransitionService;
+import org.sonar.server.tester.UserSessionRule;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.sonar.db.component.ComponentTesting.newFileDto;
+import static org.sonar.server.issue.ws.SearchAdditionalField.COMMENTS;
+import static org.sonar.server.issue.ws.SearchAdditionalField.RULES;
+import static org.sonar.server.issue.ws.SearchAdditionalField.USERS;
+
+public class SearchResponseLoaderTest {
+
+  @Rule
+  public DbTester db = DbTester.create(System2.INSTANCE);
+  @Rule
+  public UserSessionRule userSession = UserSessionRule.standalone();
+  @Rule
+  public LogTester logTester = new LogTester();
+
+  private SearchResponseLoader underTest = new SearchResponseLoader(userSession, db.getDbClient(), mock(TransitionService.class));
+
+  @After
+  public void tearDown() {
+    underTest.stop();
+  }
+
+  @Test
+  public void load_rules_users_comments_and_components_concurrently() {
+    logTester.setLevel(LoggerLevel.DEBUG);
+    underTest.start();
+    UserDto assignee = db.users().insertUser();
+    UserDto commentAuthor = db.users().insertUser();
+    RuleDefinitionDto rule = db.rules().insert();
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto file = db.components().insertComponent(newFileDto(project));
+    IssueDto issue = db.issues().insert(rule, project, file, i -> i.setAssignee(assignee.getLogin()));
+    db.issues().insertComment(issue, commentAuthor.getLogin(), "the comment");
+    userSession.logIn(commentAuthor);
+
+    SearchResponseData data = underTest.load(new SearchResponseLoader.Collector(EnumSet.of(RULES, USERS, COMMENTS), singletonList(issue.getKey())), null);
+
+    assertThat(data.getIssues()).extracting(IssueDto::getKey).containsExactly(issue.getKey());
+    assertThat(data.getRules()).extracting(RuleDefinitionDto::getKey).containsExactly(rule.getKey());
+    // authors of comments are loaded once the comments are known
+    assertThat(data.getUsers()).extracting(UserDto::getLogin).containsOnly(assignee.getLogin(), commentAuthor.getLogin());
+    assertThat(data.getCommentsForIssueKey(issue.getKey())).hasSize(1);
+    assertThat(data.isUpdatableComment(data.getCommentsForIssueKey(issue.getKey()).get(0).getKey())).isTrue();
+    assertThat(data.getComponents()).extracting(ComponentDto::uuid).containsOnly(project.uuid(), file.uuid());
+    assertThat(data.getOrganizationKey(project.getOrganizationUuid())).isEqualTo(db.getDefaultOrganization().getKey());
+    assertThat(String.join("\n", logTester.logs(LoggerLevel.DEBUG)))
+      .contains("Loaded rules of issues")
+      .contains("Loaded users of issues")
+      .contains("Loaded comments of issues")
+      .contains("Loaded components of issues");
+  }
+
+  @Test
+  public void do_not_load_data_already_preloaded() {
+    RuleDefinitionDto rule = db.rules().insert();
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto file = db.components().insertComponent(newFileDto(project));
+    IssueDto issue = db.issues().insert(rule, project, file);
+    SearchResponseData preloaded = new SearchResponseData(issue);
+    preloaded.setRules(singletonList(rule));
+    preloaded.addComponents(singletonList(project));
+
+    SearchResponseData data = underTest.load(preloaded, new SearchResponseLoader.Collector(EnumSet.of(RULES), singletonList(issue.getKey())), null);
+
+    assertThat(data).isNotSameAs(preloaded);
+    assertThat(data.getRules()).containsExactly(rule);
+    assertThat(data.getComponents()).extracting(ComponentDto::uuid).containsOnly(project.uuid(), file.uuid());
+  }
+}
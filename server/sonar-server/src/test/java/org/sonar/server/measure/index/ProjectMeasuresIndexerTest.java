@@ -81,6 +81,19 @@ public class ProjectMeasuresIndexerTest {
     assertThatIndexContainsOnly(project1, project2, project3);
   }
 
+  @Test
+  public void indexOnStartup_with_several_threads_indexes_all_projects() {
+    OrganizationDto organization = db.organizations().insert();
+    SnapshotDto project1 = db.components().insertProjectAndSnapshot(newPrivateProjectDto(organization));
+    SnapshotDto project2 = db.components().insertProjectAndSnapshot(newPrivateProjectDto(organization));
+    SnapshotDto project3 = db.components().insertProjectAndSnapshot(newPrivateProjectDto(organization));
+    underTest = new ProjectMeasuresIndexer(db.getDbClient(), es.client(), 2);
+
+    underTest.indexOnStartup(emptySet());
+
+    assertThatIndexContainsOnly(project1, project2, project3);
+  }
+
   /**
    * Provisioned projects don't have analysis yet
    */
@@ -19,16 +19,22 @@
  */
 package org.sonar.server.permission.index;
 
+import com.google.common.collect.ImmutableSet;
+import java.util.Optional;
 import org.elasticsearch.index.query.MatchAllQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.TermsQueryBuilder;
 import org.elasticsearch.join.query.HasParentQueryBuilder;
 import org.junit.Rule;
 import org.junit.Test;
+import org.sonar.api.utils.System2;
 import org.sonar.db.user.GroupDto;
 import org.sonar.db.user.GroupTesting;
+import org.sonar.server.es.EsClient;
 import org.sonar.server.tester.UserSessionRule;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
 import static org.sonar.test.JsonAssert.assertJson;
 
 public class AuthorizationTypeSupportTest {
@@ -150,4 +156,64 @@ public class AuthorizationTypeSupportTest {
       "  }" +
       "}");
   }
+
+  @Test
+  public void createQueryFilter_on_index_type_does_not_include_permission_filters_if_user_is_flagged_as_root() {
+    userSession.logIn().setRoot();
+
+    QueryBuilder filter = underTest.createQueryFilter(FooIndexDefinition.INDEX_TYPE_FOO);
+
+    assertThat(filter).isInstanceOf(MatchAllQueryBuilder.class);
+  }
+
+  @Test
+  public void createQueryFilter_on_index_type_joins_on_type_authorization_if_elasticsearch_is_not_available() {
+    userSession.logIn().setUserId(1234);
+
+    QueryBuilder filter = underTest.createQueryFilter(FooIndexDefinition.INDEX_TYPE_FOO);
+
+    assertThat(filter).isInstanceOf(HasParentQueryBuilder.class);
+  }
+
+  @Test
+  public void createQueryFilter_on_index_type_filters_on_routing_if_authorized_projects_are_listed() {
+    userSession.logIn().setUserId(1234);
+    AuthorizedProjectsCache cache = new AuthorizedProjectsCache(System2.INSTANCE);
+    cache.get("foos|" + underTest.getAuthorizationKey(), () -> Optional.of(ImmutableSet.of("P1", "P2")));
+    underTest = new AuthorizationTypeSupport(userSession, mock(EsClient.class), cache);
+
+    QueryBuilder filter = underTest.createQueryFilter(FooIndexDefinition.INDEX_TYPE_FOO);
+
+    assertThat(filter).isInstanceOf(TermsQueryBuilder.class);
+    assertThat(((TermsQueryBuilder) filter).fieldName()).isEqualTo("_routing");
+    assertThat(((TermsQueryBuilder) filter).values()).containsOnly("P1", "P2");
+  }
+
+  @Test
+  public void createQueryFilter_on_index_type_joins_on_type_authorization_if_authorized_projects_are_too_many_to_be_listed() {
+    userSession.logIn().setUserId(1234);
+    AuthorizedProjectsCache cache = new AuthorizedProjectsCache(System2.INSTANCE);
+    cache.get("foos|" + underTest.getAuthorizationKey(), Optional::empty);
+    underTest = new AuthorizationTypeSupport(userSession, mock(EsClient.class), cache);
+
+    QueryBuilder filter = underTest.createQueryFilter(FooIndexDefinition.INDEX_TYPE_FOO);
+
+    assertThat(filter).isInstanceOf(HasParentQueryBuilder.class);
+  }
+
+  @Test
+  public void getAuthorizationKey_does_not_depend_on_order_of_groups() {
+    GroupDto group1 = GroupTesting.newGroupDto().setId(10);
+    GroupDto group2 = GroupTesting.newGroupDto().setId(11);
+
+    userSession.logIn().setUserId(1234).setGroups(group1, group2);
+    String key = underTest.getAuthorizationKey();
+    userSession.logIn().setUserId(1234).setGroups(group2, group1);
+
+    assertThat(underTest.getAuthorizationKey()).isEqualTo(key);
+    userSession.logIn().setUserId(1234).setGroups(group1);
+    assertThat(underTest.getAuthorizationKey()).isNotEqualTo(key);
+    userSession.anonymous();
+    assertThat(underTest.getAuthorizationKey()).isNotEqualTo(key);
+  }
 }
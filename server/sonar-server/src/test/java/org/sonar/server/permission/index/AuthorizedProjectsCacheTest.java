@@ -0,0 +1,136 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.permission.index;
+
+import com.google.common.collect.ImmutableSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.Test;
+import org.sonar.api.utils.internal.TestSystem2;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AuthorizedProjectsCacheTest {
+
+  private TestSystem2 system2 = new TestSystem2().setNow(1_000L);
+  private AtomicInteger loads = new AtomicInteger();
+  private AuthorizedProjectsCache underTest = new AuthorizedProjectsCache(system2, 2, 10, 100L);
+
+  @Test
+  public void load_once_then_read_from_cache() {
+    assertThat(underTest.get("foo", loader("P1", "P2"))).contains(ImmutableSet.of("P1", "P2"));
+    assertThat(underTest.get("foo", loader("P3"))).contains(ImmutableSet.of("P1", "P2"));
+
+    assertThat(loads.get()).isEqualTo(1);
+    assertThat(underTest.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void cache_absence_of_list() {
+    assertThat(underTest.get("foo", this::tooManyProjects)).isEmpty();
+    assertThat(underTest.get("foo", loader("P1"))).isEmpty();
+
+    assertThat(loads.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void reload_expired_entries() {
+    underTest.get("foo", loader("P1"));
+
+    system2.setNow(1_100L);
+
+    assertThat(underTest.get("foo", loader("P2"))).contains(ImmutableSet.of("P2"));
+    assertThat(loads.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void remove_least_recently_used_entries() {
+    underTest.get("foo", loader("P1"));
+    underTest.get("bar", loader("P2"));
+    underTest.get("foo", loader("P3"));
+    underTest.get("baz", loader("P4"));
+
+    assertThat(underTest.size()).isEqualTo(2);
+    assertThat(underTest.get("foo", loader("P5"))).contains(ImmutableSet.of("P1"));
+    assertThat(underTest.get("bar", loader("P6"))).contains(ImmutableSet.of("P6"));
+  }
+
+  @Test
+  public void remove_least_recently_used_entries_when_too_many_project_uuids() {
+    underTest = new AuthorizedProjectsCache(system2, 10, 3, 100L);
+
+    underTest.get("foo", loader("P1", "P2"));
+    underTest.get("bar", this::tooManyProjects);
+    underTest.get("baz", loader("P3", "P4"));
+
+    assertThat(underTest.size()).isEqualTo(2);
+    assertThat(underTest.get("bar", loader("P5"))).isEmpty();
+    assertThat(underTest.get("baz", loader("P6"))).contains(ImmutableSet.of("P3", "P4"));
+    assertThat(underTest.get("foo", loader("P7"))).contains(ImmutableSet.of("P7"));
+  }
+
+  @Test
+  public void do_not_cache_value_loaded_while_cache_is_evicted() {
+    assertThat(underTest.get("foo", () -> {
+      underTest.evictAll();
+      return loader("P1").get();
+    })).contains(ImmutableSet.of("P1"));
+
+    assertThat(underTest.size()).isEqualTo(0);
+    assertThat(underTest.get("foo", loader("P2"))).contains(ImmutableSet.of("P2"));
+    assertThat(underTest.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void evictAll_removes_all_entries() {
+    underTest.get("foo", loader("P1"));
+    underTest.get("bar", loader("P2"));
+
+    underTest.evictAll();
+
+    assertThat(underTest.size()).isEqualTo(0);
+    assertThat(underTest.get("foo", loader("P3"))).contains(ImmutableSet.of("P3"));
+  }
+
+  @Test
+  public void nothing_is_cached_if_max_entries_is_zero() {
+    underTest = new AuthorizedProjectsCache(system2, 0, 10, 100L);
+
+    underTest.get("foo", loader("P1"));
+    underTest.get("foo", loader("P1"));
+
+    assertThat(underTest.size()).isEqualTo(0);
+    assertThat(loads.get()).isEqualTo(2);
+  }
+
+  private Supplier<Optional<Set<String>>> loader(String... projectUuids) {
+    return () -> {
+      loads.incrementAndGet();
+      return Optional.of(ImmutableSet.copyOf(projectUuids));
+    };
+  }
+
+  private Optional<Set<String>> tooManyProjects() {
+    loads.incrementAndGet();
+    return Optional.empty();
+  }
+}
@@ -28,6 +28,7 @@ import org.sonar.server.es.EsClient;
 
 import static org.sonar.server.permission.index.FooIndexDefinition.FOO_INDEX;
 import static org.sonar.server.permission.index.FooIndexDefinition.FOO_TYPE;
+import static org.sonar.server.permission.index.FooIndexDefinition.INDEX_TYPE_FOO;
 
 public class FooIndex {
 
@@ -44,7 +45,7 @@ public class FooIndex {
       .setTypes(FOO_TYPE)
       .setQuery(QueryBuilders.boolQuery()
         .must(QueryBuilders.termQuery(FooIndexDefinition.FIELD_PROJECT_UUID, projectUuid))
-        .filter(authorizationTypeSupport.createQueryFilter()))
+        .filter(authorizationTypeSupport.createQueryFilter(INDEX_TYPE_FOO)))
       .get()
       .getHits();
     List<String> names = Arrays.stream(hits.hits())
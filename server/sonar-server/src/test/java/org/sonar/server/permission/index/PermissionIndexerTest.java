@@ -20,10 +20,12 @@
 package org.sonar.server.permission.index;
 
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.sonar.api.utils.System2;
+import org.sonar.api.utils.internal.TestSystem2;
 import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
 import org.sonar.db.component.ComponentDto;
@@ -35,9 +37,11 @@ import org.sonar.server.es.EsTester;
 import org.sonar.server.es.IndexType;
 import org.sonar.server.es.IndexingResult;
 import org.sonar.server.es.ProjectIndexer;
+import org.sonar.server.issue.index.IssueFacetsCache;
 import org.sonar.server.tester.UserSessionRule;
 
 import static java.util.Arrays.asList;
+import static java.util.Collections.emptySet;
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.sonar.api.web.UserRole.ADMIN;
@@ -57,9 +61,11 @@ public class PermissionIndexerTest {
   @Rule
   public UserSessionRule userSession = UserSessionRule.standalone();
 
-  private FooIndex fooIndex = new FooIndex(es.client(), new AuthorizationTypeSupport(userSession));
+  private AuthorizedProjectsCache authorizedProjectsCache = new AuthorizedProjectsCache(System2.INSTANCE);
+  private IssueFacetsCache issueFacetsCache = new IssueFacetsCache(System2.INSTANCE);
+  private FooIndex fooIndex = new FooIndex(es.client(), new AuthorizationTypeSupport(userSession, es.client(), authorizedProjectsCache));
   private FooIndexer fooIndexer = new FooIndexer(db.getDbClient(), es.client());
-  private PermissionIndexer underTest = new PermissionIndexer(db.getDbClient(), es.client(), fooIndexer);
+  private PermissionIndexer underTest = new PermissionIndexer(db.getDbClient(), es.client(), authorizedProjectsCache, issueFacetsCache, fooIndexer);
 
   @Test
   public void indexOnStartup_grants_access_to_any_user_and_to_group_Anyone_on_public_projects() {
@@ -294,6 +300,54 @@ public class PermissionIndexerTest {
     verifyAuthorized(project, user1);
   }
 
+  @Test
+  public void permission_change_evicts_cache_of_authorized_projects() {
+    ComponentDto project = createAndIndexPrivateProject();
+    UserDto user = db.users().insertUser();
+    indexPermissions(project, ProjectIndexer.Cause.PROJECT_CREATION);
+    verifyNotAuthorized(project, user);
+    assertThat(authorizedProjectsCache.size()).isEqualTo(1);
+
+    db.users().insertProjectPermissionOnUser(user, USER, project);
+    indexPermissions(project, PERMISSION_CHANGE);
+
+    assertThat(authorizedProjectsCache.size()).isEqualTo(0);
+    verifyAuthorized(project, user);
+  }
+
+  @Test
+  public void stale_cache_of_authorized_projects_gives_access_to_project_until_expiration() {
+    ComponentDto project = createAndIndexPrivateProject();
+    UserDto user = db.users().insertUser();
+    db.users().insertProjectPermissionOnUser(user, USER, project);
+    indexPermissions(project, ProjectIndexer.Cause.PROJECT_CREATION);
+    // cache of another node of the cluster, which is not evicted when permissions are indexed
+    TestSystem2 otherNodeSystem2 = new TestSystem2().setNow(1_000L);
+    AuthorizedProjectsCache otherNodeCache = new AuthorizedProjectsCache(otherNodeSystem2, 10, 100, 10_000L);
+    FooIndex otherNodeIndex = new FooIndex(es.client(), new AuthorizationTypeSupport(userSession, es.client(), otherNodeCache));
+    logIn(user);
+    assertThat(otherNodeIndex.hasAccessToProject(project.uuid())).isTrue();
+
+    db.users().deletePermissionFromUser(project, user, USER);
+    indexPermissions(project, PERMISSION_CHANGE);
+
+    assertThat(otherNodeIndex.hasAccessToProject(project.uuid())).isTrue();
+    otherNodeSystem2.setNow(11_000L);
+    assertThat(otherNodeIndex.hasAccessToProject(project.uuid())).isFalse();
+  }
+
+  @Test
+  public void permission_change_evicts_cache_of_issue_facets() {
+    ComponentDto project = createAndIndexPrivateProject();
+    UserDto user = db.users().insertUser();
+    issueFacetsCache.put("key", emptySet(), new LinkedHashMap<>());
+
+    db.users().insertProjectPermissionOnUser(user, USER, project);
+    indexPermissions(project, PERMISSION_CHANGE);
+
+    assertThat(issueFacetsCache.size()).isEqualTo(0);
+  }
+
   @Test
   public void delete_permissions_on_project_deletion() {
     ComponentDto project = createAndIndexPrivateProject();
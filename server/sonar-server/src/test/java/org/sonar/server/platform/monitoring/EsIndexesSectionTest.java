@@ -19,15 +19,21 @@
  */
 package org.sonar.server.platform.monitoring;
 
+import java.util.LinkedHashMap;
 import org.elasticsearch.ElasticsearchException;
 import org.junit.Rule;
 import org.junit.Test;
 import org.sonar.api.config.internal.MapSettings;
+import org.sonar.api.utils.System2;
 import org.sonar.process.systeminfo.protobuf.ProtobufSystemInfo;
+import org.sonar.server.es.BulkIndexer;
 import org.sonar.server.es.EsClient;
 import org.sonar.server.es.EsTester;
+import org.sonar.server.es.RecoveryIndexer;
+import org.sonar.server.issue.index.IssueFacetsCache;
 import org.sonar.server.issue.index.IssueIndexDefinition;
 
+import static java.util.Collections.emptySet;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -39,7 +45,10 @@ public class EsIndexesSectionTest {
   @Rule
   public EsTester esTester = new EsTester(new IssueIndexDefinition(new MapSettings().asConfig()));
 
-  private EsIndexesSection underTest = new EsIndexesSection(esTester.client());
+  private EsClient esClient = esTester.client();
+  private IssueFacetsCache issueFacetsCache = new IssueFacetsCache(System2.INSTANCE);
+  private RecoveryIndexer recoveryIndexer = mock(RecoveryIndexer.class);
+  private EsIndexesSection underTest = new EsIndexesSection(esClient, issueFacetsCache, recoveryIndexer);
 
   @Test
   public void name() {
@@ -56,10 +65,54 @@ public class EsIndexesSectionTest {
     assertThat(attribute(section, "Index issues - Store Size").getStringValue()).isNotNull();
   }
 
+  @Test
+  public void bulk_attributes() {
+    BulkIndexer bulkIndexer = new BulkIndexer(esClient, IssueIndexDefinition.INDEX_TYPE_ISSUE, BulkIndexer.Size.REGULAR);
+    bulkIndexer.start();
+    bulkIndexer.addDeletion(IssueIndexDefinition.INDEX_TYPE_ISSUE, "I1", "P1");
+    bulkIndexer.stop();
+
+    ProtobufSystemInfo.Section section = underTest.toProtobuf();
+
+    assertThat(attribute(section, "Index issues - Bulk Requests").getLongValue()).isGreaterThan(0L);
+    assertThat(attribute(section, "Index issues - Bulk Rejected Documents").getLongValue()).isEqualTo(0L);
+    assertThat(attribute(section, "Index issues - Bulk Size (regular)").getStringValue()).isEqualTo("1 MB");
+    assertThat(attribute(section, "Index issues - Bulk Concurrent Requests (regular)").getLongValue()).isEqualTo(0L);
+    assertThat(attribute(section, "Index issues - Bulk Size (large)")).isNull();
+  }
+
+  @Test
+  public void issue_facets_cache_attributes() {
+    issueFacetsCache.put("key", emptySet(), new LinkedHashMap<>());
+    issueFacetsCache.get("key");
+    issueFacetsCache.get("key");
+    issueFacetsCache.get("other_key");
+
+    ProtobufSystemInfo.Section section = underTest.toProtobuf();
+
+    assertThat(attribute(section, "Index issues - Facets Cache Entries").getLongValue()).isEqualTo(1L);
+    assertThat(attribute(section, "Index issues - Facets Cache Hits").getLongValue()).isEqualTo(2L);
+    assertThat(attribute(section, "Index issues - Facets Cache Misses").getLongValue()).isEqualTo(1L);
+    assertThat(attribute(section, "Index issues - Facets Cache Hit Ratio (%)").getLongValue()).isEqualTo(66L);
+  }
+
+  @Test
+  public void recovery_attributes() {
+    when(recoveryIndexer.countBacklog()).thenReturn(42L);
+    when(recoveryIndexer.getLastRunDocuments()).thenReturn(1_000L);
+    when(recoveryIndexer.getLastRunDocumentsPerSecond()).thenReturn(250L);
+
+    ProtobufSystemInfo.Section section = underTest.toProtobuf();
+
+    assertThat(attribute(section, "Recovery Queue Size").getLongValue()).isEqualTo(42L);
+    assertThat(attribute(section, "Recovery Last Run Documents").getLongValue()).isEqualTo(1_000L);
+    assertThat(attribute(section, "Recovery Last Run Throughput (docs/s)").getLongValue()).isEqualTo(250L);
+  }
+
   @Test
   public void attributes_displays_exception_message_when_cause_null_when_client_fails() {
     EsClient esClientMock = mock(EsClient.class);
-    EsIndexesSection underTest = new EsIndexesSection(esClientMock);
+    EsIndexesSection underTest = new EsIndexesSection(esClientMock, issueFacetsCache, recoveryIndexer);
     when(esClientMock.prepareStats()).thenThrow(new RuntimeException("RuntimeException with no cause"));
 
     ProtobufSystemInfo.Section section = underTest.toProtobuf();
@@ -69,7 +122,7 @@ public class EsIndexesSectionTest {
   @Test
   public void attributes_displays_exception_message_when_cause_is_not_ElasticSearchException_when_client_fails() {
     EsClient esClientMock = mock(EsClient.class);
-    EsIndexesSection underTest = new EsIndexesSection(esClientMock);
+    EsIndexesSection underTest = new EsIndexesSection(esClientMock, issueFacetsCache, recoveryIndexer);
     when(esClientMock.prepareStats()).thenThrow(new RuntimeException("RuntimeException with cause not ES", new IllegalArgumentException("some cause message")));
 
     ProtobufSystemInfo.Section section = underTest.toProtobuf();
@@ -79,7 +132,7 @@ public class EsIndexesSectionTest {
   @Test
   public void attributes_displays_cause_message_when_cause_is_ElasticSearchException_when_client_fails() {
     EsClient esClientMock = mock(EsClient.class);
-    EsIndexesSection underTest = new EsIndexesSection(esClientMock);
+    EsIndexesSection underTest = new EsIndexesSection(esClientMock, issueFacetsCache, recoveryIndexer);
     when(esClientMock.prepareStats()).thenThrow(new RuntimeException("RuntimeException with ES cause", new ElasticsearchException("some cause message")));
 
     ProtobufSystemInfo.Section section = underTest.toProtobuf();
@@ -0,0 +1,69 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.config.internal.MapSettings;
+import org.sonar.process.systeminfo.protobuf.ProtobufSystemInfo;
+import org.sonar.server.es.EsClient;
+import org.sonar.server.es.EsTester;
+import org.sonar.server.issue.index.IssueIndexDefinition;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.process.systeminfo.SystemInfoUtils.attribute;
+import static org.sonar.server.issue.index.IssueIndexDefinition.INDEX_TYPE_ISSUE;
+
+public class EsSearchRequestsSectionTest {
+
+  @Rule
+  public EsTester esTester = new EsTester(new IssueIndexDefinition(new MapSettings().asConfig()));
+
+  private EsClient esClient = esTester.client();
+  private EsSearchRequestsSection underTest = new EsSearchRequestsSection(esClient);
+
+  @Test
+  public void names() {
+    assertThat(underTest.name()).isEqualTo("SearchRequests");
+    assertThat(underTest.toProtobuf().getName()).isEqualTo("Web Search Requests");
+  }
+
+  @Test
+  public void no_attributes_if_no_requests() {
+    assertThat(underTest.toProtobuf().getAttributesCount()).isEqualTo(0);
+    assertThat(underTest.getRequests()).isEqualTo(0L);
+    assertThat(underTest.getLatencyHistograms()).isEmpty();
+  }
+
+  @Test
+  public void search_request_attributes() {
+    esClient.prepareSearch(INDEX_TYPE_ISSUE).get();
+
+    ProtobufSystemInfo.Section section = underTest.toProtobuf();
+
+    assertThat(attribute(section, "Index issues - Requests").getLongValue()).isEqualTo(1L);
+    assertThat(attribute(section, "Index issues - Timed Out Requests").getLongValue()).isEqualTo(0L);
+    assertThat(attribute(section, "Index issues - Mean Latency (ms)")).isNotNull();
+    assertThat(attribute(section, "Index issues - Latency > 10000 ms").getLongValue()).isEqualTo(0L);
+    assertThat(underTest.getRequests()).isEqualTo(1L);
+    assertThat(underTest.getTimedOutRequests()).isEqualTo(0L);
+    assertThat(underTest.getLatencyHistograms()).containsOnlyKeys("issues");
+  }
+}
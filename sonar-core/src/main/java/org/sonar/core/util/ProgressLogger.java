@@ -84,6 +84,15 @@ public class ProgressLogger {
     return task.pluralLabel;
   }
 
+  /**
+   * Total number of items to be processed. When set, the logs contain the estimated remaining time.
+   * Default is unknown.
+   */
+  public ProgressLogger setExpectedTotal(long l) {
+    task.expectedTotal = l;
+    return this;
+  }
+
   public void log() {
     task.log();
   }
@@ -92,6 +101,7 @@ public class ProgressLogger {
     private final AtomicLong counter;
     private final Logger logger;
     private String pluralLabel = "rows";
+    private long expectedTotal = -1L;
     private long previousCounter = 0L;
 
     private LoggerTimerTask(AtomicLong counter, Logger logger) {
@@ -106,8 +116,31 @@ public class ProgressLogger {
 
     private void log() {
       long current = counter.get();
-      logger.info(String.format("%d %s processed (%d items/sec)", current, pluralLabel, 1000 * (current - previousCounter) / periodMs));
+      long itemsPerSecond = 1000 * (current - previousCounter) / periodMs;
+      if (expectedTotal < 0) {
+        logger.info(String.format("%d %s processed (%d items/sec)", current, pluralLabel, itemsPerSecond));
+      } else {
+        logger.info(String.format("%d/%d %s processed (%d items/sec, ETA %s)", current, expectedTotal, pluralLabel, itemsPerSecond,
+          formatEta(expectedTotal - current, itemsPerSecond)));
+      }
       previousCounter = current;
     }
+
+    private String formatEta(long remaining, long itemsPerSecond) {
+      if (remaining <= 0) {
+        return "0s";
+      }
+      if (itemsPerSecond <= 0) {
+        return "unknown";
+      }
+      long seconds = remaining / itemsPerSecond;
+      if (seconds >= 3_600) {
+        return String.format("%dh %02dmin", seconds / 3_600, (seconds % 3_600) / 60);
+      }
+      if (seconds >= 60) {
+        return String.format("%dmin %02ds", seconds / 60, seconds % 60);
+      }
+      return String.format("%ds", seconds);
+    }
   }
 }
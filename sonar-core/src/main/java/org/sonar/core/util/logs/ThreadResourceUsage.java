@@ -0,0 +1,97 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.util.logs;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.apache.commons.io.FileUtils.byteCountToDisplaySize;
+
+/**
+ * Measures the CPU time consumed and the memory allocated by the current thread since the call
+ * to {@link #start()}. Values are {@code -1} if the JVM does not support these measures.
+ */
+public final class ThreadResourceUsage {
+  private static final long UNSUPPORTED = -1L;
+  private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+  private final long threadId;
+  private final long startCpuTimeNs;
+  private final long startAllocatedBytes;
+
+  private ThreadResourceUsage() {
+    this.threadId = Thread.currentThread().getId();
+    this.startCpuTimeNs = currentCpuTimeNs();
+    this.startAllocatedBytes = currentAllocatedBytes(threadId);
+  }
+
+  public static ThreadResourceUsage start() {
+    return new ThreadResourceUsage();
+  }
+
+  public long getCpuTimeMs() {
+    long cpuTimeNs = currentCpuTimeNs();
+    if (cpuTimeNs == UNSUPPORTED || startCpuTimeNs == UNSUPPORTED) {
+      return UNSUPPORTED;
+    }
+    return (cpuTimeNs - startCpuTimeNs) / 1_000_000L;
+  }
+
+  public long getAllocatedBytes() {
+    long allocatedBytes = currentAllocatedBytes(threadId);
+    if (allocatedBytes == UNSUPPORTED || startAllocatedBytes == UNSUPPORTED) {
+      return UNSUPPORTED;
+    }
+    return allocatedBytes - startAllocatedBytes;
+  }
+
+  /**
+   * Adds the measures, when supported, to the context of the specified {@link Profiler}
+   * as {@code cpuTime} and {@code allocated}.
+   */
+  public Profiler addContextTo(Profiler profiler) {
+    long cpuTimeMs = getCpuTimeMs();
+    if (cpuTimeMs != UNSUPPORTED) {
+      profiler.addContext("cpuTime", cpuTimeMs + "ms");
+    }
+    long allocatedBytes = getAllocatedBytes();
+    if (allocatedBytes != UNSUPPORTED) {
+      profiler.addContext("allocated", byteCountToDisplaySize(allocatedBytes));
+    }
+    return profiler;
+  }
+
+  private static long currentCpuTimeNs() {
+    if (!THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported()) {
+      return UNSUPPORTED;
+    }
+    return THREAD_MX_BEAN.getCurrentThreadCpuTime();
+  }
+
+  private static long currentAllocatedBytes(long threadId) {
+    if (THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean sunThreadMXBean = (com.sun.management.ThreadMXBean) THREAD_MX_BEAN;
+      if (sunThreadMXBean.isThreadAllocatedMemorySupported() && sunThreadMXBean.isThreadAllocatedMemoryEnabled()) {
+        return sunThreadMXBean.getThreadAllocatedBytes(threadId);
+      }
+    }
+    return UNSUPPORTED;
+  }
+}
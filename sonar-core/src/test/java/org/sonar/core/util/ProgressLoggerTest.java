@@ -53,6 +53,25 @@ public class ProgressLoggerTest {
     assertThat(hasInfoLog("43 rows processed")).isTrue();
   }
 
+  @Test
+  public void log_estimated_remaining_time_if_expected_total_is_set() {
+    AtomicLong counter = new AtomicLong(0L);
+    ProgressLogger progress = new ProgressLogger("ProgressLoggerTest", counter, Loggers.get(getClass()))
+      .setPeriodMs(1_000L)
+      .setExpectedTotal(1_000L);
+
+    counter.set(10L);
+    progress.log();
+    assertThat(hasInfoLog("10/1000 rows processed (10 items/sec, ETA 1min 39s)")).isTrue();
+
+    progress.log();
+    assertThat(hasInfoLog("10/1000 rows processed (0 items/sec, ETA unknown)")).isTrue();
+
+    counter.set(1_000L);
+    progress.log();
+    assertThat(hasInfoLog("1000/1000 rows processed (990 items/sec, ETA 0s)")).isTrue();
+  }
+
   @Test
   public void create() {
     ProgressLogger progress = ProgressLogger.create(getClass(), new AtomicLong());
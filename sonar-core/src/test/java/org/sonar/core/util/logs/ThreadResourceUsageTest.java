@@ -0,0 +1,61 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.util.logs;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+public class ThreadResourceUsageTest {
+
+  @Test
+  public void measures_allocated_memory_of_current_thread() {
+    ThreadResourceUsage underTest = ThreadResourceUsage.start();
+
+    List<byte[]> garbage = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      garbage.add(new byte[10_000]);
+    }
+
+    assertThat(garbage).hasSize(100);
+    assertThat(underTest.getAllocatedBytes()).isGreaterThanOrEqualTo(1_000_000L);
+    assertThat(underTest.getCpuTimeMs()).isGreaterThanOrEqualTo(0L);
+  }
+
+  @Test
+  public void addContextTo_adds_cpu_time_and_allocated_memory() {
+    Profiler profiler = mock(Profiler.class);
+    when(profiler.addContext(anyString(), anyString())).thenReturn(profiler);
+
+    assertThat(ThreadResourceUsage.start().addContextTo(profiler)).isSameAs(profiler);
+
+    verify(profiler).addContext(eq("cpuTime"), anyString());
+    verify(profiler).addContext(eq("allocated"), anyString());
+    verifyNoMoreInteractions(profiler);
+  }
+}
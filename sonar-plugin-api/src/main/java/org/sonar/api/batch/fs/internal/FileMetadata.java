@@ -19,12 +19,15 @@
  */
 package org.sonar.api.batch.fs.internal;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
 
 import javax.annotation.Nullable;
@@ -47,25 +50,23 @@ import org.sonar.api.batch.fs.internal.charhandler.LineOffsetCounter;
 public class FileMetadata {
   private static final char LINE_FEED = '\n';
   private static final char CARRIAGE_RETURN = '\r';
+  private static final int BUFFER_SIZE = 8192;
 
   /**
    * Compute hash of a file ignoring line ends differences.
    * Maximum performance is needed.
    */
   public Metadata readMetadata(InputStream stream, Charset encoding, String filePath, @Nullable CharHandler otherHandler) {
-    LineCounter lineCounter = new LineCounter(filePath, encoding);
-    FileHashComputer fileHashComputer = new FileHashComputer(filePath);
-    LineOffsetCounter lineOffsetCounter = new LineOffsetCounter();
+    MetadataHandler metadataHandler = new MetadataHandler(filePath, encoding);
 
     if (otherHandler != null) {
-      CharHandler[] handlers = {lineCounter, fileHashComputer, lineOffsetCounter, otherHandler};
+      CharHandler[] handlers = {metadataHandler, otherHandler};
       readFile(stream, encoding, filePath, handlers);
     } else {
-      CharHandler[] handlers = {lineCounter, fileHashComputer, lineOffsetCounter};
+      CharHandler[] handlers = {metadataHandler};
       readFile(stream, encoding, filePath, handlers);
     }
-    return new Metadata(lineCounter.lines(), lineCounter.nonBlankLines(), fileHashComputer.getHash(), lineOffsetCounter.getOriginalLineOffsets(),
-      lineOffsetCounter.getLastValidOffset());
+    return metadataHandler.toMetadata();
   }
 
   public Metadata readMetadata(InputStream stream, Charset encoding, String filePath) {
@@ -76,22 +77,19 @@ public class FileMetadata {
    * For testing purpose
    */
   public Metadata readMetadata(Reader reader) {
-    LineCounter lineCounter = new LineCounter("fromString", StandardCharsets.UTF_16);
-    FileHashComputer fileHashComputer = new FileHashComputer("fromString");
-    LineOffsetCounter lineOffsetCounter = new LineOffsetCounter();
-    CharHandler[] handlers = {lineCounter, fileHashComputer, lineOffsetCounter};
+    MetadataHandler metadataHandler = new MetadataHandler("fromString", StandardCharsets.UTF_16);
+    CharHandler[] handlers = {metadataHandler};
 
     try {
       read(reader, handlers);
     } catch (IOException e) {
       throw new IllegalStateException("Should never occur", e);
     }
-    return new Metadata(lineCounter.lines(), lineCounter.nonBlankLines(), fileHashComputer.getHash(), lineOffsetCounter.getOriginalLineOffsets(),
-      lineOffsetCounter.getLastValidOffset());
+    return metadataHandler.toMetadata();
   }
 
   public static void readFile(InputStream stream, Charset encoding, String filePath, CharHandler[] handlers) {
-    try (Reader reader = new BufferedReader(new InputStreamReader(stream, encoding))) {
+    try (Reader reader = new DecodingReader(stream, encoding)) {
       read(reader, handlers);
     } catch (IOException e) {
       throw new IllegalStateException(String.format("Fail to read file '%s' with encoding '%s'", filePath, encoding), e);
@@ -99,43 +97,46 @@ public class FileMetadata {
   }
 
   private static void read(Reader reader, CharHandler[] handlers) throws IOException {
-    char c;
-    int i = reader.read();
+    // chars are read by blocks, as Reader#read() is synchronized
+    char[] buffer = new char[BUFFER_SIZE];
     boolean afterCR = false;
-    while (i != -1) {
-      c = (char) i;
-      if (afterCR) {
-        for (CharHandler handler : handlers) {
-          if (c == CARRIAGE_RETURN) {
-            handler.newLine();
-            handler.handleAll(c);
-          } else if (c == LINE_FEED) {
+    int length = reader.read(buffer);
+    while (length != -1) {
+      for (int i = 0; i < length; i++) {
+        char c = buffer[i];
+        if (afterCR) {
+          for (CharHandler handler : handlers) {
+            if (c == CARRIAGE_RETURN) {
+              handler.newLine();
+              handler.handleAll(c);
+            } else if (c == LINE_FEED) {
+              handler.handleAll(c);
+              handler.newLine();
+            } else {
+              handler.newLine();
+              handler.handleIgnoreEoL(c);
+              handler.handleAll(c);
+            }
+          }
+          afterCR = c == CARRIAGE_RETURN;
+        } else if (c == LINE_FEED) {
+          for (CharHandler handler : handlers) {
             handler.handleAll(c);
             handler.newLine();
-          } else {
-            handler.newLine();
+          }
+        } else if (c == CARRIAGE_RETURN) {
+          afterCR = true;
+          for (CharHandler handler : handlers) {
+            handler.handleAll(c);
+          }
+        } else {
+          for (CharHandler handler : handlers) {
             handler.handleIgnoreEoL(c);
             handler.handleAll(c);
           }
         }
-        afterCR = c == CARRIAGE_RETURN;
-      } else if (c == LINE_FEED) {
-        for (CharHandler handler : handlers) {
-          handler.handleAll(c);
-          handler.newLine();
-        }
-      } else if (c == CARRIAGE_RETURN) {
-        afterCR = true;
-        for (CharHandler handler : handlers) {
-          handler.handleAll(c);
-        }
-      } else {
-        for (CharHandler handler : handlers) {
-          handler.handleIgnoreEoL(c);
-          handler.handleAll(c);
-        }
       }
-      i = reader.read();
+      length = reader.read(buffer);
     }
     for (CharHandler handler : handlers) {
       if (afterCR) {
@@ -145,6 +146,135 @@ public class FileMetadata {
     }
   }
 
+  /**
+   * Computes the metadata of a file in a single handler, so that the handlers are called directly
+   * and can be inlined, instead of being dispatched one by one from the read loop.
+   */
+  private static final class MetadataHandler extends CharHandler {
+    private final LineCounter lineCounter;
+    private final FileHashComputer fileHashComputer;
+    private final LineOffsetCounter lineOffsetCounter = new LineOffsetCounter();
+
+    private MetadataHandler(String filePath, Charset encoding) {
+      this.lineCounter = new LineCounter(filePath, encoding);
+      this.fileHashComputer = new FileHashComputer(filePath);
+    }
+
+    @Override
+    public void handleAll(char c) {
+      lineCounter.handleAll(c);
+      lineOffsetCounter.handleAll(c);
+    }
+
+    @Override
+    public void handleIgnoreEoL(char c) {
+      lineCounter.handleIgnoreEoL(c);
+      fileHashComputer.handleIgnoreEoL(c);
+    }
+
+    @Override
+    public void newLine() {
+      lineCounter.newLine();
+      fileHashComputer.newLine();
+      lineOffsetCounter.newLine();
+    }
+
+    @Override
+    public void eof() {
+      lineCounter.eof();
+      fileHashComputer.eof();
+      lineOffsetCounter.eof();
+    }
+
+    private Metadata toMetadata() {
+      return new Metadata(lineCounter.lines(), lineCounter.nonBlankLines(), fileHashComputer.getHash(), lineOffsetCounter.getOriginalLineOffsets(),
+        lineOffsetCounter.getLastValidOffset());
+    }
+  }
+
+  /**
+   * Decodes the stream block by block from a {@link ByteBuffer} into the {@link CharBuffer} of the caller, like
+   * {@link InputStreamReader} does but without its locking and intermediate buffers. Runs of ASCII bytes, which
+   * are most of the bytes of source files, are handled by the ASCII loop of the JDK decoders. Malformed input is
+   * replaced.
+   */
+  private static final class DecodingReader extends Reader {
+    private final InputStream stream;
+    private final CharsetDecoder decoder;
+    private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+    // chars decoded in advance when a single char is read, as a surrogate pair can't be decoded in one char
+    private final CharBuffer pendingChars = CharBuffer.allocate(2);
+    private boolean endOfStream = false;
+    private boolean endDecoded = false;
+    private boolean flushed = false;
+
+    private DecodingReader(InputStream stream, Charset charset) {
+      this.stream = stream;
+      this.decoder = charset.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+      // empty, in read mode
+      bytes.flip();
+      pendingChars.flip();
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      if (pendingChars.hasRemaining()) {
+        cbuf[off] = pendingChars.get();
+        return 1;
+      }
+      if (len == 1) {
+        pendingChars.clear();
+        pendingChars.limit(0);
+        int read = read(pendingChars.array(), 0, 2);
+        pendingChars.limit(Math.max(0, read));
+        return read == -1 ? -1 : read(cbuf, off, 1);
+      }
+      CharBuffer chars = CharBuffer.wrap(cbuf, off, len);
+      while (chars.position() == off) {
+        if (endOfStream) {
+          return finish(chars, off);
+        }
+        // underflow: all the bytes are consumed, except the beginning of a sequence continued by the next bytes
+        if (decoder.decode(bytes, chars, false).isUnderflow()) {
+          fill();
+        }
+      }
+      return chars.position() - off;
+    }
+
+    private void fill() throws IOException {
+      bytes.compact();
+      int read = stream.read(bytes.array(), bytes.position(), bytes.remaining());
+      if (read == -1) {
+        endOfStream = true;
+      } else {
+        bytes.position(bytes.position() + read);
+      }
+      bytes.flip();
+    }
+
+    private int finish(CharBuffer chars, int off) {
+      if (!endDecoded) {
+        endDecoded = decoder.decode(bytes, chars, true).isUnderflow();
+      }
+      if (endDecoded && !flushed) {
+        flushed = decoder.flush(chars).isUnderflow();
+      }
+      int read = chars.position() - off;
+      return read == 0 && flushed ? -1 : read;
+    }
+
+    @Override
+    public void close() throws IOException {
+      stream.close();
+    }
+  }
+
   @FunctionalInterface
   public interface LineHashConsumer {
     void consume(int lineIdx, @Nullable byte[] hash);
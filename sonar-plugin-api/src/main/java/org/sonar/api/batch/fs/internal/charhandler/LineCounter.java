@@ -60,7 +60,7 @@ public class LineCounter extends CharHandler {
 
   @Override
   public void handleIgnoreEoL(char c) {
-    if (!Character.isWhitespace(c)) {
+    if (blankLine && !Character.isWhitespace(c)) {
       blankLine = false;
     }
   }
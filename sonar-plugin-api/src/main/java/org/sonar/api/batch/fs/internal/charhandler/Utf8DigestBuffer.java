@@ -0,0 +1,97 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.api.batch.fs.internal.charhandler;
+
+import java.nio.charset.CodingErrorAction;
+import java.security.MessageDigest;
+
+/**
+ * Feeds a {@link MessageDigest} with the UTF-8 encoding of chars, through a reusable byte buffer so that
+ * no object is allocated per char or per line. The encoding is the same as a {@link java.nio.charset.CharsetEncoder}
+ * configured with {@link CodingErrorAction#REPLACE}: unpaired surrogates are replaced by '?'.
+ */
+class Utf8DigestBuffer {
+  private static final int BUFFER_SIZE = 8192;
+  // a pending replacement followed by a 3 bytes char, or a 4 bytes surrogate pair
+  private static final int MAX_BYTES_PER_CHAR = 4;
+  private static final byte REPLACEMENT = '?';
+  private static final char NO_HIGH_SURROGATE = 0;
+
+  private final MessageDigest digest;
+  private final byte[] buffer = new byte[BUFFER_SIZE];
+  private int position = 0;
+  private char highSurrogate = NO_HIGH_SURROGATE;
+
+  Utf8DigestBuffer(MessageDigest digest) {
+    this.digest = digest;
+  }
+
+  void append(char c) {
+    if (position > BUFFER_SIZE - MAX_BYTES_PER_CHAR) {
+      updateDigest();
+    }
+    if (highSurrogate != NO_HIGH_SURROGATE) {
+      char high = highSurrogate;
+      highSurrogate = NO_HIGH_SURROGATE;
+      if (Character.isLowSurrogate(c)) {
+        appendCodePoint(Character.toCodePoint(high, c));
+        return;
+      }
+      buffer[position++] = REPLACEMENT;
+    }
+    if (c < 0x80) {
+      buffer[position++] = (byte) c;
+    } else if (c < 0x800) {
+      buffer[position++] = (byte) (0xC0 | (c >> 6));
+      buffer[position++] = (byte) (0x80 | (c & 0x3F));
+    } else if (Character.isHighSurrogate(c)) {
+      highSurrogate = c;
+    } else if (Character.isLowSurrogate(c)) {
+      buffer[position++] = REPLACEMENT;
+    } else {
+      buffer[position++] = (byte) (0xE0 | (c >> 12));
+      buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+      buffer[position++] = (byte) (0x80 | (c & 0x3F));
+    }
+  }
+
+  private void appendCodePoint(int codePoint) {
+    buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+    buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+    buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+    buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+  }
+
+  /**
+   * Ends the current input: a pending high surrogate is replaced and buffered bytes are passed to the digest.
+   */
+  void flush() {
+    if (highSurrogate != NO_HIGH_SURROGATE) {
+      highSurrogate = NO_HIGH_SURROGATE;
+      buffer[position++] = REPLACEMENT;
+    }
+    updateDigest();
+  }
+
+  private void updateDigest() {
+    digest.update(buffer, 0, position);
+    position = 0;
+  }
+}
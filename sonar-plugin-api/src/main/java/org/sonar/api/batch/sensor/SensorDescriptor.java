@@ -96,4 +96,18 @@ public interface SensorDescriptor {
    * @since 6.5
    */
   SensorDescriptor onlyWhenConfiguration(Predicate<Configuration> predicate);
+
+  /**
+   * This sensor can be executed concurrently with other thread-safe sensors, when parallel execution
+   * of sensors is enabled on scanner side. The sensor must not rely on the order of execution
+   * of sensors, nor share mutable state with other sensors.
+   * Default is to execute sensor sequentially.
+   * <p>
+   * This method has a default implementation that ignores the flag, so that implementations of this
+   * interface that were compiled against previous versions of the API keep working.
+   * @since 7.0
+   */
+  default SensorDescriptor threadSafe() {
+    return this;
+  }
 }
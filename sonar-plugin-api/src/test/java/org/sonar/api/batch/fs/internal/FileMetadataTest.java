@@ -19,14 +19,17 @@
  */
 package org.sonar.api.batch.fs.internal;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.InputStreamReader;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 
 import javax.annotation.Nullable;
 import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -299,4 +302,31 @@ public class FileMetadataTest {
       "glyphicons-halflings-regular.woff at line 1 for encoding UTF-8. Please fix file content or configure the encoding to be used using property 'sonar.sourceEncoding'.");
   }
 
+  @Test
+  public void decode_like_input_stream_reader() throws Exception {
+    String ascii = StringUtils.repeat("a", 8191);
+    String fourBytesChar = new String(Character.toChars(0x1D11E));
+
+    // multi-byte sequences on the boundary of read blocks
+    assertSameMetadataAsInputStreamReader((ascii + "\u00e9\nb\u00e9\n").getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+    assertSameMetadataAsInputStreamReader((ascii.substring(2) + fourBytesChar + "\n" + fourBytesChar).getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+    // malformed sequences followed by ASCII bytes, or truncated by the end of the file
+    assertSameMetadataAsInputStreamReader(new byte[] {'a', (byte) 0xC3, 'b', '\n', (byte) 0xE2, (byte) 0x82, 'c', (byte) 0xF0, 'd'}, StandardCharsets.UTF_8);
+    assertSameMetadataAsInputStreamReader(new byte[] {'a', '\n', (byte) 0xE2, (byte) 0x82}, StandardCharsets.UTF_8);
+    assertSameMetadataAsInputStreamReader(new byte[] {'a', (byte) 0xE9, '\r', '\n', (byte) 0xFF}, StandardCharsets.ISO_8859_1);
+    assertSameMetadataAsInputStreamReader(new byte[] {'a', (byte) 0xE9, '\r', '\n', (byte) 0xFF}, StandardCharsets.US_ASCII);
+    assertSameMetadataAsInputStreamReader((ascii + fourBytesChar + "\n").getBytes(StandardCharsets.UTF_16), StandardCharsets.UTF_16);
+  }
+
+  private static void assertSameMetadataAsInputStreamReader(byte[] content, Charset encoding) {
+    Metadata metadata = new FileMetadata().readMetadata(new ByteArrayInputStream(content), encoding, "file");
+    Metadata expected = new FileMetadata().readMetadata(new InputStreamReader(new ByteArrayInputStream(content), encoding));
+
+    assertThat(metadata.hash()).isEqualTo(expected.hash());
+    assertThat(metadata.lines()).isEqualTo(expected.lines());
+    assertThat(metadata.nonBlankLines()).isEqualTo(expected.nonBlankLines());
+    assertThat(metadata.originalLineOffsets()).isEqualTo(expected.originalLineOffsets());
+    assertThat(metadata.lastValidOffset()).isEqualTo(expected.lastValidOffset());
+  }
+
 }
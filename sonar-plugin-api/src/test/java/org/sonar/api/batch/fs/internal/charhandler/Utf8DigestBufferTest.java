@@ -0,0 +1,71 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.api.batch.fs.internal.charhandler;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class Utf8DigestBufferTest {
+
+  @Test
+  public void should_digest_like_utf8_encoder() throws Exception {
+    assertSameDigest("");
+    assertSameDigest("foo\nbar");
+    assertSameDigest("\u00e9t\u00e9 \u4e2d\u6587 \u07ff\u0800 \ufffd");
+    assertSameDigest("\ud83d\ude00 surrogate pair");
+    assertSameDigest("\ud83d unpaired high surrogate \ud83d");
+    assertSameDigest("\ude00 unpaired low surrogate");
+    assertSameDigest("\ud83d\ud83d\ude00");
+  }
+
+  @Test
+  public void should_digest_more_than_buffer_size() throws Exception {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 10_000; i++) {
+      sb.append("a\u00e9\u4e2d\ud83d\ude00");
+    }
+    assertSameDigest(sb.toString());
+  }
+
+  private static void assertSameDigest(String s) throws Exception {
+    MessageDigest digest = DigestUtils.getMd5Digest();
+    Utf8DigestBuffer buffer = new Utf8DigestBuffer(digest);
+    for (char c : s.toCharArray()) {
+      buffer.append(c);
+    }
+    buffer.flush();
+
+    ByteBuffer expected = StandardCharsets.UTF_8.newEncoder()
+      .onMalformedInput(CodingErrorAction.REPLACE)
+      .onUnmappableCharacter(CodingErrorAction.REPLACE)
+      .encode(CharBuffer.wrap(s));
+    MessageDigest expectedDigest = DigestUtils.getMd5Digest();
+    expectedDigest.update(expected.array(), 0, expected.limit());
+
+    assertThat(digest.digest()).isEqualTo(expectedDigest.digest());
+  }
+}
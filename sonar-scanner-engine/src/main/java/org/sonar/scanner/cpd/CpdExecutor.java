@@ -22,14 +22,21 @@ package org.sonar.scanner.cpd;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import javax.annotation.CheckForNull;
 import org.sonar.api.batch.fs.InputComponent;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.internal.DefaultInputComponent;
@@ -55,11 +62,14 @@ import static com.google.common.collect.FluentIterable.from;
  * Runs on the root module, at the end of the project analysis.
  * It executes copy paste detection involving all files of all modules, which were indexed during sensors execution for each module
  * by {@link CpdSensor). The sensor is responsible for handling exclusions and block sizes.
+ * Files are analyzed concurrently by {@link CpdSettings#getThreads()} threads, each file having its own timeout.
  */
 public class CpdExecutor {
   private static final Logger LOG = Loggers.get(CpdExecutor.class);
   // timeout for the computation of duplicates in a file (seconds)
   private static final int TIMEOUT = 5 * 60 * 1000;
+  // files submitted for detection and not saved yet, per thread
+  private static final int PENDING_FILES_PER_THREAD = 2;
   static final int MAX_CLONE_GROUP_PER_FILE = 100;
   static final int MAX_CLONE_PART_PER_GROUP = 100;
 
@@ -97,22 +107,37 @@ public class CpdExecutor {
     if (filesWithoutBlocks > 0) {
       LOG.info("{} {} had no CPD blocks", filesWithoutBlocks, pluralize(filesWithoutBlocks));
     }
+    int threads = settings.getThreads();
     progressReport.start(String.format("Calculating CPD for %d %s", total, pluralize(total)));
-    ExecutorService executorService = Executors.newSingleThreadExecutor();
+    long startTime = System.currentTimeMillis();
+    ThreadPoolExecutor executorService = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+      new ThreadFactoryBuilder().setNameFormat("cpd-%d").setDaemon(true).build());
     try {
+      // the index is not modified anymore, so files are analyzed concurrently. Duplications are still saved in the order of
+      // the index, and only a few files per thread are pending so that the blocks of all files are not loaded at once.
+      Deque<FileDetection> pendingDetections = new ArrayDeque<>();
       Iterator<ResourceBlocks> it = index.iterator();
-
       while (it.hasNext()) {
         ResourceBlocks resourceBlocks = it.next();
-        runCpdAnalysis(executorService, resourceBlocks.resourceId(), resourceBlocks.blocks(), timeout);
-        count++;
+        FileDetection detection = submitCpdAnalysis(executorService, resourceBlocks.resourceId(), resourceBlocks.blocks());
+        if (detection == null) {
+          count++;
+        } else {
+          pendingDetections.add(detection);
+        }
+        if (pendingDetections.size() >= threads * PENDING_FILES_PER_THREAD) {
+          saveCpdAnalysis(executorService, pendingDetections.poll(), timeout);
+        }
       }
-      progressReport.stop("CPD calculation finished");
+      while (!pendingDetections.isEmpty()) {
+        saveCpdAnalysis(executorService, pendingDetections.poll(), timeout);
+      }
+      progressReport.stop(String.format("CPD calculation finished (done) | time=%dms", System.currentTimeMillis() - startTime));
     } catch (Exception e) {
       progressReport.stop("");
       throw e;
     } finally {
-      executorService.shutdown();
+      executorService.shutdownNow();
     }
   }
 
@@ -121,28 +146,37 @@ public class CpdExecutor {
   }
 
   @VisibleForTesting
-  void runCpdAnalysis(ExecutorService executorService, String componentKey, final Collection<Block> fileBlocks, long timeout) {
+  @CheckForNull
+  FileDetection submitCpdAnalysis(ExecutorService executorService, String componentKey, Collection<Block> fileBlocks) {
     DefaultInputComponent component = (DefaultInputComponent) componentStore.getByKey(componentKey);
     if (component == null) {
       LOG.error("Resource not found in component store: {}. Skipping CPD computation for it", componentKey);
-      return;
+      return null;
     }
+    FileDetection detection = new FileDetection((InputFile) component, fileBlocks);
+    detection.future = executorService.submit(detection);
+    return detection;
+  }
 
-    InputFile inputFile = (InputFile) component;
-    LOG.debug("Detection of duplications for {}", inputFile.absolutePath());
+  private void saveCpdAnalysis(ThreadPoolExecutor executorService, FileDetection detection, long timeout) {
+    InputFile inputFile = detection.inputFile;
     progressReport.message(String.format("%d/%d - current file: %s", count, total, inputFile.absolutePath()));
+    count++;
 
     List<CloneGroup> duplications;
-    Future<List<CloneGroup>> futureResult = executorService.submit(() -> SuffixTreeCloneDetectionAlgorithm.detect(index, fileBlocks));
     try {
-      duplications = futureResult.get(timeout, TimeUnit.MILLISECONDS);
+      duplications = detection.get(timeout);
     } catch (TimeoutException e) {
       LOG.warn("Timeout during detection of duplications for " + inputFile.absolutePath());
-      futureResult.cancel(true);
+      detection.future.cancel(true);
+      // the detection does not stop on interruption, so an additional thread keeps the same number of files analyzed concurrently
+      executorService.setMaximumPoolSize(executorService.getMaximumPoolSize() + 1);
+      executorService.setCorePoolSize(executorService.getCorePoolSize() + 1);
       return;
     } catch (Exception e) {
       throw new IllegalStateException("Fail during detection of duplication for " + inputFile.absolutePath(), e);
     }
+    LOG.debug("Detection of duplications for {} done in {} ms", inputFile.absolutePath(), detection.duration);
 
     List<CloneGroup> filtered;
     if (!"java".equalsIgnoreCase(inputFile.language())) {
@@ -153,7 +187,7 @@ public class CpdExecutor {
       filtered = duplications;
     }
 
-    saveDuplications(component, filtered);
+    saveDuplications((DefaultInputComponent) inputFile, filtered);
   }
 
   @VisibleForTesting
@@ -212,4 +246,52 @@ public class CpdExecutor {
     }
     return dupBuilder.build();
   }
+
+  /**
+   * Detection of the duplications of a file, whose timeout starts when the detection starts, and not when it is submitted.
+   */
+  @VisibleForTesting
+  class FileDetection implements Callable<List<CloneGroup>> {
+    private final InputFile inputFile;
+    private final Collection<Block> blocks;
+    private Future<List<CloneGroup>> future;
+    private volatile long startTime = 0L;
+    private long duration;
+
+    private FileDetection(InputFile inputFile, Collection<Block> blocks) {
+      this.inputFile = inputFile;
+      this.blocks = blocks;
+    }
+
+    @Override
+    public List<CloneGroup> call() {
+      startTime = System.currentTimeMillis();
+      LOG.debug("Detection of duplications for {}", inputFile.absolutePath());
+      List<CloneGroup> duplications = SuffixTreeCloneDetectionAlgorithm.detect(index, blocks);
+      // visible to the thread getting the result of the future
+      duration = System.currentTimeMillis() - startTime;
+      return duplications;
+    }
+
+    private List<CloneGroup> get(long timeout) throws InterruptedException, ExecutionException, TimeoutException {
+      while (true) {
+        try {
+          return future.get(remainingTime(timeout), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+          if (startTime != 0L && remainingTime(timeout) == 0L) {
+            throw e;
+          }
+          // not started yet, or timeout started after the beginning of the wait
+        }
+      }
+    }
+
+    private long remainingTime(long timeout) {
+      long start = startTime;
+      if (start == 0L) {
+        return timeout;
+      }
+      return Math.max(0L, start + timeout - System.currentTimeMillis());
+    }
+  }
 }
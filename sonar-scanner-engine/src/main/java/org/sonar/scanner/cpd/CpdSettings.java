@@ -23,9 +23,12 @@ import org.apache.commons.lang.StringUtils;
 import org.sonar.api.CoreProperties;
 import org.sonar.api.batch.fs.internal.InputModuleHierarchy;
 import org.sonar.api.config.Configuration;
+import org.sonar.api.utils.MessageException;
 import org.sonar.duplications.block.BlockChunker;
 
 public class CpdSettings {
+  public static final String THREADS_PROP_KEY = "sonar.cpd.threads";
+
   private final Configuration settings;
   private final String branch;
 
@@ -49,4 +52,15 @@ public class CpdSettings {
   int getMinimumTokens(String languageKey) {
     return settings.getInt("sonar.cpd." + languageKey + ".minimumTokens").orElse(100);
   }
+
+  /**
+   * Number of files for which duplications are detected concurrently. Defaults to the number of processors.
+   */
+  int getThreads() {
+    int threads = settings.getInt(THREADS_PROP_KEY).orElse(Runtime.getRuntime().availableProcessors());
+    if (threads <= 0) {
+      throw MessageException.of("Property " + THREADS_PROP_KEY + " must be strictly positive. Got: " + threads);
+    }
+    return threads;
+  }
 }
@@ -36,9 +36,10 @@ public class EventBus {
   }
 
   /**
-   * Fires the given event.
+   * Fires the given event. Events can be fired by sensors executed concurrently, so
+   * handlers are called by one thread at a time.
    */
-  public void fireEvent(BatchEvent event) {
+  public synchronized void fireEvent(BatchEvent event) {
     doFireEvent(event);
   }
 
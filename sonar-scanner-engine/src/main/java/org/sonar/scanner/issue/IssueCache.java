@@ -26,7 +26,10 @@ import org.sonar.scanner.storage.Storage;
 import org.sonar.scanner.storage.Storages;
 
 /**
- * Shared issues among all project modules
+ * Shared issues among all project modules.
+ * <p>
+ * Writes are thread-safe, as issues can be saved by sensors executed concurrently. Iterations must
+ * not be done while issues are saved.
  */
 @ScannerSide
 public class IssueCache {
@@ -50,12 +53,12 @@ public class IssueCache {
     return cache.keySet();
   }
 
-  public IssueCache put(TrackedIssue issue) {
+  public synchronized IssueCache put(TrackedIssue issue) {
     cache.put(issue.componentKey(), issue.key(), issue);
     return this;
   }
 
-  public void clear(String componentKey) {
+  public synchronized void clear(String componentKey) {
     cache.clear(componentKey);
   }
 }
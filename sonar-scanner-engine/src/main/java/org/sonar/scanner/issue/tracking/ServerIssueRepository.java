@@ -56,7 +56,7 @@ public class ServerIssueRepository {
   public void load() {
     Profiler profiler = Profiler.create(LOG).startInfo(LOG_MSG);
     this.issuesCache = caches.createCache("previousIssues");
-    caches.registerValueCoder(ServerIssue.class, new ServerIssueValueCoder());
+    caches.registerValueCodec(ServerIssue.class, new ServerIssueValueCodec());
     DefaultInputModule root = (DefaultInputModule) componentStore.root();
     previousIssuesLoader.load(root.getKeyWithBranch(), this::store);
     profiler.stopInfo();
@@ -20,32 +20,53 @@
 package org.sonar.scanner.phases;
 
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.sonar.api.batch.ScannerSide;
 import org.sonar.api.batch.Sensor;
 import org.sonar.api.batch.SensorContext;
 import org.sonar.api.batch.fs.internal.DefaultInputModule;
 import org.sonar.api.batch.fs.internal.InputModuleHierarchy;
 import org.sonar.api.batch.fs.internal.SensorStrategy;
+import org.sonar.api.config.Configuration;
 import org.sonar.api.resources.Project;
+import org.sonar.api.utils.MessageException;
 import org.sonar.scanner.bootstrap.ScannerExtensionDictionnary;
 import org.sonar.scanner.events.EventBus;
+import org.sonar.scanner.sensor.SensorWrapper;
+
+import static org.sonar.core.util.stream.MoreCollectors.toList;
 
 @ScannerSide
 public class SensorsExecutor {
+
+  /**
+   * When enabled, consecutive sensors that declare themselves thread-safe are executed concurrently.
+   */
+  public static final String PARALLEL_SENSORS_PROP_KEY = "sonar.scanner.parallelSensors";
+  public static final String PARALLEL_SENSORS_THREADS_PROP_KEY = "sonar.scanner.parallelSensors.threads";
+
   private final ScannerExtensionDictionnary selector;
   private final DefaultInputModule module;
   private final EventBus eventBus;
   private final SensorStrategy strategy;
+  private final Configuration settings;
   private final boolean isRoot;
 
-  public SensorsExecutor(ScannerExtensionDictionnary selector, DefaultInputModule module, InputModuleHierarchy hierarchy, EventBus eventBus, SensorStrategy strategy) {
+  public SensorsExecutor(ScannerExtensionDictionnary selector, DefaultInputModule module, InputModuleHierarchy hierarchy, EventBus eventBus, SensorStrategy strategy,
+    Configuration settings) {
     this.selector = selector;
     this.module = module;
     this.eventBus = eventBus;
     this.strategy = strategy;
+    this.settings = settings;
     this.isRoot = hierarchy.isRoot(module);
   }
 
@@ -78,8 +99,83 @@ public class SensorsExecutor {
   }
 
   private void execute(SensorContext context, Collection<Sensor> sensors) {
-    for (Sensor sensor : sensors) {
-      executeSensor(context, sensor);
+    int threads = getThreads();
+    if (threads <= 1) {
+      for (Sensor sensor : sensors) {
+        executeSensor(context, sensor);
+      }
+      return;
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+      .setNameFormat("sensor-%d")
+      .setDaemon(true)
+      .build());
+    try {
+      // sensors are sorted by dependencies. A sensor that is not thread-safe waits for the
+      // completion of the previous ones, and is completed before the next ones start.
+      List<Sensor> threadSafeSensors = new ArrayList<>();
+      for (Sensor sensor : sensors) {
+        if (isThreadSafe(sensor)) {
+          threadSafeSensors.add(sensor);
+        } else {
+          executeConcurrently(executor, context, threadSafeSensors);
+          threadSafeSensors.clear();
+          executeSensor(context, sensor);
+        }
+      }
+      executeConcurrently(executor, context, threadSafeSensors);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private int getThreads() {
+    if (!settings.getBoolean(PARALLEL_SENSORS_PROP_KEY).orElse(false)) {
+      return 1;
+    }
+    int threads = settings.getInt(PARALLEL_SENSORS_THREADS_PROP_KEY).orElse(Runtime.getRuntime().availableProcessors());
+    if (threads < 1) {
+      throw MessageException.of("Property " + PARALLEL_SENSORS_THREADS_PROP_KEY + " must be strictly positive. Got: " + threads);
+    }
+    return threads;
+  }
+
+  private static boolean isThreadSafe(Sensor sensor) {
+    return sensor instanceof SensorWrapper && ((SensorWrapper) sensor).isThreadSafe();
+  }
+
+  private void executeConcurrently(ExecutorService executor, SensorContext context, List<Sensor> sensors) {
+    if (sensors.size() <= 1) {
+      sensors.forEach(sensor -> executeSensor(context, sensor));
+      return;
+    }
+    List<Future<?>> futures = sensors.stream()
+      .map(sensor -> executor.submit(() -> executeSensor(context, sensor)))
+      .collect(toList(sensors.size()));
+
+    // wait for all sensors, then propagate the first failure
+    Throwable failure = null;
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while executing sensors", e);
+      } catch (ExecutionException e) {
+        if (failure == null) {
+          failure = e.getCause();
+        }
+      }
+    }
+    if (failure instanceof RuntimeException) {
+      throw (RuntimeException) failure;
+    }
+    if (failure instanceof Error) {
+      throw (Error) failure;
+    }
+    if (failure != null) {
+      throw new IllegalStateException("Fail to execute sensors", failure);
     }
   }
 
@@ -92,6 +92,7 @@ import org.sonar.scanner.scan.branch.BranchConfigurationProvider;
 import org.sonar.scanner.scan.branch.BranchType;
 import org.sonar.scanner.scan.branch.ProjectBranchesProvider;
 import org.sonar.scanner.scan.filesystem.BatchIdGenerator;
+import org.sonar.scanner.scan.filesystem.FileMetadataCache;
 import org.sonar.scanner.scan.filesystem.InputComponentStoreProvider;
 import org.sonar.scanner.scan.filesystem.StatusDetection;
 import org.sonar.scanner.scan.measure.DefaultMetricFinder;
@@ -161,6 +162,7 @@ public class ProjectScanContainer extends ComponentContainer {
       BatchIdGenerator.class,
       new ScmChangedFilesProvider(),
       StatusDetection.class,
+      FileMetadataCache.class,
 
       // rules
       new ActiveRulesProvider(),
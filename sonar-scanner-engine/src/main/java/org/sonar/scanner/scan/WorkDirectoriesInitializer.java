@@ -27,11 +27,13 @@ import java.util.Iterator;
 import org.sonar.api.batch.fs.internal.DefaultInputModule;
 import org.sonar.api.batch.fs.internal.InputModuleHierarchy;
 import org.sonar.core.util.FileUtils;
+import org.sonar.scanner.scan.filesystem.FileMetadataCache;
 import org.sonar.home.cache.DirectoryLock;
 
 /**
  * Clean and create working directories of each module.
  * Be careful that sub module work dir might be nested in parent working directory.
+ * The lock file and the cache of file metadata are kept.
  */
 public class WorkDirectoriesInitializer {
 
@@ -79,6 +81,9 @@ public class WorkDirectoriesInitializer {
   }
 
   private static DirectoryStream<Path> list(Path dir) throws IOException {
-    return Files.newDirectoryStream(dir, entry -> !DirectoryLock.LOCK_FILE_NAME.equals(entry.getFileName().toString()));
+    return Files.newDirectoryStream(dir, entry -> {
+      String fileName = entry.getFileName().toString();
+      return !DirectoryLock.LOCK_FILE_NAME.equals(fileName) && !FileMetadataCache.FILE_NAME.equals(fileName);
+    });
   }
 }
@@ -0,0 +1,229 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scan.filesystem;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.CheckForNull;
+import org.picocontainer.Startable;
+import org.sonar.api.batch.fs.internal.InputModuleHierarchy;
+import org.sonar.api.batch.fs.internal.Metadata;
+import org.sonar.api.config.Configuration;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+/**
+ * Metadata of the files computed during the previous analysis, persisted in the working directory of the
+ * root module. Metadata of a file is reused as long as its size and last modification date are unchanged,
+ * so that the file is not read again.
+ * <p>
+ * Disabled by default (see property {@link #ENABLED_PROP_KEY}): the content of the file is trusted without
+ * being read, so a change that keeps both the size and the last modification date, for example restored by
+ * a tool that preserves dates, would be missed.
+ */
+public class FileMetadataCache implements Startable {
+  public static final String ENABLED_PROP_KEY = "sonar.scanner.fileMetadataCache";
+  public static final String FILE_NAME = "file-metadata.cache";
+
+  private static final Logger LOG = Loggers.get(FileMetadataCache.class);
+  private static final int VERSION = 1;
+  /**
+   * A file modified in the same time unit as its last modification date may have the same date
+   * before and after the modification. Such files are not cached.
+   */
+  private static final long MODIFICATION_DATE_PRECISION_MS = 2_000L;
+
+  private final boolean enabled;
+  private final Path cacheFile;
+  private final Map<String, Entry> previousEntries = new HashMap<>();
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+  public FileMetadataCache(Configuration settings, InputModuleHierarchy hierarchy) {
+    this.enabled = settings.getBoolean(ENABLED_PROP_KEY).orElse(false);
+    this.cacheFile = hierarchy.root().getWorkDir().resolve(FILE_NAME);
+  }
+
+  @Override
+  public void start() {
+    if (enabled && Files.exists(cacheFile)) {
+      try {
+        load();
+      } catch (Exception e) {
+        LOG.debug("Fail to load file metadata cache, it is ignored", e);
+        previousEntries.clear();
+      }
+    }
+  }
+
+  @Override
+  public void stop() {
+    if (enabled) {
+      try {
+        save();
+      } catch (Exception e) {
+        LOG.debug("Fail to save file metadata cache", e);
+      }
+      LOG.debug("Metadata of {}/{} files reused from previous analysis", entries.values().stream().filter(Entry::isReused).count(), entries.size());
+    }
+  }
+
+  /**
+   * Reads the attributes of the file that identify its content. Must be called before reading the file,
+   * so that a modification done in the meantime is not missed.
+   *
+   * @return null if the cache is disabled or if attributes can't be read
+   */
+  @CheckForNull
+  Key key(Path path, Charset defaultEncoding) {
+    if (!enabled) {
+      return null;
+    }
+    try {
+      long now = System.currentTimeMillis();
+      BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+      return new Key(path.toString(), attributes.size(), attributes.lastModifiedTime().toMillis(), defaultEncoding.name(), now);
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  @CheckForNull
+  Entry get(Key key) {
+    Entry previous = previousEntries.get(key.path);
+    if (previous == null || !previous.key.isSameFile(key)) {
+      return null;
+    }
+    Entry reused = new Entry(key, previous.charset, previous.metadata, true);
+    entries.put(key.path, reused);
+    return reused;
+  }
+
+  void put(Key key, Charset charset, Metadata metadata) {
+    if (key.lastModified < key.readDate - MODIFICATION_DATE_PRECISION_MS) {
+      entries.put(key.path, new Entry(key, charset.name(), metadata, false));
+    }
+  }
+
+  private void load() throws IOException {
+    try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+      if (input.readInt() != VERSION) {
+        return;
+      }
+      int count = input.readInt();
+      for (int i = 0; i < count; i++) {
+        Key key = new Key(input.readUTF(), input.readLong(), input.readLong(), input.readUTF(), 0L);
+        String charset = input.readUTF();
+        int lines = input.readInt();
+        int nonBlankLines = input.readInt();
+        String hash = input.readUTF();
+        int[] originalLineOffsets = new int[input.readInt()];
+        for (int j = 0; j < originalLineOffsets.length; j++) {
+          originalLineOffsets[j] = input.readInt();
+        }
+        int lastValidOffset = input.readInt();
+        Metadata metadata = new Metadata(lines, nonBlankLines, hash, originalLineOffsets, lastValidOffset);
+        previousEntries.put(key.path, new Entry(key, charset, metadata, false));
+      }
+    }
+  }
+
+  private void save() throws IOException {
+    Path tmpFile = cacheFile.resolveSibling(FILE_NAME + ".tmp");
+    try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile)))) {
+      output.writeInt(VERSION);
+      output.writeInt(entries.size());
+      for (Entry entry : entries.values()) {
+        output.writeUTF(entry.key.path);
+        output.writeLong(entry.key.size);
+        output.writeLong(entry.key.lastModified);
+        output.writeUTF(entry.key.defaultEncoding);
+        output.writeUTF(entry.charset);
+        Metadata metadata = entry.metadata;
+        output.writeInt(metadata.lines());
+        output.writeInt(metadata.nonBlankLines());
+        output.writeUTF(metadata.hash());
+        int[] originalLineOffsets = metadata.originalLineOffsets();
+        output.writeInt(originalLineOffsets.length);
+        for (int offset : originalLineOffsets) {
+          output.writeInt(offset);
+        }
+        output.writeInt(metadata.lastValidOffset());
+      }
+    }
+    Files.move(tmpFile, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  static class Key {
+    private final String path;
+    private final long size;
+    private final long lastModified;
+    private final String defaultEncoding;
+    private final long readDate;
+
+    private Key(String path, long size, long lastModified, String defaultEncoding, long readDate) {
+      this.path = path;
+      this.size = size;
+      this.lastModified = lastModified;
+      this.defaultEncoding = defaultEncoding;
+      this.readDate = readDate;
+    }
+
+    private boolean isSameFile(Key other) {
+      return size == other.size && lastModified == other.lastModified && defaultEncoding.equals(other.defaultEncoding);
+    }
+  }
+
+  static class Entry {
+    private final Key key;
+    private final String charset;
+    private final Metadata metadata;
+    private final boolean reused;
+
+    private Entry(Key key, String charset, Metadata metadata, boolean reused) {
+      this.key = key;
+      this.charset = charset;
+      this.metadata = metadata;
+      this.reused = reused;
+    }
+
+    Charset charset() {
+      return Charset.forName(charset);
+    }
+
+    Metadata metadata() {
+      return metadata;
+    }
+
+    private boolean isReused() {
+      return reused;
+    }
+  }
+}
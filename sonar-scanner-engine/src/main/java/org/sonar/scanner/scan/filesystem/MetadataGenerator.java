@@ -29,6 +29,7 @@ import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.batch.fs.internal.DefaultInputModule;
 import org.sonar.api.batch.fs.internal.FileMetadata;
 import org.sonar.api.batch.fs.internal.Metadata;
+import org.sonar.api.batch.fs.internal.charhandler.CharHandler;
 import org.sonar.scanner.issue.ignore.scanner.IssueExclusionsLoader;
 
 public class MetadataGenerator {
@@ -43,19 +44,34 @@ public class MetadataGenerator {
   private final FileMetadata fileMetadata;
   private final DefaultInputModule inputModule;
   private final IssueExclusionsLoader exclusionsScanner;
+  private final FileMetadataCache metadataCache;
 
-  public MetadataGenerator(DefaultInputModule inputModule, StatusDetection statusDetection, FileMetadata fileMetadata, IssueExclusionsLoader exclusionsScanner) {
+  public MetadataGenerator(DefaultInputModule inputModule, StatusDetection statusDetection, FileMetadata fileMetadata, IssueExclusionsLoader exclusionsScanner,
+    FileMetadataCache metadataCache) {
     this.inputModule = inputModule;
     this.statusDetection = statusDetection;
     this.fileMetadata = fileMetadata;
     this.exclusionsScanner = exclusionsScanner;
+    this.metadataCache = metadataCache;
   }
 
   /**
    * Sets all metadata in the file, including charset and status.
-   * It is an expensive computation, reading the entire file.
+   * It is an expensive computation, reading the entire file, unless metadata computed by previous analysis can be reused.
    */
   public void setMetadata(final DefaultInputFile inputFile, Charset defaultEncoding) {
+    FileMetadataCache.Key cacheKey = metadataCache.key(inputFile.path(), defaultEncoding);
+    CharHandler exclusionsHandler = exclusionsScanner.createCharHandlerFor(inputFile.key());
+    // issue exclusions need to read the file
+    FileMetadataCache.Entry cached = cacheKey != null && exclusionsHandler == null ? metadataCache.get(cacheKey) : null;
+    if (cached != null) {
+      Charset charset = cached.charset();
+      inputFile.setCharset(charset);
+      applyMetadata(inputFile, cached.metadata());
+      LOG.debug("'{}' reused metadata {} with charset '{}'", inputFile, inputFile.type() == Type.TEST ? "as test " : "", charset);
+      return;
+    }
+
     CharsetDetector charsetDetector = new CharsetDetector(inputFile.path(), defaultEncoding);
     try {
       Charset charset;
@@ -67,13 +83,20 @@ public class MetadataGenerator {
       }
       InputStream is = charsetDetector.inputStream();
       inputFile.setCharset(charset);
-      Metadata metadata = fileMetadata.readMetadata(is, charset, inputFile.absolutePath(), exclusionsScanner.createCharHandlerFor(inputFile.key()));
-      inputFile.setMetadata(metadata);
-      inputFile.setStatus(statusDetection.status(inputModule.definition().getKeyWithBranch(), inputFile, metadata.hash()));
+      Metadata metadata = fileMetadata.readMetadata(is, charset, inputFile.absolutePath(), exclusionsHandler);
+      applyMetadata(inputFile, metadata);
+      if (cacheKey != null) {
+        metadataCache.put(cacheKey, charset, metadata);
+      }
       LOG.debug("'{}' generated metadata {} with charset '{}'", inputFile, inputFile.type() == Type.TEST ? "as test " : "", charset);
     } catch (Exception e) {
       throw new IllegalStateException(e);
     }
   }
 
+  private void applyMetadata(DefaultInputFile inputFile, Metadata metadata) {
+    inputFile.setMetadata(metadata);
+    inputFile.setStatus(statusDetection.status(inputModule.definition().getKeyWithBranch(), inputFile, metadata.hash()));
+  }
+
 }
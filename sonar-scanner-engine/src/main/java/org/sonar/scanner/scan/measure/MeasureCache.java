@@ -30,6 +30,9 @@ import org.sonar.scanner.storage.Storages;
 
 /**
  * Cache of all measures. This cache is shared amongst all project modules.
+ * <p>
+ * Reads and writes of single measures are thread-safe, as measures can be saved by sensors executed
+ * concurrently. Iterations must not be done while measures are saved.
  */
 @ScannerSide
 public class MeasureCache {
@@ -37,7 +40,7 @@ public class MeasureCache {
   private final Storage<DefaultMeasure<?>> cache;
 
   public MeasureCache(Storages caches, MetricFinder metricFinder) {
-    caches.registerValueCoder(DefaultMeasure.class, new MeasureValueCoder(metricFinder));
+    caches.registerValueCodec(DefaultMeasure.class, new MeasureValueCodec(metricFinder));
     cache = caches.createCache("measures");
   }
 
@@ -54,18 +57,18 @@ public class MeasureCache {
   }
 
   @CheckForNull
-  public DefaultMeasure<?> byMetric(String componentKey, String metricKey) {
+  public synchronized DefaultMeasure<?> byMetric(String componentKey, String metricKey) {
     return cache.get(componentKey, metricKey);
   }
 
-  public MeasureCache put(String componentKey, String metricKey, DefaultMeasure<?> measure) {
+  public synchronized MeasureCache put(String componentKey, String metricKey, DefaultMeasure<?> measure) {
     Preconditions.checkNotNull(componentKey);
     Preconditions.checkNotNull(metricKey);
     cache.put(componentKey, metricKey, measure);
     return this;
   }
 
-  public boolean contains(String componentKey, String metricKey) {
+  public synchronized boolean contains(String componentKey, String metricKey) {
     Preconditions.checkNotNull(componentKey);
     Preconditions.checkNotNull(metricKey);
     return cache.containsKey(componentKey, metricKey);
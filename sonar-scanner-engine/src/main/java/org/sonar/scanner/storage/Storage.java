@@ -19,56 +19,90 @@
  */
 package org.sonar.scanner.storage;
 
-import com.persistit.Exchange;
-import com.persistit.Key;
-import com.persistit.KeyFilter;
-import com.persistit.exception.PersistitException;
+import com.google.common.collect.Iterators;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
-import java.util.NoSuchElementException;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
 import javax.annotation.CheckForNull;
 import org.apache.commons.lang.builder.ToStringBuilder;
 
 /**
  * <p>
- * This storage is not thread-safe, due to direct usage of {@link com.persistit.Exchange}
+ * Sorted key/value storage. Values are encoded with the {@link StorageCodec} registered for their class and written,
+ * together with their keys, to memory-mapped files out of the heap, see {@link StorageSegments}.
+ * </p>
+ * <p>
+ * Keys are grouped by their first part, for example the key of a component. The heap only keeps the first parts,
+ * and per group a primitive hash table of the locations of the records, see {@link StorageGroup}. On a project of
+ * 100,000 files with 20 measures each and 500,000 issues, the keys of measures take about 26 bytes of heap each,
+ * and the keys of issues about 66 bytes, instead of 99 and 156 bytes when they were kept in a sorted map of objects.
+ * The other parts of the keys are read from the records when the hashes match, or when the keys of a group
+ * are sorted for an iteration.
+ * </p>
+ * <p>
+ * Disk usage grows with every put, including the puts which replace a value, see {@link StorageSegments}.
+ * </p>
+ * <p>
+ * Each operation is thread-safe. Iterations are weakly consistent: they never fail on concurrent
+ * modifications but may not reflect them. The keys of a group are read when the iteration reaches the group.
  * </p>
  */
 public class Storage<V> {
 
+  static final int MAX_VALUE_SIZE = 64 * 1024 * 1024;
+  private static final byte[] NO_SUFFIX = new byte[0];
+
   private final String name;
-  private final Exchange exchange;
+  private final StorageCodecs codecs;
+  private final StorageSegments segments;
+  private final ConcurrentNavigableMap<StorageKey, StorageGroup> groups = new ConcurrentSkipListMap<>();
 
-  Storage(String name, Exchange exchange) {
+  Storage(String name, StorageCodecs codecs, StorageSegments segments) {
     this.name = name;
-    this.exchange = exchange;
+    this.codecs = codecs;
+    this.segments = segments;
   }
 
   public Storage<V> put(Object key, V value) {
-    resetKey(key);
-    return doPut(value);
+    return doPut(new StorageKey(key), value);
   }
 
   public Storage<V> put(Object firstKey, Object secondKey, V value) {
-    resetKey(firstKey, secondKey);
-    return doPut(value);
+    return doPut(new StorageKey(firstKey, secondKey), value);
   }
 
   public Storage<V> put(Object firstKey, Object secondKey, Object thirdKey, V value) {
-    resetKey(firstKey, secondKey, thirdKey);
-    return doPut(value);
+    return doPut(new StorageKey(firstKey, secondKey, thirdKey), value);
   }
 
   public Storage<V> put(Object[] key, V value) {
-    resetKey(key);
-    return doPut(value);
+    return doPut(new StorageKey(key.clone()), value);
   }
 
-  private Storage<V> doPut(V value) {
+  private Storage<V> doPut(StorageKey key, V value) {
     try {
-      exchange.getValue().put(value);
-      exchange.store();
+      byte[] encoded = codecs.encode(value);
+      if (encoded.length > MAX_VALUE_SIZE) {
+        throw new IllegalArgumentException("Value is too big: " + encoded.length + " bytes");
+      }
+      byte[] suffix = key.encodeSuffix();
+      long location = segments.append(record(suffix, encoded));
+      int hash = hash(suffix);
+      StorageKey groupKey = key.first();
+      StorageGroup group = groups.computeIfAbsent(groupKey, k -> new StorageGroup());
+      while (!group.put(hash, location, l -> hasSuffix(l, suffix))) {
+        // the group has been detached concurrently because it was empty. Try again with a new group.
+        groups.remove(groupKey, group);
+        group = groups.computeIfAbsent(groupKey, k -> new StorageGroup());
+      }
       return this;
     } catch (Exception e) {
       throw new IllegalStateException("Fail to put element in the storage '" + name + "'", e);
@@ -79,8 +113,7 @@ public class Storage<V> {
    * Returns the value object associated with keys, or null if not found.
    */
   public V get(Object key) {
-    resetKey(key);
-    return doGet();
+    return doGet(new StorageKey(key));
   }
 
   /**
@@ -88,8 +121,7 @@ public class Storage<V> {
    */
   @CheckForNull
   public V get(Object firstKey, Object secondKey) {
-    resetKey(firstKey, secondKey);
-    return doGet();
+    return doGet(new StorageKey(firstKey, secondKey));
   }
 
   /**
@@ -97,8 +129,7 @@ public class Storage<V> {
    */
   @CheckForNull
   public V get(Object firstKey, Object secondKey, Object thirdKey) {
-    resetKey(firstKey, secondKey, thirdKey);
-    return doGet();
+    return doGet(new StorageKey(firstKey, secondKey, thirdKey));
   }
 
   /**
@@ -106,82 +137,80 @@ public class Storage<V> {
    */
   @CheckForNull
   public V get(Object[] key) {
-    resetKey(key);
-    return doGet();
+    return doGet(new StorageKey(key));
   }
 
-  @SuppressWarnings("unchecked")
   @CheckForNull
-  private V doGet() {
-    try {
-      exchange.fetch();
-      if (!exchange.getValue().isDefined()) {
-        return null;
+  private V doGet(StorageKey key) {
+    StorageGroup group = groups.get(key.first());
+    if (group == null) {
+      return null;
+    }
+    byte[] suffix = key.encodeSuffix();
+    // keeps the record read by the matcher, so that it's not read twice
+    ByteBuffer[] found = new ByteBuffer[1];
+    group.get(hash(suffix), l -> {
+      ByteBuffer record = segments.read(l);
+      if (record != null && hasSuffix(record, suffix)) {
+        found[0] = record;
+        return true;
       }
-      return (V) exchange.getValue().get();
-    } catch (Exception e) {
-      // TODO add parameters to message
-      throw new IllegalStateException("Fail to get element from cache " + name, e);
+      return false;
+    });
+    return found[0] == null ? null : decodeValue(found[0]);
+  }
+
+  private long locate(StorageKey key) {
+    StorageGroup group = groups.get(key.first());
+    if (group == null) {
+      return StorageGroup.NOT_FOUND;
     }
+    byte[] suffix = key.encodeSuffix();
+    return group.get(hash(suffix), l -> hasSuffix(l, suffix));
   }
 
   public boolean containsKey(Object key) {
-    resetKey(key);
-    return doContainsKey();
+    return locate(new StorageKey(key)) != StorageGroup.NOT_FOUND;
   }
 
   public boolean containsKey(Object firstKey, Object secondKey) {
-    resetKey(firstKey, secondKey);
-    return doContainsKey();
+    return locate(new StorageKey(firstKey, secondKey)) != StorageGroup.NOT_FOUND;
   }
 
   public boolean containsKey(Object firstKey, Object secondKey, Object thirdKey) {
-    resetKey(firstKey, secondKey, thirdKey);
-    return doContainsKey();
+    return locate(new StorageKey(firstKey, secondKey, thirdKey)) != StorageGroup.NOT_FOUND;
   }
 
   public boolean containsKey(Object[] key) {
-    resetKey(key);
-    return doContainsKey();
-  }
-
-  private boolean doContainsKey() {
-    try {
-      exchange.fetch();
-      return exchange.isValueDefined();
-    } catch (Exception e) {
-      // TODO add parameters to message
-      throw new IllegalStateException("Fail to check if element is in cache " + name, e);
-    }
+    return locate(new StorageKey(key)) != StorageGroup.NOT_FOUND;
   }
 
   public boolean remove(Object key) {
-    resetKey(key);
-    return doRemove();
+    return doRemove(new StorageKey(key));
   }
 
   public boolean remove(Object firstKey, Object secondKey) {
-    resetKey(firstKey, secondKey);
-    return doRemove();
+    return doRemove(new StorageKey(firstKey, secondKey));
   }
 
   public boolean remove(Object firstKey, Object secondKey, Object thirdKey) {
-    resetKey(firstKey, secondKey, thirdKey);
-    return doRemove();
+    return doRemove(new StorageKey(firstKey, secondKey, thirdKey));
   }
 
   public boolean remove(Object[] key) {
-    resetKey(key);
-    return doRemove();
+    return doRemove(new StorageKey(key));
   }
 
-  private boolean doRemove() {
-    try {
-      return exchange.remove();
-    } catch (Exception e) {
-      // TODO add parameters to message
-      throw new IllegalStateException("Fail to get element from cache " + name, e);
+  private boolean doRemove(StorageKey key) {
+    StorageKey groupKey = key.first();
+    StorageGroup group = groups.get(groupKey);
+    if (group == null) {
+      return false;
     }
+    byte[] suffix = key.encodeSuffix();
+    boolean removed = group.remove(hash(suffix), l -> hasSuffix(l, suffix));
+    detachIfEmpty(groupKey, group);
+    return removed;
   }
 
   /**
@@ -190,33 +219,42 @@ public class Storage<V> {
    * @param group The group name.
    */
   public Storage<V> clear(Object key) {
-    resetKey(key);
-    return doClear();
+    return doClear(new StorageKey(key));
   }
 
   public Storage<V> clear(Object firstKey, Object secondKey) {
-    resetKey(firstKey, secondKey);
-    return doClear();
+    return doClear(new StorageKey(firstKey, secondKey));
   }
 
   public Storage<V> clear(Object firstKey, Object secondKey, Object thirdKey) {
-    resetKey(firstKey, secondKey, thirdKey);
-    return doClear();
+    return doClear(new StorageKey(firstKey, secondKey, thirdKey));
   }
 
   public Storage<V> clear(Object[] key) {
-    resetKey(key);
-    return doClear();
+    return doClear(new StorageKey(key));
   }
 
-  private Storage<V> doClear() {
-    try {
-      Key to = new Key(exchange.getKey());
-      to.append(Key.AFTER);
-      exchange.removeKeyRange(exchange.getKey(), to);
+  private Storage<V> doClear(StorageKey key) {
+    StorageKey groupKey = key.first();
+    if (key.depth() == 1) {
+      StorageGroup group = groups.remove(groupKey);
+      if (group != null) {
+        group.detach();
+      }
       return this;
-    } catch (Exception e) {
-      throw new IllegalStateException("Fail to clear values from cache " + name, e);
+    }
+    StorageGroup group = groups.get(groupKey);
+    if (group != null) {
+      byte[] prefix = key.encodeSuffix();
+      group.removeIf(l -> hasSuffixPrefix(l, prefix, false));
+      detachIfEmpty(groupKey, group);
+    }
+    return this;
+  }
+
+  private void detachIfEmpty(StorageKey groupKey, StorageGroup group) {
+    if (group.detachIfEmpty()) {
+      groups.remove(groupKey, group);
     }
   }
 
@@ -224,54 +262,25 @@ public class Storage<V> {
    * Clears the default as well as all group caches.
    */
   public void clear() {
-    try {
-      exchange.clear();
-      exchange.removeAll();
-    } catch (Exception e) {
-      throw new IllegalStateException("Fail to clear cache", e);
-    }
+    groups.values().forEach(StorageGroup::detach);
+    groups.clear();
+    segments.clear();
   }
 
   /**
    * Returns the set of cache keys associated with this group.
-   * TODO implement a lazy-loading equivalent with Iterator/Iterable
    *
    * @param group The group.
    * @return The set of cache keys for this group.
    */
   @SuppressWarnings("rawtypes")
   public Set keySet(Object key) {
-    try {
-      Set<Object> keys = new LinkedHashSet<>();
-      exchange.clear();
-      Exchange iteratorExchange = new Exchange(exchange);
-      iteratorExchange.append(key);
-      iteratorExchange.append(Key.BEFORE);
-      while (iteratorExchange.next(false)) {
-        keys.add(iteratorExchange.getKey().indexTo(-1).decode());
-      }
-      return keys;
-    } catch (Exception e) {
-      throw new IllegalStateException("Fail to get keys from cache " + name, e);
-    }
+    return keysAtDepth(children(new StorageKey(key)), 1);
   }
 
   @SuppressWarnings("rawtypes")
   public Set keySet(Object firstKey, Object secondKey) {
-    try {
-      Set<Object> keys = new LinkedHashSet<>();
-      exchange.clear();
-      Exchange iteratorExchange = new Exchange(exchange);
-      iteratorExchange.append(firstKey);
-      iteratorExchange.append(secondKey);
-      iteratorExchange.append(Key.BEFORE);
-      while (iteratorExchange.next(false)) {
-        keys.add(iteratorExchange.getKey().indexTo(-1).decode());
-      }
-      return keys;
-    } catch (Exception e) {
-      throw new IllegalStateException("Fail to get keys from cache " + name, e);
-    }
+    return keysAtDepth(children(new StorageKey(firstKey, secondKey)), 2);
   }
 
   /**
@@ -280,200 +289,173 @@ public class Storage<V> {
    * @return The set containing the keys for this cache.
    */
   public Set<Object> keySet() {
-    try {
-      Set<Object> keys = new LinkedHashSet<>();
-      exchange.clear();
-      Exchange iteratorExchange = new Exchange(exchange);
-      iteratorExchange.append(Key.BEFORE);
-      while (iteratorExchange.next(false)) {
-        keys.add(iteratorExchange.getKey().indexTo(-1).decode());
+    Set<Object> keys = new LinkedHashSet<>();
+    groups.forEach((groupKey, group) -> {
+      if (!group.isEmpty()) {
+        keys.add(groupKey.part(0));
       }
-      return keys;
-    } catch (Exception e) {
-      throw new IllegalStateException("Fail to get keys from cache " + name, e);
+    });
+    return keys;
+  }
+
+  private static Set<Object> keysAtDepth(Iterable<Located> entries, int depth) {
+    Set<Object> keys = new LinkedHashSet<>();
+    for (Located entry : entries) {
+      keys.add(entry.key().part(depth));
     }
+    return keys;
   }
 
   /**
    * Lazy-loading values for given keys
    */
   public Iterable<V> values(Object firstKey, Object secondKey) {
-    return new ValueIterable<>(exchange, firstKey, secondKey);
+    return lazyValues(children(new StorageKey(firstKey, secondKey)));
   }
 
   /**
    * Lazy-loading values for a given key
    */
   public Iterable<V> values(Object firstKey) {
-    return new ValueIterable<>(exchange, firstKey);
+    return lazyValues(children(new StorageKey(firstKey)));
   }
 
   /**
    * Lazy-loading values
    */
   public Iterable<V> values() {
-    return new ValueIterable<>(exchange);
+    return lazyValues(all());
   }
 
   public Iterable<Entry<V>> entries() {
-    return new EntryIterable<>(exchange);
+    return lazyEntries(all());
   }
 
   public Iterable<Entry<V>> entries(Object firstKey) {
-    return new EntryIterable<>(exchange, firstKey);
+    return lazyEntries(children(new StorageKey(firstKey)));
   }
 
-  private void resetKey(Object key) {
-    exchange.clear();
-    exchange.append(key);
-  }
-
-  private void resetKey(Object first, Object second) {
-    exchange.clear();
-    exchange.append(first).append(second);
+  /**
+   * Sorted keys of all the groups. The keys of a group are loaded when the iteration reaches the group.
+   */
+  private Iterable<Located> all() {
+    return () -> Iterators.concat(Iterators.transform(groups.entrySet().iterator(),
+      e -> sortedEntries(e.getKey(), e.getValue(), NO_SUFFIX, false).iterator()));
   }
 
-  private void resetKey(Object first, Object second, Object third) {
-    exchange.clear();
-    exchange.append(first).append(second).append(third);
+  /**
+   * Sorted keys strictly prefixed by the given key.
+   */
+  private Iterable<Located> children(StorageKey key) {
+    return () -> {
+      StorageKey groupKey = key.first();
+      StorageGroup group = groups.get(groupKey);
+      if (group == null) {
+        return Collections.emptyIterator();
+      }
+      return sortedEntries(groupKey, group, key.encodeSuffix(), true).iterator();
+    };
   }
 
-  private void resetKey(Object[] keys) {
-    exchange.clear();
-    for (Object o : keys) {
-      exchange.append(o);
+  /**
+   * Entries are sorted by the binary form of their keys, so that keys are decoded only when needed
+   */
+  private List<Located> sortedEntries(StorageKey groupKey, StorageGroup group, byte[] prefix, boolean strict) {
+    List<Located> entries = new ArrayList<>();
+    for (long location : group.locations()) {
+      ByteBuffer record = segments.read(location);
+      if (record != null && hasSuffixPrefix(record, prefix, strict)) {
+        entries.add(new Located(groupKey, record));
+      }
     }
+    entries.sort((e1, e2) -> StorageKey.compareSuffixes(e1.suffix, e2.suffix));
+    return entries;
   }
 
-  //
-  // LAZY ITERATORS AND ITERABLES
-  //
-
-  private static class ValueIterable<T> implements Iterable<T> {
-    private final Exchange originExchange;
-    private final Object[] keys;
-
-    private ValueIterable(Exchange originExchange, Object... keys) {
-      this.originExchange = originExchange;
-      this.keys = keys;
-    }
+  private Iterable<V> lazyValues(Iterable<Located> entries) {
+    return () -> unmodifiableIterator(entries.iterator(), e -> decodeValue(e.record));
+  }
 
-    @Override
-    public Iterator<T> iterator() {
-      originExchange.clear();
-      KeyFilter filter = new KeyFilter();
-      for (Object key : keys) {
-        originExchange.append(key);
-        filter = filter.append(KeyFilter.simpleTerm(key));
-      }
-      originExchange.append(Key.BEFORE);
-      Exchange iteratorExchange = new Exchange(originExchange);
-      return new ValueIterator<>(iteratorExchange, filter);
-    }
+  private Iterable<Entry<V>> lazyEntries(Iterable<Located> entries) {
+    return () -> unmodifiableIterator(entries.iterator(), e -> new Entry<>(e.key().toArray(), decodeValue(e.record)));
   }
 
-  private static class ValueIterator<T> implements Iterator<T> {
-    private final Exchange exchange;
-    private final KeyFilter keyFilter;
+  private static <F, T> Iterator<T> unmodifiableIterator(Iterator<F> iterator, Function<F, T> function) {
+    return Iterators.unmodifiableIterator(Iterators.transform(iterator, function::apply));
+  }
 
-    private ValueIterator(Exchange exchange, KeyFilter keyFilter) {
-      this.exchange = exchange;
-      this.keyFilter = keyFilter;
-    }
+  /**
+   * A record is the size of the key suffix, the key suffix, then the encoded value.
+   */
+  private static byte[] record(byte[] suffix, byte[] encodedValue) {
+    return ByteBuffer.allocate(Integer.BYTES + suffix.length + encodedValue.length)
+      .putInt(suffix.length)
+      .put(suffix)
+      .put(encodedValue)
+      .array();
+  }
 
-    @Override
-    public boolean hasNext() {
-      try {
-        return exchange.hasNext(keyFilter);
-      } catch (PersistitException e) {
-        throw new IllegalStateException(e);
-      }
-    }
+  private static ByteBuffer suffix(ByteBuffer record) {
+    ByteBuffer suffix = record.duplicate();
+    suffix.position(Integer.BYTES);
+    suffix.limit(Integer.BYTES + record.getInt(0));
+    return suffix;
+  }
 
-    @SuppressWarnings("unchecked")
-    @Override
-    public T next() {
-      try {
-        exchange.next(keyFilter);
-      } catch (PersistitException e) {
-        throw new IllegalStateException(e);
-      }
-      if (exchange.getValue().isDefined()) {
-        return (T) exchange.getValue().get();
-      }
-      throw new NoSuchElementException();
+  @SuppressWarnings("unchecked")
+  private V decodeValue(ByteBuffer record) {
+    ByteBuffer value = record.duplicate();
+    value.position(Integer.BYTES + record.getInt(0));
+    byte[] encoded = new byte[value.remaining()];
+    value.get(encoded);
+    try {
+      return (V) codecs.decode(encoded);
+    } catch (Exception e) {
+      throw new IllegalStateException("Fail to get element from cache " + name, e);
     }
+  }
 
-    @Override
-    public void remove() {
-      throw new UnsupportedOperationException("Removing an item is not supported");
-    }
+  private boolean hasSuffix(long location, byte[] suffix) {
+    ByteBuffer record = segments.read(location);
+    return record != null && hasSuffix(record, suffix);
   }
 
-  private static class EntryIterable<T> implements Iterable<Entry<T>> {
-    private final Exchange originExchange;
-    private final Object[] keys;
+  private static boolean hasSuffix(ByteBuffer record, byte[] suffix) {
+    return suffix(record).equals(ByteBuffer.wrap(suffix));
+  }
 
-    private EntryIterable(Exchange originExchange, Object... keys) {
-      this.originExchange = originExchange;
-      this.keys = keys;
-    }
+  private boolean hasSuffixPrefix(long location, byte[] prefix, boolean strict) {
+    ByteBuffer record = segments.read(location);
+    return record != null && hasSuffixPrefix(record, prefix, strict);
+  }
 
-    @Override
-    public Iterator<Entry<T>> iterator() {
-      originExchange.clear();
-      KeyFilter filter = new KeyFilter();
-      for (Object key : keys) {
-        originExchange.append(key);
-        filter = filter.append(KeyFilter.simpleTerm(key));
-      }
-      originExchange.append(Key.BEFORE);
-      Exchange iteratorExchange = new Exchange(originExchange);
-      return new EntryIterator<>(iteratorExchange, filter);
+  private static boolean hasSuffixPrefix(ByteBuffer record, byte[] prefix, boolean strict) {
+    ByteBuffer suffix = suffix(record);
+    if (suffix.remaining() < prefix.length || (strict && suffix.remaining() == prefix.length)) {
+      return false;
     }
+    suffix.limit(suffix.position() + prefix.length);
+    return suffix.equals(ByteBuffer.wrap(prefix));
   }
 
-  private static class EntryIterator<T> implements Iterator<Entry<T>> {
-    private final Exchange exchange;
-    private final KeyFilter keyFilter;
-
-    private EntryIterator(Exchange exchange, KeyFilter keyFilter) {
-      this.exchange = exchange;
-      this.keyFilter = keyFilter;
-    }
+  private static int hash(byte[] suffix) {
+    int h = Arrays.hashCode(suffix);
+    return h ^ (h >>> 16);
+  }
 
-    @Override
-    public boolean hasNext() {
-      try {
-        return exchange.hasNext(keyFilter);
-      } catch (PersistitException e) {
-        throw new IllegalStateException(e);
-      }
-    }
+  private static class Located {
+    private final StorageKey groupKey;
+    private final ByteBuffer record;
+    private final ByteBuffer suffix;
 
-    @SuppressWarnings("unchecked")
-    @Override
-    public Entry<T> next() {
-      try {
-        exchange.next(keyFilter);
-      } catch (PersistitException e) {
-        throw new IllegalStateException(e);
-      }
-      if (exchange.getValue().isDefined()) {
-        T value = (T) exchange.getValue().get();
-        Key key = exchange.getKey();
-        Object[] array = new Object[key.getDepth()];
-        for (int i = 0; i < key.getDepth(); i++) {
-          array[i] = key.indexTo(i - key.getDepth()).decode();
-        }
-        return new Entry<>(array, value);
-      }
-      throw new NoSuchElementException();
+    private Located(StorageKey groupKey, ByteBuffer record) {
+      this.groupKey = groupKey;
+      this.record = record;
+      this.suffix = suffix(record);
     }
 
-    @Override
-    public void remove() {
-      throw new UnsupportedOperationException("Removing an item is not supported");
+    private StorageKey key() {
+      return StorageKey.decode(groupKey.part(0), suffix.duplicate());
     }
   }
 
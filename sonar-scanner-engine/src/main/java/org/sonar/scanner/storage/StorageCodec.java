@@ -17,25 +17,22 @@
  * along with this program; if not, write to the Free Software Foundation,
  * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
  */
-package org.sonar.server.computation.task.projectanalysis.batch;
+package org.sonar.scanner.storage;
 
-import java.io.File;
-import java.util.Objects;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
-public class BatchReportDirectoryHolderImpl implements MutableBatchReportDirectoryHolder {
+/**
+ * Converts the values of a {@link Storage} to and from their binary form. Values of classes
+ * without registered codec are written with Java serialization.
+ *
+ * @see Storages#registerValueCodec(Class, StorageCodec)
+ */
+public interface StorageCodec<T> {
 
-  private File directory;
+  void encode(T value, DataOutput output) throws IOException;
 
-  @Override
-  public void setDirectory(File newDirectory) {
-    this.directory = Objects.requireNonNull(newDirectory);
-  }
+  T decode(DataInput input) throws IOException;
 
-  @Override
-  public File getDirectory() {
-    if (this.directory == null) {
-      throw new IllegalStateException("Directory has not been set yet");
-    }
-    return this.directory;
-  }
 }
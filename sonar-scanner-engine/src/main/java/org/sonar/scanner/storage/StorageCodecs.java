@@ -0,0 +1,80 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.storage;
+
+import com.google.common.base.Preconditions;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.apache.commons.lang.SerializationUtils;
+
+/**
+ * Registry of the {@link StorageCodec} shared by the storages of a {@link Storages}. Encoded values
+ * are prefixed by the id of their codec, 0 being reserved to Java serialization.
+ */
+class StorageCodecs {
+
+  private static final int SERIALIZATION_CODEC_ID = 0;
+  private static final int MAX_CODECS = 255;
+
+  private final List<StorageCodec<?>> codecs = new CopyOnWriteArrayList<>();
+  private final Map<Class<?>, Integer> idsByClass = new ConcurrentHashMap<>();
+
+  synchronized void register(Class<?> clazz, StorageCodec<?> codec) {
+    Preconditions.checkState(codecs.size() < MAX_CODECS, "Too many storage codecs");
+    codecs.add(codec);
+    idsByClass.put(clazz, codecs.size());
+  }
+
+  @SuppressWarnings("unchecked")
+  byte[] encode(@Nullable Object value) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    Integer id = value == null ? null : idsByClass.get(value.getClass());
+    if (id == null) {
+      bytes.write(SERIALIZATION_CODEC_ID);
+      SerializationUtils.serialize((Serializable) value, bytes);
+    } else {
+      bytes.write(id);
+      DataOutputStream output = new DataOutputStream(bytes);
+      ((StorageCodec<Object>) codecs.get(id - 1)).encode(value, output);
+      output.flush();
+    }
+    return bytes.toByteArray();
+  }
+
+  @CheckForNull
+  Object decode(byte[] encoded) throws IOException {
+    int id = encoded[0] & 0xFF;
+    ByteArrayInputStream bytes = new ByteArrayInputStream(encoded, 1, encoded.length - 1);
+    if (id == SERIALIZATION_CODEC_ID) {
+      return SerializationUtils.deserialize(bytes);
+    }
+    return codecs.get(id - 1).decode(new DataInputStream(bytes));
+  }
+}
@@ -0,0 +1,177 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.storage;
+
+import java.util.Arrays;
+import java.util.function.LongPredicate;
+
+/**
+ * Locations of the records of a {@link Storage} whose keys share the same first part. Only the hashes of
+ * the other parts of the keys are kept in heap. The parts themselves are written in the records and compared
+ * when hashes are equal, through the matcher given by the caller.
+ * <p>
+ * Hash table with open addressing and linear probing on primitive arrays. An entry takes 12 bytes
+ * when the table is full, so between 16 and 48 bytes of heap depending on the load factor.
+ * <p>
+ * An empty group can be detached from its storage. A detached group rejects new entries, so
+ * that they are not lost.
+ */
+class StorageGroup {
+
+  static final long NOT_FOUND = -1L;
+  private static final long FREE = -1L;
+  private static final long DELETED = -2L;
+  private static final int MIN_CAPACITY = 4;
+
+  private int[] hashes;
+  private long[] locations;
+  // number of entries
+  private int size = 0;
+  // number of slots which are not free, including the deleted ones
+  private int used = 0;
+  private boolean detached = false;
+
+  StorageGroup() {
+    allocate(MIN_CAPACITY);
+  }
+
+  synchronized long get(int hash, LongPredicate matcher) {
+    int mask = locations.length - 1;
+    for (int i = hash & mask; locations[i] != FREE; i = (i + 1) & mask) {
+      if (locations[i] != DELETED && hashes[i] == hash && matcher.test(locations[i])) {
+        return locations[i];
+      }
+    }
+    return NOT_FOUND;
+  }
+
+  /**
+   * Adds the location, or replaces the location of the record matching the same key.
+   *
+   * @return false if the group is detached, in which case nothing is changed
+   */
+  synchronized boolean put(int hash, long location, LongPredicate matcher) {
+    if (detached) {
+      return false;
+    }
+    int mask = locations.length - 1;
+    int firstDeleted = -1;
+    int i = hash & mask;
+    for (; locations[i] != FREE; i = (i + 1) & mask) {
+      if (locations[i] == DELETED) {
+        firstDeleted = firstDeleted < 0 ? i : firstDeleted;
+      } else if (hashes[i] == hash && matcher.test(locations[i])) {
+        locations[i] = location;
+        return true;
+      }
+    }
+    if (firstDeleted >= 0) {
+      i = firstDeleted;
+    } else {
+      used++;
+    }
+    hashes[i] = hash;
+    locations[i] = location;
+    size++;
+    // keep at least one quarter of free slots, so that probing always ends
+    if (used * 4 > locations.length * 3) {
+      rehash();
+    }
+    return true;
+  }
+
+  synchronized boolean remove(int hash, LongPredicate matcher) {
+    int mask = locations.length - 1;
+    for (int i = hash & mask; locations[i] != FREE; i = (i + 1) & mask) {
+      if (locations[i] != DELETED && hashes[i] == hash && matcher.test(locations[i])) {
+        locations[i] = DELETED;
+        size--;
+        return true;
+      }
+    }
+    return false;
+  }
+
+  synchronized void removeIf(LongPredicate matcher) {
+    for (int i = 0; i < locations.length; i++) {
+      if (locations[i] >= 0 && matcher.test(locations[i])) {
+        locations[i] = DELETED;
+        size--;
+      }
+    }
+  }
+
+  /**
+   * Copy of the locations, in no particular order
+   */
+  synchronized long[] locations() {
+    long[] copy = new long[size];
+    int j = 0;
+    for (long location : locations) {
+      if (location >= 0) {
+        copy[j] = location;
+        j++;
+      }
+    }
+    return copy;
+  }
+
+  synchronized boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * @return true if the group is detached, because it was already or because it is empty
+   */
+  synchronized boolean detachIfEmpty() {
+    if (size == 0) {
+      detached = true;
+    }
+    return detached;
+  }
+
+  synchronized void detach() {
+    detached = true;
+  }
+
+  private void rehash() {
+    int[] oldHashes = hashes;
+    long[] oldLocations = locations;
+    allocate(Math.max(MIN_CAPACITY, Integer.highestOneBit(size) * 4));
+    int mask = locations.length - 1;
+    for (int j = 0; j < oldLocations.length; j++) {
+      if (oldLocations[j] >= 0) {
+        int i = oldHashes[j] & mask;
+        while (locations[i] != FREE) {
+          i = (i + 1) & mask;
+        }
+        hashes[i] = oldHashes[j];
+        locations[i] = oldLocations[j];
+      }
+    }
+    used = size;
+  }
+
+  private void allocate(int capacity) {
+    hashes = new int[capacity];
+    locations = new long[capacity];
+    Arrays.fill(locations, FREE);
+  }
+}
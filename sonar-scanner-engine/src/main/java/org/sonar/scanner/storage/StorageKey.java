@@ -0,0 +1,246 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.commons.lang.SerializationUtils;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Key of a {@link Storage}, made of one or more parts. Keys are sorted part by part and a key
+ * is sorted before the keys it prefixes, so that the keys sharing a prefix are contiguous.
+ * <p>
+ * The parts following the first one are written with the values, out of the heap, see {@link #encodeSuffix()}.
+ * Parts can be strings, integers, longs or other serializable objects.
+ */
+class StorageKey implements Comparable<StorageKey> {
+
+  // tags are sorted like the names of the classes, so that binary forms are sorted like keys
+  private static final byte NULL_PART = 0;
+  private static final byte INTEGER_PART = 1;
+  private static final byte LONG_PART = 2;
+  private static final byte STRING_PART = 3;
+  private static final byte SERIALIZED_PART = 4;
+
+  private final Object[] parts;
+
+  StorageKey(Object... parts) {
+    if (parts.length == 0) {
+      throw new IllegalArgumentException("Storage key must have at least one part");
+    }
+    this.parts = parts;
+  }
+
+  /**
+   * Key made of the first part only, which identifies the {@link StorageGroup} of this key
+   */
+  StorageKey first() {
+    return parts.length == 1 ? this : new StorageKey(parts[0]);
+  }
+
+  int depth() {
+    return parts.length;
+  }
+
+  Object part(int index) {
+    return parts[index];
+  }
+
+  Object[] toArray() {
+    return Arrays.copyOf(parts, parts.length);
+  }
+
+  /**
+   * Binary form of the parts following the first one. Each part is self-delimited, so a key is
+   * prefixed by another key of the same group if and only if its binary form is prefixed by the binary
+   * form of the other key. Two keys of the same group are equal if and only if their binary forms are equal.
+   * <p>
+   * Binary forms are sorted like keys, when compared as unsigned bytes, see {@link #compareSuffixes(ByteBuffer, ByteBuffer)}.
+   * The only exceptions are the strings containing supplementary characters, which are sorted by code points,
+   * and the parts of other types than strings, integers and longs, which are serialized and sorted by binary form.
+   */
+  byte[] encodeSuffix() {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream output = new DataOutputStream(bytes);
+    try {
+      for (int i = 1; i < parts.length; i++) {
+        writePart(parts[i], output);
+      }
+      output.flush();
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to encode storage key " + this, e);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static void writePart(Object part, DataOutputStream output) throws IOException {
+    if (part == null) {
+      output.writeByte(NULL_PART);
+    } else if (part instanceof Integer) {
+      output.writeByte(INTEGER_PART);
+      // sign bit is flipped so that negative numbers are sorted first
+      output.writeInt((Integer) part ^ Integer.MIN_VALUE);
+    } else if (part instanceof Long) {
+      output.writeByte(LONG_PART);
+      output.writeLong((Long) part ^ Long.MIN_VALUE);
+    } else if (part instanceof String) {
+      output.writeByte(STRING_PART);
+      // zero bytes are escaped, so that the terminator 0x00 0x00 is sorted before any character
+      byte[] utf8 = ((String) part).getBytes(UTF_8);
+      int from = 0;
+      for (int i = 0; i < utf8.length; i++) {
+        if (utf8[i] == 0) {
+          output.write(utf8, from, i + 1 - from);
+          output.writeByte(0xFF);
+          from = i + 1;
+        }
+      }
+      output.write(utf8, from, utf8.length - from);
+      output.writeShort(0);
+    } else if (part instanceof Serializable) {
+      byte[] serialized = SerializationUtils.serialize((Serializable) part);
+      output.writeByte(SERIALIZED_PART);
+      output.writeInt(serialized.length);
+      output.write(serialized);
+    } else {
+      throw new IllegalArgumentException("Storage key part is not serializable: " + part.getClass().getName());
+    }
+  }
+
+  /**
+   * Inverse of {@link #encodeSuffix()}. The position of the buffer is moved after the suffix.
+   */
+  static StorageKey decode(Object firstPart, ByteBuffer suffix) {
+    List<Object> decoded = new ArrayList<>();
+    decoded.add(firstPart);
+    while (suffix.hasRemaining()) {
+      decoded.add(readPart(suffix));
+    }
+    return new StorageKey(decoded.toArray());
+  }
+
+  private static Object readPart(ByteBuffer input) {
+    byte type = input.get();
+    switch (type) {
+      case NULL_PART:
+        return null;
+      case INTEGER_PART:
+        return input.getInt() ^ Integer.MIN_VALUE;
+      case LONG_PART:
+        return input.getLong() ^ Long.MIN_VALUE;
+      case STRING_PART:
+        return readString(input);
+      case SERIALIZED_PART:
+        byte[] serialized = new byte[input.getInt()];
+        input.get(serialized);
+        return SerializationUtils.deserialize(serialized);
+      default:
+        throw new IllegalStateException("Unsupported type of storage key part: " + type);
+    }
+  }
+
+  private static String readString(ByteBuffer input) {
+    ByteArrayOutputStream utf8 = new ByteArrayOutputStream();
+    while (true) {
+      byte b = input.get();
+      if (b == 0 && input.get() == 0) {
+        return new String(utf8.toByteArray(), UTF_8);
+      }
+      utf8.write(b);
+    }
+  }
+
+  /**
+   * Compares binary forms as unsigned bytes
+   */
+  static int compareSuffixes(ByteBuffer suffix, ByteBuffer otherSuffix) {
+    int length = Math.min(suffix.remaining(), otherSuffix.remaining());
+    for (int i = 0; i < length; i++) {
+      int c = Integer.compare(suffix.get(suffix.position() + i) & 0xFF, otherSuffix.get(otherSuffix.position() + i) & 0xFF);
+      if (c != 0) {
+        return c;
+      }
+    }
+    return Integer.compare(suffix.remaining(), otherSuffix.remaining());
+  }
+
+  @Override
+  public int compareTo(StorageKey other) {
+    int commonDepth = Math.min(parts.length, other.parts.length);
+    for (int i = 0; i < commonDepth; i++) {
+      int c = compareParts(parts[i], other.parts[i]);
+      if (c != 0) {
+        return c;
+      }
+    }
+    return Integer.compare(parts.length, other.parts.length);
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static int compareParts(Object part, Object otherPart) {
+    if (part == otherPart) {
+      return 0;
+    }
+    if (part == null) {
+      return -1;
+    }
+    if (otherPart == null) {
+      return 1;
+    }
+    if (part.getClass() == otherPart.getClass() && part instanceof Comparable) {
+      return ((Comparable) part).compareTo(otherPart);
+    }
+    // parts of different types are grouped by type
+    int c = part.getClass().getName().compareTo(otherPart.getClass().getName());
+    if (c == 0) {
+      throw new IllegalArgumentException("Storage key is not comparable: " + part.getClass().getName());
+    }
+    return c;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    return Arrays.equals(parts, ((StorageKey) o).parts);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(parts);
+  }
+
+  @Override
+  public String toString() {
+    return Arrays.toString(parts);
+  }
+}
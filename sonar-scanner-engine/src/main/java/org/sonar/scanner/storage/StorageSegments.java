@@ -0,0 +1,119 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.annotation.CheckForNull;
+
+import static org.sonar.core.util.FileUtils.deleteQuietly;
+
+/**
+ * Append-only log of the records of a {@link Storage}, written to memory-mapped segment files so
+ * that they stay out of the JVM heap. A record is located by the index of its segment (high 32 bits)
+ * and its offset in the segment (low 32 bits).
+ * <p>
+ * Segments are not compacted: the space of overwritten or removed records is only reclaimed when
+ * the storage is cleared, or when the temp dir of storages is deleted at the end of the analysis.
+ * Disk usage is therefore bounded by the total size of the records put since the last {@link #clear()},
+ * plus 4 bytes per record, rounded up to the next {@link #SEGMENT_SIZE}. Compaction would have to
+ * relocate records while they may be read by the weakly-consistent iterators of {@link Storage}.
+ * <p>
+ * Indices of segments are never reused, so that a location returned before {@link #clear()} can't
+ * designate a record appended after.
+ */
+class StorageSegments {
+
+  static final int SEGMENT_SIZE = 16 * 1024 * 1024;
+
+  private final File dir;
+  private final String name;
+  // dropped segments are replaced by null. Copy-on-write, as segments are rarely added, so that reads are not blocked
+  private final List<MappedByteBuffer> segments = new CopyOnWriteArrayList<>();
+  private final List<File> files = new ArrayList<>();
+  private MappedByteBuffer current;
+
+  StorageSegments(File dir, String name) {
+    this.dir = dir;
+    this.name = name;
+  }
+
+  synchronized long append(byte[] data) throws IOException {
+    int recordSize = Integer.BYTES + data.length;
+    if (current == null || current.remaining() < recordSize) {
+      current = newSegment(Math.max(SEGMENT_SIZE, recordSize));
+    }
+    long location = ((long) (segments.size() - 1) << 32) | current.position();
+    current.putInt(data.length);
+    current.put(data);
+    return location;
+  }
+
+  /**
+   * Not synchronized: the caller must get the location from the thread which appended the record,
+   * through a synchronized structure, so that the content of the record is visible.
+   *
+   * @return a read-only view of the record, without copy, or {@code null} if the record has been dropped by {@link #clear()}
+   */
+  @CheckForNull
+  ByteBuffer read(long location) {
+    MappedByteBuffer segment = segments.get((int) (location >>> 32));
+    if (segment == null) {
+      return null;
+    }
+    ByteBuffer buffer = segment.asReadOnlyBuffer();
+    buffer.position((int) location);
+    int size = buffer.getInt();
+    buffer.limit(buffer.position() + size);
+    return buffer.slice();
+  }
+
+  /**
+   * Drops all the segments. Reading the locations returned previously returns {@code null}.
+   */
+  synchronized void clear() {
+    for (int i = 0; i < segments.size(); i++) {
+      segments.set(i, null);
+    }
+    current = null;
+    // deletion may fail on Windows as long as the files are still mapped
+    files.forEach(f -> deleteQuietly(f));
+    files.clear();
+  }
+
+  private MappedByteBuffer newSegment(int size) throws IOException {
+    // segments are never renamed nor reused, so that a file still mapped is never overwritten
+    File file = new File(dir, name + "-" + segments.size() + ".seg");
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      // the mapping stays valid after the channel is closed
+      MappedByteBuffer segment = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+      segments.add(segment);
+      files.add(file);
+      return segment;
+    }
+  }
+}
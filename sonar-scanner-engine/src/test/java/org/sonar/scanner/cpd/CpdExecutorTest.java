@@ -84,6 +84,7 @@ public class CpdExecutorTest {
 
     branchConfig = mock(BranchConfiguration.class);
     settings = mock(CpdSettings.class);
+    when(settings.getThreads()).thenReturn(2);
     publisher = mock(ReportPublisher.class);
     when(publisher.getWriter()).thenReturn(new ScannerReportWriter(outputDir));
 
@@ -204,11 +205,36 @@ public class CpdExecutorTest {
 
   @Test
   public void failOnMissingComponent() {
-    executor.runCpdAnalysis(null, "unknown", Collections.emptyList(), 1);
+    assertThat(executor.submitCpdAnalysis(null, "unknown", Collections.emptyList())).isNull();
     readDuplications(0);
     assertThat(logTester.logs(LoggerLevel.ERROR)).contains("Resource not found in component store: unknown. Skipping CPD computation for it");
   }
 
+  @Test
+  public void detectDuplicationsOfFilesConcurrently() {
+    for (DefaultInputFile component : Arrays.asList(batchComponent1, batchComponent2, batchComponent3)) {
+      List<Block> blocks = new ArrayList<>();
+      for (int j = 1; j <= 3; j++) {
+        blocks.add(Block.builder()
+          .setResourceId(component.key())
+          .setIndexInFile(j - 1)
+          .setLines(j, j)
+          .setUnit(j, j)
+          .setBlockHash(new ByteArray(("hash000" + j).getBytes()))
+          .build());
+      }
+      index.insert(component, blocks);
+    }
+
+    executor.execute(60_000);
+
+    Duplication[] dups = readDuplications(1);
+    assertDuplication(dups[0], 1, 3, 2);
+    assertThat(reader.readComponentDuplications(batchComponent2.batchId())).hasSize(1);
+    assertThat(reader.readComponentDuplications(batchComponent3.batchId())).hasSize(1);
+    assertThat(String.join("\n", logTester.logs(LoggerLevel.INFO))).contains("CPD calculation finished (done) | time=");
+  }
+
   @Test
   public void timeout() {
     for (int i = 1; i <= 2; i++) {
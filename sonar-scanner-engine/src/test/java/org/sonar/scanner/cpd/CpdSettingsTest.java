@@ -21,10 +21,13 @@ package org.sonar.scanner.cpd;
 
 import java.util.Optional;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
 import org.sonar.api.batch.fs.internal.DefaultInputModule;
 import org.sonar.api.batch.fs.internal.InputModuleHierarchy;
 import org.sonar.api.config.Configuration;
+import org.sonar.api.utils.MessageException;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.anyString;
@@ -32,6 +35,9 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 public class CpdSettingsTest {
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
   private CpdSettings cpdSettings;
   private Configuration configuration;
   private DefaultInputModule module;
@@ -59,4 +65,26 @@ public class CpdSettingsTest {
     assertThat(cpdSettings.getMinimumTokens("java")).isEqualTo(42);
     assertThat(cpdSettings.getMinimumTokens("php")).isEqualTo(33);
   }
+
+  @Test
+  public void defaultThreadsIsNumberOfProcessors() {
+    when(configuration.getInt(CpdSettings.THREADS_PROP_KEY)).thenReturn(Optional.empty());
+    assertThat(cpdSettings.getThreads()).isEqualTo(Runtime.getRuntime().availableProcessors());
+  }
+
+  @Test
+  public void threads() {
+    when(configuration.getInt(CpdSettings.THREADS_PROP_KEY)).thenReturn(Optional.of(3));
+    assertThat(cpdSettings.getThreads()).isEqualTo(3);
+  }
+
+  @Test
+  public void failIfThreadsIsNotPositive() {
+    when(configuration.getInt(CpdSettings.THREADS_PROP_KEY)).thenReturn(Optional.of(0));
+
+    thrown.expect(MessageException.class);
+    thrown.expectMessage("Property sonar.cpd.threads must be strictly positive. Got: 0");
+
+    cpdSettings.getThreads();
+  }
 }
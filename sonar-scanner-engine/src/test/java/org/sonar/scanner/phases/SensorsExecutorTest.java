@@ -21,9 +21,13 @@ package org.sonar.scanner.phases;
 
 import java.io.IOException;
 import java.util.Collections;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
 import org.junit.rules.TemporaryFolder;
 import org.sonar.api.batch.Sensor;
 import org.sonar.api.batch.SensorContext;
@@ -32,20 +36,31 @@ import org.sonar.api.batch.fs.internal.DefaultInputModule;
 import org.sonar.api.batch.fs.internal.InputModuleHierarchy;
 import org.sonar.api.batch.fs.internal.SensorStrategy;
 import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.batch.sensor.SensorDescriptor;
+import org.sonar.api.config.internal.MapSettings;
 import org.sonar.api.resources.Project;
 import org.sonar.scanner.bootstrap.ScannerExtensionDictionnary;
 import org.sonar.scanner.events.EventBus;
+import org.sonar.scanner.sensor.SensorOptimizer;
+import org.sonar.scanner.sensor.SensorWrapper;
 
+import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
+import static org.sonar.scanner.phases.SensorsExecutor.PARALLEL_SENSORS_PROP_KEY;
+import static org.sonar.scanner.phases.SensorsExecutor.PARALLEL_SENSORS_THREADS_PROP_KEY;
 
 public class SensorsExecutorTest {
   @Rule
   public TemporaryFolder temp = new TemporaryFolder();
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
 
+  private MapSettings settings = new MapSettings();
+  private ScannerExtensionDictionnary selector = mock(ScannerExtensionDictionnary.class);
   private SensorsExecutor rootModuleExecutor;
   private SensorsExecutor subModuleExecutor;
   private SensorContext context;
@@ -81,7 +96,6 @@ public class SensorsExecutorTest {
   public void setUp() throws IOException {
     context = mock(SensorContext.class);
 
-    ScannerExtensionDictionnary selector = mock(ScannerExtensionDictionnary.class);
     when(selector.selectSensors(any(DefaultInputModule.class), eq(false))).thenReturn(Collections.singleton(perModuleSensor));
     when(selector.selectSensors(any(DefaultInputModule.class), eq(true))).thenReturn(Collections.singleton(globalSensor));
 
@@ -94,8 +108,8 @@ public class SensorsExecutorTest {
     InputModuleHierarchy hierarchy = mock(InputModuleHierarchy.class);
     when(hierarchy.isRoot(rootModule)).thenReturn(true);
 
-    rootModuleExecutor = new SensorsExecutor(selector, rootModule, hierarchy, mock(EventBus.class), strategy);
-    subModuleExecutor = new SensorsExecutor(selector, subModule, hierarchy, mock(EventBus.class), strategy);
+    rootModuleExecutor = new SensorsExecutor(selector, rootModule, hierarchy, mock(EventBus.class), strategy, settings.asConfig());
+    subModuleExecutor = new SensorsExecutor(selector, subModule, hierarchy, mock(EventBus.class), strategy, settings.asConfig());
   }
 
   @Test
@@ -116,4 +130,100 @@ public class SensorsExecutorTest {
     assertThat(globalSensor.called).isTrue();
     assertThat(globalSensor.global).isTrue();
   }
+
+  @Test
+  public void execute_thread_safe_sensors_concurrently_if_enabled() {
+    settings.setProperty(PARALLEL_SENSORS_PROP_KEY, true);
+    settings.setProperty(PARALLEL_SENSORS_THREADS_PROP_KEY, 2);
+    // each sensor waits for the other one, so they must be executed concurrently
+    CyclicBarrier barrier = new CyclicBarrier(2);
+    BarrierSensor sensor1 = new BarrierSensor(barrier, true);
+    BarrierSensor sensor2 = new BarrierSensor(barrier, true);
+    when(selector.selectSensors(any(DefaultInputModule.class), eq(false))).thenReturn(asList(wrap(sensor1), wrap(sensor2)));
+
+    subModuleExecutor.execute(context);
+
+    assertThat(sensor1.thread).isNotNull().isNotSameAs(Thread.currentThread());
+    assertThat(sensor2.thread).isNotNull().isNotSameAs(sensor1.thread);
+  }
+
+  @Test
+  public void execute_sensors_sequentially_by_default() {
+    BarrierSensor sensor1 = new BarrierSensor(null, true);
+    BarrierSensor sensor2 = new BarrierSensor(null, true);
+    when(selector.selectSensors(any(DefaultInputModule.class), eq(false))).thenReturn(asList(wrap(sensor1), wrap(sensor2)));
+
+    subModuleExecutor.execute(context);
+
+    assertThat(sensor1.thread).isSameAs(Thread.currentThread());
+    assertThat(sensor2.thread).isSameAs(Thread.currentThread());
+  }
+
+  @Test
+  public void execute_sensors_that_are_not_thread_safe_in_current_thread() {
+    settings.setProperty(PARALLEL_SENSORS_PROP_KEY, true);
+    BarrierSensor sensor1 = new BarrierSensor(null, false);
+    BarrierSensor sensor2 = new BarrierSensor(null, false);
+    when(selector.selectSensors(any(DefaultInputModule.class), eq(false))).thenReturn(asList(wrap(sensor1), wrap(sensor2), perModuleSensor));
+
+    subModuleExecutor.execute(context);
+
+    assertThat(sensor1.thread).isSameAs(Thread.currentThread());
+    assertThat(sensor2.thread).isSameAs(Thread.currentThread());
+    assertThat(perModuleSensor.called).isTrue();
+  }
+
+  @Test
+  public void failure_of_sensor_executed_concurrently_is_propagated() {
+    settings.setProperty(PARALLEL_SENSORS_PROP_KEY, true);
+    settings.setProperty(PARALLEL_SENSORS_THREADS_PROP_KEY, 2);
+    BarrierSensor sensor = new BarrierSensor(null, true);
+    org.sonar.api.batch.sensor.Sensor failingSensor = new BarrierSensor(null, true) {
+      @Override
+      public void execute(org.sonar.api.batch.sensor.SensorContext context) {
+        throw new IllegalArgumentException("Fail to analyse");
+      }
+    };
+    when(selector.selectSensors(any(DefaultInputModule.class), eq(false))).thenReturn(asList(wrap(failingSensor), wrap(sensor)));
+
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Fail to analyse");
+
+    subModuleExecutor.execute(context);
+  }
+
+  private static SensorWrapper wrap(org.sonar.api.batch.sensor.Sensor sensor) {
+    return new SensorWrapper(sensor, mock(org.sonar.api.batch.sensor.SensorContext.class), mock(SensorOptimizer.class));
+  }
+
+  private static class BarrierSensor implements org.sonar.api.batch.sensor.Sensor {
+    private final CyclicBarrier barrier;
+    private final boolean threadSafe;
+    private volatile Thread thread;
+
+    BarrierSensor(@Nullable CyclicBarrier barrier, boolean threadSafe) {
+      this.barrier = barrier;
+      this.threadSafe = threadSafe;
+    }
+
+    @Override
+    public void describe(SensorDescriptor descriptor) {
+      descriptor.name("Barrier");
+      if (threadSafe) {
+        descriptor.threadSafe();
+      }
+    }
+
+    @Override
+    public void execute(org.sonar.api.batch.sensor.SensorContext context) {
+      thread = Thread.currentThread();
+      if (barrier != null) {
+        try {
+          barrier.await(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+          throw new IllegalStateException(e);
+        }
+      }
+    }
+  }
 }
@@ -0,0 +1,170 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scan.filesystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.fs.internal.DefaultInputModule;
+import org.sonar.api.batch.fs.internal.InputModuleHierarchy;
+import org.sonar.api.batch.fs.internal.Metadata;
+import org.sonar.api.config.internal.MapSettings;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FileMetadataCacheTest {
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private MapSettings settings = new MapSettings();
+  private InputModuleHierarchy hierarchy = mock(InputModuleHierarchy.class);
+  private Path workDir;
+  private Path file;
+
+  @Before
+  public void setUp() throws IOException {
+    workDir = temp.newFolder().toPath();
+    DefaultInputModule root = mock(DefaultInputModule.class);
+    when(root.getWorkDir()).thenReturn(workDir);
+    when(hierarchy.root()).thenReturn(root);
+    settings.setProperty(FileMetadataCache.ENABLED_PROP_KEY, true);
+
+    file = temp.newFile().toPath();
+    FileUtils.write(file.toFile(), "foo", StandardCharsets.UTF_8);
+    file.toFile().setLastModified(System.currentTimeMillis() - 10_000L);
+  }
+
+  @Test
+  public void reuse_metadata_saved_by_previous_analysis() {
+    FileMetadataCache cache = startCache();
+    cache.put(cache.key(file, StandardCharsets.UTF_8), StandardCharsets.ISO_8859_1, new Metadata(3, 2, "hash", new int[] {0, 4, 8}, 10));
+    cache.stop();
+
+    cache = startCache();
+    FileMetadataCache.Entry entry = cache.get(cache.key(file, StandardCharsets.UTF_8));
+
+    assertThat(entry.charset()).isEqualTo(StandardCharsets.ISO_8859_1);
+    assertThat(entry.metadata().lines()).isEqualTo(3);
+    assertThat(entry.metadata().nonBlankLines()).isEqualTo(2);
+    assertThat(entry.metadata().hash()).isEqualTo("hash");
+    assertThat(entry.metadata().originalLineOffsets()).containsExactly(0, 4, 8);
+    assertThat(entry.metadata().lastValidOffset()).isEqualTo(10);
+  }
+
+  @Test
+  public void keep_reused_metadata_for_next_analysis() {
+    FileMetadataCache cache = startCache();
+    cache.put(cache.key(file, StandardCharsets.UTF_8), StandardCharsets.UTF_8, new Metadata(1, 1, "hash", new int[] {0}, 3));
+    cache.stop();
+    cache = startCache();
+    cache.get(cache.key(file, StandardCharsets.UTF_8));
+    cache.stop();
+
+    cache = startCache();
+
+    assertThat(cache.get(cache.key(file, StandardCharsets.UTF_8))).isNotNull();
+  }
+
+  @Test
+  public void ignore_metadata_of_changed_file() throws IOException {
+    FileMetadataCache cache = startCache();
+    cache.put(cache.key(file, StandardCharsets.UTF_8), StandardCharsets.UTF_8, new Metadata(1, 1, "hash", new int[] {0}, 3));
+    cache.stop();
+
+    FileUtils.write(file.toFile(), "foo\nbar", StandardCharsets.UTF_8);
+    cache = startCache();
+
+    assertThat(cache.get(cache.key(file, StandardCharsets.UTF_8))).isNull();
+  }
+
+  @Test
+  public void ignore_metadata_computed_with_other_default_encoding() {
+    FileMetadataCache cache = startCache();
+    cache.put(cache.key(file, StandardCharsets.UTF_8), StandardCharsets.UTF_8, new Metadata(1, 1, "hash", new int[] {0}, 3));
+    cache.stop();
+
+    cache = startCache();
+
+    assertThat(cache.get(cache.key(file, StandardCharsets.ISO_8859_1))).isNull();
+  }
+
+  @Test
+  public void do_not_cache_recently_modified_file() {
+    file.toFile().setLastModified(System.currentTimeMillis());
+    FileMetadataCache cache = startCache();
+    cache.put(cache.key(file, StandardCharsets.UTF_8), StandardCharsets.UTF_8, new Metadata(1, 1, "hash", new int[] {0}, 3));
+    cache.stop();
+
+    cache = startCache();
+
+    assertThat(cache.get(cache.key(file, StandardCharsets.UTF_8))).isNull();
+  }
+
+  @Test
+  public void ignore_corrupted_cache() throws IOException {
+    Files.write(workDir.resolve(FileMetadataCache.FILE_NAME), new byte[] {0, 0, 0, 1, 0});
+
+    FileMetadataCache cache = startCache();
+
+    assertThat(cache.get(cache.key(file, StandardCharsets.UTF_8))).isNull();
+  }
+
+  @Test
+  public void do_nothing_when_disabled() {
+    settings.setProperty(FileMetadataCache.ENABLED_PROP_KEY, false);
+    FileMetadataCache cache = startCache();
+
+    assertThat(cache.key(file, StandardCharsets.UTF_8)).isNull();
+    cache.stop();
+    assertThat(workDir.resolve(FileMetadataCache.FILE_NAME).toFile()).doesNotExist();
+  }
+
+  @Test
+  public void disabled_by_default() {
+    settings.removeProperty(FileMetadataCache.ENABLED_PROP_KEY);
+    FileMetadataCache cache = startCache();
+
+    assertThat(cache.key(file, StandardCharsets.UTF_8)).isNull();
+    cache.stop();
+    assertThat(workDir.resolve(FileMetadataCache.FILE_NAME).toFile()).doesNotExist();
+  }
+
+  @Test
+  public void no_key_for_missing_file() {
+    FileMetadataCache cache = startCache();
+
+    assertThat(cache.key(new File(temp.getRoot(), "missing").toPath(), StandardCharsets.UTF_8)).isNull();
+  }
+
+  private FileMetadataCache startCache() {
+    FileMetadataCache cache = new FileMetadataCache(settings.asConfig(), hierarchy);
+    cache.start();
+    return cache;
+  }
+}
@@ -36,7 +36,9 @@ import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.batch.fs.internal.DefaultInputModule;
 import org.sonar.api.batch.fs.internal.FileMetadata;
+import org.sonar.api.batch.fs.internal.InputModuleHierarchy;
 import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.config.internal.MapSettings;
 import org.sonar.api.utils.PathUtils;
 import org.sonar.scanner.issue.ignore.pattern.IssueExclusionPatternInitializer;
 import org.sonar.scanner.issue.ignore.pattern.PatternMatcher;
@@ -58,14 +60,24 @@ public class MetadataGeneratorTest {
 
   private FileMetadata metadata;
   private MetadataGenerator generator;
+  private DefaultInputModule module;
+  private FileMetadataCache metadataCache;
 
   @Before
   public void setUp() throws IOException {
     MockitoAnnotations.initMocks(this);
     metadata = new FileMetadata();
+    module = new DefaultInputModule(ProjectDefinition.create().setKey("module").setBaseDir(temp.newFolder()).setWorkDir(temp.newFolder()));
+    startMetadataCache();
+  }
+
+  private void startMetadataCache() {
+    InputModuleHierarchy hierarchy = mock(InputModuleHierarchy.class);
+    when(hierarchy.root()).thenReturn(module);
+    metadataCache = new FileMetadataCache(new MapSettings().setProperty(FileMetadataCache.ENABLED_PROP_KEY, true).asConfig(), hierarchy);
+    metadataCache.start();
     IssueExclusionsLoader issueExclusionsLoader = new IssueExclusionsLoader(mock(IssueExclusionPatternInitializer.class), mock(PatternMatcher.class));
-    generator = new MetadataGenerator(new DefaultInputModule(ProjectDefinition.create().setKey("module").setBaseDir(temp.newFolder()).setWorkDir(temp.newFolder())),
-      statusDetection, metadata, issueExclusionsLoader);
+    generator = new MetadataGenerator(module, statusDetection, metadata, issueExclusionsLoader, metadataCache);
   }
 
   @Test
@@ -110,6 +122,41 @@ public class MetadataGeneratorTest {
     assertThat(inputFile.originalLineOffsets()).containsOnly(0, 4, 9);
   }
 
+  @Test
+  public void reuse_metadata_of_file_unchanged_since_previous_analysis() throws Exception {
+    Path tempFile = temp.newFile().toPath();
+    FileUtils.write(tempFile.toFile(), "foo\nbar", StandardCharsets.UTF_8);
+    long lastModified = System.currentTimeMillis() - 10_000L;
+    tempFile.toFile().setLastModified(lastModified);
+    createInputFileWithMetadata(tempFile);
+    metadataCache.stop();
+    startMetadataCache();
+
+    // same size and same modification date
+    FileUtils.write(tempFile.toFile(), "baz\nqux", StandardCharsets.UTF_8);
+    tempFile.toFile().setLastModified(lastModified);
+
+    DefaultInputFile inputFile = createInputFileWithMetadata(tempFile);
+    assertThat(inputFile.hash()).isEqualTo(md5Hex("foo\nbar"));
+    assertThat(inputFile.lines()).isEqualTo(2);
+  }
+
+  @Test
+  public void compute_metadata_of_file_changed_since_previous_analysis() throws Exception {
+    Path tempFile = temp.newFile().toPath();
+    FileUtils.write(tempFile.toFile(), "foo\nbar", StandardCharsets.UTF_8);
+    tempFile.toFile().setLastModified(System.currentTimeMillis() - 10_000L);
+    createInputFileWithMetadata(tempFile);
+    metadataCache.stop();
+    startMetadataCache();
+
+    FileUtils.write(tempFile.toFile(), "baz\nqux\n", StandardCharsets.UTF_8);
+
+    DefaultInputFile inputFile = createInputFileWithMetadata(tempFile);
+    assertThat(inputFile.hash()).isEqualTo(md5Hex("baz\nqux\n"));
+    assertThat(inputFile.lines()).isEqualTo(3);
+  }
+
   @Test
   public void use_default_charset_if_detection_fails() throws IOException {
     Path tempFile = temp.newFile().toPath();
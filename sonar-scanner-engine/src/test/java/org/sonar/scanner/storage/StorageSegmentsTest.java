@@ -0,0 +1,93 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StorageSegmentsTest {
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void should_read_appended_records() throws IOException {
+    StorageSegments segments = new StorageSegments(temp.newFolder(), "foo");
+
+    long first = segments.append(new byte[] {1, 2, 3});
+    long second = segments.append(new byte[0]);
+    long third = segments.append(new byte[] {4});
+
+    assertThat(segments.read(first)).isEqualTo(ByteBuffer.wrap(new byte[] {1, 2, 3}));
+    assertThat(segments.read(second).remaining()).isEqualTo(0);
+    assertThat(segments.read(third)).isEqualTo(ByteBuffer.wrap(new byte[] {4}));
+    assertThat(segments.read(third).isReadOnly()).isTrue();
+  }
+
+  @Test
+  public void should_create_new_segments_when_full() throws IOException {
+    StorageSegments segments = new StorageSegments(temp.newFolder(), "foo");
+    byte[] big = new byte[StorageSegments.SEGMENT_SIZE];
+    Arrays.fill(big, (byte) 7);
+
+    long first = segments.append(new byte[] {1});
+    long second = segments.append(big);
+    long third = segments.append(new byte[] {2});
+
+    assertThat(first >>> 32).isEqualTo(0);
+    assertThat(second >>> 32).isEqualTo(1);
+    assertThat(third >>> 32).isEqualTo(2);
+    assertThat(segments.read(first)).isEqualTo(ByteBuffer.wrap(new byte[] {1}));
+    assertThat(segments.read(second)).isEqualTo(ByteBuffer.wrap(big));
+    assertThat(segments.read(third)).isEqualTo(ByteBuffer.wrap(new byte[] {2}));
+  }
+
+  @Test
+  public void clear_deletes_segment_files() throws IOException {
+    File dir = temp.newFolder();
+    StorageSegments segments = new StorageSegments(dir, "foo");
+    long before = segments.append(new byte[] {1});
+    assertThat(dir.list()).containsExactly("foo-0.seg");
+
+    segments.clear();
+    long after = segments.append(new byte[] {2});
+
+    assertThat(dir.list()).containsExactly("foo-1.seg");
+    // segment indices are not reused, so that the locations read before clear() are never confused with new records
+    assertThat(after >>> 32).isEqualTo(1);
+    assertThat(segments.read(after)).isEqualTo(ByteBuffer.wrap(new byte[] {2}));
+  }
+
+  @Test
+  public void read_returns_null_if_record_is_dropped_by_clear() throws IOException {
+    StorageSegments segments = new StorageSegments(temp.newFolder(), "foo");
+    long location = segments.append(new byte[] {1});
+
+    segments.clear();
+
+    assertThat(segments.read(location)).isNull();
+  }
+}
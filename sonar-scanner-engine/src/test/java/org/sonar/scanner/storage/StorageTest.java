@@ -20,6 +20,7 @@
 package org.sonar.scanner.storage;
 
 import com.google.common.collect.Iterables;
+import java.util.Iterator;
 import org.junit.Test;
 import org.sonar.scanner.index.AbstractCachesTest;
 import org.sonar.scanner.storage.Storage.Entry;
@@ -248,4 +249,31 @@ public class StorageTest extends AbstractCachesTest {
     cache.clear("foo", "bar", "baz");
     cache.clear();
   }
+
+  @Test
+  public void keys_are_sorted_by_value_of_their_parts() {
+    Storage<String> cache = caches.createCache("sorted");
+    cache.put("foo", 10, "ten");
+    cache.put("foo", -1, "minus one");
+    cache.put("foo", 2, "two");
+    cache.put("bar", 1, "other");
+
+    assertThat(cache.values("foo")).containsExactly("minus one", "two", "ten");
+  }
+
+  @Test
+  public void iteration_does_not_fail_when_storage_is_cleared() {
+    Storage<String> cache = caches.createCache("capitals");
+    cache.put("europe", "france", "paris");
+    cache.put("europe", "italy", "rome");
+    cache.put("asia", "china", "pekin");
+
+    Iterator<String> values = cache.values().iterator();
+    assertThat(values.next()).isEqualTo("pekin");
+    cache.clear();
+
+    // the iteration does not reach the cleared groups
+    assertThat(values.hasNext()).isFalse();
+    assertThat(cache.values()).isEmpty();
+  }
 }
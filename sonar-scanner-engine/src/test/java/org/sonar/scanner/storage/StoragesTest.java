@@ -19,15 +19,23 @@
  */
 package org.sonar.scanner.storage;
 
-import com.persistit.exception.PersistitException;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
 import java.io.Serializable;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
 import org.sonar.scanner.index.AbstractCachesTest;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.fail;
 
 public class StoragesTest extends AbstractCachesTest {
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
   @Test
   public void should_create_cache() {
     Storage<Element> cache = caches.createCache("foo");
@@ -52,10 +60,14 @@ public class StoragesTest extends AbstractCachesTest {
       c.put("a" + i, "a" + i);
     }
 
+    File dir = caches.dir();
+    assertThat(dir.listFiles()).isNotEmpty();
+
     caches.stop();
 
+    assertThat(dir).doesNotExist();
     // manager continues up
-    assertThat(cachesManager.persistit().isInitialized()).isTrue();
+    assertThat(cachesManager.tempDir()).isDirectory();
 
     caches = new Storages(cachesManager);
     caches.start();
@@ -63,7 +75,7 @@ public class StoragesTest extends AbstractCachesTest {
   }
 
   @Test
-  public void leak_test() throws PersistitException {
+  public void leak_test() {
     caches.stop();
 
     int len = 1 * 1024 * 1024;
@@ -77,14 +89,57 @@ public class StoragesTest extends AbstractCachesTest {
       caches.start();
       Storage<String> c = caches.<String>createCache("test" + i);
       c.put("key" + i, sb.toString());
-      cachesManager.persistit().flush();
 
       caches.stop();
     }
   }
 
+  @Test
+  public void should_store_values_with_registered_codec() {
+    ElementCodec codec = new ElementCodec();
+    caches.registerValueCodec(Element.class, codec);
+    Storage<Element> cache = caches.createCache("foo");
+
+    cache.put("a", new Element("first"));
+    cache.put("b", new Element("second"));
+
+    assertThat(cache.get("a").name).isEqualTo("first");
+    assertThat(cache.get("b").name).isEqualTo("second");
+    assertThat(codec.encoded).isEqualTo(2);
+  }
+
+  @Test
+  public void should_not_create_cache_when_stopped() {
+    caches.stop();
+
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage("Caches are not initialized");
+
+    caches.createCache("foo");
+  }
+
   private static class Element implements Serializable {
     private static final long serialVersionUID = 1L;
 
+    private final String name;
+
+    private Element(String name) {
+      this.name = name;
+    }
+  }
+
+  private static class ElementCodec implements StorageCodec<Element> {
+    private int encoded = 0;
+
+    @Override
+    public void encode(Element value, DataOutput output) throws IOException {
+      encoded++;
+      output.writeUTF(value.name);
+    }
+
+    @Override
+    public Element decode(DataInput input) throws IOException {
+      return new Element(input.readUTF());
+    }
   }
 }
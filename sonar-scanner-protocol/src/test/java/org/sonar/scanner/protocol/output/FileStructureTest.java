@@ -71,6 +71,12 @@ public class FileStructureTest {
     assertThat(structure.fileFor(FileStructure.Domain.ISSUES, 42)).doesNotExist();
   }
 
+  @Test
+  public void fileNameFor_is_relative_to_root_of_report() {
+    assertThat(FileStructure.fileNameFor(FileStructure.Domain.ISSUES, 3)).isEqualTo("issues-3.pb");
+    assertThat(FileStructure.fileNameFor(FileStructure.Domain.SOURCE, 42)).isEqualTo("source-42.txt");
+  }
+
   @Test
   public void contextProperties_file() throws Exception {
     File dir = temp.newFolder();
@@ -69,6 +69,7 @@ import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_CREATED_AFT
 import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_CREATED_AT;
 import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_CREATED_BEFORE;
 import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_CREATED_IN_LAST;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_CURSOR;
 import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_DIRECTORIES;
 import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_DO_TRANSITION;
 import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_FILE_UUIDS;
@@ -176,6 +177,7 @@ public class IssuesService extends BaseService {
         .setParam(PARAM_CREATED_AT, request.getCreatedAt())
         .setParam(PARAM_CREATED_BEFORE, request.getCreatedBefore())
         .setParam(PARAM_CREATED_IN_LAST, request.getCreatedInLast())
+        .setParam(PARAM_CURSOR, request.getCursor())
         .setParam(PARAM_DIRECTORIES, inlineMultipleParamValue(request.getDirectories()))
         .setParam(PARAM_BRANCH, request.getBranch())
         .setParam(FACET_MODE, request.getFacetMode())
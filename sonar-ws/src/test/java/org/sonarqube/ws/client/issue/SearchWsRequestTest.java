@@ -531,6 +531,22 @@ public class SearchWsRequestTest {
     assertThat(underTest.getCreatedInLast()).isEqualTo(SOME_STRING);
   }
 
+  @Test
+  public void getCursor_returns_null_when_SearchWsRequest_has_just_been_instantiated() {
+    assertThat(underTest.getCursor()).isNull();
+  }
+
+  @Test
+  public void setCursor_accepts_null() {
+    underTest.setCursor(null);
+  }
+
+  @Test
+  public void getCursor_returns_object_from_setCursor() {
+    underTest.setCursor(SOME_STRING);
+    assertThat(underTest.getCursor()).isEqualTo(SOME_STRING);
+  }
+
   @Test
   public void getFacetMode_returns_null_when_SearchWsRequest_has_just_been_instantiated() {
     assertThat(underTest.getFacetMode()).isNull();
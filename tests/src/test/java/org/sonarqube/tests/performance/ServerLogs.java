@@ -90,4 +90,27 @@ public class ServerLogs {
     return null;
   }
 
+  /**
+   * 2017.10.17 16:57:45 INFO ce[AV8rIW0I7Kq3ayWWGrCP][o.s.s.c.t.p.s.PersistIssuesStep] Persisted 222000 issues in 12034ms (18447 rows/s)
+   *
+   * @param rowType type of the persisted rows, for example "issues" or "measures"
+   */
+  public static Long extractPersistenceRowsPerSecond(Orchestrator orchestrator, String rowType) throws IOException {
+    File report = orchestrator.getServer().getCeLogs();
+    List<String> logsLines = FileUtils.readLines(report, Charsets.UTF_8);
+    return extractPersistenceRowsPerSecond(logsLines, rowType);
+  }
+
+  static Long extractPersistenceRowsPerSecond(List<String> logs, String rowType) {
+    Pattern pattern = Pattern.compile(".*INFO.*Persisted \\d+ " + Pattern.quote(rowType) + " in \\d+ms \\((\\d+) rows/s\\).*");
+    for (int i = logs.size() - 1; i >= 0; i--) {
+      Matcher matcher = pattern.matcher(logs.get(i));
+      if (matcher.matches()) {
+        return Long.parseLong(matcher.group(1));
+      }
+    }
+
+    return null;
+  }
+
 }
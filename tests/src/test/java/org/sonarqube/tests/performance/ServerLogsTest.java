@@ -20,6 +20,7 @@
 package org.sonarqube.tests.performance;
 
 import com.google.common.collect.Lists;
+import java.util.List;
 import org.junit.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -33,4 +34,15 @@ public class ServerLogsTest {
         .isEqualTo(1234L);
   }
 
+  @Test
+  public void extract_persistence_rows_per_second_of_the_specified_row_type() throws Exception {
+    List<String> logs = Lists.newArrayList(
+      "2017.10.17 16:57:45 INFO  ce[AV8rIW0I7Kq3ayWWGrCP][o.s.s.c.t.p.s.PersistMeasuresStep] Persisted 12000 measures in 1000ms (12000 rows/s)",
+      "2017.10.17 16:57:47 INFO  ce[AV8rIW0I7Kq3ayWWGrCP][o.s.s.c.t.p.s.PersistIssuesStep] Persisted 2000 issues in 1000ms (2000 rows/s)");
+
+    assertThat(ServerLogs.extractPersistenceRowsPerSecond(logs, "measures")).isEqualTo(12_000L);
+    assertThat(ServerLogs.extractPersistenceRowsPerSecond(logs, "issues")).isEqualTo(2_000L);
+    assertThat(ServerLogs.extractPersistenceRowsPerSecond(logs, "duplications")).isNull();
+  }
+
 }
@@ -52,12 +52,14 @@ public class FileSystemTest extends AbstractPerfTest {
   public static Orchestrator orchestrator = ScannerPerformanceSuite.ORCHESTRATOR;
 
   private static File baseDir;
+  private static File hugeFilesBaseDir;
 
   @BeforeClass
   public static void setUp() throws IOException {
     // Execute a first analysis to prevent any side effects with cache of plugin JAR files
     orchestrator.executeBuild(newScanner("-Xmx512m -server", "sonar.profile", "one-xoo-issue-per-line"));
     baseDir = prepareProject();
+    hugeFilesBaseDir = prepareProjectWithHugeFiles();
   }
 
   @Before
@@ -70,22 +72,35 @@ public class FileSystemTest extends AbstractPerfTest {
     run(128, 30000L);
   }
 
+  /**
+   * Metadata of files (hash, lines, line offsets) of projects/performance/huge-file, which is not only ASCII
+   */
+  @Test
+  public void indexProjectWith100HugeFilesXmx128() throws IOException {
+    run(hugeFilesBaseDir, "filesystemHugeFilesXmx128", 128, 15000L);
+  }
+
   private void run(int xmx, long expectedDuration) throws IOException {
+    run(baseDir, "filesystemXmx" + xmx, xmx, expectedDuration);
+  }
+
+  private void run(File projectDir, String projectKey, int xmx, long expectedDuration) throws IOException {
     SonarRunner runner = SonarRunner.create()
       .setProperties(
-        "sonar.projectKey", "filesystemXmx" + xmx,
-        "sonar.projectName", "filesystem xmx" + xmx,
+        "sonar.projectKey", projectKey,
+        "sonar.projectName", projectKey,
         "sonar.projectVersion", "1.0",
         "sonar.sources", "src",
+        "sonar.sourceEncoding", "UTF-8",
         "sonar.analysis.mode", "issues",
         "sonar.preloadFileMetadata", "true",
         "sonar.showProfiling", "true")
       .setEnvironmentVariable("SONAR_RUNNER_OPTS", "-Xmx" + xmx + "m -server")
-      .setProjectDir(baseDir);
+      .setProjectDir(projectDir);
 
     orchestrator.executeBuild(runner);
 
-    Properties prof = readProfiling(baseDir, "filesystemXmx" + xmx);
+    Properties prof = readProfiling(projectDir, projectKey);
     perfRule.assertDurationAround(Long.valueOf(prof.getProperty("Index filesystem")), expectedDuration);
   }
 
@@ -103,4 +118,17 @@ public class FileSystemTest extends AbstractPerfTest {
     return baseDir;
   }
 
+  private static File prepareProjectWithHugeFiles() throws IOException {
+    File baseDir = temp.newFolder();
+    File srcDir = new File(baseDir, "src");
+    srcDir.mkdir();
+
+    File hugeFile = new File("projects/performance/huge-file/src/main/java/huge/HugeFile.java");
+    int nbFiles = 100;
+    for (int nb = 1; nb <= nbFiles; nb++) {
+      FileUtils.copyFile(hugeFile, new File(srcDir, "HugeFile" + nb + ".xoo"));
+    }
+    return baseDir;
+  }
+
 }
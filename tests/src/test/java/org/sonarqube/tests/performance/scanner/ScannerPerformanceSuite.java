@@ -36,7 +36,8 @@ import org.sonarqube.tests.performance.AbstractPerfTest;
   FileSystemTest.class,
   HighlightingTest.class,
   IssuesModeTest.class,
-  MemoryTest.class
+  MemoryTest.class,
+  StorageTest.class
 })
 public class ScannerPerformanceSuite {
 
@@ -0,0 +1,102 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarqube.tests.performance.scanner;
+
+import com.sonar.orchestrator.Orchestrator;
+import com.sonar.orchestrator.build.BuildResult;
+import com.sonar.orchestrator.build.SonarScanner;
+import java.io.File;
+import java.io.IOException;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonarqube.tests.performance.AbstractPerfTest;
+import org.sonarqube.tests.performance.MavenLogs;
+
+/**
+ * Stresses the storages of the scanner (issues and measures) with 100,000 issues and a small heap.
+ * To compare with the former Persistit-based storages, execute this test on the revision that
+ * precedes their replacement by memory-mapped segments.
+ * There is no target duration yet: it must be calibrated on the performance environment first.
+ * The analysis must succeed with a heap of 128 MB.
+ */
+public class StorageTest extends AbstractPerfTest {
+
+  private static final int NB_FILES = 500;
+  private static final int NB_LINES = 200;
+
+  @ClassRule
+  public static Orchestrator orchestrator = ScannerPerformanceSuite.ORCHESTRATOR;
+
+  @ClassRule
+  public static TemporaryFolder temp = new TemporaryFolder();
+
+  private static File baseDir;
+
+  @BeforeClass
+  public static void setUp() throws IOException {
+    baseDir = prepareProject();
+  }
+
+  @Before
+  public void cleanDatabase() {
+    orchestrator.resetData();
+  }
+
+  @Test
+  public void issues_mode_scan_of_100_000_issues_with_xmx_128() throws IOException {
+    orchestrator.getServer().provisionProject("storage", "storage");
+    orchestrator.getServer().associateProjectToQualityProfile("storage", "xoo", "one-xoo-issue-per-line");
+    SonarScanner scanner = SonarScanner.create()
+      .setProperties(
+        "sonar.projectKey", "storage",
+        "sonar.projectName", "storage",
+        "sonar.projectVersion", "1.0",
+        "sonar.sources", "src",
+        "sonar.analysis.mode", "issues",
+        "sonar.userHome", temp.newFolder().getAbsolutePath(),
+        "sonar.scm.disabled", "true",
+        "sonar.cpd.exclusions", "**",
+        "sonar.showProfiling", "true")
+      .setEnvironmentVariable("SONAR_SCANNER_OPTS", "-Xmx128m -server")
+      .setProjectDir(baseDir);
+
+    BuildResult result = orchestrator.executeBuild(scanner);
+
+    // values of storages are kept out of the heap, so the analysis does not fail with a small heap
+    System.out.printf("Test %s : executed in %d ms, final memory is %d MB\n", testName.getMethodName(),
+      MavenLogs.extractTotalTime(result.getLogs()), MavenLogs.extractEndMemory(result.getLogs()));
+  }
+
+  private static File prepareProject() throws IOException {
+    File dir = temp.newFolder();
+    File srcDir = new File(dir, "src");
+    srcDir.mkdir();
+    for (int nb = 1; nb <= NB_FILES; nb++) {
+      File xooFile = new File(srcDir, "sample" + nb + ".xoo");
+      FileUtils.write(xooFile, StringUtils.repeat(StringUtils.repeat("a", 100) + "\n", NB_LINES));
+    }
+    return dir;
+  }
+}
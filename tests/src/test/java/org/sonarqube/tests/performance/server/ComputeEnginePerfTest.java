@@ -34,6 +34,8 @@ import org.junit.rules.TemporaryFolder;
 import org.sonarqube.tests.performance.AbstractPerfTest;
 import org.sonarqube.tests.performance.ServerLogs;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 public class ComputeEnginePerfTest extends AbstractPerfTest {
   private static int MAX_HEAP_SIZE_IN_MEGA = 600;
 
@@ -76,6 +78,16 @@ public class ComputeEnginePerfTest extends AbstractPerfTest {
     orchestrator.executeBuild(scanner);
 
     assertComputationDurationAround(378_000L);
+    assertPersistenceRowsPerSecondAtLeast("issues", 10_000L);
+    assertPersistenceRowsPerSecondAtLeast("measures", 10_000L);
+  }
+
+  private void assertPersistenceRowsPerSecondAtLeast(String rowType, long expectedMinRowsPerSecond) throws IOException {
+    Long rowsPerSecond = ServerLogs.extractPersistenceRowsPerSecond(orchestrator, rowType);
+
+    System.out.printf("Test %s : %s persisted at %d rows/s (min allowed is %d)\n", testName.getMethodName(), rowType, rowsPerSecond, expectedMinRowsPerSecond);
+    assertThat(rowsPerSecond).as(String.format("Expected at least %d %s persisted per second", expectedMinRowsPerSecond, rowType))
+      .isGreaterThanOrEqualTo(expectedMinRowsPerSecond);
   }
 
   private void assertComputationDurationAround(long expectedDuration) throws IOException {